@@ -16,6 +16,7 @@ package org.sensorhub.api.comm.mqtt;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 
 /**
@@ -117,4 +118,27 @@ public interface IMqttServer
      */
     CompletableFuture<Boolean> publish(String topic, ByteBuffer payload, ByteBuffer correlData);
     
+    
+    /**
+     * Publish an outbound message using the MQTT service, transferring
+     * ownership of the payload buffer to the service until the operation
+     * completes. The buffer is then passed to the release handler so it can
+     * be reused by the caller, which can thus prepare the next message while
+     * the previous one is still being published.
+     * @param topic MQTT topic to publish to
+     * @param payload Payload data, which must not be modified until released
+     * @param correlData Correlation data or null if not present
+     * @param releaseHandler Callback receiving the payload buffer when the
+     * service doesn't need it anymore, or null if not needed
+     * @return future that will be completed when PUBLISH operation is
+     * confirmed (true) or rejected (false)
+     */
+    default CompletableFuture<Boolean> publish(String topic, ByteBuffer payload, ByteBuffer correlData, Consumer<ByteBuffer> releaseHandler)
+    {
+        var future = publish(topic, payload, correlData);
+        if (releaseHandler != null)
+            future = future.whenComplete((ok, e) -> releaseHandler.accept(payload));
+        return future;
+    }
+    
 }
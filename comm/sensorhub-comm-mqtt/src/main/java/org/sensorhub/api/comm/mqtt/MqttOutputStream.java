@@ -17,6 +17,9 @@ package org.sensorhub.api.comm.mqtt;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 import org.vast.util.Asserts;
 
 
@@ -25,6 +28,11 @@ import org.vast.util.Asserts;
  * Adapter output stream for sending data to an MQTT topic.<br/>
  * Data is buffered in a byte array, then packaged to an MQTT message and sent
  * to the topic when send() is called.
+ * </p><p>
+ * The byte array is handed over to the MQTT server with each message, and
+ * writing continues in another array taken from a small pool, so the next
+ * message can be prepared while the previous one is still being published.
+ * Arrays are returned to the pool when the server releases them.
  * </p>
  *
  * @author Alex Robin
@@ -32,11 +40,14 @@ import org.vast.util.Asserts;
  */
 public class MqttOutputStream extends ByteArrayOutputStream
 {
+    static final int MAX_FREE_BUFFERS = 8;
+    
     protected IMqttServer server;
     protected String topic;
-    protected ByteBuffer buffer;
-    protected ByteBuffer correlData;
+    protected int bufferSize;
     protected boolean autoSendOnFlush;
+    protected BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(MAX_FREE_BUFFERS);
+    protected Consumer<ByteBuffer> releaseHandler = this::releaseBuffer;
     
     
     public MqttOutputStream(IMqttServer server, String topic, int bufferSize, boolean autoSendOnFlush)
@@ -44,8 +55,7 @@ public class MqttOutputStream extends ByteArrayOutputStream
         super(bufferSize);
         this.server = Asserts.checkNotNull(server, IMqttServer.class);
         this.topic = topic;
-        this.buffer = ByteBuffer.wrap(this.buf);
-        this.correlData = ByteBuffer.allocate(8);
+        this.bufferSize = bufferSize;
         this.autoSendOnFlush = autoSendOnFlush;
     }
     
@@ -70,32 +80,41 @@ public class MqttOutputStream extends ByteArrayOutputStream
     }
     
     
-    public void send(long correlId) throws IOException
+    public synchronized void send(long correlId) throws IOException
     {
         // do nothing if no more bytes have been written since last call
         if (count == 0)
             return;
         
-        // detect when buffer has grown
-        if (count > buffer.capacity())
-            this.buffer = ByteBuffer.wrap(this.buf);
-        
-        buffer.limit(count);
+        var payload = ByteBuffer.wrap(buf, 0, count);
         
+        ByteBuffer correlData = null;
         if (correlId != 0)
         {
-            correlData.clear();
+            correlData = ByteBuffer.allocate(8);
             correlData.putLong(correlId);
             correlData.flip();
-            server.publish(topic, buffer, correlData);
         }
-        else
-            server.publish(topic, buffer);
-        //System.out.println("Sending " + count + " bytes");
         
-        // reset so we can write again in same buffer
-        this.reset();
-        buffer.rewind();
+        // continue writing in another buffer while this one is in flight
+        buf = acquireBuffer();
+        count = 0;
+        
+        server.publish(topic, payload, correlData, releaseHandler);
+    }
+    
+    
+    protected byte[] acquireBuffer()
+    {
+        var buffer = freeBuffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+    
+    
+    protected void releaseBuffer(ByteBuffer payload)
+    {
+        // drop buffer if enough are already available
+        freeBuffers.offer(payload.array());
     }
 
 }
@@ -14,6 +14,9 @@ Copyright (C) 2021 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.process.video;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.util.Arrays;
 import org.bytedeco.javacpp.BytePointer;
 import org.vast.data.DataBlockByte;
 
@@ -22,6 +25,15 @@ import org.vast.data.DataBlockByte;
  * <p>
  * DataBlockByte extension carrying a native JavaCPP pointer for direct
  * use in subsequent native code (e.g. FFMPEG decoder -> OpenCV algo)
+ * </p><p>
+ * The block holds one reference on its {@link NativeFrame}, which is released
+ * when the block is garbage collected. Native code must thus keep the block
+ * reachable while using the pointer (see {@link java.lang.ref.Reference#reachabilityFence}),
+ * or retain the frame itself.
+ * </p><p>
+ * Frame data is only copied to a Java byte array when it is accessed with
+ * the regular DataBlock methods. Modifying the block through these methods
+ * detaches it from the native frame.
  * </p>
  *
  * @author Alex Robin
@@ -30,20 +42,461 @@ import org.vast.data.DataBlockByte;
 public class DataBlockByteNative extends DataBlockByte
 {
     private static final long serialVersionUID = -9198205679143401216L;
-    
-    BytePointer pointer;
-    
-    
+    private static final Cleaner cleaner = Cleaner.create();
+
+    transient NativeFrame frame;
+    transient Cleanable cleanable;
+    transient volatile boolean heapReady;
+
+
+    /**
+     * Wraps native memory managed by the caller, without copy
+     * @param pointer Pointer to the frame data
+     * @param length Length of frame data in bytes
+     */
     public DataBlockByteNative(BytePointer pointer, int length)
     {
-        var frameData = new byte[length];
-        pointer.get(frameData);
-        setUnderlyingObject(frameData);
+        this(new NativeFrame(pointer, length));
+    }
+
+
+    /**
+     * Wraps a native frame without copy. The block takes ownership of one
+     * reference held by the caller on the frame.
+     * @param frame Native frame
+     */
+    public DataBlockByteNative(NativeFrame frame)
+    {
+        this.frame = frame;
+        this.cleanable = cleaner.register(this, frame::release);
+        this.atomCount = frame.getLength();
+        this.startIndex = 0;
     }
-    
-    
+
+
+    /*
+     * Empty block used when renewing, so no heap array is allocated
+     * before the decoder sets the next native frame
+     */
+    protected DataBlockByteNative(int size)
+    {
+        this.atomCount = size;
+        this.startIndex = 0;
+    }
+
+
+    /**
+     * @return Pointer to the native frame data, or null if the block is not
+     * (or no longer) backed by a native frame
+     */
     public BytePointer getNativePointer()
     {
-        return this.pointer;
+        var frame = this.frame;
+        return frame != null ? frame.getPointer() : null;
+    }
+
+
+    /**
+     * @return The native frame backing this block, or null
+     */
+    public NativeFrame getNativeFrame()
+    {
+        return frame;
+    }
+
+
+    public boolean hasNativeData()
+    {
+        return frame != null;
+    }
+
+
+    protected final void ensureHeapArray()
+    {
+        if (!heapReady)
+            copyToHeap();
+    }
+
+
+    private synchronized void copyToHeap()
+    {
+        if (heapReady)
+            return;
+
+        var data = new byte[atomCount];
+        if (frame != null)
+            frame.getPointer().get(data, 0, atomCount);
+        primitiveArray = data;
+        startIndex = 0;
+        heapReady = true;
+    }
+
+
+    /*
+     * Called before the block is modified by Java code
+     */
+    protected synchronized void detachNative(boolean copyData)
+    {
+        if (copyData)
+            ensureHeapArray();
+
+        if (cleanable != null)
+        {
+            frame = null;
+            cleanable.clean();
+            cleanable = null;
+        }
+    }
+
+
+    @Override
+    public DataBlockByteNative copy()
+    {
+        DataBlockByteNative newBlock;
+        synchronized (this)
+        {
+            if (frame != null)
+            {
+                newBlock = new DataBlockByteNative(frame.retain());
+            }
+            else
+            {
+                newBlock = new DataBlockByteNative(atomCount);
+            }
+
+            if (heapReady)
+            {
+                newBlock.primitiveArray = this.primitiveArray;
+                newBlock.startIndex = this.startIndex;
+                newBlock.heapReady = true;
+            }
+        }
+
+        return newBlock;
+    }
+
+
+    @Override
+    public DataBlockByteNative renew()
+    {
+        return new DataBlockByteNative(atomCount);
+    }
+
+
+    @Override
+    public DataBlockByte clone()
+    {
+        ensureHeapArray();
+        var newBlock = new DataBlockByte();
+        newBlock.setUnderlyingObject(Arrays.copyOfRange(primitiveArray, startIndex, startIndex + atomCount));
+        return newBlock;
+    }
+
+
+    /*
+     * Native frame is not serialized, a regular byte block is sent instead
+     */
+    private Object writeReplace()
+    {
+        return clone();
+    }
+
+
+    @Override
+    public byte[] getUnderlyingObject()
+    {
+        ensureHeapArray();
+        return super.getUnderlyingObject();
+    }
+
+
+    @Override
+    public void setUnderlyingObject(byte[] primitiveArray)
+    {
+        detachNative(false);
+        super.setUnderlyingObject(primitiveArray);
+        heapReady = true;
+    }
+
+
+    @Override
+    public void setUnderlyingObject(Object obj)
+    {
+        detachNative(false);
+        super.setUnderlyingObject(obj);
+        heapReady = true;
+    }
+
+
+    @Override
+    public void resize(int size)
+    {
+        detachNative(false);
+        super.resize(size);
+        heapReady = true;
+    }
+
+
+    @Override
+    public boolean getBooleanValue()
+    {
+        ensureHeapArray();
+        return super.getBooleanValue();
+    }
+
+
+    @Override
+    public boolean getBooleanValue(int index)
+    {
+        ensureHeapArray();
+        return super.getBooleanValue(index);
+    }
+
+
+    @Override
+    public byte getByteValue()
+    {
+        ensureHeapArray();
+        return super.getByteValue();
+    }
+
+
+    @Override
+    public byte getByteValue(int index)
+    {
+        ensureHeapArray();
+        return super.getByteValue(index);
+    }
+
+
+    @Override
+    public short getShortValue()
+    {
+        ensureHeapArray();
+        return super.getShortValue();
+    }
+
+
+    @Override
+    public short getShortValue(int index)
+    {
+        ensureHeapArray();
+        return super.getShortValue(index);
+    }
+
+
+    @Override
+    public int getIntValue()
+    {
+        ensureHeapArray();
+        return super.getIntValue();
+    }
+
+
+    @Override
+    public int getIntValue(int index)
+    {
+        ensureHeapArray();
+        return super.getIntValue(index);
+    }
+
+
+    @Override
+    public long getLongValue()
+    {
+        ensureHeapArray();
+        return super.getLongValue();
+    }
+
+
+    @Override
+    public long getLongValue(int index)
+    {
+        ensureHeapArray();
+        return super.getLongValue(index);
+    }
+
+
+    @Override
+    public float getFloatValue()
+    {
+        ensureHeapArray();
+        return super.getFloatValue();
+    }
+
+
+    @Override
+    public float getFloatValue(int index)
+    {
+        ensureHeapArray();
+        return super.getFloatValue(index);
+    }
+
+
+    @Override
+    public double getDoubleValue()
+    {
+        ensureHeapArray();
+        return super.getDoubleValue();
+    }
+
+
+    @Override
+    public double getDoubleValue(int index)
+    {
+        ensureHeapArray();
+        return super.getDoubleValue(index);
+    }
+
+
+    @Override
+    public String getStringValue()
+    {
+        ensureHeapArray();
+        return super.getStringValue();
+    }
+
+
+    @Override
+    public String getStringValue(int index)
+    {
+        ensureHeapArray();
+        return super.getStringValue(index);
+    }
+
+
+    @Override
+    public void setBooleanValue(boolean value)
+    {
+        detachNative(true);
+        super.setBooleanValue(value);
+    }
+
+
+    @Override
+    public void setBooleanValue(int index, boolean value)
+    {
+        detachNative(true);
+        super.setBooleanValue(index, value);
+    }
+
+
+    @Override
+    public void setByteValue(byte value)
+    {
+        detachNative(true);
+        super.setByteValue(value);
+    }
+
+
+    @Override
+    public void setByteValue(int index, byte value)
+    {
+        detachNative(true);
+        super.setByteValue(index, value);
+    }
+
+
+    @Override
+    public void setShortValue(short value)
+    {
+        detachNative(true);
+        super.setShortValue(value);
+    }
+
+
+    @Override
+    public void setShortValue(int index, short value)
+    {
+        detachNative(true);
+        super.setShortValue(index, value);
+    }
+
+
+    @Override
+    public void setIntValue(int value)
+    {
+        detachNative(true);
+        super.setIntValue(value);
+    }
+
+
+    @Override
+    public void setIntValue(int index, int value)
+    {
+        detachNative(true);
+        super.setIntValue(index, value);
+    }
+
+
+    @Override
+    public void setLongValue(long value)
+    {
+        detachNative(true);
+        super.setLongValue(value);
+    }
+
+
+    @Override
+    public void setLongValue(int index, long value)
+    {
+        detachNative(true);
+        super.setLongValue(index, value);
+    }
+
+
+    @Override
+    public void setFloatValue(float value)
+    {
+        detachNative(true);
+        super.setFloatValue(value);
+    }
+
+
+    @Override
+    public void setFloatValue(int index, float value)
+    {
+        detachNative(true);
+        super.setFloatValue(index, value);
+    }
+
+
+    @Override
+    public void setDoubleValue(double value)
+    {
+        detachNative(true);
+        super.setDoubleValue(value);
+    }
+
+
+    @Override
+    public void setDoubleValue(int index, double value)
+    {
+        detachNative(true);
+        super.setDoubleValue(index, value);
+    }
+
+
+    @Override
+    public void setStringValue(String value)
+    {
+        detachNative(true);
+        super.setStringValue(value);
+    }
+
+
+    @Override
+    public void setStringValue(int index, String value)
+    {
+        detachNative(true);
+        super.setStringValue(index, value);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        ensureHeapArray();
+        return super.toString();
     }
 }
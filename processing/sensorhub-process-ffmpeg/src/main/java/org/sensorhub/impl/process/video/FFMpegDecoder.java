@@ -20,6 +20,7 @@ import static org.bytedeco.ffmpeg.global.swscale.*;
 import java.util.Arrays;
 import net.opengis.swe.v20.Count;
 import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataRecord;
 import net.opengis.swe.v20.DataType;
 import net.opengis.swe.v20.Text;
 import net.opengis.swe.v20.Time;
@@ -31,8 +32,8 @@ import org.bytedeco.ffmpeg.swscale.SwsContext;
 import org.bytedeco.javacpp.BytePointer;
 import org.bytedeco.javacpp.PointerPointer;
 import org.sensorhub.api.processing.OSHProcessInfo;
-import org.vast.data.DataBlockByte;
 import org.vast.data.DataBlockCompressed;
+import org.vast.data.DataBlockMixed;
 import org.vast.process.ExecutableProcessImpl;
 import org.vast.process.ProcessException;
 import org.vast.swe.SWEConstants;
@@ -51,6 +52,7 @@ import org.vast.swe.helper.RasterHelper;
 public class FFMpegDecoder extends ExecutableProcessImpl
 {
 	public static final OSHProcessInfo INFO = new OSHProcessInfo("video:FFMpegDecoder", "FFMPEG Video Decoder", null, FFMpegDecoder.class);
+	static final int MAX_FREE_FRAMES = 8;
 	
 	enum CodecEnum {
 	    //AUTO("auto"),
@@ -71,11 +73,13 @@ public class FFMpegDecoder extends ExecutableProcessImpl
 	Time inputTimeStamp;
 	Count inputWidth, inputHeight;
 	DataArray imgIn;
+	DataRecord rgbFrameOut;
 	Time outputTimeStamp;
 	Count outputWidth, outputHeight;
     DataArray imgOut;
     Text codecParam;
     Count decimFactorParam;
+    Count numThreadsParam;
     
     AVCodec decoder = null;
     AVCodecContext decode_ctx = null;
@@ -84,7 +88,10 @@ public class FFMpegDecoder extends ExecutableProcessImpl
     AVFrame sws_frame = null;
     AVPacket dec_pkt = null;
     BytePointer nativeFrameData;
-    int frameCounter = 0;
+    NativeFramePool framePool;
+    int imgOutIdx;
+    long frameCounter = 0;
+    long nextOutputFrame = 1;
     int decimFactor = 1;
     boolean publish;
     
@@ -124,11 +131,18 @@ public class FFMpegDecoder extends ExecutableProcessImpl
         paramData.add("decimFactor", decimFactorParam = swe.createCount()
             .definition(SWEConstants.DEF_COEF)
             .label("Decimation Factor")
-            .description("Decimation factor of input frames. Only 1 frame every 'decimFactor' frames will be outputted")
+            .description("Decimation factor of input frames. Only 1 frame every 'decimFactor' frames will be outputted. "
+                + "When > 1, non-reference frames are not decoded at all")
+            .build());
+        
+        paramData.add("numThreads", numThreadsParam = swe.createCount()
+            .label("Decoding Threads")
+            .description("Number of threads used for frame and slice multithreading. "
+                + "Decoding is single threaded if not set or <= 1, to keep latency minimal")
             .build());
         
         // outputs
-        outputData.add("rgbFrame", swe.createRecord()
+        outputData.add("rgbFrame", rgbFrameOut = swe.createRecord()
             .label("Video Frame")
             .addField("time", outputTimeStamp = swe.createTime()
                 .asSamplingTimeIsoUTC()
@@ -146,6 +160,7 @@ public class FFMpegDecoder extends ExecutableProcessImpl
                 outputHeight,
                 DataType.BYTE))
             .build());
+        imgOutIdx = rgbFrameOut.getComponentIndex("img");
     }
 
 
@@ -184,7 +199,16 @@ public class FFMpegDecoder extends ExecutableProcessImpl
     public void init() throws ProcessException
     {
         super.init();
+        // frame counter is incremented before decoding so 1st packet is #1
         frameCounter = 0;
+        nextOutputFrame = 1;
+        
+        // set decimation factor
+        decimFactor = decimFactorParam.getData().getIntValue();
+        if (decimFactor < 0)
+            throw new ProcessException("Decimation factor must be > 0. Current value is " + decimFactor);
+        if (decimFactor == 0)
+            decimFactor = 1;
         
         // init decoder according to configured codec
         try
@@ -194,6 +218,21 @@ public class FFMpegDecoder extends ExecutableProcessImpl
             // init decoder context
             decoder = avcodec_find_decoder_by_name(codec.ffmpegName);
             decode_ctx = avcodec_alloc_context3(decoder);
+            
+            // skip non-reference frames when decimating since most of them
+            // would be dropped anyway and nothing depends on them
+            if (decimFactor > 1)
+                decode_ctx.skip_frame(AVDISCARD_NONREF);
+            
+            // enable multithreading if requested
+            // frame threading adds one frame of latency per thread
+            int numThreads = numThreadsParam.hasData() ? numThreadsParam.getData().getIntValue() : 0;
+            if (numThreads > 1)
+            {
+                decode_ctx.thread_count(numThreads);
+                decode_ctx.thread_type(FF_THREAD_FRAME | FF_THREAD_SLICE);
+            }
+            
             if (avcodec_open2(decode_ctx, decoder, (PointerPointer<?>)null) < 0) {
                 throw new IllegalStateException("Error initializing " + codec + " decoder");
             }
@@ -205,18 +244,12 @@ public class FFMpegDecoder extends ExecutableProcessImpl
             av_frame = av_frame_alloc();
             sws_frame = av_frame_alloc();
             nativeFrameData = new BytePointer((long)50*1024);
+            framePool = new NativeFramePool(MAX_FREE_FRAMES);
         }
         catch (IllegalArgumentException e)
         {
             reportError("Unsupported codec. Must be one of " + Arrays.toString(CodecEnum.values()));
         }
-        
-        // set decimation factor
-        decimFactor = decimFactorParam.getData().getIntValue();
-        if (decimFactor < 0)
-            throw new ProcessException("Decimation factor must be > 0. Current value is " + decimFactor);
-        if (decimFactor == 0)
-            decimFactor = 1;
     }
 
 
@@ -229,11 +262,10 @@ public class FFMpegDecoder extends ExecutableProcessImpl
         int frameHeight = av_frame.height();
         
         // init scaler
+        // output buffers are pooled native frames set before each call to sws_scale
         sws_frame.format(AV_PIX_FMT_RGB24);
         sws_frame.width(frameWidth);
         sws_frame.height(frameHeight);
-        av_image_alloc(sws_frame.data(), sws_frame.linesize(), 
-                frameWidth, frameHeight, AV_PIX_FMT_RGB24, 1);
         
         sws_ctx = sws_getContext(frameWidth, frameHeight, AV_PIX_FMT_YUV420P,
                 frameWidth, frameHeight, AV_PIX_FMT_RGB24, SWS_BICUBIC, null, null, (double[])null);
@@ -260,40 +292,88 @@ public class FFMpegDecoder extends ExecutableProcessImpl
         nativeFrameData.put(frameData);
                 
         // decode frame
+        // input timestamp is carried by the packet since frames can come out
+        // of the decoder later than the packet they were sent with
+        var ts = inputTimeStamp.getData().getDoubleValue();
         dec_pkt.data(nativeFrameData);
         dec_pkt.size(frameData.length);
-        /*int ret1 = */avcodec_send_packet(decode_ctx, dec_pkt);
-        int ret2 = avcodec_receive_frame(decode_ctx, av_frame);
+        dec_pkt.pts(Math.round(ts * 1e6));
+        frameCounter++;
+        publish = false;
+        
+        int ret = avcodec_send_packet(decode_ctx, dec_pkt);
+        if (ret == AVERROR_EAGAIN())
+        {
+            // decoder won't accept more data until we read its output
+            receiveFrames();
+            ret = avcodec_send_packet(decode_ctx, dec_pkt);
+        }
         av_packet_unref(dec_pkt);
-        //System.out.printf("decode: ret1 %d ret2 %d\n", ret1, ret2);
         
-        if (ret2 == 0)
-        {                
+        if (ret < 0)
+            getLogger().debug("Error sending packet to decoder: {}", ret);
+        
+        // read all frames available after this packet
+        receiveFrames();
+    }
+    
+    
+    /*
+     * Reads all frames available from the decoder.
+     * Frames previously written to the outputs are published before writing
+     * the next one, the last frame being published after execute() returns
+     */
+    protected void receiveFrames() throws ProcessException
+    {
+        while (avcodec_receive_frame(decode_ctx, av_frame) == 0)
+        {
             // init scaler once we decode the 1st frame
             if (sws_ctx == null )
                 initScaler(av_frame);
             
-            if (frameCounter++ % decimFactor == 0)
+            // skip frame if we haven't received enough input frames since the last
+            // output, so the output rate is kept even when some frames are not decoded
+            if (frameCounter < nextOutputFrame)
+                continue;
+            nextOutputFrame = Math.max(nextOutputFrame + decimFactor, frameCounter + 1);
+            
+            if (publish)
             {
-                // apply scaler (needed to convert from YUV to RGB)
-                sws_scale(sws_ctx, av_frame.data(), av_frame.linesize(), 0, av_frame.height(), sws_frame.data(), sws_frame.linesize());
-                
-                // write decoded data to output
-                // TODO use special datablock to encapsulate native buffer
-                // would be more efficient when passing frame to other native libraries (e.g. OpenCV)
-                
-                frameData = new byte[av_frame.width() * av_frame.height() * 3];
-                sws_frame.data(0).get(frameData);
-                ((DataBlockByte)imgOut.getData()).setUnderlyingObject(frameData);
-                
-                // also copy frame timestamp
-                var ts = inputTimeStamp.getData().getDoubleValue();
-                outputTimeStamp.getData().setDoubleValue(ts);
-                
-                publish = true;
+                try
+                {
+                    super.publishData();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new ProcessException("Interrupted while publishing frame", e);
+                }
             }
-            else
-                publish = false;
+            
+            // apply scaler (needed to convert from YUV to RGB)
+            // directly into a pooled native frame
+            int frameWidth = sws_frame.width();
+            int frameHeight = sws_frame.height();
+            var rgbFrame = framePool.acquire(frameWidth * frameHeight * 3);
+            av_image_fill_arrays(sws_frame.data(), sws_frame.linesize(), rgbFrame.getPointer(),
+                AV_PIX_FMT_RGB24, frameWidth, frameHeight, 1);
+            sws_scale(sws_ctx, av_frame.data(), av_frame.linesize(), 0, av_frame.height(), sws_frame.data(), sws_frame.linesize());
+            
+            // write decoded data to output without copying it to the java heap
+            // so it can be passed as-is to other native libraries (e.g. OpenCV)
+            // the frame is returned to the pool when the block is garbage collected,
+            // so consumers reading it asynchronously never see it overwritten
+            var imgBlock = new DataBlockByteNative(rgbFrame);
+            var recBlock = (DataBlockMixed)rgbFrameOut.getData();
+            recBlock.getUnderlyingObject()[imgOutIdx] = imgBlock;
+            rgbFrameOut.setData(recBlock);
+            
+            // also set frame timestamp
+            long pts = av_frame.best_effort_timestamp();
+            var ts = pts != AV_NOPTS_VALUE ? pts / 1e6 : inputTimeStamp.getData().getDoubleValue();
+            outputTimeStamp.getData().setDoubleValue(ts);
+            
+            publish = true;
         }
     }
     
@@ -337,5 +417,10 @@ public class FFMpegDecoder extends ExecutableProcessImpl
             av_frame_free(sws_frame);
             sws_frame = null;
         }
+        
+        if (framePool != null) {
+            framePool.dispose();
+            framePool = null;
+        }
     }
 }
\ No newline at end of file
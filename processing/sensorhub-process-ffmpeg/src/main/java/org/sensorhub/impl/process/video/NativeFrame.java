@@ -0,0 +1,139 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.process.video;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bytedeco.javacpp.BytePointer;
+
+
+/**
+ * <p>
+ * Native frame buffer shared between processes without copy.<br/>
+ * Frames obtained from a {@link NativeFramePool} are reference counted and
+ * their memory is returned to the pool when the last holder calls
+ * {@link #release()}. The frame content must not be accessed after that.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class NativeFrame
+{
+    final NativeFramePool pool;
+    final BytePointer pointer;
+    final long capacity;
+    final AtomicInteger refCount = new AtomicInteger();
+    int length;
+
+
+    /**
+     * Wraps native memory managed by the caller. Such frames are not
+     * reference counted and the memory is never deallocated by this class.
+     * @param pointer Pointer to the frame data
+     * @param length Length of frame data in bytes
+     */
+    public NativeFrame(BytePointer pointer, int length)
+    {
+        this.pool = null;
+        this.pointer = pointer;
+        this.capacity = length;
+        this.length = length;
+    }
+
+
+    NativeFrame(NativeFramePool pool, long capacity)
+    {
+        this.pool = pool;
+        this.pointer = new BytePointer(capacity);
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Adds a holder to a pooled frame, so its memory is not reused before
+     * this holder also calls {@link #release()}.
+     * Has no effect on frames that are not pooled.
+     * @return this frame
+     */
+    public NativeFrame retain()
+    {
+        if (pool != null)
+            refCount.incrementAndGet();
+        return this;
+    }
+
+
+    /**
+     * Releases a pooled frame, returning its memory to the pool once all
+     * holders have released it. Has no effect on frames that are not pooled.
+     */
+    public void release()
+    {
+        if (pool != null)
+        {
+            int count = refCount.decrementAndGet();
+            if (count == 0)
+            {
+                pool.recycle(this);
+            }
+            else if (count < 0)
+            {
+                refCount.set(0);
+                throw new IllegalStateException("Native frame released more times than retained");
+            }
+        }
+    }
+
+
+    /**
+     * @return Pointer to the first byte of the frame, valid until the frame
+     * is released by its last holder
+     */
+    public BytePointer getPointer()
+    {
+        return pointer;
+    }
+
+
+    /**
+     * @return Length of frame data in bytes
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+
+    public boolean isPooled()
+    {
+        return pool != null;
+    }
+
+
+    /*
+     * Prepares a pooled frame to hold new data, with a single holder
+     */
+    void reset(int length)
+    {
+        this.length = length;
+        this.refCount.set(1);
+    }
+
+
+    void deallocate()
+    {
+        pointer.deallocate();
+    }
+}
@@ -0,0 +1,138 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.process.video;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * Pool of reference counted {@link NativeFrame}s, used to output decoded
+ * frames without allocating and zeroing several MB of native memory for each
+ * frame. Frames released after the pool is disposed, or when the pool already
+ * holds the max number of free frames, are deallocated immediately.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class NativeFramePool
+{
+    final Queue<NativeFrame> freeFrames = new ConcurrentLinkedQueue<>();
+    final AtomicInteger freeCount = new AtomicInteger();
+    final AtomicLong allocatedCount = new AtomicLong();
+    final int maxFreeFrames;
+    volatile boolean disposed;
+
+
+    /**
+     * @param maxFreeFrames Maximum number of released frames kept for reuse
+     */
+    public NativeFramePool(int maxFreeFrames)
+    {
+        this.maxFreeFrames = maxFreeFrames;
+    }
+
+
+    /**
+     * Gets a frame large enough to hold the given number of bytes, held by
+     * the caller until it calls {@link NativeFrame#release()}
+     * @param length Length of frame data in bytes
+     * @return The frame, with its length set but its content undefined
+     */
+    public NativeFrame acquire(int length)
+    {
+        NativeFrame frame = freeFrames.poll();
+        if (frame != null)
+            freeCount.decrementAndGet();
+
+        // frame size only changes if the video resolution changes
+        // so we drop smaller frames rather than keep them around
+        if (frame != null && frame.capacity < length)
+        {
+            frame.deallocate();
+            frame = null;
+        }
+
+        if (frame == null)
+        {
+            frame = new NativeFrame(this, length);
+            allocatedCount.incrementAndGet();
+        }
+
+        frame.reset(length);
+        return frame;
+    }
+
+
+    /*
+     * Called by a frame when released by its last holder
+     */
+    void recycle(NativeFrame frame)
+    {
+        if (!disposed && freeCount.incrementAndGet() <= maxFreeFrames)
+        {
+            freeFrames.offer(frame);
+
+            // handle concurrent call to dispose
+            if (disposed)
+                dispose();
+        }
+        else
+        {
+            if (!disposed)
+                freeCount.decrementAndGet();
+            frame.deallocate();
+        }
+    }
+
+
+    /**
+     * Deallocates all free frames. Frames still in use are deallocated when
+     * released by their last holder.
+     */
+    public void dispose()
+    {
+        disposed = true;
+
+        NativeFrame frame;
+        while ((frame = freeFrames.poll()) != null)
+        {
+            freeCount.decrementAndGet();
+            frame.deallocate();
+        }
+    }
+
+
+    /**
+     * @return Number of released frames available for reuse
+     */
+    public int getFreeCount()
+    {
+        return freeCount.get();
+    }
+
+
+    /**
+     * @return Number of frames allocated by the pool since it was created
+     */
+    public long getAllocatedCount()
+    {
+        return allocatedCount.get();
+    }
+}
@@ -0,0 +1,109 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sos.video;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * <p>
+ * Immutable key identifying the output of a transcoding session: source data
+ * stream, observables, codec and requested frame size, frame rate and bitrate.<br/>
+ * Requests resolving to equal profiles can share the same encoded stream.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public final class TranscodingProfile
+{
+    final String offering;
+    final Set<String> foiIDs;
+    final Set<String> observables;
+    final String codec;
+    final Integer frameWidth;
+    final Integer frameHeight;
+    final double frameSizeScale;
+    final int fps;
+    final int bitrate;
+
+
+    /**
+     * @param offering ID of the offering the data stream belongs to
+     * @param foiIDs IDs of features of interest used to filter the stream, if any
+     * @param observables URIs of observables included in the records, since
+     * the data provider may only fill the requested components
+     * @param codec Codec of the source stream, also used for the output
+     * @param frameWidth Requested frame width or null if not set
+     * @param frameHeight Requested frame height or null if not set
+     * @param frameSizeScale Scale factor applied to source frame size if neither width or height is set
+     * @param fps Output frame rate
+     * @param bitrate Output bitrate in bits/s
+     */
+    public TranscodingProfile(String offering, Set<String> foiIDs, Set<String> observables, String codec,
+                              Integer frameWidth, Integer frameHeight, double frameSizeScale,
+                              int fps, int bitrate)
+    {
+        this.offering = offering;
+        this.foiIDs = foiIDs != null ? Collections.unmodifiableSet(new TreeSet<>(foiIDs)) : Collections.emptySet();
+        this.observables = observables != null ? Collections.unmodifiableSet(new TreeSet<>(observables)) : Collections.emptySet();
+        this.codec = codec;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.frameSizeScale = frameSizeScale;
+        this.fps = fps;
+        this.bitrate = bitrate;
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof TranscodingProfile))
+            return false;
+
+        var other = (TranscodingProfile)obj;
+        return Objects.equals(offering, other.offering) &&
+               foiIDs.equals(other.foiIDs) &&
+               observables.equals(other.observables) &&
+               Objects.equals(codec, other.codec) &&
+               Objects.equals(frameWidth, other.frameWidth) &&
+               Objects.equals(frameHeight, other.frameHeight) &&
+               Double.compare(frameSizeScale, other.frameSizeScale) == 0 &&
+               fps == other.fps &&
+               bitrate == other.bitrate;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(offering, foiIDs, observables, codec, frameWidth, frameHeight, frameSizeScale, fps, bitrate);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return offering + (foiIDs.isEmpty() ? "" : foiIDs) + (observables.isEmpty() ? "" : " " + observables) + " " + codec +
+            " [" + (frameWidth != null ? frameWidth : "auto") + "x" + (frameHeight != null ? frameHeight : "auto") +
+            ", scale=" + frameSizeScale + ", " + fps + "fps, " + bitrate/1000 + "kbps]";
+    }
+}
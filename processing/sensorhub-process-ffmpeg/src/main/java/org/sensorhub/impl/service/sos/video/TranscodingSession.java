@@ -0,0 +1,476 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sos.video;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.swscale.SwsContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.PointerPointer;
+import org.bytedeco.javacpp.PointerScope;
+import org.sensorhub.impl.service.sos.ISOSDataProvider;
+import org.sensorhub.impl.service.sos.video.VideoTranscoder.CodecConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vast.cdm.common.DataStreamWriter;
+import org.vast.data.AbstractDataBlock;
+import org.vast.data.DataBlockMixed;
+import net.opengis.swe.v20.DataBlock;
+import static org.bytedeco.ffmpeg.global.avcodec.*;
+import static org.bytedeco.ffmpeg.global.avutil.*;
+import static org.bytedeco.ffmpeg.global.swscale.*;
+
+
+/**
+ * <p>
+ * Transcoding pipeline (decoder, scaler and encoder) reading frames from the
+ * data provider of the request that started it, and fanning out encoded
+ * packets to all subscribed clients.<br/>
+ * The data provider remains owned by the SOS request that started the
+ * session, which closes it when its write() returns. That request must thus
+ * wait for the session to end with {@link #awaitTermination()}, even if its
+ * own client has left, since the serializer API gives no way for the session
+ * to open a provider of its own. Its servlet thread is held for as long as
+ * other clients are subscribed.
+ * </p><p>
+ * Each subscriber has its own bounded queue. Packets are only queued starting
+ * at a key frame, and if a client cannot keep up, its queued packets are
+ * dropped and it resumes at the next key frame. A key frame is forced every
+ * time a client joins or is resynchronized, so it doesn't wait for a full GOP.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class TranscodingSession implements Runnable
+{
+    private static final Logger log = LoggerFactory.getLogger(TranscodingSession.class);
+
+    static final int MAX_QUEUED_PACKETS = 60;
+    static final long POLL_TIMEOUT_MS = 500;
+    static final long STOP_TIMEOUT_MS = 2000;
+
+    final TranscodingSessionManager manager;
+    final TranscodingProfile profile;
+    final ISOSDataProvider dataProvider;
+    final CodecConfig codecConfig;
+    final int imgCompIdx;
+    final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    final CountDownLatch stopping = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    boolean ending; // guarded by manager
+    volatile boolean stopRequested;
+    volatile boolean forceKeyFrame;
+    volatile Exception error;
+
+
+    /**
+     * Client of a transcoding session
+     */
+    public class Subscriber
+    {
+        final BlockingQueue<DataBlock> queue = new ArrayBlockingQueue<>(MAX_QUEUED_PACKETS);
+        boolean waitKeyFrame = true; // only accessed by session thread
+
+
+        /*
+         * Called by the session thread for each encoded packet
+         */
+        void offer(DataBlock rec, boolean keyFrame)
+        {
+            if (waitKeyFrame)
+            {
+                if (!keyFrame)
+                    return;
+                waitKeyFrame = false;
+            }
+
+            if (!queue.offer(rec))
+            {
+                // client is too slow, restart at next key frame
+                // since the decoder cannot skip packets in between
+                log.debug("Client too slow, dropping {} queued packets", queue.size());
+                queue.clear();
+                waitKeyFrame = true;
+                forceKeyFrame = true;
+            }
+        }
+
+
+        /**
+         * Writes transcoded records until the session ends or the client
+         * disconnects, and then unsubscribes from the session
+         * @param writer Writer configured for this client
+         * @throws IOException if the session failed or data cannot be written
+         */
+        public void writeTo(DataStreamWriter writer) throws IOException
+        {
+            try
+            {
+                while (true)
+                {
+                    DataBlock rec = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    if (rec != null)
+                    {
+                        writer.write(rec);
+                        writer.flush();
+                    }
+                    else if (isDone() && queue.isEmpty())
+                        break;
+                }
+
+                if (error != null)
+                    throw new IOException("Error while transcoding video data", error);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                manager.unsubscribe(TranscodingSession.this, this);
+            }
+        }
+
+
+        public TranscodingSession getSession()
+        {
+            return TranscodingSession.this;
+        }
+    }
+
+
+    TranscodingSession(TranscodingSessionManager manager, TranscodingProfile profile,
+                       ISOSDataProvider dataProvider, CodecConfig codecConfig, int imgCompIdx)
+    {
+        this.manager = manager;
+        this.profile = profile;
+        this.dataProvider = dataProvider;
+        this.codecConfig = codecConfig;
+        this.imgCompIdx = imgCompIdx;
+    }
+
+
+    Subscriber addSubscriber()
+    {
+        var sub = new Subscriber();
+        subscribers.add(sub);
+        forceKeyFrame = true;
+        return sub;
+    }
+
+
+    /*
+     * @return Number of subscribers left
+     */
+    int removeSubscriber(Subscriber sub)
+    {
+        subscribers.remove(sub);
+        return subscribers.size();
+    }
+
+
+    /*
+     * Called when the last subscriber leaves. The transcoding thread stops
+     * after the next record is received from the data provider.
+     */
+    void stop()
+    {
+        stopRequested = true;
+        stopping.countDown();
+    }
+
+
+    public boolean isDone()
+    {
+        return done.getCount() == 0;
+    }
+
+
+    /**
+     * Waits until the transcoding thread has stopped using the data provider.
+     * This must be called by the request that started the session before
+     * its data provider is closed.<br/>
+     * The call blocks until the last subscriber has left, and then for at
+     * most {@link #STOP_TIMEOUT_MS} since the transcoding thread only sees
+     * the stop request once the next record is received. If the stream is
+     * stalled, the caller then closes the provider, which ends the read.
+     * @return True if the session has ended, false if it is still reading
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination() throws InterruptedException
+    {
+        stopping.await();
+        return done.await(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+
+    public ISOSDataProvider getDataProvider()
+    {
+        return dataProvider;
+    }
+
+
+    /*
+     * Creates an output record with the encoded packet, copying only the other
+     * fields of the source record rather than its full size source frame
+     */
+    protected DataBlock newOutputRecord(DataBlock srcRecord, byte[] packetData)
+    {
+        var srcBlocks = ((DataBlockMixed)srcRecord).getUnderlyingObject();
+        var blocks = new AbstractDataBlock[srcBlocks.length];
+        for (int i = 0; i < srcBlocks.length; i++)
+        {
+            if (i == imgCompIdx)
+            {
+                blocks[i] = srcBlocks[i].renew();
+                blocks[i].setUnderlyingObject(packetData);
+            }
+            else
+                blocks[i] = srcBlocks[i].clone();
+        }
+
+        var rec = new DataBlockMixed();
+        rec.setUnderlyingObject(blocks);
+        return rec;
+    }
+
+
+    @Override
+    public void run()
+    {
+        AVCodec decoder = null;
+        AVCodec encoder = null;
+        AVCodecContext decode_ctx = null;
+        AVCodecContext encode_ctx = null;
+        SwsContext sws_ctx = null;
+        AVFrame av_frame = null;
+        AVFrame sws_frame = null;
+        AVPacket dec_pkt = null;
+        AVPacket enc_pkt = null;
+        int frameWidth = profile.frameWidth != null ? profile.frameWidth : 320;
+        int frameHeight = profile.frameHeight != null ? profile.frameHeight : 180;
+
+        log.debug("Starting transcoding session {}", profile);
+
+        try (@SuppressWarnings("unchecked")
+        PointerScope scope = new PointerScope())
+        {
+            // init FFMPEG objects
+            av_log_set_level(log.isDebugEnabled() ? AV_LOG_INFO : AV_LOG_FATAL);
+            dec_pkt = av_packet_alloc();
+            av_init_packet(dec_pkt);
+            enc_pkt = av_packet_alloc();
+            av_init_packet(enc_pkt);
+            av_frame = av_frame_alloc();
+            sws_frame = av_frame_alloc();
+
+            // init decoder context
+            decoder = avcodec_find_decoder_by_name(codecConfig.decoderName);
+            decode_ctx = avcodec_alloc_context3(decoder);
+            if (avcodec_open2(decode_ctx, decoder, (PointerPointer<?>)null) < 0) {
+                throw new IllegalStateException("Error initializing decoder " + codecConfig.decoderName);
+            }
+
+            // create encoder context
+            encoder = avcodec_find_encoder_by_name(codecConfig.encoderName);
+            encode_ctx = avcodec_alloc_context3(encoder);
+
+            // transcode all records
+            long pts = 0;
+            DataBlock nextRecord;
+            BytePointer nativeFrameData = new BytePointer((long) 50 * 1024);
+            try {
+            while (!stopRequested && (nextRecord = dataProvider.getNextResultRecord()) != null) {
+                // get frame data
+                DataBlock frameBlk = ((DataBlockMixed)nextRecord).getUnderlyingObject()[imgCompIdx];
+                byte[] frameData = (byte[])frameBlk.getUnderlyingObject();
+
+                // grow packet data buffer as needed
+                if (nativeFrameData.capacity() < frameData.length)
+                {
+                    nativeFrameData.close();
+                    nativeFrameData = new BytePointer(Math.max(frameData.length, nativeFrameData.capacity()*2));
+                }
+                nativeFrameData.position(0);
+                nativeFrameData.limit(0);
+                nativeFrameData.put(frameData);
+
+                // decode frame
+                dec_pkt.data(nativeFrameData);
+                dec_pkt.size(frameData.length);
+                int ret1 = avcodec_send_packet(decode_ctx, dec_pkt);
+                int ret2 = avcodec_receive_frame(decode_ctx, av_frame);
+                av_packet_unref(dec_pkt);
+
+                if (ret2 == 0)
+                {
+                    // init scaler and encoder once we decode the 1st frame
+                    if (sws_ctx == null )
+                    {
+                        // determine frame size
+                        if (profile.frameWidth == null && profile.frameHeight == null)
+                        {
+                            frameWidth = (int)Math.round(av_frame.width() * profile.frameSizeScale);
+                            frameHeight = (int)Math.round(av_frame.height() * profile.frameSizeScale);
+                        }
+                        else if (profile.frameWidth != null && profile.frameHeight == null)
+                        {
+                            frameHeight = (int)Math.round(frameWidth * ((double)av_frame.height()/av_frame.width()));
+                        }
+                        else if (profile.frameWidth == null && profile.frameHeight != null)
+                        {
+                            frameWidth = (int)Math.round(frameHeight * ((double)av_frame.width()/av_frame.height()));
+                        }
+
+                        // make sure frame dimensions are multiple of 2
+                        if (frameWidth % 2 != 0)
+                            frameWidth++;
+                        if (frameHeight % 2 != 0)
+                            frameHeight++;
+
+                        // init scaler
+                        sws_frame.format(AV_PIX_FMT_YUV420P);
+                        sws_frame.width(frameWidth);
+                        sws_frame.height(frameHeight);
+                        av_image_alloc(sws_frame.data(), sws_frame.linesize(),
+                                frameWidth, frameHeight, AV_PIX_FMT_YUV420P, 1);
+
+                        sws_ctx = sws_getContext(av_frame.width(), av_frame.height(), AV_PIX_FMT_YUV420P,
+                                frameWidth, frameHeight, AV_PIX_FMT_YUV420P, SWS_BICUBIC, null, null, (double[])null);
+
+                        log.debug("Resizing {}x{} -> {}x{}", av_frame.width(), av_frame.height(), frameWidth, frameHeight);
+                        log.debug("Target bitrate = {}", profile.bitrate);
+
+                        // init encoder
+                        try (AVRational timeBase = new AVRational()) {
+                            timeBase.num(1);
+                            timeBase.den(profile.fps);
+                            encode_ctx.time_base(timeBase);
+                            encode_ctx.width(frameWidth);
+                            encode_ctx.height(frameHeight);
+                            encode_ctx.pix_fmt(encoder.pix_fmts().get(0));
+                            encode_ctx.bit_rate(profile.bitrate);
+                            av_opt_set(encode_ctx.priv_data(), "preset", "ultrafast", 0);
+                            av_opt_set(encode_ctx.priv_data(), "tune", "zerolatency", 0);
+                            av_opt_set(encode_ctx.priv_data(), "forced-idr", "1", 0);
+                            if (avcodec_open2(encode_ctx, encoder, (PointerPointer<?>) null) < 0) {
+                                throw new IllegalStateException("Error initializing encoder for codec " + codecConfig.encoderName);
+                            }
+                        } catch (Exception e) {
+
+                            throw new IllegalStateException("Error initializing encoder for codec " + codecConfig.encoderName);
+                        }
+                    }
+
+                    // scale frame to desired resolution (width/height)
+                    sws_scale(sws_ctx, av_frame.data(), av_frame.linesize(), 0, av_frame.height(), sws_frame.data(), sws_frame.linesize());
+
+                    // force key frame if a client is waiting for one
+                    if (forceKeyFrame)
+                    {
+                        forceKeyFrame = false;
+                        sws_frame.pict_type(AV_PICTURE_TYPE_I);
+                    }
+                    else
+                        sws_frame.pict_type(AV_PICTURE_TYPE_NONE);
+
+                    // encode
+                    sws_frame.pts(pts++);
+                    ret1 = avcodec_send_frame(encode_ctx, sws_frame);
+
+                    while (ret1 >= 0)
+                    {
+                        ret1 = avcodec_receive_packet(encode_ctx, enc_pkt);
+
+                        if (ret1 == 0)
+                        {
+                            // repackage in new datablock for each packet since
+                            // subscribers write them asynchronously
+                            frameData = new byte[enc_pkt.size()];
+                            enc_pkt.data().get(frameData);
+                            DataBlock rec = newOutputRecord(nextRecord, frameData);
+
+                            // send to all subscribers
+                            boolean keyFrame = (enc_pkt.flags() & AV_PKT_FLAG_KEY) != 0;
+                            for (var sub: subscribers)
+                                sub.offer(rec, keyFrame);
+                        }
+
+                        av_packet_unref(enc_pkt);
+                    }
+                }
+            }
+            } finally {
+
+                nativeFrameData.close();
+            }
+        }
+        catch (Exception e)
+        {
+            if (!stopRequested)
+            {
+                log.error("Error while transcoding video data", e);
+                error = e;
+            }
+        }
+        finally
+        {
+            // make sure no client joins the session from now on
+            manager.sessionEnding(this);
+
+            if (dec_pkt != null) {
+                av_packet_unref(dec_pkt);
+                av_packet_free(dec_pkt);
+            }
+            if (enc_pkt != null) {
+                av_packet_unref(enc_pkt);
+                av_packet_free(enc_pkt);
+            }
+            if (av_frame != null) {
+                av_frame_free(av_frame);
+            }
+            if (sws_frame != null) {
+                av_freep(sws_frame.data());
+                av_frame_free(sws_frame);
+            }
+            if (decode_ctx != null) {
+                avcodec_close(decode_ctx);
+                avcodec_free_context(decode_ctx);
+            }
+            if (encode_ctx != null) {
+                avcodec_close(encode_ctx);
+                avcodec_free_context(encode_ctx);
+            }
+            if (sws_ctx != null) {
+                sws_freeContext(sws_ctx);
+            }
+
+            stopping.countDown();
+            done.countDown();
+            log.debug("Transcoding session {} ended", profile);
+        }
+    }
+}
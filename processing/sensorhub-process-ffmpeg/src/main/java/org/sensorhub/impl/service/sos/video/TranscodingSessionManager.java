@@ -0,0 +1,104 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sos.video;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.sensorhub.impl.service.sos.video.TranscodingSession.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * <p>
+ * Keeps track of running transcoding sessions so that real-time requests
+ * for the same {@link TranscodingProfile} share a single encoder.<br/>
+ * A session is stopped when its last subscriber leaves, and a new one is
+ * started by the next request for the same profile. Sessions that are
+ * stopping or whose stream has ended are never joined.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class TranscodingSessionManager
+{
+    private static final Logger log = LoggerFactory.getLogger(TranscodingSessionManager.class);
+
+    final Map<TranscodingProfile, TranscodingSession> sharedSessions = new HashMap<>();
+    final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat("VideoTranscoder-%d")
+        .setDaemon(true)
+        .build());
+
+
+    /**
+     * Subscribes to the session matching the given profile, or starts a new
+     * session if none is running or sharing is not allowed
+     * @param profile Output profile
+     * @param shared True to share the session with other requests for the same profile
+     * @param sessionFactory Factory used to create a new session
+     * @return The new subscriber
+     */
+    public synchronized Subscriber subscribe(TranscodingProfile profile, boolean shared, Supplier<TranscodingSession> sessionFactory)
+    {
+        TranscodingSession session = shared ? sharedSessions.get(profile) : null;
+        if (session != null && !session.ending && !session.isDone())
+        {
+            log.debug("Joining transcoding session {}", profile);
+            return session.addSubscriber();
+        }
+
+        session = sessionFactory.get();
+        if (shared)
+            sharedSessions.put(profile, session);
+        var sub = session.addSubscriber();
+        executor.execute(session);
+        return sub;
+    }
+
+
+    /*
+     * Stops the session when its last subscriber leaves
+     */
+    synchronized void unsubscribe(TranscodingSession session, Subscriber sub)
+    {
+        if (session.removeSubscriber(sub) == 0)
+        {
+            sessionEnding(session);
+            session.stop();
+        }
+    }
+
+
+    /*
+     * Called when the session stops reading records, before it is disposed
+     */
+    synchronized void sessionEnding(TranscodingSession session)
+    {
+        session.ending = true;
+        sharedSessions.remove(session.profile, session);
+    }
+
+
+    public synchronized int getNumSharedSessions()
+    {
+        return sharedSessions.size();
+    }
+}
@@ -0,0 +1,175 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.process.video;
+
+import static org.junit.Assert.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import org.bytedeco.javacpp.BytePointer;
+import org.junit.Test;
+
+
+public class TestNativeFramePool
+{
+
+    @Test
+    public void testReleasedFrameIsReused()
+    {
+        var pool = new NativeFramePool(4);
+
+        var frame = pool.acquire(1000);
+        assertTrue(frame.isPooled());
+        assertEquals(1000, frame.getLength());
+
+        frame.release();
+        assertEquals(1, pool.getFreeCount());
+
+        var reused = pool.acquire(800);
+        assertSame(frame, reused);
+        assertEquals(800, reused.getLength());
+        assertEquals(1, pool.getAllocatedCount());
+        pool.dispose();
+    }
+
+
+    @Test
+    public void testFrameIsReusedAfterLastRelease()
+    {
+        var pool = new NativeFramePool(4);
+
+        var frame = pool.acquire(1000).retain();
+        frame.release();
+        assertEquals(0, pool.getFreeCount());
+
+        frame.release();
+        assertEquals(1, pool.getFreeCount());
+        pool.dispose();
+    }
+
+
+    @Test
+    public void testLargerFrameAllocatesNewBuffer()
+    {
+        var pool = new NativeFramePool(4);
+
+        var frame = pool.acquire(1000);
+        frame.release();
+
+        var larger = pool.acquire(2000);
+        assertNotSame(frame, larger);
+        assertEquals(2, pool.getAllocatedCount());
+        assertEquals(0, pool.getFreeCount());
+        pool.dispose();
+    }
+
+
+    @Test
+    public void testFreeFramesAreBounded()
+    {
+        var pool = new NativeFramePool(2);
+
+        var frames = new NativeFrame[4];
+        for (int i = 0; i < frames.length; i++)
+            frames[i] = pool.acquire(100);
+
+        for (var frame: frames)
+            frame.release();
+
+        assertEquals(2, pool.getFreeCount());
+
+        pool.dispose();
+        assertEquals(0, pool.getFreeCount());
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwiceFails()
+    {
+        var frame = new NativeFramePool(1).acquire(10);
+        frame.release();
+        frame.release();
+    }
+
+
+    @Test
+    public void testDataBlockReadsNativeFrame()
+    {
+        var pool = new NativeFramePool(1);
+        var frame = pool.acquire(16);
+        for (int i = 0; i < 16; i++)
+            frame.getPointer().put(i, (byte)i);
+
+        var blk = new DataBlockByteNative(frame);
+        assertTrue(blk.hasNativeData());
+        assertEquals(16, blk.getAtomCount());
+        assertEquals(5, blk.getByteValue(5));
+        assertEquals(16, blk.getUnderlyingObject().length);
+
+        // copy shares the same native frame
+        var copy = blk.copy();
+        assertSame(blk.getNativePointer(), copy.getNativePointer());
+
+        // modifying the block detaches it from the native frame
+        blk.setByteValue(0, (byte)100);
+        assertFalse(blk.hasNativeData());
+        assertEquals(100, blk.getByteValue(0));
+        assertTrue(copy.hasNativeData());
+        pool.dispose();
+    }
+
+
+    @Test
+    public void testListenerReadsFrameAfterPublish() throws Exception
+    {
+        var pool = new NativeFramePool(1);
+
+        // simulate decoder publishing a frame to a listener that reads it later
+        var frame = pool.acquire(16);
+        for (int i = 0; i < 16; i++)
+            frame.getPointer().put(i, (byte)i);
+        var published = new DataBlockByteNative(frame);
+        var received = new ArrayBlockingQueue<DataBlockByteNative>(1);
+        received.add(published);
+        published = null;
+
+        // decoder writes and recycles next frames while listener still holds
+        // the block, which is never reused even if GC runs in the meantime
+        for (int n = 0; n < 3; n++)
+        {
+            System.gc();
+            var next = pool.acquire(16);
+            assertNotSame(frame, next);
+            for (int i = 0; i < 16; i++)
+                next.getPointer().put(i, (byte)-1);
+            next.release();
+        }
+
+        // listener still sees the content of the frame it received
+        var blk = received.take();
+        for (int i = 0; i < 16; i++)
+            assertEquals(i, blk.getByteValue(i));
+        pool.dispose();
+    }
+
+
+    @Test
+    public void testDataBlockUnpooledPointer()
+    {
+        var ptr = new BytePointer(new byte[] {1, 2, 3});
+        var blk = new DataBlockByteNative(ptr, 3);
+        assertSame(ptr, blk.getNativePointer());
+        assertArrayEquals(new byte[] {1, 2, 3}, blk.getUnderlyingObject());
+        ptr.deallocate();
+    }
+}
@@ -0,0 +1,75 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sos.video;
+
+import static org.junit.Assert.*;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.junit.Test;
+
+
+public class TestTranscodingProfile
+{
+    static final String OFFERING = "urn:osh:sensor:cam1";
+    static final String DEF_TIME = "http://www.opengis.net/def/property/OGC/0/SamplingTime";
+    static final String DEF_IMG = "http://sensorml.com/ont/swe/property/VideoFrame";
+
+
+    static TranscodingProfile profile(List<String> observables, Integer width, Integer height, int fps, int bitrate)
+    {
+        return new TranscodingProfile(OFFERING, null, new LinkedHashSet<>(observables), "H264",
+            width, height, 1.0, fps, bitrate);
+    }
+
+
+    @Test
+    public void testEqualProfiles()
+    {
+        var p1 = profile(List.of(DEF_TIME, DEF_IMG), 320, 180, 30, 150000);
+        var p2 = profile(List.of(DEF_IMG, DEF_TIME), 320, 180, 30, 150000);
+
+        // observables order doesn't matter
+        assertEquals(p1, p2);
+        assertEquals(p1.hashCode(), p2.hashCode());
+    }
+
+
+    @Test
+    public void testNullAndEmptyFoisAreEqual()
+    {
+        var p1 = new TranscodingProfile(OFFERING, null, null, "H264", null, null, 0.5, 30, 150000);
+        var p2 = new TranscodingProfile(OFFERING, Collections.emptySet(), Collections.emptySet(), "H264", null, null, 0.5, 30, 150000);
+        assertEquals(p1, p2);
+        assertEquals(p1.hashCode(), p2.hashCode());
+    }
+
+
+    @Test
+    public void testDifferentProfiles()
+    {
+        var p = profile(List.of(DEF_TIME, DEF_IMG), 320, 180, 30, 150000);
+
+        assertNotEquals(p, profile(List.of(DEF_TIME, DEF_IMG), 640, 180, 30, 150000));
+        assertNotEquals(p, profile(List.of(DEF_TIME, DEF_IMG), 320, null, 30, 150000));
+        assertNotEquals(p, profile(List.of(DEF_TIME, DEF_IMG), 320, 180, 15, 150000));
+        assertNotEquals(p, profile(List.of(DEF_TIME, DEF_IMG), 320, 180, 30, 300000));
+        assertNotEquals(p, profile(List.of(DEF_IMG), 320, 180, 30, 150000));
+        assertNotEquals(p, new TranscodingProfile(OFFERING, null, p.observables, "H265", 320, 180, 1.0, 30, 150000));
+        assertNotEquals(p, new TranscodingProfile(OFFERING, null, p.observables, "H264", 320, 180, 0.5, 30, 150000));
+        assertNotEquals(p, new TranscodingProfile(OFFERING, Collections.singleton("foi1"), p.observables, "H264", 320, 180, 1.0, 30, 150000));
+        assertNotEquals(p, new TranscodingProfile("urn:osh:sensor:cam2", null, p.observables, "H264", 320, 180, 1.0, 30, 150000));
+    }
+}
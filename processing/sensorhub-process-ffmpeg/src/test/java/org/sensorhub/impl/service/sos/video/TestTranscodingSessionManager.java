@@ -0,0 +1,173 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sos.video;
+
+import static org.junit.Assert.*;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class TestTranscodingSessionManager
+{
+    static final long TIMEOUT_MS = 5000;
+
+    TranscodingSessionManager manager = new TranscodingSessionManager();
+
+
+    /*
+     * Session that doesn't transcode anything, and ends when stopped or
+     * when the end of stream is signaled by the test
+     */
+    class TestSession extends TranscodingSession
+    {
+        final CountDownLatch endOfStream = new CountDownLatch(1);
+        final CountDownLatch readEnded = new CountDownLatch(1);
+        final CountDownLatch disposed = new CountDownLatch(1);
+
+        TestSession(TranscodingProfile profile)
+        {
+            super(manager, profile, null, null, 0);
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while (!stopRequested)
+                {
+                    if (endOfStream.await(10, TimeUnit.MILLISECONDS))
+                        break;
+                }
+
+                // stop reading but wait before disposing of the session
+                manager.sessionEnding(this);
+                readEnded.countDown();
+                disposed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                stopping.countDown();
+                done.countDown();
+            }
+        }
+    }
+
+
+    static TranscodingProfile profile(int bitrate)
+    {
+        return new TranscodingProfile("urn:osh:sensor:cam1", null, Set.of("img"), "H264",
+            320, 180, 1.0, 30, bitrate);
+    }
+
+
+    TestSession subscribeSession(TranscodingProfile profile, boolean shared)
+    {
+        var sub = manager.subscribe(profile, shared, () -> new TestSession(profile));
+        return (TestSession)sub.getSession();
+    }
+
+
+    @After
+    public void cleanup()
+    {
+        manager.executor.shutdownNow();
+    }
+
+
+    @Test
+    public void testRealTimeRequestsShareSession() throws Exception
+    {
+        var sub1 = manager.subscribe(profile(150000), true, () -> new TestSession(profile(150000)));
+        var sub2 = manager.subscribe(profile(150000), true, () -> new TestSession(profile(150000)));
+        var sub3 = manager.subscribe(profile(300000), true, () -> new TestSession(profile(300000)));
+
+        assertSame(sub1.getSession(), sub2.getSession());
+        assertNotSame(sub1.getSession(), sub3.getSession());
+        assertEquals(2, manager.getNumSharedSessions());
+
+        // historical requests never share sessions
+        var s4 = subscribeSession(profile(150000), false);
+        assertNotSame(sub1.getSession(), s4);
+        assertEquals(2, manager.getNumSharedSessions());
+    }
+
+
+    @Test
+    public void testSessionStoppedWhenLastSubscriberLeaves() throws Exception
+    {
+        var sub1 = manager.subscribe(profile(150000), true, () -> new TestSession(profile(150000)));
+        var sub2 = manager.subscribe(profile(150000), true, () -> new TestSession(profile(150000)));
+        var session = (TestSession)sub1.getSession();
+
+        manager.unsubscribe(session, sub1);
+        assertFalse(session.stopRequested);
+        assertEquals(1, manager.getNumSharedSessions());
+
+        manager.unsubscribe(session, sub2);
+        assertTrue(session.stopRequested);
+        assertEquals(0, manager.getNumSharedSessions());
+
+        // starting request waits until session has stopped
+        session.disposed.countDown();
+        assertTrue(session.awaitTermination());
+        assertTrue(session.isDone());
+
+        // next request starts a new session
+        var s3 = subscribeSession(profile(150000), true);
+        assertNotSame(session, s3);
+    }
+
+
+    @Test
+    public void testEndedSessionIsNotJoined() throws Exception
+    {
+        var session = subscribeSession(profile(150000), true);
+
+        // stream ends but session is not disposed yet
+        session.endOfStream.countDown();
+        assertTrue(session.readEnded.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertFalse(session.isDone());
+
+        var s2 = subscribeSession(profile(150000), true);
+        assertNotSame(session, s2);
+        assertEquals(1, manager.getNumSharedSessions());
+
+        session.disposed.countDown();
+        assertTrue(session.awaitTermination());
+    }
+
+
+    @Test
+    public void testAwaitTerminationIsBoundedAfterStop() throws Exception
+    {
+        var sub = manager.subscribe(profile(150000), true, () -> new TestSession(profile(150000)));
+        var session = (TestSession)sub.getSession();
+        manager.unsubscribe(session, sub);
+
+        // session thread doesn't end in time
+        long t0 = System.currentTimeMillis();
+        assertFalse(session.awaitTermination());
+        assertTrue(System.currentTimeMillis() - t0 < TIMEOUT_MS);
+        session.disposed.countDown();
+    }
+}
@@ -125,4 +125,70 @@ public class EllipsoidIntersect
         
         return found; 
 	}
+	
+	
+	/**
+	 * Computes the intersections of several rays sharing the same origin.<br/>
+	 * Ray directions and results are given as separate coordinate arrays so the
+	 * loop only works on primitive values and can be vectorized by the JIT.
+	 * @param vertex origin of all rays
+	 * @param dirX X coordinates of ray directions (must be unit vectors)
+	 * @param dirY Y coordinates of ray directions
+	 * @param dirZ Z coordinates of ray directions
+	 * @param heights height added to the ellipsoid radii for each ray, or null to use
+	 * the current height adjustment only
+	 * @param resX array to receive X coordinates of intersections
+	 * @param resY array to receive Y coordinates of intersections
+	 * @param resZ array to receive Z coordinates of intersections
+	 * @param offset index of first ray
+	 * @param count number of rays
+	 * @return number of rays that intersected the ellipsoid, results of the other rays
+	 * are set to NaN
+	 */
+	public int computeIntersections(Vect3d vertex, double[] dirX, double[] dirY, double[] dirZ, double[] heights,
+	                                double[] resX, double[] resY, double[] resZ, int offset, int count)
+	{
+	    double vx = vertex.x;
+	    double vy = vertex.y;
+	    double vz = vertex.z;
+	    int numFound = 0;
+	    
+	    for (int i = offset; i < offset + count; i++)
+	    {
+	        double h = heights != null ? heights[i] : 0.0;
+	        double irx = 1.0 / (rx + h);
+	        double iry = 1.0 / (ry + h);
+	        double irz = 1.0 / (rz + h);
+	        
+	        // scale vectors using ellipsoid radius
+	        double px = vx * irx;
+	        double py = vy * iry;
+	        double pz = vz * irz;
+	        double ux = dirX[i] * irx;
+	        double uy = dirY[i] * iry;
+	        double uz = dirZ[i] * irz;
+	        
+	        // computes polynomial coefficients (at^2 + bt + c = 0)
+	        double a = ux*ux + uy*uy + uz*uz;
+	        double b = px*ux + py*uy + pz*uz;
+	        double c = -1.0 + px*px + py*py + pz*pz;
+	        double dscrm = b * b - a * c;
+	        
+	        // always use smallest positive solution
+	        // (-b + sqrt) if origin is inside ellipsoid
+	        double sqrtDscrm = Math.sqrt(dscrm);
+	        double scalar = (b >= 0.0 || c < 0.0) ? (-b + sqrtDscrm) / a : (-b - sqrtDscrm) / a;
+	        if (c == 0.0)
+	            scalar = 0.0;
+	        
+	        // sqrt gives NaN if there is no solution
+	        resX[i] = vx + scalar * dirX[i];
+	        resY[i] = vy + scalar * dirY[i];
+	        resZ[i] = vz + scalar * dirZ[i];
+	        if (dscrm >= 0.0)
+	            numFound++;
+	    }
+	    
+	    return numFound;
+	}
 }
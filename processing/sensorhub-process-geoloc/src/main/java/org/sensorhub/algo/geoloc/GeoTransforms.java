@@ -136,6 +136,59 @@ public class GeoTransforms
     }
     
     
+    /**
+     * Converts several locations from ECEF to Lat/Lon/Alt coordinates.<br/>
+     * Note that this is safe for aliasing (i.e. output arrays can be the same as input arrays).<br/>
+     * Angles are in radians, and NaN inputs give NaN outputs.
+     * @param x array of ECEF X coordinates
+     * @param y array of ECEF Y coordinates
+     * @param z array of ECEF Z coordinates
+     * @param lon array to receive longitudes
+     * @param lat array to receive latitudes
+     * @param alt array to receive altitudes
+     * @param offset index of first location
+     * @param count number of locations to convert
+     */
+    public final void ECEFtoLLA(double[] x, double[] y, double[] z, double[] lon, double[] lat, double[] alt, int offset, int count)
+    {
+        double a = datum.getEquatorRadius();
+        double b = datum.getPolarRadius();
+        double e2 = datum.getE2();
+        double ePrimeSquared = (a*a - b*b)/(b*b);
+        
+        for (int i = offset; i < offset + count; i++)
+        {
+            double xi = x[i];
+            double yi = y[i];
+            double zi = z[i];
+            double p = Math.sqrt(xi*xi + yi*yi);
+            
+            if (p == 0.0) // case of lat = 90° or -90°
+            {
+                lon[i] = 0.0;
+                lat[i] = Math.signum(zi) * Math.PI/2;
+                alt[i] = zi - Math.signum(zi)*b;
+            }
+            else
+            {
+                double theta = Math.atan((zi*a)/(p*b));
+                double sineTheta = Math.sin(theta);
+                double cosTheta = Math.cos(theta);
+                double top = zi + ePrimeSquared * b * sineTheta * sineTheta * sineTheta;
+                double bottom = p - e2 * a * cosTheta * cosTheta * cosTheta;
+                double geodeticLat = Math.atan2(top, bottom);
+                double sineLat = Math.sin(geodeticLat);
+                double N = a / Math.sqrt( 1 - e2 * sineLat * sineLat);
+                
+                // atan2 already returns longitude btw -PI and PI
+                lon[i] = Math.atan2(yi, xi);
+                lat[i] = geodeticLat;
+                alt[i] = (p / Math.cos(geodeticLat)) -  N;
+            }
+        }
+    }
+    
+    
     /**
      * Converts from ECEF to ECI coordinates.<br/>
      * Note that this is safe for aliasing (i.e. ecef and eci can be the same object).<br/>
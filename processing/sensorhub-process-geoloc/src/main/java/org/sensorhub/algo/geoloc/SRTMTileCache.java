@@ -0,0 +1,322 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.algo.geoloc;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vast.util.Asserts;
+
+
+/**
+ * <p>
+ * Thread-safe lookup of DEM height values from SRTM HGT tiles.<br/>
+ * Tiles are memory-mapped when first accessed and kept in an LRU cache
+ * until the total size of mapped tiles exceeds the configured budget.
+ * Both 1 arcsec (3601x3601) and 3 arcsec (1201x1201) tiles are supported,
+ * the grid size being deduced from the file size. Elevations are bilinearly
+ * interpolated between the 4 posts surrounding the requested location.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class SRTMTileCache
+{
+    private static final Logger log = LoggerFactory.getLogger(SRTMTileCache.class);
+
+    public static final long DEFAULT_MAX_MAPPED_BYTES = 512L * 1024 * 1024;
+    public static final String MAX_MAPPED_MB_PROPERTY = "osh.srtm.maxMappedMB";
+    static final Map<Path, SRTMTileCache> sharedCaches = new HashMap<>();
+
+    final Path dataRoot;
+    final long maxMappedBytes;
+    final LinkedHashMap<Integer, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    long mappedBytes;
+
+
+    static class Tile
+    {
+        final int lat0, lon0;
+        final int size; // number of posts per row and column
+        final ShortBuffer data;
+
+        Tile(int lat0, int lon0, int size, ShortBuffer data)
+        {
+            this.lat0 = lat0;
+            this.lon0 = lon0;
+            this.size = size;
+            this.data = data;
+        }
+
+        boolean contains(double lat, double lon)
+        {
+            return (int)Math.floor(lat) == lat0 && (int)Math.floor(lon) == lon0;
+        }
+
+        double getElevation(double lat, double lon)
+        {
+            // floating point post index
+            int n = size - 1;
+            double x = (lon - lon0) * n;
+            double y = (lat - lat0) * n;
+            int x1 = Math.min((int)x, n);
+            int y1 = Math.min((int)y, n);
+            int x2 = Math.min(x1 + 1, n);
+            int y2 = Math.min(y1 + 1, n);
+            double dx = x - x1;
+            double dy = y - y1;
+
+            double z11 = getPost(x1, y1);
+            double z21 = getPost(x2, y1);
+            double z12 = getPost(x1, y2);
+            double z22 = getPost(x2, y2);
+
+            return z11 * (1 - dx) * (1 - dy)
+                 + z21 * dx * (1 - dy)
+                 + z12 * (1 - dx) * dy
+                 + z22 * dx * dy;
+        }
+
+        short getPost(int x, int y)
+        {
+            // rows are stored north to south
+            return data.get((size - 1 - y) * size + x);
+        }
+
+        long getByteSize()
+        {
+            return 2L * data.capacity();
+        }
+    }
+
+
+    /**
+     * Gets the cache shared by all users of the given data folder.<br/>
+     * Its memory budget is read from the {@value #MAX_MAPPED_MB_PROPERTY}
+     * system property (in MB) when the cache is created, or is
+     * {@link #DEFAULT_MAX_MAPPED_BYTES} if the property is not set.
+     * @param dataRoot Folder containing the HGT tiles
+     * @return The shared cache instance
+     */
+    public static SRTMTileCache getSharedInstance(String dataRoot)
+    {
+        Path path = Path.of(dataRoot).toAbsolutePath().normalize();
+        synchronized (sharedCaches)
+        {
+            return sharedCaches.computeIfAbsent(path, p -> new SRTMTileCache(p, getMaxMappedBytes()));
+        }
+    }
+
+
+    static long getMaxMappedBytes()
+    {
+        var val = System.getProperty(MAX_MAPPED_MB_PROPERTY);
+        if (val == null)
+            return DEFAULT_MAX_MAPPED_BYTES;
+
+        try
+        {
+            long maxMB = Long.parseLong(val.trim());
+            if (maxMB > 0)
+                return maxMB * 1024 * 1024;
+        }
+        catch (NumberFormatException e)
+        {
+            // log below
+        }
+
+        log.warn("Invalid value for {}: {}. Using default SRTM cache size", MAX_MAPPED_MB_PROPERTY, val);
+        return DEFAULT_MAX_MAPPED_BYTES;
+    }
+
+
+    /**
+     * @param dataRoot Folder containing the HGT tiles
+     * @param maxMappedBytes Maximum total size of the tiles kept mapped.
+     * The most recently used tile is always kept, even if it is larger.
+     */
+    public SRTMTileCache(Path dataRoot, long maxMappedBytes)
+    {
+        Asserts.checkNotNull(dataRoot, "dataRoot");
+        Asserts.checkArgument(maxMappedBytes > 0, "maxMappedBytes must be > 0");
+        this.dataRoot = dataRoot;
+        this.maxMappedBytes = maxMappedBytes;
+    }
+
+
+    /**
+     * @param lat Latitude in degrees
+     * @param lon Longitude in degrees
+     * @return Interpolated elevation in meters
+     * @throws IOException if the tile containing the location cannot be read
+     */
+    public double getElevation(double lat, double lon) throws IOException
+    {
+        return getTile(lat, lon).getElevation(lat, lon);
+    }
+
+
+    /**
+     * Looks up elevations of several locations at once. Consecutive locations
+     * falling in the same tile only need a single cache lookup.
+     * @param lats Latitudes in degrees
+     * @param lons Longitudes in degrees
+     * @param out Array receiving the interpolated elevations in meters
+     * @throws IOException if a tile containing one of the locations cannot be read
+     */
+    public void getElevations(double[] lats, double[] lons, double[] out) throws IOException
+    {
+        Asserts.checkArgument(lats.length == lons.length, "lats and lons arrays must have the same length");
+        getElevations(lats, lons, out, 0, lats.length);
+    }
+
+
+    /**
+     * Same as {@link #getElevations(double[], double[], double[])} but only
+     * for locations in the given range of the arrays
+     * @param lats Latitudes in degrees
+     * @param lons Longitudes in degrees
+     * @param out Array receiving the interpolated elevations in meters
+     * @param offset Index of first location
+     * @param count Number of locations
+     * @throws IOException if a tile containing one of the locations cannot be read
+     */
+    public void getElevations(double[] lats, double[] lons, double[] out, int offset, int count) throws IOException
+    {
+        int end = offset + count;
+        Asserts.checkArgument(end <= lats.length && end <= lons.length && end <= out.length,
+            "Range exceeds array length");
+
+        Tile tile = null;
+        for (int i = offset; i < end; i++)
+        {
+            double lat = lats[i];
+            double lon = lons[i];
+            if (tile == null || !tile.contains(lat, lon))
+                tile = getTile(lat, lon);
+            out[i] = tile.getElevation(lat, lon);
+        }
+    }
+
+
+    Tile getTile(double lat, double lon) throws IOException
+    {
+        int lat0 = (int)Math.floor(lat);
+        int lon0 = (int)Math.floor(lon);
+        Integer key = (lat0 + 90) * 360 + (lon0 + 180);
+
+        synchronized (tiles)
+        {
+            Tile tile = tiles.get(key);
+            if (tile == null)
+            {
+                tile = mapTile(lat0, lon0);
+                tiles.put(key, tile);
+                mappedBytes += tile.getByteSize();
+                evictTiles();
+            }
+
+            return tile;
+        }
+    }
+
+
+    /*
+     * Mapped buffers are released by the GC once they are evicted and no
+     * longer referenced by a caller, so there is no explicit unmapping here
+     */
+    void evictTiles()
+    {
+        Iterator<Tile> it = tiles.values().iterator();
+        while (mappedBytes > maxMappedBytes && tiles.size() > 1)
+        {
+            Tile tile = it.next();
+            it.remove();
+            mappedBytes -= tile.getByteSize();
+            log.debug("Evicted SRTM tile {}", getTileName(tile.lat0, tile.lon0));
+        }
+    }
+
+
+    Tile mapTile(int lat0, int lon0) throws IOException
+    {
+        Path file = dataRoot.resolve(getTileName(lat0, lon0));
+        if (!Files.isReadable(file))
+            throw new FileNotFoundException("Missing SRTM tile " + file);
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long byteSize = ch.size();
+            int size = (int)Math.round(Math.sqrt(byteSize / 2.0));
+            if (size < 2 || 2L * size * size != byteSize)
+                throw new IOException("Invalid SRTM tile size: " + file);
+
+            log.debug("Mapping SRTM tile {}", file);
+            ShortBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, 0, byteSize)
+                .order(ByteOrder.BIG_ENDIAN)
+                .asShortBuffer();
+            return new Tile(lat0, lon0, size, data);
+        }
+    }
+
+
+    /**
+     * @param lat0 Latitude of the tile south edge in degrees
+     * @param lon0 Longitude of the tile west edge in degrees
+     * @return Name of the HGT file (e.g. N35W115.hgt)
+     */
+    public static String getTileName(int lat0, int lon0)
+    {
+        if (lat0 < -90 || lat0 > 90)
+            throw new IllegalArgumentException("Invalid integer latitude value");
+        if (lon0 < -180 || lon0 > 180)
+            throw new IllegalArgumentException("Invalid integer longitude value");
+
+        return String.format(Locale.ROOT, "%s%02d%s%03d.hgt",
+            lat0 >= 0 ? "N" : "S", Math.abs(lat0),
+            lon0 >= 0 ? "E" : "W", Math.abs(lon0));
+    }
+
+
+    public int getNumMappedTiles()
+    {
+        synchronized (tiles)
+        {
+            return tiles.size();
+        }
+    }
+
+
+    public long getMappedBytes()
+    {
+        synchronized (tiles)
+        {
+            return mappedBytes;
+        }
+    }
+}
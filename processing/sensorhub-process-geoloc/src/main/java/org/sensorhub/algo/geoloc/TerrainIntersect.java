@@ -0,0 +1,164 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.algo.geoloc;
+
+import java.io.IOException;
+import org.sensorhub.algo.vecmath.Vect3d;
+
+
+/**
+ * <p>
+ * Computes intersections of a batch of rays sharing the same origin with the
+ * terrain. Each ray is first intersected with the ellipsoid raised by the
+ * initial height, then again with the ellipsoid raised to the DEM altitude
+ * found at the previous intersection, until the intersection altitude matches
+ * the DEM within the max error. If no DEM is provided, rays are only intersected
+ * with the raised ellipsoid.
+ * </p>
+ * <p>
+ * Rays and results are given as separate coordinate arrays. Several batches
+ * can be processed concurrently on different ranges of the same arrays.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class TerrainIntersect
+{
+    public static final double DEFAULT_MAX_ERROR = 15.0; // 15m
+    static final int MAX_ITERATIONS = 20;
+
+    EllipsoidIntersect rie;
+    GeoTransforms geoConv;
+    SRTMTileCache srtm;
+    double initHeight;
+    double maxError = DEFAULT_MAX_ERROR;
+
+
+    /**
+     * @param datum Reference ellipsoid
+     * @param srtm DEM to intersect with, or null to only use the initial height
+     * @param initHeight Height above ellipsoid used for the first intersection
+     */
+    public TerrainIntersect(Ellipsoid datum, SRTMTileCache srtm, double initHeight)
+    {
+        this.rie = new EllipsoidIntersect(datum);
+        this.geoConv = new GeoTransforms(datum);
+        this.srtm = srtm;
+        this.initHeight = initHeight;
+    }
+
+
+    public void setMaxError(double maxError)
+    {
+        this.maxError = maxError;
+    }
+
+
+    /**
+     * Computes the intersections of rays in the given range
+     * @param origin Origin of all rays, in ECEF
+     * @param dirX X coordinates of ray directions, in ECEF (must be unit vectors)
+     * @param dirY Y coordinates of ray directions
+     * @param dirZ Z coordinates of ray directions
+     * @param ecefX Array to receive X coordinates of intersections, in ECEF
+     * @param ecefY Array to receive Y coordinates of intersections
+     * @param ecefZ Array to receive Z coordinates of intersections
+     * @param lon Array to receive longitudes of intersections, in radians
+     * @param lat Array to receive latitudes of intersections, in radians
+     * @param alt Array to receive altitudes of intersections, in meters
+     * @param offset Index of first ray
+     * @param count Number of rays
+     * @return Number of rays that intersected the terrain, results of the other rays are set to NaN
+     * @throws IOException if DEM data cannot be read
+     */
+    public int computeIntersections(Vect3d origin, double[] dirX, double[] dirY, double[] dirZ,
+                                    double[] ecefX, double[] ecefY, double[] ecefZ,
+                                    double[] lon, double[] lat, double[] alt,
+                                    int offset, int count) throws IOException
+    {
+        double[] heights = new double[offset + count];
+        for (int i = offset; i < offset + count; i++)
+            heights[i] = initHeight;
+
+        int numFound = rie.computeIntersections(origin, dirX, dirY, dirZ, heights, ecefX, ecefY, ecefZ, offset, count);
+        geoConv.ECEFtoLLA(ecefX, ecefY, ecefZ, lon, lat, alt, offset, count);
+        if (srtm == null || numFound == 0)
+            return numFound;
+
+        // indices of rays that still need to be refined
+        int[] active = new int[count];
+        int numActive = 0;
+        for (int i = offset; i < offset + count; i++)
+        {
+            if (!Double.isNaN(alt[i]))
+                active[numActive++] = i;
+        }
+
+        double[] demLat = new double[numActive];
+        double[] demLon = new double[numActive];
+        double[] demAlt = new double[numActive];
+
+        for (int iter = 0; iter < MAX_ITERATIONS && numActive > 0; iter++)
+        {
+            // lookup DEM altitude at current intersections
+            // skipping rays that no longer intersect the raised ellipsoid
+            int numValid = 0;
+            for (int k = 0; k < numActive; k++)
+            {
+                int i = active[k];
+                if (!Double.isNaN(alt[i]))
+                {
+                    active[numValid] = i;
+                    demLat[numValid] = Math.toDegrees(lat[i]);
+                    demLon[numValid] = Math.toDegrees(lon[i]);
+                    numValid++;
+                }
+            }
+            numActive = numValid;
+            srtm.getElevations(demLat, demLon, demAlt, 0, numActive);
+
+            // raise ellipsoid to DEM altitude for rays that are not close enough
+            int numLeft = 0;
+            for (int k = 0; k < numActive; k++)
+            {
+                int i = active[k];
+                if (Math.abs(demAlt[k] - alt[i]) > maxError)
+                {
+                    heights[i] = demAlt[k];
+                    active[numLeft++] = i;
+                }
+            }
+            numActive = numLeft;
+
+            // intersect again over the whole range, which leaves the results
+            // of converged rays unchanged and keeps the loops simple
+            if (numActive > 0)
+            {
+                rie.computeIntersections(origin, dirX, dirY, dirZ, heights, ecefX, ecefY, ecefZ, offset, count);
+                geoConv.ECEFtoLLA(ecefX, ecefY, ecefZ, lon, lat, alt, offset, count);
+            }
+        }
+
+        numFound = 0;
+        for (int i = offset; i < offset + count; i++)
+        {
+            if (!Double.isNaN(alt[i]))
+                numFound++;
+        }
+
+        return numFound;
+    }
+}
@@ -14,6 +14,9 @@ Copyright (C) 2021 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.process.cam;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
 import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataRecord;
 import net.opengis.swe.v20.Matrix;
@@ -23,6 +26,7 @@ import org.sensorhub.algo.geoloc.Ellipsoid;
 import org.sensorhub.algo.geoloc.EllipsoidIntersect;
 import org.sensorhub.algo.geoloc.GeoTransforms;
 import org.sensorhub.algo.geoloc.NadirPointing;
+import org.sensorhub.algo.geoloc.TerrainIntersect;
 import org.sensorhub.algo.vecmath.Mat3d;
 import org.sensorhub.algo.vecmath.Vect3d;
 import org.sensorhub.api.processing.OSHProcessInfo;
@@ -61,6 +65,7 @@ public class ImageToGround extends ExecutableProcessImpl
     protected GeoTransforms geoConv = new GeoTransforms();
     protected NadirPointing nadirPointing = new NadirPointing(geoConv);
     protected EllipsoidIntersect rie;
+    protected TerrainIntersect terrainIntersect;
     protected double heightAdj;
     protected double fx, fy, cx, cy;
     protected double k1, k2, k3, p1, p2;
@@ -70,6 +75,8 @@ public class ImageToGround extends ExecutableProcessImpl
     protected Mat3d rotPlatformToNED = new Mat3d();
     protected Vect3d platformLocECEF = new Vect3d();
     
+    protected static final int CHUNK_SIZE = 256;
+    
     protected Vect3d lookDir = new Vect3d();
     protected Vect3d intersect = new Vect3d();
     
@@ -170,6 +177,7 @@ public class ImageToGround extends ExecutableProcessImpl
         // instantiate RIE algo
         double heightOffset = heightAdjParam.getData().getDoubleValue();
         this.rie = new EllipsoidIntersect(Ellipsoid.WGS84, heightOffset);
+        this.terrainIntersect = new TerrainIntersect(Ellipsoid.WGS84, null, heightOffset);
         
         // set default camera orientation =  = camera pointing forward
         rotCam0.setZero();
@@ -362,4 +370,94 @@ public class ImageToGround extends ExecutableProcessImpl
         geoConv.ECEFtoLLA(result, result);
         return true;
     }
+    
+    
+    /**
+     * Computes ground locations of several pixels at once.<br/>
+     * Large batches are split in chunks of {@value #CHUNK_SIZE} pixels
+     * processed in parallel on the common ForkJoin pool.
+     * @param x array of pixel X coordinates
+     * @param y array of pixel Y coordinates
+     * @param ecefX array to receive X coordinates of ground locations, in ECEF
+     * @param ecefY array to receive Y coordinates of ground locations, in ECEF
+     * @param ecefZ array to receive Z coordinates of ground locations, in ECEF
+     * @param lon array to receive longitudes of ground locations, in radians
+     * @param lat array to receive latitudes of ground locations, in radians
+     * @param alt array to receive altitudes of ground locations, in meters
+     * @param count number of pixels
+     * @return number of pixels for which an intersection was found, locations
+     * of the other pixels are set to NaN
+     * @throws IOException if terrain data cannot be read
+     */
+    protected int toGroundLocations(double[] x, double[] y,
+                                    double[] ecefX, double[] ecefY, double[] ecefZ,
+                                    double[] lon, double[] lat, double[] alt,
+                                    int count) throws IOException
+    {
+        // combined camera to ECEF rotation
+        var rotCamToECEF = new Mat3d().mul(rotPlatformToECEF, rotCamToPlatform);
+        
+        var dirX = new double[count];
+        var dirY = new double[count];
+        var dirZ = new double[count];
+        int numChunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        
+        try
+        {
+            return IntStream.range(0, numChunks).parallel().map(chunk -> {
+                int offset = chunk * CHUNK_SIZE;
+                int n = Math.min(CHUNK_SIZE, count - offset);
+                computeLookDirs(x, y, rotCamToECEF, dirX, dirY, dirZ, offset, n);
+                
+                try
+                {
+                    return terrainIntersect.computeIntersections(platformLocECEF, dirX, dirY, dirZ,
+                        ecefX, ecefY, ecefZ, lon, lat, alt, offset, n);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+    
+    
+    /*
+     * Same as the look direction computed in toGroundLocation() but for a range of pixels
+     */
+    protected void computeLookDirs(double[] x, double[] y, Mat3d rot, double[] dirX, double[] dirY, double[] dirZ, int offset, int count)
+    {
+        for (int i = offset; i < offset + count; i++)
+        {
+            // compute look direction
+            var lx = (x[i] - cx) / fx;
+            var ly = ((480-y[i]) - cy) / fy;
+            var lz = -1.0;
+            
+            // apply distortions
+            var x2 = lx * lx;
+            var y2 = ly * ly;
+            var r2 = x2 + y2;
+            var r4 = r2 * r2;
+            var r6 = r4 * r2;
+            var xy = lx * ly;
+            var radial = 1 + k1*r2 + k2*r4 + k3*r6;
+            var dx = lx * (radial + 2*p1*xy + p2*(r2+2*x2));
+            var dy = ly * (radial + 2*p2*xy + p1*(r2+2*y2));
+            
+            // transform look dir to ECEF and normalize
+            var ex = rot.m00*dx + rot.m01*dy + rot.m02*lz;
+            var ey = rot.m10*dx + rot.m11*dy + rot.m12*lz;
+            var ez = rot.m20*dx + rot.m21*dy + rot.m22*lz;
+            var norm = Math.sqrt(ex*ex + ey*ey + ez*ez);
+            dirX[i] = ex / norm;
+            dirY[i] = ey / norm;
+            dirZ[i] = ez / norm;
+        }
+    }
 }
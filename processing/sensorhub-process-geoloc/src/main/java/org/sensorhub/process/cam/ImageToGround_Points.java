@@ -0,0 +1,178 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.process.cam;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.opengis.swe.v20.Count;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.Text;
+import org.sensorhub.algo.geoloc.Ellipsoid;
+import org.sensorhub.algo.geoloc.SRTMTileCache;
+import org.sensorhub.algo.geoloc.TerrainIntersect;
+import org.sensorhub.api.processing.OSHProcessInfo;
+import org.vast.process.ProcessException;
+import org.vast.process.ProcessInfo;
+import org.vast.swe.helper.GeoPosHelper;
+
+
+/**
+ * <p>
+ * Transforms a list of pixel coordinates (e.g. a grid of tie points covering
+ * the whole frame) to geographic locations on the ground in a single execution,
+ * taking into account the full camera model and intersecting with the earth
+ * ellipsoid, or with the terrain if an SRTM data folder is provided.
+ * </p>
+ *
+ * @author Alex Robin
+ * @since Oct 2026
+ */
+public class ImageToGround_Points extends ImageToGround
+{
+    public static final OSHProcessInfo INFO = new OSHProcessInfo("geoloc:ImagePointsToGround", "Image to Ground (Points)", "Compute ground locations of several pixels knowing their image coordinates", ImageToGround_Points.class);
+
+    protected Count numInputPoints;
+    protected DataArray pointsIn;
+    protected Count numOutputPoints;
+    protected DataArray pointsOut;
+    protected Text srtmDataPath;
+
+
+    public ImageToGround_Points()
+    {
+        this(INFO);
+    }
+
+
+    public ImageToGround_Points(ProcessInfo info)
+    {
+        super(info);
+        var swe = new GeoPosHelper();
+
+        // inputs
+        inputData.clear();
+        inputData.add("image_points", swe.createRecord()
+            .label("Image Points")
+            .description("Pixel coordinates in image space")
+            .addField("numPoints", numInputPoints = swe.createCount()
+                .id("NUM_POINTS")
+                .build())
+            .addField("pointList", pointsIn = swe.createArray()
+                .withSizeComponent(numInputPoints)
+                .withElement("point", swe.createRecord()
+                    .addField("x", swe.createQuantity()
+                        .uomCode("1")
+                        .description("X coordinate, in pixels"))
+                    .addField("y", swe.createQuantity()
+                        .uomCode("1")
+                        .description("Y coordinate, in pixels")))
+                .build())
+            .build());
+
+        // outputs
+        outputData.clear();
+        outputData.add("ground_points", swe.createRecord()
+            .label("Ground Points")
+            .description("Ground locations of image points")
+            .addField("numPoints", numOutputPoints = swe.createCount()
+                .id("NUM_POINTS")
+                .build())
+            .addField("pointList", pointsOut = swe.createArray()
+                .withSizeComponent(numOutputPoints)
+                .withElement("location", swe.createLocationVectorLLA()
+                    .description("Ground location of image point"))
+                .build())
+            .build());
+
+        // parameters
+        paramData.add("srtmDataPath", srtmDataPath = swe.createText()
+            .label("SRTM Data Path")
+            .description("Local absolute path to SRTM data folder. If not set, ground locations are computed on the ellipsoid raised by the ground altitude")
+            .build());
+    }
+
+
+    @Override
+    public void init() throws ProcessException
+    {
+        super.init();
+
+        // use terrain model if SRTM data path is set
+        var srtmData = srtmDataPath.getData();
+        var dataPath = srtmData != null ? srtmData.getStringValue() : null;
+        if (dataPath != null && !dataPath.isBlank())
+        {
+            var path = Path.of(dataPath);
+            if (!Files.isDirectory(path) || !Files.isReadable(path))
+                reportError("Missing or inaccessible SRTM data directory: " + dataPath);
+
+            double heightOffset = heightAdjParam.getData().getDoubleValue();
+            var srtm = SRTMTileCache.getSharedInstance(dataPath);
+            this.terrainIntersect = new TerrainIntersect(Ellipsoid.WGS84, srtm, heightOffset);
+        }
+    }
+
+
+    @Override
+    public void execute() throws ProcessException
+    {
+        readPositionParams();
+
+        // wait until platform location has been received
+        var llaData = platformLocParam.getData();
+        if (Double.isNaN(llaData.getDoubleValue(0)))
+            return;
+
+        // get pixel coordinates input
+        int numPoints = numInputPoints.getData().getIntValue();
+        var pointData = pointsIn.getData();
+        var x = new double[numPoints];
+        var y = new double[numPoints];
+        for (int i = 0, idx = 0; i < numPoints; i++)
+        {
+            x[i] = pointData.getDoubleValue(idx++);
+            y[i] = pointData.getDoubleValue(idx++);
+        }
+
+        // compute ground location of all pixels
+        var ecefX = new double[numPoints];
+        var ecefY = new double[numPoints];
+        var ecefZ = new double[numPoints];
+        var lon = new double[numPoints];
+        var lat = new double[numPoints];
+        var alt = new double[numPoints];
+        try
+        {
+            int numFound = toGroundLocations(x, y, ecefX, ecefY, ecefZ, lon, lat, alt, numPoints);
+            if (numFound < numPoints)
+                getLogger().debug("No intersection found for {} points", numPoints - numFound);
+        }
+        catch (IOException e)
+        {
+            throw new ProcessException("Error while looking up altitude from SRTM DEM data", e);
+        }
+
+        // set ground locations output
+        pointsOut.updateSize(numPoints);
+        var outData = pointsOut.getData();
+        for (int i = 0, idx = 0; i < numPoints; i++)
+        {
+            outData.setDoubleValue(idx++, Math.toDegrees(lat[i]));
+            outData.setDoubleValue(idx++, Math.toDegrees(lon[i]));
+            outData.setDoubleValue(idx++, alt[i]);
+        }
+    }
+}
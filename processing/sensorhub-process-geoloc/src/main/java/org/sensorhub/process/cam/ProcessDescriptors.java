@@ -23,6 +23,7 @@ public class ProcessDescriptors extends AbstractProcessProvider
     {
         addImpl(ImageToGround.INFO);
         addImpl(ImageToGround_Bbox.INFO);
+        addImpl(ImageToGround_Points.INFO);
         addImpl(FovToCamMatrix.INFO);
         addImpl(CamPtzGeoPointing.INFO);
     }
@@ -21,7 +21,7 @@ import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.Text;
 import org.sensorhub.algo.geoloc.Ellipsoid;
 import org.sensorhub.algo.geoloc.GeoTransforms;
-import org.sensorhub.algo.geoloc.SRTMUtil;
+import org.sensorhub.algo.geoloc.SRTMTileCache;
 import org.sensorhub.algo.vecmath.Vect3d;
 import org.sensorhub.api.processing.OSHProcessInfo;
 import org.vast.process.ProcessException;
@@ -45,7 +45,7 @@ public class RayIntersectTerrain extends RayIntersectEllipsoid
     protected Text srtmDataPath;
     
     protected GeoTransforms transforms;
-    protected SRTMUtil util;
+    protected SRTMTileCache srtm;
     protected Vect3d lla;
     protected double initAlti;
     
@@ -76,7 +76,7 @@ public class RayIntersectTerrain extends RayIntersectEllipsoid
         var path = Path.of(dataPath);
         if (dataPath == null || !Files.isDirectory(path) || !Files.isReadable(path))
             reportError("Missing or inaccessible SRTM data directory: " + dataPath);
-        util = new SRTMUtil(dataPath);
+        srtm = SRTMTileCache.getSharedInstance(dataPath);
         
         // set init altitude
         initAlti = heightAdjustment.getData().getDoubleValue();
@@ -138,6 +138,6 @@ public class RayIntersectTerrain extends RayIntersectEllipsoid
     
     private final double getAltitude(double lon, double lat) throws IOException
     {
-        return util.getInterpolatedElevation(Math.toDegrees(lat), Math.toDegrees(lon));
+        return srtm.getElevation(Math.toDegrees(lat), Math.toDegrees(lon));
     }
 }
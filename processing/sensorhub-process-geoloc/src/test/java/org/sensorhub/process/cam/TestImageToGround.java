@@ -235,4 +235,46 @@ public class TestImageToGround
         assertEquals(0.0+expectedDLon, lla.x, 1e-4);
         assertEquals(0.0, lla.z, 1e-8);
     }
+    
+    
+    @Test
+    public void testBatchMatchesSinglePixel() throws Exception
+    {
+        // oblique view
+        setupParams(
+            120.0,               // ground altitude
+            34.5, -117.2, 2500.0, // platform location
+            35.0, 2.0, -3.0,      // platform attitude
+            10.0, -60.0, 0.0,     // camera orientation
+            600, 640, 480);       // focal & img dims
+        
+        // 32x32 grid of tie points covering the frame
+        int n = 32*32;
+        var x = new double[n];
+        var y = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            x[i] = (i % 32) * 640. / 31;
+            y[i] = (i / 32) * 480. / 31;
+        }
+        
+        var ecefX = new double[n];
+        var ecefY = new double[n];
+        var ecefZ = new double[n];
+        var lon = new double[n];
+        var lat = new double[n];
+        var alt = new double[n];
+        int numFound = process.toGroundLocations(x, y, ecefX, ecefY, ecefZ, lon, lat, alt, n);
+        assertEquals(n, numFound);
+        
+        var lla = new Vect3d();
+        for (int i = 0; i < n; i++)
+        {
+            process.toGroundLocation(x[i], y[i], lla);
+            assertEquals(lla.x, lon[i], 1e-12);
+            assertEquals(lla.y, lat[i], 1e-12);
+            assertEquals(lla.z, alt[i], 1e-6);
+            assertEquals(120.0, alt[i], 1e-2);
+        }
+    }
 }
@@ -0,0 +1,160 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.process.geoloc;
+
+import static org.junit.Assert.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sensorhub.algo.geoloc.SRTMTileCache;
+import org.sensorhub.algo.geoloc.SRTMUtil;
+
+
+public class TestSRTMTileCache
+{
+    static final int TILE_SIZE = 11; // small synthetic tiles
+    static final long TILE_BYTES = 2L * TILE_SIZE * TILE_SIZE;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    Path dataRoot;
+
+
+    /*
+     * Elevation is a linear function of lat/lon so that bilinear
+     * interpolation gives the exact value everywhere
+     */
+    static double elevation(double lat, double lon)
+    {
+        return 100. * (lat - 34) + 50. * (lon + 116);
+    }
+
+
+    void writeTile(int lat0, int lon0) throws IOException
+    {
+        var buf = ByteBuffer.allocate((int)TILE_BYTES);
+        for (int row = 0; row < TILE_SIZE; row++)
+        {
+            // rows are stored north to south
+            double lat = lat0 + (double)(TILE_SIZE - 1 - row) / (TILE_SIZE - 1);
+            for (int col = 0; col < TILE_SIZE; col++)
+            {
+                double lon = lon0 + (double)col / (TILE_SIZE - 1);
+                buf.putShort((short)Math.round(elevation(lat, lon)));
+            }
+        }
+
+        Files.write(dataRoot.resolve(SRTMTileCache.getTileName(lat0, lon0)), buf.array());
+    }
+
+
+    @Before
+    public void setup() throws IOException
+    {
+        dataRoot = tmpFolder.getRoot().toPath();
+        writeTile(35, -115);
+        writeTile(35, -116);
+        writeTile(34, -115);
+    }
+
+
+    @Test
+    public void testTileNames()
+    {
+        assertEquals("N35W115.hgt", SRTMTileCache.getTileName(35, -115));
+        assertEquals("S01E009.hgt", SRTMTileCache.getTileName(-1, 9));
+        assertEquals("N00E000.hgt", SRTMTileCache.getTileName(0, 0));
+    }
+
+
+    @Test
+    public void testGetElevation() throws IOException
+    {
+        var cache = new SRTMTileCache(dataRoot, SRTMTileCache.DEFAULT_MAX_MAPPED_BYTES);
+
+        // on posts, between posts and on tile edges
+        double[][] locs = {{35.0, -115.0}, {35.1, -114.9}, {35.55, -114.37}, {35.999, -114.001}, {35.25, -115.5}, {34.5, -114.5}};
+        for (var loc: locs)
+            assertEquals(elevation(loc[0], loc[1]), cache.getElevation(loc[0], loc[1]), 1e-6);
+
+        assertEquals(3, cache.getNumMappedTiles());
+    }
+
+
+    @Test
+    public void testGetElevations() throws IOException
+    {
+        var cache = new SRTMTileCache(dataRoot, SRTMTileCache.DEFAULT_MAX_MAPPED_BYTES);
+
+        int n = 1000;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        double[] out = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            // march across 3 tiles
+            lats[i] = 35.8 - 1.0 * i / n;
+            lons[i] = -115.5 + 1.2 * i / n;
+        }
+
+        cache.getElevations(lats, lons, out);
+        for (int i = 0; i < n; i++)
+            assertEquals(elevation(lats[i], lons[i]), out[i], 1e-6);
+    }
+
+
+    @Test
+    public void testEviction() throws IOException
+    {
+        // budget allows only 2 tiles
+        var cache = new SRTMTileCache(dataRoot, 2 * TILE_BYTES);
+
+        cache.getElevation(35.5, -114.5);
+        cache.getElevation(35.5, -115.5);
+        assertEquals(2, cache.getNumMappedTiles());
+        assertEquals(2 * TILE_BYTES, cache.getMappedBytes());
+
+        cache.getElevation(34.5, -114.5);
+        assertEquals(2, cache.getNumMappedTiles());
+        assertEquals(2 * TILE_BYTES, cache.getMappedBytes());
+
+        // evicted tile is mapped again when needed
+        assertEquals(elevation(35.5, -114.5), cache.getElevation(35.5, -114.5), 1e-6);
+        assertEquals(2, cache.getNumMappedTiles());
+    }
+
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingTile() throws IOException
+    {
+        var cache = new SRTMTileCache(dataRoot, SRTMTileCache.DEFAULT_MAX_MAPPED_BYTES);
+        cache.getElevation(10.5, 10.5);
+    }
+
+
+    @Test
+    public void testSRTMUtil() throws IOException
+    {
+        var util = new SRTMUtil(dataRoot.toString());
+        assertEquals(elevation(35.32, -114.77), util.getInterpolatedElevation(35.32, -114.77), 1e-6);
+        assertEquals(dataRoot.resolve("N35W115.hgt").toString(), util.openFile(35.32, -114.77));
+    }
+}
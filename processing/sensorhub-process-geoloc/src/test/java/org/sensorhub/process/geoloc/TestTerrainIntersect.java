@@ -0,0 +1,157 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.process.geoloc;
+
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sensorhub.algo.geoloc.Ellipsoid;
+import org.sensorhub.algo.geoloc.EllipsoidIntersect;
+import org.sensorhub.algo.geoloc.GeoTransforms;
+import org.sensorhub.algo.geoloc.SRTMTileCache;
+import org.sensorhub.algo.geoloc.TerrainIntersect;
+import org.sensorhub.algo.vecmath.Vect3d;
+
+
+public class TestTerrainIntersect
+{
+    static final int TILE_SIZE = 11;
+    static final short TERRAIN_ALT = 850;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+    GeoTransforms geoConv = new GeoTransforms();
+
+
+    SRTMTileCache createFlatTerrain(int lat0, int lon0) throws IOException
+    {
+        var dataRoot = tmpFolder.getRoot().toPath();
+        var buf = ByteBuffer.allocate(2 * TILE_SIZE * TILE_SIZE);
+        while (buf.hasRemaining())
+            buf.putShort(TERRAIN_ALT);
+        Files.write(dataRoot.resolve(SRTMTileCache.getTileName(lat0, lon0)), buf.array());
+        return new SRTMTileCache(dataRoot, SRTMTileCache.DEFAULT_MAX_MAPPED_BYTES);
+    }
+
+
+    /*
+     * Rays going down from origin in a fan over roughly +/- 0.1 deg
+     */
+    Vect3d createRays(double lat, double lon, double alt, double[] dirX, double[] dirY, double[] dirZ)
+    {
+        var origin = geoConv.LLAtoECEF(new Vect3d(Math.toRadians(lon), Math.toRadians(lat), alt), new Vect3d());
+        var target = new Vect3d();
+        var dir = new Vect3d();
+        int n = dirX.length;
+        int side = (int)Math.sqrt(n);
+        for (int i = 0; i < n; i++)
+        {
+            double dLat = 0.2 * ((i / side) / (side - 1.) - 0.5);
+            double dLon = 0.2 * ((i % side) / (side - 1.) - 0.5);
+            geoConv.LLAtoECEF(new Vect3d(Math.toRadians(lon + dLon), Math.toRadians(lat + dLat), 0.0), target);
+            dir.set(target).sub(origin).normalize();
+            dirX[i] = dir.x;
+            dirY[i] = dir.y;
+            dirZ[i] = dir.z;
+        }
+        return origin;
+    }
+
+
+    @Test
+    public void testEllipsoidOnly() throws IOException
+    {
+        int n = 100;
+        var dirX = new double[n];
+        var dirY = new double[n];
+        var dirZ = new double[n];
+        var origin = createRays(35.5, -114.5, 5000., dirX, dirY, dirZ);
+
+        var ecefX = new double[n];
+        var ecefY = new double[n];
+        var ecefZ = new double[n];
+        var lon = new double[n];
+        var lat = new double[n];
+        var alt = new double[n];
+        var ti = new TerrainIntersect(Ellipsoid.WGS84, null, 200.);
+        assertEquals(n, ti.computeIntersections(origin, dirX, dirY, dirZ, ecefX, ecefY, ecefZ, lon, lat, alt, 0, n));
+
+        // compare with single ray intersection
+        var rie = new EllipsoidIntersect(Ellipsoid.WGS84, 200.);
+        var result = new Vect3d();
+        var lla = new Vect3d();
+        for (int i = 0; i < n; i++)
+        {
+            rie.computeIntersection(origin, new Vect3d(dirX[i], dirY[i], dirZ[i]), result);
+            assertEquals(result.x, ecefX[i], 1e-6);
+            assertEquals(result.y, ecefY[i], 1e-6);
+            assertEquals(result.z, ecefZ[i], 1e-6);
+
+            geoConv.ECEFtoLLA(result, lla);
+            assertEquals(lla.x, lon[i], 1e-12);
+            assertEquals(lla.y, lat[i], 1e-12);
+            assertEquals(lla.z, alt[i], 1e-6);
+        }
+    }
+
+
+    @Test
+    public void testFlatTerrain() throws IOException
+    {
+        var srtm = createFlatTerrain(35, -115);
+
+        int n = 400;
+        var dirX = new double[n];
+        var dirY = new double[n];
+        var dirZ = new double[n];
+        var origin = createRays(35.5, -114.5, 5000., dirX, dirY, dirZ);
+
+        var ecefX = new double[n];
+        var ecefY = new double[n];
+        var ecefZ = new double[n];
+        var lon = new double[n];
+        var lat = new double[n];
+        var alt = new double[n];
+        var ti = new TerrainIntersect(Ellipsoid.WGS84, srtm, 0.0);
+
+        // process in two ranges like concurrent callers would
+        int found = ti.computeIntersections(origin, dirX, dirY, dirZ, ecefX, ecefY, ecefZ, lon, lat, alt, 0, 150);
+        found += ti.computeIntersections(origin, dirX, dirY, dirZ, ecefX, ecefY, ecefZ, lon, lat, alt, 150, n-150);
+        assertEquals(n, found);
+
+        for (int i = 0; i < n; i++)
+            assertEquals(TERRAIN_ALT, alt[i], 1e-2);
+    }
+
+
+    @Test
+    public void testNoIntersection() throws IOException
+    {
+        // horizontal ray passing above the earth
+        var origin = geoConv.LLAtoECEF(new Vect3d(0.0, 0.0, 1000e3), new Vect3d());
+
+        var out = new double[6][1];
+        var ti = new TerrainIntersect(Ellipsoid.WGS84, null, 0.0);
+        int found = ti.computeIntersections(origin, new double[] {0.0}, new double[] {1.0}, new double[] {0.0},
+            out[0], out[1], out[2], out[3], out[4], out[5], 0, 1);
+        assertEquals(0, found);
+        for (var coord: out)
+            assertTrue(Double.isNaN(coord[0]));
+    }
+}
@@ -22,11 +22,13 @@ import net.opengis.swe.v20.Text;
 import org.bytedeco.javacpp.BytePointer;
 import org.bytedeco.opencv.opencv_core.*;
 import static org.bytedeco.opencv.global.opencv_core.*;
+import java.lang.ref.Reference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import org.bytedeco.opencv.opencv_objdetect.CascadeClassifier;
 import org.sensorhub.api.processing.OSHProcessInfo;
+import org.sensorhub.impl.process.video.DataBlockByteNative;
 import org.vast.data.DataBlockByte;
 import org.vast.process.ExecutableProcessImpl;
 import org.vast.process.ProcessException;
@@ -147,29 +149,44 @@ public class FaceDetection extends ExecutableProcessImpl
         
         // convert input image data to OpenCV Mat object
         Mat mat;
-        if (imgData instanceof DataBlockByte)
+        BytePointer heapFramePtr = null;
+        if (imgData instanceof DataBlockByteNative && ((DataBlockByteNative)imgData).hasNativeData())
+        {
+            // optimized version if datablock contains a native buffer
+            // e.g. coming from FFMPEG decoder. This avoids copying the frame
+            // twice between Java and native code!
+            var framePtr = ((DataBlockByteNative)imgData).getNativePointer();
+            mat = new Mat(rows, cols, CV_8UC(3), framePtr);
+        }
+        else if (imgData instanceof DataBlockByte)
         {
             var imgBytes = ((DataBlockByte)imgData).getUnderlyingObject();
             
-            mat = new Mat(rows, cols, CV_8UC(3), new BytePointer(imgBytes));
+            heapFramePtr = new BytePointer(imgBytes);
+            mat = new Mat(rows, cols, CV_8UC(3), heapFramePtr);
             // TODO reuse same native array
         }
         else
             throw new IllegalArgumentException("Only DataBlockByte supported as input");
         
-        /*else if (imgData instanceof DataBlockByteBuffer)
+        try
         {
-            // optimized version of the above if datablock contains a direct byte buffer
-            // e.g. coming from FFMPEG decoder. This avoids copying the buffer twice between
-            // Java and native code!
-        }*/
-        
-        //Mat gray = new Mat(rows, cols, CV_8UC1);
-        //cvtColor(mat, gray, COLOR_RGB2GRAY);
-        
-        detectedObjects.clear();
-        face_cascade.detectMultiScale(mat, detectedObjects);
-        //gray.deallocate();
+            //Mat gray = new Mat(rows, cols, CV_8UC1);
+            //cvtColor(mat, gray, COLOR_RGB2GRAY);
+            
+            detectedObjects.clear();
+            face_cascade.detectMultiScale(mat, detectedObjects);
+            //gray.deallocate();
+        }
+        finally
+        {
+            // native frame data is owned by the datablock and is not deallocated
+            // here, but the block must stay reachable until OpenCV is done with it
+            mat.deallocate();
+            if (heapFramePtr != null)
+                heapFramePtr.deallocate();
+            Reference.reachabilityFence(imgData);
+        }
         
         long numberOfFaces = detectedObjects.size();
         numFaces.getData().setIntValue((int)numberOfFaces);        
@@ -14,6 +14,7 @@ Copyright (C) 2021 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.process.opencv;
 
+import java.lang.ref.Reference;
 import java.util.Arrays;
 import java.util.function.Supplier;
 import net.opengis.swe.v20.Count;
@@ -28,6 +29,7 @@ import org.bytedeco.opencv.opencv_core.Rect;
 import org.bytedeco.opencv.opencv_tracking.*;
 import org.bytedeco.opencv.opencv_video.Tracker;
 import org.sensorhub.api.processing.OSHProcessInfo;
+import org.sensorhub.impl.process.video.DataBlockByteNative;
 import org.vast.data.DataBlockByte;
 import org.vast.process.ExecutableProcessImpl;
 import org.vast.process.ProcessException;
@@ -183,16 +185,27 @@ public class ObjectTracking extends ExecutableProcessImpl
     @Override
     public void execute() throws ProcessException
     {
+        var imgData = imgIn.getData();
+        Mat frameMat = null;
+        
         try
         {
-            var imgData = imgIn.getData();
             var timeStamp = inputTimeStamp.getData().getDoubleValue();
+            var rows = imgIn.getComponentCount();
+            var cols = ((DataArray)imgIn.getElementType()).getComponentCount();
+            Mat img;
             
-            if (imgData instanceof DataBlockByte)
+            if (imgData instanceof DataBlockByteNative && ((DataBlockByteNative)imgData).hasNativeData())
+            {
+                // optimized version if datablock contains a native buffer
+                // e.g. coming from FFMPEG decoder. This avoids copying the frame
+                // twice between Java and native code!
+                var framePtr = ((DataBlockByteNative)imgData).getNativePointer();
+                img = frameMat = new Mat(rows, cols, CV_8UC(3), framePtr);
+            }
+            else if (imgData instanceof DataBlockByte)
             {
                 var imgBytes = ((DataBlockByte)imgData).getUnderlyingObject();
-                var rows = imgIn.getComponentCount();
-                var cols = ((DataArray)imgIn.getElementType()).getComponentCount();
                 
                 // reallocate matrix only if image size has changed
                 if (cvMat == null || cvMat.rows() != rows || cvMat.cols() != cols)
@@ -210,17 +223,12 @@ public class ObjectTracking extends ExecutableProcessImpl
                 {
                     cvMat.data().put(imgBytes);
                 }
+                
+                img = cvMat;
             }
             else
                 throw new IllegalArgumentException("Only DataBlockByte supported as input");
             
-            /*else if (imgData instanceof DataBlockByteBuffer)
-            {
-                // optimized version of the above if datablock contains a direct byte buffer
-                // e.g. coming from FFMPEG decoder. This avoids copying the buffer twice between
-                // Java and native code!
-            }*/
-            
             if (numInputBboxes.hasData() && numInputBboxes.getData().getIntValue() > 0)
             {
                 var bbox = bboxesIn.getComponent(0).getData();
@@ -235,7 +243,7 @@ public class ObjectTracking extends ExecutableProcessImpl
                 if (cvRect.area() > 0)
                 {
                     tracker = trackerSupplier.get();
-                    tracker.init(cvMat, cvRect);
+                    tracker.init(img, cvRect);
                     trackerInitialized = true;
     
                     getLogger().info("Tracker initialized with BBOX: x={}, y={}, w={}, h={}",
@@ -253,7 +261,7 @@ public class ObjectTracking extends ExecutableProcessImpl
             }
             else if (trackerInitialized)
             {
-                tracker.update(cvMat, cvRect);
+                tracker.update(img, cvRect);
             }
             
             // output bbox
@@ -278,7 +286,11 @@ public class ObjectTracking extends ExecutableProcessImpl
         }
         finally
         {
-            
+            // only release matrix header, frame data is owned by the datablock
+            // which must stay reachable until OpenCV is done with it
+            if (frameMat != null)
+                frameMat.deallocate();
+            Reference.reachabilityFence(imgData);
         }
     }
     
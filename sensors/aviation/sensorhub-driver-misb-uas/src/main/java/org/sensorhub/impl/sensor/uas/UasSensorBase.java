@@ -2,11 +2,15 @@ package org.sensorhub.impl.sensor.uas;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.impl.sensor.AbstractSensorModule;
+import org.sensorhub.impl.sensor.uas.common.PipelineStage;
 import org.sensorhub.impl.sensor.uas.common.SimulationClock;
 import org.sensorhub.impl.sensor.uas.common.SyncTime;
 import org.sensorhub.impl.sensor.uas.config.UasConfig;
@@ -48,9 +52,31 @@ public abstract class UasSensorBase<UasConfigType extends UasConfig> extends Abs
     protected MpegTsProcessor mpegTsProcessor;
     
     /**
-     * Background thread manager. Used for image decoding. At the moment, this is a single thread.
+     * Background thread manager. Used for scheduled tasks such as subscription checks and pipeline statistics.
      */
     protected ScheduledExecutorService executor;
+
+    /**
+     * Pipeline stage publishing video frames. The MPEG TS processor thread demuxes the stream and feeds this stage
+     * and the metadata stage, which each have their own bounded queue and worker thread so a burst of metadata
+     * doesn't delay video frames and vice versa.
+     */
+    protected PipelineStage videoStage;
+
+    /**
+     * Pipeline stage decoding KLV metadata.
+     */
+    protected PipelineStage metadataStage;
+
+    /**
+     * Thread pool used by the set decoder to notify metadata outputs in parallel.
+     */
+    protected ExecutorService outputsExecutor;
+
+    /**
+     * Dropped task counts at the time of the last statistics report, for video and metadata stages.
+     */
+    private final long[] lastDroppedCounts = new long[2];
     
     /**
      * Knows how to decode the STANAG 4609 tags from the MPEG data. The various outputs listen to events emitted by this
@@ -99,6 +125,11 @@ public abstract class UasSensorBase<UasConfigType extends UasConfig> extends Abs
         createFois();
 
         setDecoder = new SetDecoder();
+
+        // In loop mode, shift timestamps once per set to simulate a real-time stream
+        if (config.connection.loop) {
+            setDecoder.setTimeStampConverter(simulatedTime::getSimlatedTimeStamp);
+        }
         
         // Every time we init we have to tear down the mpegTsProcessor, just in case they changed some setting that
         // might cause the video output to be different.
@@ -137,35 +168,106 @@ public abstract class UasSensorBase<UasConfigType extends UasConfig> extends Abs
     }
 
     /**
-     * Creates the background thread that'll handle video decoding, if it hasn't already been done.
-     * Also tells the setDecoder and videoOutput about the executor. This can be called multiple times without causing
-     * problems, and that's done on purpose so that the two subclasses could potentially call it at different times in
-     * their life cycle.
+     * Creates the background threads that'll handle scheduled tasks, video publishing and metadata decoding, if it
+     * hasn't already been done. Also tells the setDecoder and videoOutput about their pipeline stage. This can be
+     * called multiple times without causing problems, and that's done on purpose so that the two subclasses could
+     * potentially call it at different times in their life cycle.
      */
     protected void setupExecutor() {
     	if (executor == null) {
     		logger.debug("Executor was null, so creating a new one");
 	        executor = Executors.newSingleThreadScheduledExecutor();
+	        if (config.pipeline.statsPeriod > 0) {
+	            executor.scheduleWithFixedDelay(this::reportPipelineStats,
+	                config.pipeline.statsPeriod, config.pipeline.statsPeriod, TimeUnit.SECONDS);
+	        }
     	} else {
     		logger.debug("Already had an exector.");
     	}
+    	if (videoStage == null) {
+    	    videoStage = new PipelineStage("UAS-" + config.serialNumber + "-video",
+    	        config.pipeline.videoQueueSize, config.pipeline.videoOverflowPolicy);
+    	    videoStage.start();
+    	}
+    	if (metadataStage == null) {
+    	    metadataStage = new PipelineStage("UAS-" + config.serialNumber + "-klv",
+    	        config.pipeline.metadataQueueSize, config.pipeline.metadataOverflowPolicy);
+    	    metadataStage.start();
+    	}
+    	if (outputsExecutor == null && config.pipeline.parallelOutputs) {
+    	    AtomicInteger threadCount = new AtomicInteger();
+    	    outputsExecutor = Executors.newCachedThreadPool(r -> {
+    	        Thread t = new Thread(r, "UAS-" + config.serialNumber + "-output-" + threadCount.incrementAndGet());
+    	        t.setDaemon(true);
+    	        return t;
+    	    });
+    	}
     	if (setDecoder != null) {
-    		setDecoder.setExecutor(executor);
+    		setDecoder.setExecutor(metadataStage);
+    		setDecoder.setListenerExecutor(outputsExecutor);
     	}
 		if (videoOutput != null) {
-			videoOutput.setExecutor(executor);
+			videoOutput.setExecutor(videoStage);
 		}
     }
 
     /**
-     * Cleanly shuts down the background thread and sets it to null. If it's already null, doesn't do anything. This is
-     * called when the sensor is stopped to clean up the background thread (hopefully).
+     * Cleanly shuts down the background threads and sets them to null. If they're already null, doesn't do anything.
+     * This is called when the sensor is stopped to clean up the background threads (hopefully).
      */
     protected void shutdownExecutor() {
         if (executor != null) {
             executor.shutdownNow();
             executor = null;
         }
+        if (videoStage != null) {
+            videoStage.shutdown();
+            videoStage = null;
+        }
+        if (metadataStage != null) {
+            metadataStage.shutdown();
+            metadataStage = null;
+        }
+        if (outputsExecutor != null) {
+            outputsExecutor.shutdownNow();
+            outputsExecutor = null;
+        }
+    }
+
+    /**
+     * Logs the depth of the pipeline queues, with a warning if a stage had to drop data since the last report.
+     */
+    protected void reportPipelineStats() {
+        PipelineStage[] stages = {videoStage, metadataStage};
+        for (int i = 0; i < stages.length; i++) {
+            PipelineStage stage = stages[i];
+            if (stage == null) {
+                continue;
+            }
+            long droppedCount = stage.getDroppedCount();
+            if (droppedCount > lastDroppedCounts[i]) {
+                logger.warn("{} is falling behind, dropped {} packets. {}",
+                    getUniqueIdentifier(), droppedCount - lastDroppedCounts[i], stage);
+            } else {
+                logger.debug("{} {}", getUniqueIdentifier(), stage);
+            }
+            lastDroppedCounts[i] = droppedCount;
+            stage.resetMaxQueueDepth();
+        }
+    }
+
+    /**
+     * @return the pipeline stage publishing video frames, or null if the sensor is not started
+     */
+    public PipelineStage getVideoStage() {
+        return videoStage;
+    }
+
+    /**
+     * @return the pipeline stage decoding KLV metadata, or null if the sensor is not started
+     */
+    public PipelineStage getMetadataStage() {
+        return metadataStage;
     }
 
     /**
@@ -182,8 +284,8 @@ public abstract class UasSensorBase<UasConfigType extends UasConfig> extends Abs
      */
     protected void createVideoOutput(int[] videoDims) {
     	videoOutput = new Video<UasConfigType>(this, videoDims);
-    	if (executor != null) {
-    		videoOutput.setExecutor(executor);
+    	if (videoStage != null) {
+    		videoOutput.setExecutor(videoStage);
     	}
         addOutput(videoOutput, false);
         videoOutput.init();
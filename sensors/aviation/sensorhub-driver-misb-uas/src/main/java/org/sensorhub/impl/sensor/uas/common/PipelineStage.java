@@ -0,0 +1,287 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.impl.sensor.uas.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stage of the stream processing pipeline, consisting of a bounded queue of tasks executed in order
+ * by a dedicated worker thread.  When the queue is full, tasks submitted by the upstream stage are
+ * handled according to the {@link OverflowPolicy} of the stage, and the queue depth and number of
+ * dropped tasks are tracked so that a stage falling behind can be identified.
+ * Tasks implementing {@link DiscardableTask} are notified when they are dropped without being run.
+ *
+ * @since Oct. 2026
+ */
+public class PipelineStage implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+    /**
+     * What to do with a new task when the queue is full
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Block the submitting thread until there is room in the queue, slowing down the upstream stage
+         */
+        BLOCK,
+
+        /**
+         * Discard the oldest queued task to make room for the new one
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discard the new task
+         */
+        DROP_NEWEST
+    }
+
+    /**
+     * A task holding resources that must be freed if the task is dropped instead of being run
+     */
+    public interface DiscardableTask extends Runnable {
+
+        /**
+         * Called instead of {@link Runnable#run()} when the task is dropped by the stage
+         */
+        void discard();
+    }
+
+    private final String name;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final BlockingQueue<Runnable> queue;
+
+    private final int capacity;
+
+    private final AtomicLong processedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private volatile int maxQueueDepth;
+
+    private volatile boolean running;
+
+    private volatile Thread worker;
+
+    /**
+     * Constructor
+     *
+     * @param name           the name of the stage, also used to name the worker thread
+     * @param capacity       the maximum number of tasks waiting in the queue
+     * @param overflowPolicy what to do when the queue is full
+     */
+    public PipelineStage(String name, int capacity, OverflowPolicy overflowPolicy) {
+
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Starts the worker thread
+     */
+    public synchronized void start() {
+
+        if (!running) {
+
+            running = true;
+            worker = new Thread(this::processTasks, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the worker thread, discarding all pending tasks
+     */
+    public synchronized void shutdown() {
+
+        running = false;
+
+        if (null != worker) {
+
+            worker.interrupt();
+            worker = null;
+        }
+
+        List<Runnable> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(PipelineStage::discard);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+
+        if (!running) {
+
+            drop(task);
+            return;
+        }
+
+        switch (overflowPolicy) {
+
+            case BLOCK:
+                try {
+                    queue.put(task);
+                } catch (InterruptedException e) {
+                    drop(task);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                break;
+
+            case DROP_OLDEST:
+                while (!queue.offer(task)) {
+
+                    Runnable oldest = queue.poll();
+
+                    if (null != oldest) {
+
+                        drop(oldest);
+                    }
+                }
+                break;
+
+            default:
+                if (!queue.offer(task)) {
+
+                    drop(task);
+                    return;
+                }
+                break;
+        }
+
+        int depth = queue.size();
+
+        if (depth > maxQueueDepth) {
+
+            maxQueueDepth = depth;
+        }
+
+        // the stage may have been shut down while the task was being queued
+        if (!running && queue.remove(task)) {
+
+            discard(task);
+        }
+    }
+
+    private void drop(Runnable task) {
+
+        droppedCount.incrementAndGet();
+        discard(task);
+    }
+
+    private static void discard(Runnable task) {
+
+        if (task instanceof DiscardableTask) {
+
+            try {
+                ((DiscardableTask) task).discard();
+            } catch (Throwable e) {
+                logger.error("Error while discarding task", e);
+            }
+        }
+    }
+
+    private void processTasks() {
+
+        // exit if the stage was shut down, even if it has been restarted since
+        while (worker == Thread.currentThread()) {
+
+            Runnable task;
+
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Error in {} pipeline stage", name, e);
+            }
+
+            processedCount.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * @return the number of tasks currently waiting in the queue
+     */
+    public int getQueueDepth() {
+
+        return queue.size();
+    }
+
+    /**
+     * @return the maximum queue depth observed since the stage was created or since the last call to
+     * {@link PipelineStage#resetMaxQueueDepth()}
+     */
+    public int getMaxQueueDepth() {
+
+        return maxQueueDepth;
+    }
+
+    public void resetMaxQueueDepth() {
+
+        maxQueueDepth = queue.size();
+    }
+
+    /**
+     * @return the number of tasks executed by the worker thread
+     */
+    public long getProcessedCount() {
+
+        return processedCount.get();
+    }
+
+    /**
+     * @return the number of tasks discarded because the queue was full or the stage was stopped
+     */
+    public long getDroppedCount() {
+
+        return droppedCount.get();
+    }
+
+    @Override
+    public String toString() {
+
+        return name + ": queue=" + getQueueDepth() + "/" + capacity + ", maxQueue=" + maxQueueDepth
+                + ", processed=" + getProcessedCount() + ", dropped=" + getDroppedCount();
+    }
+}
@@ -0,0 +1,45 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.impl.sensor.uas.config;
+
+import org.sensorhub.api.config.DisplayInfo;
+import org.sensorhub.impl.sensor.uas.common.PipelineStage.OverflowPolicy;
+
+/**
+ * Configuration settings for the UAS driver exposed via the OpenSensorHub Admin panel.
+ * Specifically, sizes and overflow policies of the video and metadata processing queues
+ *
+ * @since Oct. 2026
+ */
+public class Pipeline {
+
+    @DisplayInfo(label = "Video Queue Size", desc = "Maximum number of video frames waiting to be published")
+    public int videoQueueSize = 64;
+
+    @DisplayInfo(label = "Video Overflow Policy", desc = "What to do with new video frames when the video queue is full."
+        + " BLOCK slows down reading of the stream, while dropping frames can corrupt H264 video until the next key frame.")
+    public OverflowPolicy videoOverflowPolicy = OverflowPolicy.BLOCK;
+
+    @DisplayInfo(label = "Metadata Queue Size", desc = "Maximum number of KLV metadata packets waiting to be decoded")
+    public int metadataQueueSize = 32;
+
+    @DisplayInfo(label = "Metadata Overflow Policy", desc = "What to do with new KLV metadata packets when the metadata queue is full")
+    public OverflowPolicy metadataOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    @DisplayInfo(label = "Parallel Outputs", desc = "Notify metadata outputs in parallel when a KLV packet is decoded")
+    public boolean parallelOutputs = true;
+
+    @DisplayInfo(label = "Stats Period", desc = "Period at which queue statistics are logged, in seconds. 0 to disable.")
+    public int statsPeriod = 10;
+}
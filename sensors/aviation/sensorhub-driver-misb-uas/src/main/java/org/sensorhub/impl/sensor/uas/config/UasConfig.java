@@ -47,4 +47,7 @@ public class UasConfig extends SensorConfig {
     @DisplayInfo.Required
     @DisplayInfo(label = "Outputs", desc = "Configuration options for source data outputs from driver")
     public Outputs outputs = new Outputs();
+
+    @DisplayInfo(label = "Pipeline", desc = "Configuration options for the stream processing pipeline")
+    public Pipeline pipeline = new Pipeline();
 }
@@ -14,9 +14,6 @@
 package org.sensorhub.impl.sensor.uas.klv;
 
 import org.sensorhub.impl.sensor.uas.common.SyncTime;
-import org.sensorhub.misb.stanag4609.tags.Tag;
-
-import java.util.HashMap;
 
 /**
  * Interface specification for client classes to receive decoded MISB-TS STANAG 4609 ST0601.16 UAS Metadata
@@ -27,5 +24,12 @@ import java.util.HashMap;
  */
 public interface DecodedSetListener {
 
-    void onSetDecoded(SyncTime syncTime, HashMap<Tag, Object> valuesMap);
+    /**
+     * Called when a new set has been decoded.  The record is reused for the next set so its
+     * content must be copied if it is needed after this method returns.
+     *
+     * @param syncTime the time synchronization info of the set
+     * @param record   the values decoded from the set
+     */
+    void onSetDecoded(SyncTime syncTime, UasDataLinkRecord record);
 }
@@ -13,20 +13,27 @@
  ******************************* END LICENSE BLOCK ***************************/
 package org.sensorhub.impl.sensor.uas.klv;
 
+import org.sensorhub.impl.sensor.uas.common.PipelineStage.DiscardableTask;
 import org.sensorhub.impl.sensor.uas.common.SyncTime;
 import org.sensorhub.misb.stanag4609.comm.DataBufferListener;
 import org.sensorhub.misb.stanag4609.comm.DataBufferRecord;
 import org.sensorhub.misb.stanag4609.tags.Tag;
+import org.sensorhub.misb.stanag4609.tags.TagRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vast.util.Asserts;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Decodes MISB-TS STANAG 4609 ST0601.16 UAS Metadata
+ * <p>
+ * Sets are decoded by the metadata executor, and when a listener executor is provided, the listeners
+ * are notified in parallel. The decoder waits for all listeners to be done with a set before decoding
+ * the next one, so each listener still receives sets in order.
  *
  * @author Nick Garay
  * @since Oct. 5, 2020
@@ -34,10 +41,22 @@ import java.util.concurrent.Executor;
 public class SetDecoder implements DataBufferListener {
 
     private static final Logger logger = LoggerFactory.getLogger(SetDecoder.class);
+
+    private static final Tag PRECISION_TIME_STAMP_TAG =
+            TagRegistry.getInstance().getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte) 0x02);
     
-    private final List<DecodedSetListener> listeners = new ArrayList<>();
+    private final List<DecodedSetListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Record reused to decode each set, so decoding doesn't allocate per element storage
+     */
+    private final UasDataLinkRecord decodedRecord = new UasDataLinkRecord();
 
     private Executor executor;
+
+    private Executor listenerExecutor;
+
+    private DoubleUnaryOperator timeStampConverter;
     
     /**
      * Constructor
@@ -50,16 +69,62 @@ public class SetDecoder implements DataBufferListener {
         this.executor = Asserts.checkNotNull(executor, Executor.class);
     }
 
+    /**
+     * Sets the executor used to notify listeners in parallel
+     *
+     * @param listenerExecutor the executor, or null to notify listeners sequentially on the decoding thread
+     */
+    public void setListenerExecutor(Executor listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * Sets a function applied to the precision time stamp of each set before listeners are notified,
+     * used to simulate a real-time stream when looping over a file
+     *
+     * @param timeStampConverter the conversion function, or null to keep time stamps unchanged
+     */
+    public void setTimeStampConverter(DoubleUnaryOperator timeStampConverter) {
+        this.timeStampConverter = timeStampConverter;
+    }
+
     @Override
     public void onDataBuffer(DataBufferRecord record) {
 
-        executor.execute(() -> {
-            try {
-                processBuffer(record);
-            } catch (Throwable e) {
-                logger.error("Error while decoding MISB Local Set", e);
-            }
-        });
+        try {
+            // the record is also released if the task is dropped by the pipeline stage
+            executor.execute(new DiscardableTask() {
+
+                @Override
+                public void run() {
+                    try {
+                        processBuffer(record);
+                    } catch (Throwable e) {
+                        logger.error("Error while decoding MISB Local Set", e);
+                    } finally {
+                        record.release();
+                    }
+                }
+
+                @Override
+                public void discard() {
+                    record.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            record.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Sets are fully decoded into a separate record before listeners are notified, so the buffer
+     * can be reused as soon as a set has been processed
+     */
+    @Override
+    public boolean isReleasingBuffers() {
+
+        return true;
     }
 
     public void processBuffer(DataBufferRecord record) {
@@ -67,28 +132,98 @@ public class SetDecoder implements DataBufferListener {
         byte[] dataBuffer = record.getDataBuffer();
 
         // Read the set
-        UasDataLinkSet dataLinkSet = new UasDataLinkSet(dataBuffer.length, dataBuffer);
-
-        List<String> acceptedDesignators = new ArrayList<>();
-        acceptedDesignators.add(UasDataLinkSet.UAS_LOCAL_SET.getDesignator());
+        UasDataLinkSet dataLinkSet = new UasDataLinkSet(record.getDataLength(), dataBuffer);
 
         // If it is a valid set
-        if (dataLinkSet.validateChecksum() && dataLinkSet.validateDesignator(acceptedDesignators)) {
+        if (dataLinkSet.validateChecksum() && dataLinkSet.validateUasLocalSetDesignator()) {
+
+            synchronized (decodedRecord) {
 
-            HashMap<Tag, Object> valuesMap = dataLinkSet.decode();
+                decodedRecord.clear();
+                dataLinkSet.decode(decodedRecord);
 
-            SyncTime syncTime = new SyncTime(dataLinkSet.getPrecisionTimeStamp(), record.getPresentationTimestamp());
+                double precisionTimeStamp = dataLinkSet.getPrecisionTimeStamp();
 
-            synchronized (listeners) {
+                // convert time stamp once for all listeners
+                if (null != timeStampConverter) {
 
-                for (DecodedSetListener listener : listeners) {
+                    int timeStampIdx = decodedRecord.indexOf(PRECISION_TIME_STAMP_TAG);
 
-                    listener.onSetDecoded(syncTime, valuesMap);
+                    if (timeStampIdx >= 0) {
+
+                        precisionTimeStamp = timeStampConverter.applyAsDouble(decodedRecord.getDouble(timeStampIdx));
+                        decodedRecord.setDouble(timeStampIdx, precisionTimeStamp);
+                    }
                 }
+
+                SyncTime syncTime = new SyncTime(precisionTimeStamp, record.getPresentationTimestamp());
+
+                notifyListeners(syncTime, decodedRecord);
             }
         }
     }
 
+    /**
+     * Notifies all listeners of a decoded set, in parallel if a listener executor is set, and
+     * waits until all of them have processed it.
+     *
+     * @param syncTime the time synchronization info of the set
+     * @param record   the values decoded from the set
+     */
+    private void notifyListeners(SyncTime syncTime, UasDataLinkRecord record) {
+
+        Object[] currentListeners = listeners.toArray();
+
+        if (null == listenerExecutor || currentListeners.length < 2) {
+
+            for (Object listener : currentListeners) {
+
+                notifyListener((DecodedSetListener) listener, syncTime, record);
+            }
+
+            return;
+        }
+
+        // dispatch to all listeners but the first one, which is notified on this thread
+        CountDownLatch done = new CountDownLatch(currentListeners.length - 1);
+
+        for (int idx = 1; idx < currentListeners.length; ++idx) {
+
+            DecodedSetListener listener = (DecodedSetListener) currentListeners[idx];
+
+            try {
+                listenerExecutor.execute(() -> {
+                    try {
+                        notifyListener(listener, syncTime, record);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("Cannot dispatch MISB Local Set to listener", e);
+                done.countDown();
+            }
+        }
+
+        notifyListener((DecodedSetListener) currentListeners[0], syncTime, record);
+
+        // record is reused for next set so wait for all listeners
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void notifyListener(DecodedSetListener listener, SyncTime syncTime, UasDataLinkRecord record) {
+
+        try {
+            listener.onSetDecoded(syncTime, record);
+        } catch (Throwable e) {
+            logger.error("Error while processing MISB Local Set", e);
+        }
+    }
+
     /**
      * Adds a listener to callback when new KLV data is decoded
      *
@@ -110,12 +245,6 @@ public class SetDecoder implements DataBufferListener {
      */
     public void removeListener(DecodedSetListener listener) {
 
-        synchronized (listeners) {
-
-            if (listeners.contains(listener)) {
-
-                listeners.remove(listener);
-            }
-        }
+        listeners.remove(listener);
     }
 }
@@ -0,0 +1,197 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.impl.sensor.uas.klv;
+
+import org.sensorhub.misb.stanag4609.tags.Tag;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reusable record holding the values decoded from a {@link UasDataLinkSet}, in the order they appear
+ * in the set.  Numeric values are kept in a primitive array so decoding a set doesn't box them, and
+ * the record can be cleared and filled again with the next set without allocating new storage.
+ * Values of nested sets (security, VMTI) are stored as objects, as returned by their own decoders.
+ *
+ * @since Oct. 2026
+ */
+public class UasDataLinkRecord {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final byte DOUBLE_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte OBJECT_VALUE = 2;
+
+    private int size;
+
+    private Tag[] tags = new Tag[INITIAL_CAPACITY];
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    private double[] numValues = new double[INITIAL_CAPACITY];
+
+    private Object[] objValues = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Removes all values so the record can be reused for the next set
+     */
+    public void clear() {
+
+        Arrays.fill(objValues, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return the number of values in the record
+     */
+    public int size() {
+
+        return size;
+    }
+
+    public void putDouble(Tag tag, double value) {
+
+        int index = append(tag, DOUBLE_VALUE);
+        numValues[index] = value;
+    }
+
+    public void putInt(Tag tag, int value) {
+
+        int index = append(tag, INT_VALUE);
+        numValues[index] = value;
+    }
+
+    public void putObject(Tag tag, Object value) {
+
+        int index = append(tag, OBJECT_VALUE);
+        objValues[index] = value;
+    }
+
+    public void putAll(Map<Tag, Object> values) {
+
+        for (Map.Entry<Tag, Object> entry : values.entrySet()) {
+
+            putObject(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private int append(Tag tag, byte type) {
+
+        if (size == tags.length) {
+
+            int newCapacity = size * 2;
+            tags = Arrays.copyOf(tags, newCapacity);
+            types = Arrays.copyOf(types, newCapacity);
+            numValues = Arrays.copyOf(numValues, newCapacity);
+            objValues = Arrays.copyOf(objValues, newCapacity);
+        }
+
+        tags[size] = tag;
+        types[size] = type;
+
+        return size++;
+    }
+
+    /**
+     * @param index the index of the value in the record
+     * @return the tag of the value at the given index
+     */
+    public Tag getTag(int index) {
+
+        return tags[index];
+    }
+
+    /**
+     * @param index the index of the value in the record
+     * @return true if the value at the given index is numeric and can be read with
+     * {@link UasDataLinkRecord#getDouble(int)} without boxing
+     */
+    public boolean isNumeric(int index) {
+
+        return types[index] != OBJECT_VALUE;
+    }
+
+    /**
+     * @param index the index of a numeric value in the record
+     * @return the numeric value at the given index
+     */
+    public double getDouble(int index) {
+
+        return numValues[index];
+    }
+
+    /**
+     * Sets the numeric value at the given index, keeping its tag
+     *
+     * @param index the index of a numeric value in the record
+     * @param value the new value
+     */
+    public void setDouble(int index, double value) {
+
+        numValues[index] = value;
+    }
+
+    /**
+     * Gets the value at the given index with the same type as produced by
+     * {@link UasDataLinkSet#decode()}, numeric values are boxed.
+     *
+     * @param index the index of the value in the record
+     * @return the value at the given index
+     */
+    public Object getValue(int index) {
+
+        switch (types[index]) {
+            case DOUBLE_VALUE:
+                return numValues[index];
+            case INT_VALUE:
+                return (int) numValues[index];
+            default:
+                return objValues[index];
+        }
+    }
+
+    /**
+     * @param tag the tag to look for
+     * @return the index of the last value with the given tag, or -1 if the record contains no such value
+     */
+    public int indexOf(Tag tag) {
+
+        for (int idx = size - 1; idx >= 0; --idx) {
+
+            if (tags[idx] == tag) {
+
+                return idx;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return a map of tags to values, with the same content as returned by {@link UasDataLinkSet#decode()}
+     */
+    public HashMap<Tag, Object> toMap() {
+
+        HashMap<Tag, Object> valuesMap = new HashMap<>();
+
+        for (int idx = 0; idx < size; ++idx) {
+
+            valuesMap.put(tags[idx], getValue(idx));
+        }
+
+        return valuesMap;
+    }
+}
@@ -40,6 +40,8 @@ public class UasDataLinkSet extends AbstractDataSet {
 
     private static final int NUM_DESIGNATOR_BYTES = 16;
 
+    private static final byte[] UAS_LOCAL_SET_KEY = parseDesignator(UAS_LOCAL_SET.getDesignator());
+
     /**
      * The checksum as computed with the data received
      */
@@ -227,7 +229,8 @@ public class UasDataLinkSet extends AbstractDataSet {
         this.reportedChecksum = (short) ((payload[length - 2] & 0xFF) << 8 | (payload[length - 1] & 0xFF));
         this.computedChecksum = computeChecksum();
 
-        this.designator = readSetDesignator();
+        // designator is only converted to a string when it is validated
+        this.position = NUM_DESIGNATOR_BYTES;
         this.embeddedDataLength = decodeLength();
     }
 
@@ -282,7 +285,7 @@ public class UasDataLinkSet extends AbstractDataSet {
 
         for (int index = 0; index < NUM_DESIGNATOR_BYTES; ++index) {
 
-            byte value = payload[position++];
+            byte value = payload[index];
 
             if ((value & 0x00FF) < 0x10) {
 
@@ -300,6 +303,38 @@ public class UasDataLinkSet extends AbstractDataSet {
         return tagBuilder.toString();
     }
 
+    /**
+     * Checks that the set key is the {@link UasDataLinkSet#UAS_LOCAL_SET} designator, comparing the
+     * raw key bytes so that no string is built for each set.
+     *
+     * @return true if this set is a UAS Datalink Local Set
+     */
+    public boolean validateUasLocalSetDesignator() {
+
+        for (int index = 0; index < NUM_DESIGNATOR_BYTES; ++index) {
+
+            if (payload[index] != UAS_LOCAL_SET_KEY[index]) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte[] parseDesignator(String designator) {
+
+        String[] hexBytes = designator.split(" ");
+        byte[] key = new byte[hexBytes.length];
+
+        for (int index = 0; index < hexBytes.length; ++index) {
+
+            key[index] = (byte) Integer.parseInt(hexBytes[index], 16);
+        }
+
+        return key;
+    }
+
     /**
      * Validates the {@link UasDataLinkSet#designator} is in the set of <code>acceptedDesignators</code>
      * provided by the caller
@@ -312,6 +347,11 @@ public class UasDataLinkSet extends AbstractDataSet {
 
         boolean isValidDesignator = false;
 
+        if (null == designator) {
+
+            designator = readSetDesignator();
+        }
+
         for (String target : acceptedDesignators) {
 
             if (target.equalsIgnoreCase(designator)) {
@@ -327,123 +367,136 @@ public class UasDataLinkSet extends AbstractDataSet {
     @Override
     public HashMap<Tag, Object> decode() {
 
-        HashMap<Tag, Object> valuesMap = new HashMap<>();
+        UasDataLinkRecord record = new UasDataLinkRecord();
+
+        decode(record);
+
+        return record.toMap();
+    }
+
+    /**
+     * Decodes the set directly into the given record.  Elements are read in place from the payload and
+     * numeric values are stored without boxing, so no object is allocated per element except for string
+     * values and nested sets.
+     *
+     * @param record the record receiving the decoded values, it is not cleared by this method
+     */
+    public void decode(UasDataLinkRecord record) {
 
         // Extract decoded elements from the set
         while (hasMoreElements()) {
 
-            // Read data from next element in set
-            Element dataElement = getNextElement();
-
-            // Get the element tag
-            Tag tag = dataElement.getTag();
+            // Read key and length of next element in set, value is left in place
+            Tag tag = nextElementTag();
 
             if (TagSet.UNKNOWN != tag.getMemberOf()) {
 
-                // Decode element data values as raw data, these values get converted
+                // Decode element data values directly from the payload and convert them
                 // to correct type based on tag specific formulas below
-                Object value = dataElement.unpackData();
-
-                // Map data to corresponding output in correct data format
                 switch (tag.getLocalSetTag()) {
 
                     case 0x01: // "Checksum"
                         break;
 
                     case 0x02: // "Precision Time Stamp", "Timestamp for all metadata in this Local Set; used to coordinate with Motion Imagery", "microseconds"
-                        precisionTimeStamp = convertToTimeInMillis((long) value) / 1000.0;
-                        valuesMap.put(tag, precisionTimeStamp);
+                        precisionTimeStamp = convertToTimeInMillis(unpackInteger(tag)) / 1000.0;
+                        record.putDouble(tag, precisionTimeStamp);
                         break;
 
                     case 0x41: // "UAS Datalink LS Version Number", "Version number of the UAS Datalink LS document used to generate KLV metadata"
                     case 0x38: // "Platform Ground Speed", "Speed projected to the ground of an airborne platform passing overhead", "m/s"
+                        record.putInt(tag, (int) unpackInteger(tag));
+                        break;
+
                     case 0x0A: // "Platform Designation", "Model name for the platform"
                     case 0x04: // "Platform Tail Number", "Identifier of platform as posted"
                     case 0x0B: // "Image Source Sensor", "Name of currently active sensor"
                     case 0x0C: // "Image Coordinate System", "Name of the image coordinate system used"
-                        valuesMap.put(tag, value);
+                        record.putObject(tag, unpackString());
                         break;
 
                     case 0x30: // "Security Local Set", "MISB ST 0102 local let Security Metadata items"
-                        AbstractDataSet securitySet = new SecurityLocalSet(((byte[]) value).length, (byte[]) value);
-                        valuesMap.putAll(securitySet.decode());
+                        byte[] securityData = copyValue();
+                        AbstractDataSet securitySet = new SecurityLocalSet(securityData.length, securityData);
+                        record.putAll(securitySet.decode());
                         break;
 
                     case 0x0D: // "Sensor Latitude", "Sensor latitude", "deg"
-                        valuesMap.put(tag, convertToDouble((int) value, 180.0, 4294967294.0, 0.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 180.0, 4294967294.0, 0.0));
                         break;
 
                     case 0x0E: // "Sensor Longitude", "Sensor longitude", "deg"
-                        valuesMap.put(tag, convertToDouble((int) value, 360.0, 4294967294.0, 0.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 360.0, 4294967294.0, 0.0));
                         break;
 
                     case 0x0F: // "Sensor True Altitude", "Altitude of sensor as measured from Mean Sea Level (MSL)", "m"
                     case 0x19: // "Frame Center Elevation", "Terrain elevation at frame center relative to Mean Sea Level (MSL)", "m"
-                        valuesMap.put(tag, convertToDouble((int) value, 19900.0, 65535.0, -900.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 19900.0, 65535.0, -900.0));
                         break;
 
                     case 0x10: // "Sensor Horizontal Field of View", "Horizontal field of view of selected imaging sensor", "deg"
                     case 0x11: // "Sensor Vertical Field of View", "Vertical field of view of selected imaging sensor", "deg"
-                        valuesMap.put(tag, convertToDouble((int) value, 180.0, 65535.0, 0.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 180.0, 65535.0, 0.0));
                         break;
 
                     case 0x17: // "Frame Center Latitude", "Terrain latitude of frame center", "deg"
-                        frameCenterLatitude = convertToDouble((int) value, 180.0, 4294967294.0, 0.0);
-                        valuesMap.put(tag, frameCenterLatitude);
+                        frameCenterLatitude = convertToDouble((int) unpackInteger(tag), 180.0, 4294967294.0, 0.0);
+                        record.putDouble(tag, frameCenterLatitude);
                         break;
 
                     case 0x18: // "Frame Center Longitude", "Terrain longitude of frame center", "deg"
-                        frameCenterLongitude = convertToDouble((int) value, 360.0, 4294967294.0, 0.0);
-                        valuesMap.put(tag, frameCenterLongitude);
+                        frameCenterLongitude = convertToDouble((int) unpackInteger(tag), 360.0, 4294967294.0, 0.0);
+                        record.putDouble(tag, frameCenterLongitude);
                         break;
 
                     case 0x1A: // "Offset Corner Latitude Point 1", "Frame latitude offset for upper right corner", "deg"
                     case 0x1C: // "Offset Corner Latitude Point 2", "Frame latitude offset for lower right corner", "deg"
                     case 0x1E: // "Offset Corner Latitude Point 3", "Frame latitude offset for lower left corner", "deg"
-                        valuesMap.put(tag, convertToDouble((short) value, 0.15, 65534.0, frameCenterLatitude));
+                        record.putDouble(tag, convertToDouble((short) unpackInteger(tag), 0.15, 65534.0, frameCenterLatitude));
                         break;
 
                     case 0x1B: // "Offset Corner Longitude Point 1", "Frame longitude offset for upper right corner", "deg"
                     case 0x1D: // "Offset Corner Longitude Point 2", "Frame longitude offset for lower right corner", "deg"
                     case 0x1F: // "Offset Corner Longitude Point 3", "Frame longitude offset for lower left corner", "deg"
-                        valuesMap.put(tag, convertToDouble((short) value, 0.15, 65534.0, frameCenterLongitude));
+                        record.putDouble(tag, convertToDouble((short) unpackInteger(tag), 0.15, 65534.0, frameCenterLongitude));
                         break;
 
                     case 0x20: // "Offset Corner Latitude Point 4", "Frame latitude offset for upper left corner", "deg"
-                        valuesMap.put(tag, convertToDouble((short) value, 0.15, 65534.0, frameCenterLatitude));
+                        record.putDouble(tag, convertToDouble((short) unpackInteger(tag), 0.15, 65534.0, frameCenterLatitude));
                         frameCenterLatitude = 0.0;
                         break;
 
                     case 0x21: // "Offset Corner Longitude Point 4", "Frame longitude offset for upper left corner", "deg"
-                        valuesMap.put(tag, convertToDouble((short) value, 0.15, 65534.0, frameCenterLongitude));
+                        record.putDouble(tag, convertToDouble((short) unpackInteger(tag), 0.15, 65534.0, frameCenterLongitude));
                         frameCenterLongitude = 0.0;
                         break;
 
                     case 0x15: // "Slant Range", "Slant range in meters", "m"
-                        valuesMap.put(tag, convertToDouble((int) value, 5000000.0, 4294967295.0, 0.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 5000000.0, 4294967295.0, 0.0));
                         break;
 
                     case 0x12: // "Sensor Relative Azimuth Angle", "Relative rotation angle of sensor to platform longitudinal axis", "deg"
                     case 0x13: // "Sensor Relative Elevation Angle", "Relative elevation angle of sensor to platform longitudinal-transverse plane", "deg"
                     case 0x14: // "Sensor Relative Roll Angle", "Relative roll angle of sensor to aircraft platform", "deg"
-                        valuesMap.put(tag, convertToDouble((int) value, 360.0, 4294967295.0, 0.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 360.0, 4294967295.0, 0.0));
                         break;
 
                     case 0x05: // "Platform Heading Angle", "Aircraft heading angle", "deg"
-                        valuesMap.put(tag, convertToDouble((int) value, 360.0, 65535.0, 0.0));
+                        record.putDouble(tag, convertToDouble((int) unpackInteger(tag), 360.0, 65535.0, 0.0));
                         break;
 
                     case 0x06: // "Platform Pitch Angle", "Aircraft pitch angle", "deg"
-                        valuesMap.put(tag, convertToDouble((short) value, 40.0, 65534.0, 0.0));
+                        record.putDouble(tag, convertToDouble((short) unpackInteger(tag), 40.0, 65534.0, 0.0));
                         break;
 
                     case 0x07: // "Platform Roll Angle", "Platform roll angle", "deg"
-                        valuesMap.put(tag, convertToDouble((short) value, 100.0, 65534.0, 0.0));
+                        record.putDouble(tag, convertToDouble((short) unpackInteger(tag), 100.0, 65534.0, 0.0));
                         break;
                         
                     case 0x4A: // "Video Moving Target Indicator and Track Metadata", "MISB ST 0903.4 local let VMTI Metadata items"
-                        AbstractDataSet vmtiSet = new VmtiLocalSet(((byte[]) value).length, (byte[]) value);
-                        valuesMap.putAll(vmtiSet.decode());
+                        byte[] vmtiData = copyValue();
+                        AbstractDataSet vmtiSet = new VmtiLocalSet(vmtiData.length, vmtiData);
+                        record.putAll(vmtiSet.decode());
                         break;
 
                     default:
@@ -453,10 +506,8 @@ public class UasDataLinkSet extends AbstractDataSet {
 
             } else {
 
-                logger.error("Unknown UAS Data Link Set tag: \n \t{}", dataElement.toJsonString());
+                logger.error("Unknown UAS Data Link Set tag: \n \t{}", new Element(tag, copyValue()).toJsonString());
             }
         }
-
-        return valuesMap;
     }
 }
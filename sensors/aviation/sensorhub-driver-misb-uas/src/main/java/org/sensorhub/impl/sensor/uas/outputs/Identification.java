@@ -75,15 +75,28 @@ public class Identification<UasConfigType extends UasConfig> extends UasOutput<U
     }
 
     @Override
-    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+    protected void setNumericData(DataBlock dataBlock, TagSet localSet, int localSetTag, double value) {
 
         if (localSet == UasDataLinkSet.UAS_LOCAL_SET) {
             
             switch (localSetTag) {
     
                 case 0x02: // "Precision Time Stamp", "Timestamp for all metadata in this Local Set; used to coordinate with Motion Imagery", "microseconds"
-                    dataBlock.setDoubleValue(0, (Double) value);
+                    dataBlock.setDoubleValue(0, value);
+                    break;
+    
+                default:
                     break;
+            }
+        }
+    }
+
+    @Override
+    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+
+        if (localSet == UasDataLinkSet.UAS_LOCAL_SET) {
+            
+            switch (localSetTag) {
     
                 case 0x0A: // "Platform Designation", "Model name for the platform"
                     dataBlock.setStringValue(1, (String) value);
@@ -75,17 +75,22 @@ public class Security<UasConfigType extends UasConfig> extends UasOutput<UasConf
     }
 
     @Override
-    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+    protected void setNumericData(DataBlock dataBlock, TagSet localSet, int localSetTag, double value) {
 
         if (localSet == UasDataLinkSet.UAS_LOCAL_SET)
         {
             // "Precision Time Stamp", "Timestamp for all metadata in this Local Set; used to coordinate with Motion Imagery", "microseconds"
             if (0x02 == localSetTag) {
     
-                dataBlock.setDoubleValue(0, (Double) value);
+                dataBlock.setDoubleValue(0, value);
             }
         }
-        else if (localSet == SecurityLocalSet.SECURITY_LOCAL_SET)
+    }
+
+    @Override
+    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+
+        if (localSet == SecurityLocalSet.SECURITY_LOCAL_SET)
         {
             setSecurityData(dataBlock, localSetTag, value);
         }
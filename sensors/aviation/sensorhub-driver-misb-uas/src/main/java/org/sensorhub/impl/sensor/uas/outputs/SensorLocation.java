@@ -74,26 +74,26 @@ public class SensorLocation<UasConfigType extends UasConfig> extends UasOutput<U
     }
 
     @Override
-    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+    protected void setNumericData(DataBlock dataBlock, TagSet localSet, int localSetTag, double value) {
 
         if (localSet == UasDataLinkSet.UAS_LOCAL_SET) {
             
             switch (localSetTag) {
     
                 case 0x02: // "Precision Time Stamp", "Timestamp for all metadata in this Local Set; used to coordinate with Motion Imagery", "microseconds"
-                    dataBlock.setDoubleValue(0, (Double) value);
+                    dataBlock.setDoubleValue(0, value);
                     break;
     
                 case 0x0D: // "Sensor Latitude", "Sensor latitude", "deg"
-                    dataBlock.setDoubleValue(1, (Double) value);
+                    dataBlock.setDoubleValue(1, value);
                     break;
     
                 case 0x0E: // "Sensor Longitude", "Sensor longitude", "deg"
-                    dataBlock.setDoubleValue(2, (Double) value);
+                    dataBlock.setDoubleValue(2, value);
                     break;
     
                 case 0x0F: // "Sensor True Altitude", "Altitude of sensor as measured from Mean Sea Level (MSL)", "m"
-                    dataBlock.setDoubleValue(3, (Double) value);
+                    dataBlock.setDoubleValue(3, value);
                     break;
     
                 default:
@@ -74,22 +74,22 @@ public class SensorParams<UasConfigType extends UasConfig> extends UasOutput<Uas
     }
 
     @Override
-    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+    protected void setNumericData(DataBlock dataBlock, TagSet localSet, int localSetTag, double value) {
 
         if (localSet == UasDataLinkSet.UAS_LOCAL_SET) {
             
             switch (localSetTag) {
     
                 case 0x02: // "Precision Time Stamp", "Timestamp for all metadata in this Local Set; used to coordinate with Motion Imagery", "microseconds"
-                    dataBlock.setDoubleValue(0, (Double) value);
+                    dataBlock.setDoubleValue(0, value);
                     break;
     
                 case 0x10: // "Sensor Horizontal Field of View", "Horizontal field of view of selected imaging sensor", "deg"
-                    dataBlock.setDoubleValue(1, (Double) value);
+                    dataBlock.setDoubleValue(1, value);
                     break;
     
                 case 0x11: // "Sensor Vertical Field of View", "Vertical field of view of selected imaging sensor", "deg"
-                    dataBlock.setDoubleValue(2, (Double) value);
+                    dataBlock.setDoubleValue(2, value);
                     break;
     
                 default:
@@ -13,17 +13,13 @@
  ******************************* END LICENSE BLOCK ***************************/
 package org.sensorhub.impl.sensor.uas.outputs;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.sensorhub.impl.sensor.AbstractSensorOutput;
 import org.sensorhub.impl.sensor.uas.UasSensorBase;
 import org.sensorhub.impl.sensor.uas.common.SyncTime;
 import org.sensorhub.impl.sensor.uas.config.UasConfig;
 import org.sensorhub.impl.sensor.uas.klv.DecodedSetListener;
-import org.sensorhub.impl.sensor.uas.klv.UasDataLinkSet;
+import org.sensorhub.impl.sensor.uas.klv.UasDataLinkRecord;
 import org.sensorhub.misb.stanag4609.tags.Tag;
-import org.sensorhub.misb.stanag4609.tags.TagRegistry;
 import org.sensorhub.misb.stanag4609.tags.TagSet;
 
 import net.opengis.swe.v20.DataBlock;
@@ -52,10 +48,6 @@ public abstract class UasOutput<UasConfigType extends UasConfig> extends Abstrac
     protected final Object histogramLock = new Object();
 
     protected long lastSetTimeMillis = 0;
-    
-    /* precision time stamp tag */
-    protected Tag precisionTimeStampTag = TagRegistry.getInstance().getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x02);
-    
 
     /**
      * Constructor
@@ -76,14 +68,29 @@ public abstract class UasOutput<UasConfigType extends UasConfig> extends Abstrac
 
     /**
      * Sets the data block fields in accordance to the Uas Local Set tag and corresponding object
-     * translating the object to the correct form for output.
+     * translating the object to the correct form for output.  Only called for string values and
+     * values of nested sets, numeric values are passed to {@link #setNumericData}.
      *
      * @param dataBlock   The data block onto which the output values are being mapped
      * @param localSet    The local set that the tag is a member of   
      * @param localSetTag The local set tag id according to which the value is decoded and mapped
      * @param value       The raw value
      */
-    protected abstract void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value);
+    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+
+        // no string or nested set values by default
+    }
+
+    /**
+     * Sets the data block fields in accordance to the Uas Local Set tag for numeric values,
+     * without boxing them.
+     *
+     * @param dataBlock   The data block onto which the output values are being mapped
+     * @param localSet    The local set that the tag is a member of
+     * @param localSetTag The local set tag id according to which the value is decoded and mapped
+     * @param value       The decoded value
+     */
+    protected abstract void setNumericData(DataBlock dataBlock, TagSet localSet, int localSetTag, double value);
 
     /**
      * Publishes the populated SWE Common Data on the event bus
@@ -131,26 +138,8 @@ public abstract class UasOutput<UasConfigType extends UasConfig> extends Abstrac
     }
 
     @Override
-    public void onSetDecoded(SyncTime syncTime, HashMap<Tag, Object> valuesMap) {
-
-        // set to current time in loop mode to simulate a real-time stream
-        if (parentSensor.getConfiguration().connection.loop)
-        {
-            var timeStampValue = valuesMap.get(precisionTimeStampTag);
-            if (timeStampValue != null)
-            {
-                var precisionTimeStamp = (double)timeStampValue;
-                
-                // compute simulated timestamp
-                var simTime = parentSensor.getSimulatedTime();
-                var newPrecisionTimeStamp = simTime.getSimlatedTimeStamp(precisionTimeStamp);
-                valuesMap.put(precisionTimeStampTag, newPrecisionTimeStamp);
-                
-                // also shift synctime so that video timestamps are computed correctly
-                syncTime = new SyncTime(newPrecisionTimeStamp, syncTime.getPresentationTimeStamp());
-            }
-        }
-        
+    public void onSetDecoded(SyncTime syncTime, UasDataLinkRecord record) {
+
         parentSensor.setStreamSyncTime(syncTime);
 
         DataBlock dataBlock;
@@ -177,12 +166,19 @@ public abstract class UasOutput<UasConfigType extends UasConfig> extends Abstrac
 
         ++setCount;
 
-        for (Map.Entry<Tag, Object> entry : valuesMap.entrySet()) {
+        for (int idx = 0; idx < record.size(); ++idx) {
 
-            Tag tag = entry.getKey();
+            Tag tag = record.getTag(idx);
             int localSetTag = tag.getLocalSetTag();
-            Object value = entry.getValue();
-            setData(dataBlock, tag.getMemberOf(), localSetTag, value);
+
+            if (record.isNumeric(idx)) {
+
+                setNumericData(dataBlock, tag.getMemberOf(), localSetTag, record.getDouble(idx));
+
+            } else {
+
+                setData(dataBlock, tag.getMemberOf(), localSetTag, record.getValue(idx));
+            }
         }
 
         latestRecord = dataBlock;
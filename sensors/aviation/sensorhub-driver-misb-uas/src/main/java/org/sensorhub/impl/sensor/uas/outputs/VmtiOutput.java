@@ -132,10 +132,9 @@ public class VmtiOutput<UasConfigType extends UasConfig> extends UasOutput<UasCo
         logger.debug("Initializing VMTI Complete");
     }
 
-    @Override
-    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+    protected void clearTargetSeries(DataBlock dataBlock) {
 
-        // always clear target list the first time this is called since
+        // always clear target list the first time a value is set since
         // we need to do it even in case no VMTI metadata is present
         if (dataBlock != previousDataBlock)
         {
@@ -144,29 +143,42 @@ public class VmtiOutput<UasConfigType extends UasConfig> extends UasOutput<UasCo
             ((DataBlockMixed)dataBlock).updateAtomCount();
             previousDataBlock = dataBlock;
         }
+    }
+
+    @Override
+    protected void setNumericData(DataBlock dataBlock, TagSet localSet, int localSetTag, double value) {
+
+        clearTargetSeries(dataBlock);
         
         if (localSet == UasDataLinkSet.UAS_LOCAL_SET) {
             
             switch (localSetTag) {
     
                 case 0x02: // Precision Time Stamp
-                    dataBlock.setDoubleValue(0, (Double)value);
+                    dataBlock.setDoubleValue(0, value);
                     
                     break;
                     
                 case 0x17: // Frame Center Latitude
-                    this.frameCenterLat = (Double)value;
+                    this.frameCenterLat = value;
                     break;
     
                 case 0x18: // Frame Center Longitude
-                    this.frameCenterLon = (Double)value;
+                    this.frameCenterLon = value;
                     break;
     
                 default:
                     break;
             }
         }
-        else if (localSet == VmtiLocalSet.VMTI_LOCAL_SET) {
+    }
+
+    @Override
+    protected void setData(DataBlock dataBlock, TagSet localSet, int localSetTag, Object value) {
+
+        clearTargetSeries(dataBlock);
+        
+        if (localSet == VmtiLocalSet.VMTI_LOCAL_SET) {
             
             
             switch (localSetTag) {
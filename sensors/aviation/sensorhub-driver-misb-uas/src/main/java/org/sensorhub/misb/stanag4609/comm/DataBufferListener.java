@@ -23,4 +23,18 @@ package org.sensorhub.misb.stanag4609.comm;
 public interface DataBufferListener {
 
     void onDataBuffer(DataBufferRecord record);
+
+    /**
+     * Indicates whether the listener calls {@link DataBufferRecord#release()} on each record once done
+     * with its data.  Such listeners receive records filled from a pool of buffers that are reused for
+     * subsequent packets, instead of a new array per packet.  Listeners keeping a reference to the data,
+     * e.g. to publish it in a data block, must return false so each record gets its own array.
+     * Only metadata listeners are given pooled records, video packets always get their own array.
+     *
+     * @return true if the listener releases the records it receives, false by default
+     */
+    default boolean isReleasingBuffers() {
+
+        return false;
+    }
 }
\ No newline at end of file
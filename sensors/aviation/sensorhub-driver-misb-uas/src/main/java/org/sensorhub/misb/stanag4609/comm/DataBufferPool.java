@@ -0,0 +1,119 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.misb.stanag4609.comm;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of reference counted {@link DataBufferRecord}s used to pass metadata (KLV) packets extracted
+ * from the transport stream to listeners without allocating a new buffer for each packet.  Records
+ * that are never released, e.g. because a queued task was dropped, are simply garbage collected and
+ * replaced by new ones.
+ * <p>
+ * Video packets are not pooled: the video output publishes the packet array as the frame of its data
+ * block, and data blocks published on the event bus have no point at which all consumers are known to
+ * be done with them.  The single copy out of the AVPacket is therefore the array that gets published.
+ * </p>
+ *
+ * @since Oct. 2026
+ */
+public class DataBufferPool {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Queue<DataBufferRecord> freeRecords = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    private final AtomicLong allocatedCount = new AtomicLong();
+
+    private final int maxFreeRecords;
+
+    /**
+     * Constructor
+     *
+     * @param maxFreeRecords the maximum number of released records kept for reuse
+     */
+    public DataBufferPool(int maxFreeRecords) {
+
+        this.maxFreeRecords = maxFreeRecords;
+    }
+
+    /**
+     * Gets a record with a buffer large enough to hold the given length of data, held by the caller
+     * until it calls {@link DataBufferRecord#release()}
+     *
+     * @param presentationTimeStamp the presentationTimeStamp associated for the data
+     * @param dataLength            the length of the data to store in the record
+     * @return the record, with its data length set but the content of its buffer undefined
+     */
+    public DataBufferRecord acquire(double presentationTimeStamp, int dataLength) {
+
+        DataBufferRecord record = freeRecords.poll();
+
+        if (null != record) {
+
+            freeCount.decrementAndGet();
+        }
+
+        if (null == record || record.dataBuffer.length < dataLength) {
+
+            // round up so that slightly larger packets don't cause a new allocation each time
+            int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(dataLength - 1, 1)) << 1);
+
+            record = new DataBufferRecord(this, capacity);
+            allocatedCount.incrementAndGet();
+        }
+
+        record.reset(presentationTimeStamp, dataLength);
+
+        return record;
+    }
+
+    /**
+     * Called by a record when released by its last holder
+     *
+     * @param record the record to reuse
+     */
+    void recycle(DataBufferRecord record) {
+
+        if (freeCount.incrementAndGet() <= maxFreeRecords) {
+
+            freeRecords.offer(record);
+
+        } else {
+
+            freeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of released records available for reuse
+     */
+    public int getFreeCount() {
+
+        return freeCount.get();
+    }
+
+    /**
+     * @return the number of records allocated by the pool since it was created
+     */
+    public long getAllocatedCount() {
+
+        return allocatedCount.get();
+    }
+}
@@ -13,8 +13,12 @@
  ******************************* END LICENSE BLOCK ***************************/
 package org.sensorhub.misb.stanag4609.comm;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * A simple data structure to hold data buffers with their timestamp computed from the TransportStream
+ * A simple data structure to hold data buffers with their timestamp computed from the TransportStream.
+ * Records obtained from a {@link DataBufferPool} are reference counted and their buffer is returned to
+ * the pool when the last holder calls {@link DataBufferRecord#release()}.
  *
  * @author Nick Garay
  * @since Apr. 1, 2020
@@ -31,6 +35,18 @@ public class DataBufferRecord {
      */
     byte[] dataBuffer;
 
+    /**
+     * The number of valid bytes at the start of the data buffer
+     */
+    int dataLength;
+
+    /**
+     * The pool the record is returned to when released, null if the record is not pooled
+     */
+    private final DataBufferPool pool;
+
+    private final AtomicInteger refCount = new AtomicInteger();
+
     /**
      * Constructor
      *
@@ -41,6 +57,20 @@ public class DataBufferRecord {
 
         this.presentationTimeStamp = presentationTimeStamp;
         this.dataBuffer = dataBuffer;
+        this.dataLength = dataBuffer.length;
+        this.pool = null;
+    }
+
+    /**
+     * Constructor for records managed by a pool
+     *
+     * @param pool     The pool owning the record
+     * @param capacity The size of the data buffer
+     */
+    DataBufferRecord(DataBufferPool pool, int capacity) {
+
+        this.dataBuffer = new byte[capacity];
+        this.pool = pool;
     }
 
     /**
@@ -53,11 +83,81 @@ public class DataBufferRecord {
     }
 
     /**
-     * Returns the data buffer associated with this data record as a byte array
+     * Returns the data buffer associated with this data record as a byte array.  The buffer of a pooled
+     * record may be larger than the data, see {@link DataBufferRecord#getDataLength()}, and must not be
+     * used once the record has been released.
      *
      * @return the data byte array
      */
     public byte[] getDataBuffer() {
         return dataBuffer;
     }
+
+    /**
+     * Returns the number of valid bytes at the start of the data buffer
+     *
+     * @return the length of the data
+     */
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    /**
+     * @return true if the record was obtained from a {@link DataBufferPool}
+     */
+    public boolean isPooled() {
+        return null != pool;
+    }
+
+    /**
+     * Adds a holder to a pooled record, so the buffer is not reused before this holder
+     * also calls {@link DataBufferRecord#release()}.  Has no effect on records that are not pooled.
+     *
+     * @return this record
+     */
+    public DataBufferRecord retain() {
+
+        if (null != pool) {
+
+            refCount.incrementAndGet();
+        }
+
+        return this;
+    }
+
+    /**
+     * Releases a pooled record, returning its buffer to the pool once all holders have released it.
+     * Has no effect on records that are not pooled.
+     */
+    public void release() {
+
+        if (null != pool) {
+
+            int count = refCount.decrementAndGet();
+
+            if (count == 0) {
+
+                pool.recycle(this);
+
+            } else if (count < 0) {
+
+                refCount.set(0);
+
+                throw new IllegalStateException("Data buffer record released more times than retained");
+            }
+        }
+    }
+
+    /**
+     * Prepares a pooled record to hold new data, with a single holder
+     *
+     * @param presentationTimeStamp The presentationTimeStamp associated for the data
+     * @param dataLength            The length of the data
+     */
+    void reset(double presentationTimeStamp, int dataLength) {
+
+        this.presentationTimeStamp = presentationTimeStamp;
+        this.dataLength = dataLength;
+        this.refCount.set(1);
+    }
 }
@@ -111,6 +111,11 @@ public class MpegTsProcessor extends Thread {
      */
     protected static final int INVALID_STREAM_ID = -1;
 
+    /**
+     * Maximum number of released buffers kept for reuse by each stream
+     */
+    private static final int BUFFER_POOL_SIZE = 64;
+
     /**
      * Context used by underlying ffmpeg library to decode stream
      */
@@ -141,6 +146,12 @@ public class MpegTsProcessor extends Thread {
      */
     private DataBufferListener videoDataBufferListener;
 
+    /**
+     * Pool of buffers used for metadata listeners releasing the records they receive (i.e. KLV set decoder).
+     * Video packets are not pooled since video outputs publish the packet array in their data blocks.
+     */
+    private final DataBufferPool metadataBufferPool = new DataBufferPool(BUFFER_POOL_SIZE);
+
     /**
      * Flag indicating if processing of the transport stream should be terminated
      */
@@ -492,9 +503,8 @@ public class MpegTsProcessor extends Thread {
                 if ((avPacket.stream_index() == videoStreamId) && (null != videoDataBufferListener)) {
     
                     // Process video packet
-                    byte[] dataBuffer = new byte[avPacket.size()];
-                    avPacket.data().get(dataBuffer);
-                                    
+                    DataBufferRecord record = extractDataBuffer(avPacket, videoStreamTimeBase, null);
+
                     // if FPS is set, we may have to wait a little
                     if (fps > 0)
                     {
@@ -511,16 +521,16 @@ public class MpegTsProcessor extends Thread {
                     
                     // Pass data buffer to interested listener
                     frameCount++;
-                    videoDataBufferListener.onDataBuffer(new DataBufferRecord(avPacket.pts() * videoStreamTimeBase, dataBuffer));
+                    videoDataBufferListener.onDataBuffer(record);
                     
                 } else if ((avPacket.stream_index() == dataStreamId) && (null != metadataDataBufferListener)) {
     
                     // Process the data packet
-                    byte[] dataBuffer = new byte[avPacket.size()];
-                    avPacket.data().get(dataBuffer);
-    
+                    DataBufferRecord record = extractDataBuffer(avPacket, dataStreamTimeBase,
+                            metadataDataBufferListener.isReleasingBuffers() ? metadataBufferPool : null);
+
                     // Pass data buffer to interested listener
-                    metadataDataBufferListener.onDataBuffer(new DataBufferRecord(avPacket.pts() * dataStreamTimeBase, dataBuffer));
+                    metadataDataBufferListener.onDataBuffer(record);
                 }
     
                 // clear packet
@@ -537,6 +547,35 @@ public class MpegTsProcessor extends Thread {
         }
     }
 
+    /**
+     * Copies the content of the packet to a record for the listener, using a buffer from the pool
+     * if one is given. A pool must only be used if the listener releases the records it receives,
+     * since other listeners may keep the buffer.
+     *
+     * @param avPacket       the packet to copy
+     * @param streamTimeBase the time base of the stream the packet belongs to
+     * @param pool           the pool of buffers for the stream, or null to allocate a new buffer
+     * @return the record holding a copy of the packet data
+     */
+    private static DataBufferRecord extractDataBuffer(AVPacket avPacket, double streamTimeBase, DataBufferPool pool) {
+
+        int size = avPacket.size();
+        double presentationTimeStamp = avPacket.pts() * streamTimeBase;
+
+        if (pool != null) {
+
+            DataBufferRecord record = pool.acquire(presentationTimeStamp, size);
+            avPacket.data().get(record.getDataBuffer(), 0, size);
+
+            return record;
+        }
+
+        byte[] dataBuffer = new byte[size];
+        avPacket.data().get(dataBuffer);
+
+        return new DataBufferRecord(presentationTimeStamp, dataBuffer);
+    }
+
     /**
      * Closes the codec context and cleans up its associated resources.  This method is invoked
      * by {@link MpegTsProcessor#closeStream()} to ensure cleanup is neat and orderly.
@@ -13,9 +13,13 @@
  ******************************* END LICENSE BLOCK ***************************/
 package org.sensorhub.misb.stanag4609.klv;
 
+import org.sensorhub.misb.stanag4609.tags.Encoding;
 import org.sensorhub.misb.stanag4609.tags.Tag;
+import org.sensorhub.misb.stanag4609.tags.TagRegistry;
 import org.sensorhub.misb.stanag4609.tags.TagSet;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -38,6 +42,16 @@ public abstract class AbstractDataSet {
 
     protected TagSet tagSet;
 
+    /**
+     * Offset in the payload of the value of the element last read by {@link AbstractDataSet#nextElementTag()}
+     */
+    protected int valueOffset;
+
+    /**
+     * Length of the value of the element last read by {@link AbstractDataSet#nextElementTag()}
+     */
+    protected int valueLength;
+
     protected AbstractDataSet() {
     }
 
@@ -81,18 +95,119 @@ public abstract class AbstractDataSet {
      */
     protected Element getNextElement(){
 
+        Tag tag = nextElementTag();
+
+        return new Element(tag, Arrays.copyOfRange(payload, valueOffset, valueOffset + valueLength));
+    }
+
+    /**
+     * Reads the key and length of the next element in place, without copying its value.  The value
+     * can then be decoded with {@link AbstractDataSet#unpackInteger(Tag)} or
+     * {@link AbstractDataSet#unpackString()} until the next element is read.
+     *
+     * @return the tag of the element, or an unknown tag if the id is not registered for this set
+     */
+    protected Tag nextElementTag() {
+
         byte tagId = payload[position++];
 
-        int length = decodeLength();
+        valueLength = decodeLength();
+        valueOffset = position;
+        position += valueLength;
+
+        return TagRegistry.getInstance().getByTagSetAndId(tagSet, tagId);
+    }
+
+    /**
+     * Decodes the value of the current element as an integral, reading directly from the payload.
+     * Values are sign extended or not the same way as {@link Element#unpackData()} does for the same
+     * encoding so both methods produce the same results.
+     *
+     * @param tag the tag of the current element
+     * @return the decoded value
+     * @throws ElementDecodingException if the encoding is not integral or the length of the value
+     *                                  does not match the length expected for the encoding
+     */
+    protected long unpackInteger(Tag tag) {
+
+        Encoding encoding = tag.getEncoding();
+
+        switch (encoding) {
+            case UINT: // Variable length
+                return readUnsigned(valueOffset, valueLength);
+            case INT: // Variable length
+                if (valueLength == 8 || valueLength == 4 || valueLength == 2 || valueLength == 1) {
+                    return readSigned(valueOffset, valueLength);
+                }
+                break;
+            case UINT8:
+            case UINT16:
+                if (encoding.getLen() == valueLength) {
+                    return readUnsigned(valueOffset, valueLength);
+                }
+                break;
+            case BYTE:
+            case INT8:
+            case ISO_IEC_13818_1_INT8:
+            case INT16:
+            case ISO_IEC_13818_1_INT16:
+            case UINT32:
+            case INT32:
+            case UINT64:
+            case INT64:
+                if (encoding.getLen() == valueLength) {
+                    return readSigned(valueOffset, valueLength);
+                }
+                break;
+            default:
+                break;
+        }
+
+        throw new ElementDecodingException("Value length [" + valueLength + "] differs from encoding length ["
+                + encoding.getLen() + "] for tag: " + tag.getLocalSetTag());
+    }
+
+    /**
+     * Decodes the value of the current element as a UTF-8 string
+     *
+     * @return the decoded string
+     */
+    protected String unpackString() {
+
+        return new String(payload, valueOffset, valueLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a copy of the value of the current element, used to decode nested sets
+     */
+    protected byte[] copyValue() {
+
+        return Arrays.copyOfRange(payload, valueOffset, valueOffset + valueLength);
+    }
+
+    private long readUnsigned(int offset, int numBytes) {
+
+        long value = 0;
+
+        for (int idx = offset; idx < offset + numBytes; ++idx) {
+
+            value = (value << 8) | (payload[idx] & 0xFF);
+        }
+
+        return value;
+    }
+
+    private long readSigned(int offset, int numBytes) {
 
-        byte[] value = new byte[length];
+        // first byte is sign extended
+        long value = payload[offset];
 
-        for (int idx = 0; idx < length; ++idx) {
+        for (int idx = offset + 1; idx < offset + numBytes; ++idx) {
 
-            value[idx] = payload[position++];
+            value = (value << 8) | (payload[idx] & 0xFF);
         }
 
-        return new Element(tagSet, tagId, value);
+        return value;
     }
 
     /**
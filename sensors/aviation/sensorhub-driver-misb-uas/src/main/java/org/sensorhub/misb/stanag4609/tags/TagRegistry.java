@@ -13,24 +13,34 @@
  ******************************* END LICENSE BLOCK ***************************/
 package org.sensorhub.misb.stanag4609.tags;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Singleton registry for all data element tags.  Provides a repository to manage all registered tags.
+ * Tags of each tag set are indexed by local set tag in a 256 entry lookup table so resolving a tag
+ * never scans the registered tags nor allocates a new tag, even for unknown tag ids.
  *
  * @author Nick Garay
  * @since Feb. 6, 2020
  */
 public class TagRegistry {
 
+    private static final int NUM_TAG_IDS = 256;
+
     private static TagRegistry theInstance = null;
 
-    private Map<TagSet, ArrayList<Tag>> tagsByElementClass = new HashMap<>();
+    private Map<TagSet, Tag[]> tagsByElementClass = new HashMap<>();
+
+    private final Tag[] unknownTags = new Tag[NUM_TAG_IDS];
 
     private TagRegistry() {
+
+        for (int tagId = Byte.MIN_VALUE; tagId <= Byte.MAX_VALUE; ++tagId) {
+
+            unknownTags[tagId & 0xFF] =
+                    new Tag(TagSet.UNKNOWN, "00 00 00 00 00 00 00 00 00 00 00 00 00 00 00 00", tagId, Encoding.NONE, "UNKNOWN TAG");
+        }
     }
 
     public static TagRegistry getInstance() {
@@ -49,28 +59,36 @@ public class TagRegistry {
 
         if (!tagsByElementClass.containsKey(memberOf)) {
 
-            tagsByElementClass.put(memberOf, new ArrayList<>());
+            tagsByElementClass.put(memberOf, new Tag[NUM_TAG_IDS]);
         }
 
-        tagsByElementClass.get(memberOf).add(tag);
+        Tag[] tags = tagsByElementClass.get(memberOf);
+
+        int index = tag.getLocalSetTag() & 0xFF;
+
+        // first registered tag wins, as with the previous linear search
+        if (null == tags[index]) {
+
+            tags[index] = tag;
+        }
     }
 
     public Tag getByTagSetAndId(TagSet tagSet, byte tagId) {
 
-        Tag selectedTag =
-                new Tag(TagSet.UNKNOWN, "00 00 00 00 00 00 00 00 00 00 00 00 00 00 00 00", tagId, Encoding.NONE, "UNKNOWN TAG");
+        Tag[] tags = tagsByElementClass.get(tagSet);
 
-        List<Tag> selectedTags = tagsByElementClass.get(tagSet);
+        if (null != tags) {
 
-        for (Tag tag : selectedTags) {
+            Tag tag = tags[tagId & 0xFF];
 
-            if (tag.getLocalSetTag() == tagId) {
+            // tags above 0x7F are BER-OID encoded on several bytes and
+            // can't be matched by a single signed tag byte
+            if (null != tag && tag.getLocalSetTag() == tagId) {
 
-                selectedTag = tag;
-                break;
+                return tag;
             }
         }
 
-        return selectedTag;
+        return unknownTags[tagId & 0xFF];
     }
 }
@@ -0,0 +1,199 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.impl.sensor.uas.common;
+
+import org.sensorhub.impl.sensor.uas.common.PipelineStage.DiscardableTask;
+import org.sensorhub.impl.sensor.uas.common.PipelineStage.OverflowPolicy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test suite for {@link PipelineStage}
+ *
+ * @since Oct. 2026
+ */
+public class PipelineStageTest {
+
+    private static final int CAPACITY = 4;
+
+    /**
+     * Fills the queue of a stage while its worker is blocked, then releases the worker
+     * and returns the ids of the tasks that were executed
+     */
+    private List<Integer> runWithBlockedWorker(PipelineStage stage, int numTasks) throws InterruptedException {
+
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        stage.start();
+        stage.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int idx = 0; idx < numTasks; ++idx) {
+
+            final int taskId = idx;
+            stage.execute(() -> executed.add(taskId));
+        }
+
+        assertEquals(CAPACITY, stage.getQueueDepth());
+        assertEquals(CAPACITY, stage.getMaxQueueDepth());
+
+        // wait until the blocking task and all queued tasks are processed
+        release.countDown();
+        long timeOut = System.currentTimeMillis() + 5000;
+        while (stage.getProcessedCount() < CAPACITY + 1 && System.currentTimeMillis() < timeOut) {
+
+            Thread.sleep(10);
+        }
+        stage.shutdown();
+
+        return executed;
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+
+        PipelineStage stage = new PipelineStage("test", CAPACITY, OverflowPolicy.DROP_OLDEST);
+        List<Integer> executed = runWithBlockedWorker(stage, 10);
+
+        assertEquals(Arrays.asList(6, 7, 8, 9), executed);
+        assertEquals(6, stage.getDroppedCount());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+
+        PipelineStage stage = new PipelineStage("test", CAPACITY, OverflowPolicy.DROP_NEWEST);
+        List<Integer> executed = runWithBlockedWorker(stage, 10);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), executed);
+        assertEquals(6, stage.getDroppedCount());
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+
+        PipelineStage stage = new PipelineStage("test", CAPACITY, OverflowPolicy.BLOCK);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        stage.start();
+
+        int numTasks = 1000;
+        for (int idx = 0; idx < numTasks; ++idx) {
+
+            final int taskId = idx;
+            stage.execute(() -> executed.add(taskId));
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        stage.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        stage.shutdown();
+
+        assertEquals(numTasks, executed.size());
+        for (int idx = 0; idx < numTasks; ++idx) {
+
+            assertEquals(idx, (int) executed.get(idx));
+        }
+        assertEquals(0, stage.getDroppedCount());
+        assertTrue(stage.getMaxQueueDepth() <= CAPACITY);
+    }
+
+    @Test
+    public void testTasksDroppedAfterShutdown() {
+
+        PipelineStage stage = new PipelineStage("test", CAPACITY, OverflowPolicy.BLOCK);
+        stage.start();
+        stage.shutdown();
+
+        stage.execute(() -> { });
+        assertEquals(1, stage.getDroppedCount());
+        assertEquals(0, stage.getQueueDepth());
+    }
+
+    @Test
+    public void testDroppedTasksDiscarded() throws Exception {
+
+        PipelineStage stage = new PipelineStage("test", CAPACITY, OverflowPolicy.DROP_OLDEST);
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger discarded = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        stage.start();
+        stage.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int idx = 0; idx < 10; ++idx) {
+
+            stage.execute(new DiscardableTask() {
+
+                @Override
+                public void run() {
+                    ran.incrementAndGet();
+                }
+
+                @Override
+                public void discard() {
+                    discarded.incrementAndGet();
+                }
+            });
+        }
+
+        // the oldest tasks were dropped to make room, the queued ones are dropped on shutdown
+        assertEquals(6, discarded.get());
+        stage.shutdown();
+        assertEquals(10, discarded.get());
+
+        // tasks submitted after shutdown are also discarded
+        stage.execute(new DiscardableTask() {
+
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+
+            @Override
+            public void discard() {
+                discarded.incrementAndGet();
+            }
+        });
+        assertEquals(11, discarded.get());
+        assertEquals(0, ran.get());
+    }
+}
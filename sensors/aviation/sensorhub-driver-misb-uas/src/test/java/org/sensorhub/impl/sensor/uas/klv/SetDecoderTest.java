@@ -0,0 +1,150 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.impl.sensor.uas.klv;
+
+import org.sensorhub.impl.sensor.uas.common.SyncTime;
+import org.sensorhub.misb.stanag4609.comm.DataBufferPool;
+import org.sensorhub.misb.stanag4609.comm.DataBufferRecord;
+import org.sensorhub.misb.stanag4609.tags.Tag;
+import org.sensorhub.misb.stanag4609.tags.TagRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test suite for {@link SetDecoder}
+ *
+ * @since Oct. 2026
+ */
+public class SetDecoderTest {
+
+    private static final int NUM_SETS = 100;
+
+    private static final double EXPECTED_TIME = 1553622777014L / 1000.0;
+
+    private final Tag timeStampTag = TagRegistry.getInstance().getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte) 0x02);
+
+    private final Set<String> listenerThreads = ConcurrentHashMap.newKeySet();
+
+    private class TestListener implements DecodedSetListener {
+
+        final AtomicInteger count = new AtomicInteger();
+        final double expectedTime;
+        volatile int expectedSize = -1;
+
+        TestListener(double expectedTime) {
+
+            this.expectedTime = expectedTime;
+        }
+
+        @Override
+        public void onSetDecoded(SyncTime syncTime, UasDataLinkRecord record) {
+
+            listenerThreads.add(Thread.currentThread().getName());
+
+            assertEquals(expectedTime, syncTime.getPrecisionTimeStamp(), 1e-6);
+            assertEquals(expectedTime, record.getDouble(record.indexOf(timeStampTag)), 1e-6);
+
+            if (expectedSize < 0) {
+
+                expectedSize = record.size();
+            }
+
+            assertEquals(expectedSize, record.size());
+            count.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testParallelListeners() {
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        SetDecoder setDecoder = new SetDecoder();
+        setDecoder.setListenerExecutor(executor);
+
+        TestListener[] listeners = new TestListener[4];
+        for (int idx = 0; idx < listeners.length; ++idx) {
+
+            listeners[idx] = new TestListener(EXPECTED_TIME);
+            setDecoder.addListener(listeners[idx]);
+        }
+
+        for (int idx = 0; idx < NUM_SETS; ++idx) {
+
+            setDecoder.processBuffer(new DataBufferRecord(idx, UasDataLinkSetTest.data));
+
+            // all listeners are done when processBuffer returns
+            for (TestListener listener : listeners) {
+
+                assertEquals(idx + 1, listener.count.get());
+            }
+        }
+
+        executor.shutdownNow();
+        assertTrue(listenerThreads.size() > 1);
+    }
+
+    @Test
+    public void testTimeStampConverter() {
+
+        SetDecoder setDecoder = new SetDecoder();
+        setDecoder.setTimeStampConverter(t -> t + 1000.0);
+
+        TestListener listener1 = new TestListener(EXPECTED_TIME + 1000.0);
+        TestListener listener2 = new TestListener(EXPECTED_TIME + 1000.0);
+        setDecoder.addListener(listener1);
+        setDecoder.addListener(listener2);
+
+        setDecoder.processBuffer(new DataBufferRecord(0, UasDataLinkSetTest.data));
+
+        assertEquals(1, listener1.count.get());
+        assertEquals(1, listener2.count.get());
+    }
+
+    @Test
+    public void testPooledBuffersAreReleased() {
+
+        DataBufferPool pool = new DataBufferPool(4);
+        SetDecoder setDecoder = new SetDecoder();
+        setDecoder.setExecutor(Runnable::run);
+
+        TestListener listener = new TestListener(EXPECTED_TIME);
+        setDecoder.addListener(listener);
+
+        assertTrue(setDecoder.isReleasingBuffers());
+
+        for (int idx = 0; idx < NUM_SETS; ++idx) {
+
+            DataBufferRecord record = pool.acquire(idx, UasDataLinkSetTest.data.length);
+
+            // stale bytes after the data must be ignored
+            Arrays.fill(record.getDataBuffer(), (byte) 0x55);
+            System.arraycopy(UasDataLinkSetTest.data, 0, record.getDataBuffer(), 0, record.getDataLength());
+
+            setDecoder.onDataBuffer(record);
+        }
+
+        assertEquals(NUM_SETS, listener.count.get());
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(1, pool.getFreeCount());
+    }
+}
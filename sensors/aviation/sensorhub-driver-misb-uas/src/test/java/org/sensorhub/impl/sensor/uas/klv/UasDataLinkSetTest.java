@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -32,7 +33,7 @@ import static org.junit.Assert.assertTrue;
  */
 public class UasDataLinkSetTest {
 
-    private final byte[] data =
+    static final byte[] data =
             {
                     // UAS DataLink Universal Label
                     (byte) 0x06, (byte) 0x0E, (byte) 0x2B, (byte) 0x34, (byte) 0x02, (byte) 0x0B, (byte) 0x01, (byte) 0x01,
@@ -111,6 +112,7 @@ public class UasDataLinkSetTest {
         acceptedDesignators.add(UasDataLinkSet.UAS_LOCAL_SET.getDesignator());
 
         assertTrue(dataLinkSet.validateDesignator(acceptedDesignators));
+        assertTrue(dataLinkSet.validateUasLocalSetDesignator());
     }
 
     public void testDecode() {
@@ -152,4 +154,60 @@ public class UasDataLinkSetTest {
         assertTrue(valuesMap.containsKey(reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x06)));
         assertTrue(valuesMap.containsKey(reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x07)));
     }
+
+    @Test
+    public void testDecodeToRecord() {
+
+        UasDataLinkRecord record = new UasDataLinkRecord();
+        new UasDataLinkSet(data.length, data).decode(record);
+
+        TagRegistry reg = TagRegistry.getInstance();
+
+        assertEquals(1553622777014L / 1000.0, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x02)), 1e-12);
+        assertEquals(3, getValue(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x41)));
+        assertEquals(11, getValue(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x38)));
+        assertEquals("AeroVironment SUAV PumaAE DDL", getValue(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x0A)));
+        assertEquals("PA    0", getValue(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x04)));
+        assertEquals(180.0 / 4294967294.0 * 0x378915C7, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x0D)), 1e-12);
+        assertEquals(360.0 / 4294967294.0 * 0xC32E3177, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x0E)), 1e-12);
+        assertEquals(19900.0 / 65535.0 * 0x114D - 900.0, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x0F)), 1e-12);
+        assertEquals(360.0 / 65535.0 * 0x384C, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x05)), 1e-12);
+        assertEquals(40.0 / 65534.0 * 0x1016, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x06)), 1e-12);
+        assertEquals(0.15 / 65534.0 * (short)0x8000, getDouble(record, reg.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte)0x1F)), 1e-12);
+
+        // values decoded to the record and to a map must be the same
+        HashMap<Tag, Object> valuesMap = new UasDataLinkSet(data.length, data).decode();
+        assertEquals(valuesMap, record.toMap());
+    }
+
+    @Test
+    public void testRecordReuse() {
+
+        UasDataLinkRecord record = new UasDataLinkRecord();
+        new UasDataLinkSet(data.length, data).decode(record);
+        int size = record.size();
+        Tag firstTag = record.getTag(0);
+
+        record.clear();
+        assertEquals(0, record.size());
+
+        new UasDataLinkSet(data.length, data).decode(record);
+        assertEquals(size, record.size());
+        assertSame(firstTag, record.getTag(0));
+    }
+
+    private double getDouble(UasDataLinkRecord record, Tag tag) {
+
+        int idx = record.indexOf(tag);
+        assertTrue(idx >= 0);
+        assertTrue(record.isNumeric(idx));
+        return record.getDouble(idx);
+    }
+
+    private Object getValue(UasDataLinkRecord record, Tag tag) {
+
+        int idx = record.indexOf(tag);
+        assertTrue(idx >= 0);
+        return record.getValue(idx);
+    }
 }
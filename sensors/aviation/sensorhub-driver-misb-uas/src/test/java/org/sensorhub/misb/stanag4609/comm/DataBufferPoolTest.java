@@ -0,0 +1,120 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.misb.stanag4609.comm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test suite for {@link DataBufferPool}
+ *
+ * @since Oct. 2026
+ */
+public class DataBufferPoolTest {
+
+    @Test
+    public void testReleasedRecordIsReused() {
+
+        DataBufferPool pool = new DataBufferPool(4);
+
+        DataBufferRecord record = pool.acquire(1.0, 100);
+        assertTrue(record.isPooled());
+        assertEquals(1.0, record.getPresentationTimestamp(), 0.0);
+        assertEquals(100, record.getDataLength());
+        assertTrue(record.getDataBuffer().length >= 100);
+
+        record.release();
+        assertEquals(1, pool.getFreeCount());
+
+        DataBufferRecord reused = pool.acquire(2.0, 200);
+        assertSame(record, reused);
+        assertEquals(2.0, reused.getPresentationTimestamp(), 0.0);
+        assertEquals(200, reused.getDataLength());
+        assertEquals(1, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void testRecordIsReusedAfterLastRelease() {
+
+        DataBufferPool pool = new DataBufferPool(4);
+
+        DataBufferRecord record = pool.acquire(0, 100).retain();
+
+        record.release();
+        assertEquals(0, pool.getFreeCount());
+        assertNotSame(record, pool.acquire(0, 100));
+
+        record.release();
+        assertEquals(1, pool.getFreeCount());
+    }
+
+    @Test
+    public void testLargerPacketAllocatesNewBuffer() {
+
+        DataBufferPool pool = new DataBufferPool(4);
+
+        DataBufferRecord record = pool.acquire(0, 100);
+        int capacity = record.getDataBuffer().length;
+        record.release();
+
+        DataBufferRecord larger = pool.acquire(0, capacity + 1);
+        assertNotSame(record, larger);
+        assertTrue(larger.getDataBuffer().length > capacity);
+        assertEquals(2, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void testFreeRecordsAreBounded() {
+
+        DataBufferPool pool = new DataBufferPool(2);
+
+        DataBufferRecord[] records = new DataBufferRecord[4];
+        for (int idx = 0; idx < records.length; ++idx) {
+
+            records[idx] = pool.acquire(0, 10);
+        }
+
+        for (DataBufferRecord record : records) {
+
+            record.release();
+        }
+
+        assertEquals(2, pool.getFreeCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwiceFails() {
+
+        DataBufferRecord record = new DataBufferPool(1).acquire(0, 10);
+        record.release();
+        record.release();
+    }
+
+    @Test
+    public void testUnpooledRecord() {
+
+        DataBufferRecord record = new DataBufferRecord(0, new byte[10]);
+        assertFalse(record.isPooled());
+        assertEquals(10, record.getDataLength());
+
+        // no effect
+        record.retain().release();
+        record.release();
+    }
+}
@@ -0,0 +1,65 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+ The contents of this file are subject to the Mozilla Public License, v. 2.0.
+ If a copy of the MPL was not distributed with this file, You can obtain one
+ at http://mozilla.org/MPL/2.0/.
+
+ Software distributed under the License is distributed on an "AS IS" basis,
+ WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ for the specific language governing rights and limitations under the License.
+
+ Copyright (C) 2026 Botts Innovative Research, Inc. All Rights Reserved.
+
+ ******************************* END LICENSE BLOCK ***************************/
+package org.sensorhub.misb.stanag4609.tags;
+
+import org.sensorhub.impl.sensor.uas.klv.UasDataLinkSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit test suite for {@link TagRegistry}
+ *
+ * @since Oct. 2026
+ */
+public class TagRegistryTest {
+
+    private final TagRegistry registry = TagRegistry.getInstance();
+
+    @Test
+    public void testGetRegisteredTag() {
+
+        // make sure UAS tags are registered
+        assertEquals("UAS Local Set", UasDataLinkSet.UAS_LOCAL_SET.getName());
+
+        Tag tag = registry.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte) 0x02);
+        assertSame(UasDataLinkSet.UAS_LOCAL_SET, tag.getMemberOf());
+        assertEquals(0x02, tag.getLocalSetTag());
+        assertEquals("Precision Time Stamp", tag.getName());
+
+        tag = registry.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte) 0x7F);
+        assertEquals(0x7F, tag.getLocalSetTag());
+    }
+
+    @Test
+    public void testGetUnknownTag() {
+
+        Tag tag = registry.getByTagSetAndId(TagSet.UNKNOWN, (byte) 0x02);
+        assertSame(TagSet.UNKNOWN, tag.getMemberOf());
+        assertEquals(0x02, tag.getLocalSetTag());
+
+        // unknown tags are not allocated for each lookup
+        assertSame(tag, registry.getByTagSetAndId(TagSet.UNKNOWN, (byte) 0x02));
+    }
+
+    @Test
+    public void testMultiByteTagIdIsUnknown() {
+
+        // tags above 0x7F can't be identified by a single byte
+        Tag tag = registry.getByTagSetAndId(UasDataLinkSet.UAS_LOCAL_SET, (byte) 0x81);
+        assertSame(TagSet.UNKNOWN, tag.getMemberOf());
+        assertEquals((byte) 0x81, tag.getLocalSetTag());
+    }
+}
@@ -36,7 +36,7 @@ import com.MAVLink.common.msg_attitude;
 public class AttitudeEulerOutput extends MavlinkOutput
 {
     
-    public AttitudeEulerOutput(MavlinkDriver parentSensor)
+    public AttitudeEulerOutput(IMavlinkSystem parentSensor)
     {
         super("platformAtt", parentSensor);
         this.samplingPeriod = 0.1; // default to 10Hz on startup        
@@ -65,6 +65,13 @@ public class AttitudeEulerOutput extends MavlinkOutput
     }
     
     
+    @Override
+    protected int[] getMessageIds()
+    {
+        return new int[] {msg_attitude.MAVLINK_MSG_ID_ATTITUDE};
+    }
+    
+    
     protected void handleMessage(long msgTime, MAVLinkMessage m)
     {
         DataBlock dataBlock = null;
@@ -37,7 +37,7 @@ public class AttitudeQuatOutput extends MavlinkOutput
     private static final String ORIENT_DEF = "http://sensorml.com/ont/swe/property/OrientationQuaternion";
     
     
-    public AttitudeQuatOutput(MavlinkDriver parentSensor)
+    public AttitudeQuatOutput(IMavlinkSystem parentSensor)
     {
         super("platformAttQ", parentSensor);
         this.samplingPeriod = 0.1; // default to 10Hz on startup        
@@ -66,6 +66,13 @@ public class AttitudeQuatOutput extends MavlinkOutput
     }
     
     
+    @Override
+    protected int[] getMessageIds()
+    {
+        return new int[] {msg_attitude_quaternion.MAVLINK_MSG_ID_ATTITUDE_QUATERNION};
+    }
+    
+    
     protected void handleMessage(long msgTime, MAVLinkMessage m)
     {
         DataBlock dataBlock = null;
@@ -35,7 +35,7 @@ public class BatteryStatusOutput extends MavlinkOutput
 {
     
     
-    public BatteryStatusOutput(MavlinkDriver parentSensor)
+    public BatteryStatusOutput(IMavlinkSystem parentSensor)
     {
         super("batteryStatus", parentSensor);
         this.samplingPeriod = 0.1; // default to 10Hz on startup        
@@ -59,6 +59,13 @@ public class BatteryStatusOutput extends MavlinkOutput
     }
     
     
+    @Override
+    protected int[] getMessageIds()
+    {
+        return new int[] {msg_battery_status.MAVLINK_MSG_ID_BATTERY_STATUS};
+    }
+    
+    
     protected void handleMessage(long msgTime, MAVLinkMessage m)
     {
         DataBlock dataBlock = null;
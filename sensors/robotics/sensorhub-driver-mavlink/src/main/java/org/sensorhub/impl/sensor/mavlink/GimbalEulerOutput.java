@@ -36,7 +36,7 @@ import com.MAVLink.ardupilotmega.msg_mount_status;
 public class GimbalEulerOutput extends MavlinkOutput
 {
     
-    public GimbalEulerOutput(MavlinkDriver parentSensor)
+    public GimbalEulerOutput(IMavlinkSystem parentSensor)
     {
         super("gimbalAtt", parentSensor);
         this.samplingPeriod = 0.1; // default to 10Hz on startup        
@@ -66,6 +66,13 @@ public class GimbalEulerOutput extends MavlinkOutput
     }
     
     
+    @Override
+    protected int[] getMessageIds()
+    {
+        return new int[] {msg_mount_status.MAVLINK_MSG_ID_MOUNT_STATUS};
+    }
+    
+    
     protected void handleMessage(long msgTime, MAVLinkMessage m)
     {
         DataBlock dataBlock = null;
@@ -35,7 +35,7 @@ import com.MAVLink.common.msg_global_position_int;
 public class GlobalPositionOutput extends MavlinkOutput
 {        
     
-    public GlobalPositionOutput(MavlinkDriver parentSensor)
+    public GlobalPositionOutput(IMavlinkSystem parentSensor)
     {
         super("platformLoc", parentSensor);
         this.samplingPeriod = 1.0; // default to 1Hz on startup        
@@ -64,6 +64,13 @@ public class GlobalPositionOutput extends MavlinkOutput
     }
     
     
+    @Override
+    protected int[] getMessageIds()
+    {
+        return new int[] {msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT};
+    }
+    
+    
     protected void handleMessage(long msgTime, MAVLinkMessage m)
     {
         DataBlock dataBlock = null;
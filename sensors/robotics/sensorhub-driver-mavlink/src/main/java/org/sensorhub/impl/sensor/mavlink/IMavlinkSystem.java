@@ -0,0 +1,39 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import org.sensorhub.api.data.IDataProducer;
+
+
+/**
+ * <p>
+ * Interface for MAVLink systems (i.e. vehicles) that host MAVLink outputs.
+ * It is implemented both by the single vehicle driver and by the vehicles
+ * managed by the MAVLink hub.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public interface IMavlinkSystem extends IDataProducer
+{
+
+    /**
+     * Converts a time stamp relative to the vehicle boot time to UTC time
+     * @param timeFromBootMs time since boot, in milliseconds, as sent by the vehicle
+     * @return UTC time in seconds since 1970
+     */
+    double getUtcTimeFromBootMillis(long timeFromBootMs);
+
+}
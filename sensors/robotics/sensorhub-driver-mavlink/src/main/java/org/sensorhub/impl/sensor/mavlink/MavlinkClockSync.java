@@ -0,0 +1,242 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import com.MAVLink.common.msg_timesync;
+
+
+/**
+ * <p>
+ * Estimates the offset between the boot time of a MAVLink vehicle and UTC
+ * time, so that time stamps sent by the vehicle (time_boot_ms) can be
+ * converted to UTC without the jitter of the link.
+ * </p><p>
+ * Offset samples are obtained from (by order of preference):
+ * </p><ul>
+ * <li>TIMESYNC round trips, using the half round trip time as latency</li>
+ * <li>SYSTEM_TIME messages, when the vehicle has a valid UTC time (e.g. from GPS)</li>
+ * <li>The receive time of messages carrying a time_boot_ms, in which case the
+ * lowest offset seen over each second is used since link latency and jitter
+ * can only delay messages</li>
+ * </ul><p>
+ * A linear fit of the most recent samples gives both the offset and the
+ * drift of the vehicle clock.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MavlinkClockSync
+{
+    static final int MAX_SAMPLES = 32;
+    static final long ONE_WAY_BIN_DURATION = 1000L;
+    static final long MAX_ROUND_TRIP_TIME = 500L;
+    static final long REBOOT_THRESHOLD = 1000L;
+    static final double MAX_DRIFT = 1e-3;
+
+    final double[] sampleBootTimes = new double[MAX_SAMPLES];
+    final double[] sampleOffsets = new double[MAX_SAMPLES];
+    int numSamples;
+    int nextSample;
+    boolean hasTwoWaySamples;
+
+    long binStart = Long.MIN_VALUE;
+    double binMinOffset;
+    long lastBootTime = -1;
+
+    boolean valid;
+    double meanBootTime;
+    double meanOffset;
+    double drift;
+
+
+    /**
+     * Creates a TIMESYNC request to send to the vehicle
+     * @param now current system time in ms
+     * @return The request message
+     */
+    public static msg_timesync createTimeSyncRequest(long now)
+    {
+        msg_timesync msg = new msg_timesync();
+        msg.tc1 = 0;
+        msg.ts1 = now * 1000000L;
+        return msg;
+    }
+
+
+    /**
+     * Handles TIMESYNC response from the vehicle
+     * @param recvTime system time at which response was received, in ms
+     * @param tc1 vehicle time in ns
+     * @param ts1 system time at which request was sent, in ns
+     */
+    public synchronized void onTimeSync(long recvTime, long tc1, long ts1)
+    {
+        // ignore requests coming from the vehicle
+        if (tc1 <= 0)
+            return;
+
+        double sendTime = ts1 / 1e6;
+        double rtt = recvTime - sendTime;
+        if (rtt < 0 || rtt > MAX_ROUND_TRIP_TIME)
+            return;
+
+        double bootTime = tc1 / 1e6;
+        checkReboot((long)bootTime);
+        addTwoWaySample(bootTime, sendTime + rtt/2 - bootTime);
+    }
+
+
+    /**
+     * Handles SYSTEM_TIME message from the vehicle
+     * @param timeUnixUsec vehicle UTC time in us, or 0 if unknown
+     * @param timeBootMs vehicle boot time in ms
+     */
+    public synchronized void onSystemTime(long timeUnixUsec, long timeBootMs)
+    {
+        checkReboot(timeBootMs);
+        if (timeUnixUsec > 0)
+            addTwoWaySample(timeBootMs, timeUnixUsec / 1e3 - timeBootMs);
+    }
+
+
+    /**
+     * Handles any message with a boot time stamp
+     * @param recvTime system time at which message was received, in ms
+     * @param timeBootMs vehicle boot time in ms
+     */
+    public synchronized void onBootTime(long recvTime, long timeBootMs)
+    {
+        checkReboot(timeBootMs);
+        if (hasTwoWaySamples)
+            return;
+
+        // keep lowest offset (i.e. lowest latency) in each bin
+        double offset = recvTime - timeBootMs;
+        if (binStart == Long.MIN_VALUE)
+        {
+            binStart = timeBootMs;
+            binMinOffset = offset;
+        }
+        else if (timeBootMs - binStart >= ONE_WAY_BIN_DURATION)
+        {
+            addSample(binStart, binMinOffset);
+            binStart = timeBootMs;
+            binMinOffset = offset;
+        }
+        else
+            binMinOffset = Math.min(binMinOffset, offset);
+
+        // use current bin until a full bin is available
+        if (!valid)
+        {
+            meanBootTime = timeBootMs;
+            meanOffset = binMinOffset;
+            drift = 0.0;
+            valid = true;
+        }
+    }
+
+
+    /**
+     * Converts vehicle boot time to UTC
+     * @param timeBootMs vehicle boot time in ms
+     * @param recvTime system time at which the message was received, in ms,
+     * used as fallback if no offset estimate is available yet
+     * @return UTC time in seconds since 1970
+     */
+    public synchronized double getUtcTime(long timeBootMs, long recvTime)
+    {
+        if (!valid)
+            return recvTime / 1000.;
+
+        double offset = meanOffset + drift * (timeBootMs - meanBootTime);
+        return (timeBootMs + offset) / 1000.;
+    }
+
+
+    protected void checkReboot(long timeBootMs)
+    {
+        // reset estimate if vehicle clock went back
+        if (timeBootMs < lastBootTime - REBOOT_THRESHOLD)
+            reset();
+        lastBootTime = Math.max(lastBootTime, timeBootMs);
+    }
+
+
+    protected void addTwoWaySample(double bootTime, double offset)
+    {
+        // discard less accurate samples
+        if (!hasTwoWaySamples)
+        {
+            numSamples = 0;
+            nextSample = 0;
+            hasTwoWaySamples = true;
+        }
+
+        addSample(bootTime, offset);
+    }
+
+
+    protected void addSample(double bootTime, double offset)
+    {
+        sampleBootTimes[nextSample] = bootTime;
+        sampleOffsets[nextSample] = offset;
+        nextSample = (nextSample + 1) % MAX_SAMPLES;
+        if (numSamples < MAX_SAMPLES)
+            numSamples++;
+
+        // least squares fit of offset vs. boot time
+        double sumT = 0.0, sumO = 0.0;
+        for (int i = 0; i < numSamples; i++)
+        {
+            sumT += sampleBootTimes[i];
+            sumO += sampleOffsets[i];
+        }
+        meanBootTime = sumT / numSamples;
+        meanOffset = sumO / numSamples;
+
+        double cov = 0.0, var = 0.0;
+        for (int i = 0; i < numSamples; i++)
+        {
+            double dt = sampleBootTimes[i] - meanBootTime;
+            cov += dt * (sampleOffsets[i] - meanOffset);
+            var += dt * dt;
+        }
+
+        drift = (numSamples > 2 && var > 0) ? cov / var : 0.0;
+        drift = Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, drift));
+        valid = true;
+    }
+
+
+    public synchronized void reset()
+    {
+        numSamples = 0;
+        nextSample = 0;
+        hasTwoWaySamples = false;
+        binStart = Long.MIN_VALUE;
+        lastBootTime = -1;
+        valid = false;
+    }
+
+
+    /**
+     * @return Estimated drift of the vehicle clock (positive if slower than system clock)
+     */
+    public synchronized double getDrift()
+    {
+        return drift;
+    }
+}
@@ -0,0 +1,91 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import java.util.Arrays;
+import com.MAVLink.Messages.MAVLinkMessage;
+
+
+/**
+ * <p>
+ * Table of outputs indexed by the ID of the MAVLink messages they consume.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MavlinkDispatcher
+{
+    MavlinkOutput[][] msgHandlers = new MavlinkOutput[0][];
+
+
+    /**
+     * Registers the output for all message IDs it consumes
+     * @param output
+     */
+    public void register(MavlinkOutput output)
+    {
+        for (int msgId: output.getMessageIds())
+        {
+            if (msgId >= msgHandlers.length)
+                msgHandlers = Arrays.copyOf(msgHandlers, msgId+1);
+
+            MavlinkOutput[] handlers = msgHandlers[msgId];
+            if (handlers == null)
+                handlers = new MavlinkOutput[] {output};
+            else
+            {
+                handlers = Arrays.copyOf(handlers, handlers.length+1);
+                handlers[handlers.length-1] = output;
+            }
+            msgHandlers[msgId] = handlers;
+        }
+    }
+
+
+    public void clear()
+    {
+        msgHandlers = new MavlinkOutput[0][];
+    }
+
+
+    /**
+     * @param msgId MAVLink message ID
+     * @return true if at least one output consumes messages with this ID
+     */
+    public boolean hasHandlers(int msgId)
+    {
+        return msgId < msgHandlers.length && msgHandlers[msgId] != null;
+    }
+
+
+    /**
+     * Lets each output registered for the message ID handle the message
+     * @param msgTime system time at which message was received
+     * @param msg MAVLink message object
+     */
+    public void dispatch(long msgTime, MAVLinkMessage msg)
+    {
+        int msgId = msg.msgid;
+        if (msgId < msgHandlers.length)
+        {
+            MavlinkOutput[] handlers = msgHandlers[msgId];
+            if (handlers != null)
+            {
+                for (MavlinkOutput output: handlers)
+                    output.handleMessage(msgTime, msg);
+            }
+        }
+    }
+}
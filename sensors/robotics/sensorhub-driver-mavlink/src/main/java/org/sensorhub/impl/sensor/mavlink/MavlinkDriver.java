@@ -14,7 +14,6 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.mavlink;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,18 +21,17 @@ import java.io.OutputStream;
 import java.util.Timer;
 import org.sensorhub.api.comm.ICommProvider;
 import org.sensorhub.api.common.SensorHubException;
-import org.sensorhub.api.data.IStreamingDataInterface;
 import org.sensorhub.api.sensor.SensorException;
 import org.sensorhub.impl.sensor.AbstractSensorModule;
-import org.sensorhub.impl.sensor.mavlink.MavlinkConfig.MsgTypes;
 import com.MAVLink.MAVLinkPacket;
-import com.MAVLink.Parser;
 import com.MAVLink.Messages.MAVLinkMessage;
 import com.MAVLink.common.msg_command_ack;
 import com.MAVLink.common.msg_command_long;
 import com.MAVLink.common.msg_param_set;
 import com.MAVLink.common.msg_position_target_global_int;
 import com.MAVLink.common.msg_set_mode;
+import com.MAVLink.common.msg_system_time;
+import com.MAVLink.common.msg_timesync;
 import com.MAVLink.enums.MAV_CMD;
 import com.MAVLink.enums.MAV_MODE_FLAG;
 import com.MAVLink.enums.MAV_PARAM_TYPE;
@@ -50,7 +48,7 @@ import com.MAVLink.minimal.msg_heartbeat;
  * @author Alex Robin
  * @since Dec 12, 2015
  */
-public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
+public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig> implements IMavlinkSystem
 {
     protected static final String BODY_FRAME = "BODY_FRAME";
     protected static final String GIMBAL_FRAME = "GIMBAL_FRAME";
@@ -62,7 +60,9 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
     boolean connected;
     InputStream msgIn;
     OutputStream cmdOut;
-    Parser mavlinkParser;
+    MavlinkFrameParser mavlinkParser;
+    MavlinkDispatcher dispatcher = new MavlinkDispatcher();
+    MavlinkClockSync clockSync = new MavlinkClockSync();
     
     long lastMsgTime = 0;
     
@@ -95,41 +95,13 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
         generateUniqueID("urn:osh:sensor:mavlink:", config.vehicleID);
         generateXmlID("MAVLINK_SYSTEM_", config.vehicleID);
         
-        // create outputs depending on selected sentences
-        if (config.activeMessages.contains(MsgTypes.GLOBAL_POSITION))
-        {
-            GlobalPositionOutput dataInterface = new GlobalPositionOutput(this);
-            addOutput(dataInterface, false);
-            dataInterface.init();
-        }
-        
-        if (config.activeMessages.contains(MsgTypes.ATTITUDE))
-        {
-            AttitudeEulerOutput dataInterface = new AttitudeEulerOutput(this);
-            addOutput(dataInterface, false);
-            dataInterface.init();
-        }
-        
-        if (config.activeMessages.contains(MsgTypes.ATTITUDE_QUATERNION))
-        {
-            AttitudeQuatOutput dataInterface = new AttitudeQuatOutput(this);
-            addOutput(dataInterface, false);
-            dataInterface.init();
-        }
-        
-        if (config.activeMessages.contains(MsgTypes.GIMBAL_REPORT))
-        {
-            GimbalEulerOutput dataInterface = new GimbalEulerOutput(this);
-            addOutput(dataInterface, false);
-            dataInterface.init();
-        }
-        
-        if (config.activeMessages.contains(MsgTypes.BATTERY_STATUS))
-        {
-            BatteryStatusOutput dataInterface = new BatteryStatusOutput(this);
-            addOutput(dataInterface, true);
-            dataInterface.init();
-        }
+        // create outputs depending on selected messages
+        // and register them by message ID
+        dispatcher.clear();
+        MavlinkOutput.createOutputs(this, config.activeMessages, (output, isStatus) -> {
+            addOutput(output, isStatus);
+            dispatcher.register(output);
+        });
         
         // create control inputs depending on selected commands
         // only add the control input objects if some commands were enabled
@@ -174,8 +146,8 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
         // connect to data stream
         try
         {
-            mavlinkParser = new Parser();
-            msgIn = new BufferedInputStream(commProvider.getInputStream());
+            msgIn = commProvider.getInputStream();
+            mavlinkParser = new MavlinkFrameParser(msgIn);
             cmdOut = new BufferedOutputStream(commProvider.getOutputStream());
             
             // send heartbeat
@@ -237,6 +209,18 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
     }
     
     
+    private void sendTimeSyncRequest()
+    {
+        try
+        {
+            sendCommand(MavlinkClockSync.createTimeSyncRequest(System.currentTimeMillis()).pack());
+        }
+        catch (IOException e)
+        {
+        }
+    }
+    
+    
     private void setTelemetryRates() throws IOException
     {
         getLogger().info("Setting Telemetry Update Rate");
@@ -344,6 +328,7 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
                         
                         // send heartbeat
                         sendHeartbeat();
+                        sendTimeSyncRequest();
                     }
                 }, 
                 0L, Math.min(MAX_MSG_PERIOD, 1000L) 
@@ -356,15 +341,8 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
         try
         {
             // read next message
-            MAVLinkPacket packet = null;
-            while (started && packet == null)
-            {
-                int c = msgIn.read();
-                packet = mavlinkParser.mavlink_parse_char(c);
-            }
-            
-            // if null, it's EOF
-            if (packet == null)
+            // if false, it's EOF
+            if (!mavlinkParser.nextFrame())
                 return;
             
             // time tag message receipt
@@ -377,26 +355,34 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
                 notifyConnectionStatus(true, "MAVLink system");
             }
             
+            // skip messages that no output consumes before they are decoded
+            int msgId = mavlinkParser.getMsgId();
+            boolean hasHandlers = dispatcher.hasHandlers(msgId);
+            boolean logInfo = msgId == msg_command_ack.MAVLINK_MSG_ID_COMMAND_ACK ||
+                              msgId == msg_position_target_global_int.MAVLINK_MSG_ID_POSITION_TARGET_GLOBAL_INT;
+            boolean isClockMsg = msgId == msg_system_time.MAVLINK_MSG_ID_SYSTEM_TIME ||
+                                 msgId == msg_timesync.MAVLINK_MSG_ID_TIMESYNC;
+            if (!hasHandlers && !logInfo && !isClockMsg && !getLogger().isTraceEnabled())
+                return;
+            
             // unpack and log message
-            MAVLinkMessage msg = packet.unpack();
-            if (msg instanceof msg_command_ack || msg instanceof msg_position_target_global_int)
+            // message object is reused so outputs must not keep a reference to it
+            MAVLinkMessage msg = mavlinkParser.unpack();
+            if (msg == null)
+                return;
+            else if (logInfo)
                 getLogger().info("Received {}", msg);
             else
                 getLogger().trace("Received message {} ({}) from {}:{}", msg, msg.getClass().getName(), msg.sysid, msg.compid);
             
-            // special case for system time message
-            /*if (msg instanceof msg_system_time)
-            {
-                long unixTime = ((msg_system_time)msg).time_unix_usec;
-                log.info("Unix time = " + new DateTimeFormat().formatIso(unixTime/1e6, 0));
-            }*/
+            // special case for clock synchronization messages
+            if (msg instanceof msg_system_time)
+                clockSync.onSystemTime(((msg_system_time)msg).time_unix_usec, ((msg_system_time)msg).time_boot_ms);
+            else if (msg instanceof msg_timesync)
+                clockSync.onTimeSync(lastMsgTime, ((msg_timesync)msg).tc1, ((msg_timesync)msg).ts1);
             
-            // let each registered output handle this message
-            for (IStreamingDataInterface output: this.getOutputs().values())
-            {
-                MavlinkOutput nmeaOut = (MavlinkOutput)output;
-                nmeaOut.handleMessage(lastMsgTime, msg);
-            }
+            // let each output registered for this message ID handle it
+            dispatcher.dispatch(lastMsgTime, msg);
         }
         catch (IOException e)
         {
@@ -406,11 +392,12 @@ public class MavlinkDriver extends AbstractSensorModule<MavlinkConfig>
     }
     
     
-    protected double getUtcTimeFromBootMillis(long timeFromBootMs)
+    @Override
+    public double getUtcTimeFromBootMillis(long timeFromBootMs)
     {
-        // just use receiving time stamp for now
-        // TODO use sender time stamp for better relative timing accuracy
-        return ((double)lastMsgTime) / 1000.;
+        // use sender time stamp corrected with estimated clock offset
+        clockSync.onBootTime(lastMsgTime, timeFromBootMs);
+        return clockSync.getUtcTime(timeFromBootMs, lastMsgTime);
     }
 
 
@@ -0,0 +1,349 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.Messages.MAVLinkPayload;
+import com.MAVLink.ardupilotmega.CRC;
+
+
+/**
+ * <p>
+ * MAVLink v1/v2 framing parser working on whole chunks of the input stream.<br/>
+ * Data is read in bulk into a reusable buffer (so a single read normally
+ * returns a whole UDP datagram) and frames are located and CRC checked
+ * directly in the buffer using a table driven CRC.
+ * </p><p>
+ * Messages are decoded into a single instance per message ID that is reused
+ * for all subsequent messages with the same ID, so no object is allocated
+ * per message once all message types have been seen. Consequently, the
+ * message returned by {@link #unpack()} is only valid until the next call
+ * to {@link #nextFrame()}.
+ * </p><p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MavlinkFrameParser
+{
+    static final int BUFFER_SIZE = 8192;
+    static final int MAX_MSG_ID = 0xFFFF;
+    static final int SIGNATURE_LEN = 13;
+    static final int INCOMPAT_FLAG_SIGNED = 0x01;
+    static final int[] CRC_TABLE = new int[256];
+    static final int[] CRC_EXTRA = new int[MAX_MSG_ID+1];
+
+    final InputStream is;
+    final ByteBuffer buf;
+    final MAVLinkPayload payload = new MAVLinkPayload();
+    final MAVLinkMessage[] msgPool = new MAVLinkMessage[MAX_MSG_ID+1];
+    int lastPayloadLen;
+
+    // header of current frame
+    int payloadStart;
+    int len;
+    int seq;
+    int sysid;
+    int compid;
+    int msgid;
+    boolean isMavlink2;
+
+    // stats
+    long frameCount;
+    long crcErrorCount;
+    long droppedCount;
+
+
+    static
+    {
+        // CRC-16/MCRF4XX lookup table (reflected poly 0x1021)
+        for (int i = 0; i < 256; i++)
+        {
+            int crc = i;
+            for (int j = 0; j < 8; j++)
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x8408 : crc >>> 1;
+            CRC_TABLE[i] = crc;
+        }
+
+        // extract CRC extra bytes from generated CRC class
+        // -1 means the message is unknown and cannot be validated
+        var crc = new CRC();
+        var ref = new CRC();
+        for (int id = 0; id <= MAX_MSG_ID; id++)
+        {
+            CRC_EXTRA[id] = -1;
+            crc.start_checksum();
+            if (crc.finish_checksum(id))
+            {
+                for (int b = 0; b < 256; b++)
+                {
+                    ref.start_checksum();
+                    ref.update_checksum(b);
+                    if (ref.getLSB() == crc.getLSB() && ref.getMSB() == crc.getMSB())
+                    {
+                        CRC_EXTRA[id] = b;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+
+    public MavlinkFrameParser(InputStream is)
+    {
+        this.is = is;
+        this.buf = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buf.flip(); // start empty, in read mode
+    }
+
+
+    /**
+     * Reads until the next valid frame is found.<br/>
+     * Header fields of the frame are then available through the getters
+     * and the message can be decoded with {@link #unpack()}.
+     * @return true if a frame was found, false if end of stream was reached
+     * @throws IOException if data cannot be read from the stream
+     */
+    public boolean nextFrame() throws IOException
+    {
+        final byte[] data = buf.array();
+
+        while (true)
+        {
+            int pos = buf.position();
+            int limit = buf.limit();
+
+            // look for start byte
+            while (pos < limit)
+            {
+                int b = data[pos] & 0xFF;
+                if (b == MAVLinkPacket.MAVLINK_STX_MAVLINK2 || b == MAVLinkPacket.MAVLINK_STX_MAVLINK1)
+                    break;
+                pos++;
+            }
+            buf.position(pos);
+
+            if (pos + 3 > limit)
+            {
+                if (!readMore())
+                    return false;
+                continue;
+            }
+
+            boolean v2 = (data[pos] & 0xFF) == MAVLinkPacket.MAVLINK_STX_MAVLINK2;
+            int payloadLen = data[pos+1] & 0xFF;
+            int headerLen = v2 ? MAVLinkPacket.MAVLINK2_HEADER_LEN : MAVLinkPacket.MAVLINK1_HEADER_LEN;
+            int frameLen = headerLen + payloadLen + 2;
+
+            if (v2)
+            {
+                // message includes an incompatible feature flag
+                int incompatFlags = data[pos+2] & 0xFF;
+                if ((incompatFlags & ~INCOMPAT_FLAG_SIGNED) != 0)
+                {
+                    buf.position(pos+1);
+                    continue;
+                }
+
+                if ((incompatFlags & INCOMPAT_FLAG_SIGNED) != 0)
+                    frameLen += SIGNATURE_LEN;
+            }
+
+            if (pos + frameLen > limit)
+            {
+                if (!readMore())
+                    return false;
+                continue;
+            }
+
+            // read header
+            int id;
+            if (v2)
+            {
+                seq = data[pos+4] & 0xFF;
+                sysid = data[pos+5] & 0xFF;
+                compid = data[pos+6] & 0xFF;
+                id = (data[pos+7] & 0xFF) | (data[pos+8] & 0xFF) << 8 | (data[pos+9] & 0xFF) << 16;
+            }
+            else
+            {
+                seq = data[pos+2] & 0xFF;
+                sysid = data[pos+3] & 0xFF;
+                compid = data[pos+4] & 0xFF;
+                id = data[pos+5] & 0xFF;
+            }
+
+            // check CRC over header and payload + CRC extra
+            int crcEnd = pos + headerLen + payloadLen;
+            int extra = id <= MAX_MSG_ID ? CRC_EXTRA[id] : -1;
+            if (extra < 0 || computeCrc(data, pos+1, crcEnd, extra) != ((data[crcEnd] & 0xFF) | (data[crcEnd+1] & 0xFF) << 8))
+            {
+                // resync on next byte
+                crcErrorCount++;
+                buf.position(pos+1);
+                continue;
+            }
+
+            // signature validation is not supported
+            if (frameLen > headerLen + payloadLen + 2)
+            {
+                droppedCount++;
+                buf.position(pos + frameLen);
+                continue;
+            }
+
+            // payload stays in buffer until next call
+            frameCount++;
+            buf.position(pos + frameLen);
+            payloadStart = pos + headerLen;
+            len = payloadLen;
+            msgid = id;
+            isMavlink2 = v2;
+            return true;
+        }
+    }
+
+
+    /*
+     * Compacts the buffer and reads more data from the input stream
+     */
+    protected boolean readMore() throws IOException
+    {
+        buf.compact();
+
+        // buffer full but no valid frame, drop everything
+        if (!buf.hasRemaining())
+            buf.clear();
+
+        int n = is.read(buf.array(), buf.position(), buf.remaining());
+        if (n > 0)
+            buf.position(buf.position() + n);
+        buf.flip();
+        return n >= 0;
+    }
+
+
+    protected static int computeCrc(byte[] data, int start, int end, int extra)
+    {
+        int crc = 0xFFFF;
+        for (int i = start; i < end; i++)
+            crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ data[i]) & 0xFF];
+        return (crc >>> 8) ^ CRC_TABLE[(crc ^ extra) & 0xFF];
+    }
+
+
+    /**
+     * Decodes the current frame.<br/>
+     * The returned object is reused for the next message with the same ID.
+     * @return The decoded message or null if the message ID is not supported
+     */
+    public MAVLinkMessage unpack()
+    {
+        // copy payload and clear trailing bytes since MAVLink v2 truncates zeros
+        ByteBuffer payloadBuf = payload.payload;
+        payloadBuf.clear();
+        payloadBuf.put(buf.array(), payloadStart, len);
+        if (lastPayloadLen > len)
+            Arrays.fill(payloadBuf.array(), len, lastPayloadLen, (byte)0);
+        lastPayloadLen = len;
+
+        MAVLinkMessage msg = msgPool[msgid];
+        if (msg == null)
+        {
+            // create message instance the first time we see this ID
+            MAVLinkPacket pkt = new MAVLinkPacket(len, isMavlink2);
+            pkt.seq = seq;
+            pkt.sysid = sysid;
+            pkt.compid = compid;
+            pkt.msgid = msgid;
+            pkt.payload = payload;
+            msg = pkt.unpack();
+            msgPool[msgid] = msg;
+        }
+        else
+        {
+            msg.sysid = sysid;
+            msg.compid = compid;
+            msg.isMavlink2 = isMavlink2;
+            msg.unpack(payload);
+        }
+
+        return msg;
+    }
+
+
+    public int getMsgId()
+    {
+        return msgid;
+    }
+
+
+    public int getSysId()
+    {
+        return sysid;
+    }
+
+
+    public int getCompId()
+    {
+        return compid;
+    }
+
+
+    public int getSeq()
+    {
+        return seq;
+    }
+
+
+    public boolean isMavlink2()
+    {
+        return isMavlink2;
+    }
+
+
+    /**
+     * @return Number of valid frames received
+     */
+    public long getFrameCount()
+    {
+        return frameCount;
+    }
+
+
+    /**
+     * @return Number of candidate frames rejected because of a bad CRC
+     */
+    public long getCrcErrorCount()
+    {
+        return crcErrorCount;
+    }
+
+
+    /**
+     * @return Number of valid frames dropped because they are signed
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount;
+    }
+}
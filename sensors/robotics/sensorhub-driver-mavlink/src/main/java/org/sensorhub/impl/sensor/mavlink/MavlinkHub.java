@@ -0,0 +1,356 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.sensorhub.api.comm.ICommProvider;
+import org.sensorhub.api.common.SensorHubException;
+import org.sensorhub.api.sensor.SensorException;
+import org.sensorhub.api.system.ISystemGroupDriver;
+import org.sensorhub.impl.sensor.AbstractSensorModule;
+import org.vast.sensorML.SMLHelper;
+import org.vast.swe.SWEConstants;
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.minimal.msg_heartbeat;
+import net.opengis.sensorml.v20.PhysicalSystem;
+
+
+/**
+ * <p>
+ * Driver for several MAVLink vehicles sharing the same link (e.g. a UDP
+ * port or a serial radio).<br/>
+ * A single thread reads and demultiplexes all messages by system ID, and a
+ * {@link MavlinkVehicle} member is created for each vehicle found on the
+ * link. Heartbeats and connection watchdog are handled by a single timer
+ * for all vehicles.
+ * </p><p>
+ * Vehicles are identified by system ID only, so that all components of a
+ * vehicle (autopilot, gimbal, camera, companion computer) map to the same
+ * member. Only messages sent by the autopilot component are processed by
+ * default, since other components share the system ID but emit their own
+ * heartbeats and telemetry that would be mixed with the vehicle's.
+ * </p><p>
+ * Only telemetry outputs are supported for now. Use {@link MavlinkDriver}
+ * to command a vehicle.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MavlinkHub extends AbstractSensorModule<MavlinkHubConfig> implements ISystemGroupDriver<MavlinkVehicle>
+{
+    static final int MAX_SYSTEM_ID = 255;
+    
+    ICommProvider<?> commProvider;
+    Timer watchDogTimer;
+    volatile boolean started;
+    boolean connected;
+    InputStream msgIn;
+    OutputStream cmdOut;
+    MavlinkFrameParser mavlinkParser;
+    
+    final MavlinkVehicle[] vehiclesBySysId = new MavlinkVehicle[MAX_SYSTEM_ID+1];
+    final Map<String, MavlinkVehicle> vehicles = new ConcurrentSkipListMap<>();
+    long lastMsgTime = 0;
+    
+    
+    @Override
+    protected void doInit() throws SensorHubException
+    {
+        super.doInit();
+        
+        // generate identifiers
+        generateUniqueID("urn:osh:sensor:mavlink:hub:", config.hubID);
+        generateXmlID("MAVLINK_HUB_", config.hubID);
+        
+        // create vehicles that are known in advance
+        synchronized (vehicles)
+        {
+            vehicles.clear();
+            for (int i = 0; i <= MAX_SYSTEM_ID; i++)
+                vehiclesBySysId[i] = null;
+            
+            for (int sysId: config.systemIds)
+                addVehicle(sysId);
+        }
+    }
+    
+    
+    @Override
+    protected void updateSensorDescription()
+    {
+        synchronized (sensorDescLock)
+        {
+            super.updateSensorDescription();
+            
+            new SMLHelper().edit((PhysicalSystem)sensorDescription)
+                .name("MAVLink Hub")
+                .description("Group of MAVLink vehicles connected through the same link")
+                .definition(SWEConstants.DEF_SENSOR_NETWORK)
+                .build();
+        }
+    }
+
+
+    @Override
+    protected synchronized void doStart() throws SensorHubException
+    {
+        if (started)
+            return;
+        
+        // init comm provider
+        if (commProvider == null)
+        {
+            // we need to recreate comm provider here because it can be changed by UI
+            try
+            {
+                if (config.commSettings == null)
+                    throw new SensorHubException("No communication settings specified");
+                
+                var moduleReg = getParentHub().getModuleRegistry();
+                commProvider = (ICommProvider<?>)moduleReg.loadSubModule(config.commSettings, true);
+                commProvider.start();
+            }
+            catch (Exception e)
+            {
+                commProvider = null;
+                throw e;
+            }
+        }
+        
+        // connect to data stream
+        try
+        {
+            msgIn = commProvider.getInputStream();
+            mavlinkParser = new MavlinkFrameParser(msgIn);
+            cmdOut = new BufferedOutputStream(commProvider.getOutputStream());
+        }
+        catch (IOException e)
+        {
+            throw new SensorException("Error while initializing communications ", e);
+        }
+        
+        // start single reader thread for all vehicles
+        Thread t = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                while (started)
+                    handleNextMessage();
+            }
+        }, "MAVLinkHub-" + config.hubID);
+        
+        started = true;
+        t.start();
+        
+        // start shared heartbeat, time sync and connection watchdog
+        startWatchDogTimer();
+    }
+    
+    
+    private void sendHeartbeat()
+    {
+        msg_heartbeat hb = new msg_heartbeat();
+        hb.type = 6;
+        hb.autopilot = 8;
+        sendPacket(hb.pack());
+    }
+    
+    
+    private void sendPacket(MAVLinkPacket pkt)
+    {
+        try
+        {
+            synchronized (cmdOut)
+            {
+                pkt.sysid = config.gcsSystemId;
+                pkt.compid = 0;
+                pkt.generateCRC(pkt.len);
+                cmdOut.write(pkt.encodePacket());
+                cmdOut.flush();
+            }
+        }
+        catch (IOException e)
+        {
+        }
+    }
+    
+    
+    private void startWatchDogTimer()
+    {
+        watchDogTimer = new Timer("MAVLinkHub-" + config.hubID + "-Watchdog", true);
+        watchDogTimer.schedule(new TimerTask()
+        {
+            public void run()
+            {
+                long now = System.currentTimeMillis();
+                if (connected && now - lastMsgTime > MavlinkDriver.MAX_MSG_PERIOD)
+                {
+                    connected = false;
+                    notifyConnectionStatus(false, "MAVLink link");
+                }
+                
+                for (var vehicle: vehicles.values())
+                    vehicle.checkConnection(now);
+                
+                // one heartbeat and time sync request for all vehicles on the link
+                sendHeartbeat();
+                sendPacket(MavlinkClockSync.createTimeSyncRequest(now).pack());
+            }
+        }, 0L, Math.min(MavlinkDriver.MAX_MSG_PERIOD, 1000L));
+    }
+    
+    
+    private void handleNextMessage()
+    {
+        try
+        {
+            // read next message
+            // if false, it's EOF
+            if (!mavlinkParser.nextFrame())
+                return;
+            
+            // time tag message receipt
+            lastMsgTime = System.currentTimeMillis();
+            
+            // send connection event
+            if (!connected)
+            {
+                connected = true;
+                notifyConnectionStatus(true, "MAVLink link");
+            }
+            
+            // demultiplex by system ID
+            int sysId = mavlinkParser.getSysId();
+            if (sysId == config.gcsSystemId)
+                return;
+            
+            // ignore messages from other components of the vehicle
+            if (config.autopilotComponentId != 0 && mavlinkParser.getCompId() != config.autopilotComponentId)
+                return;
+            
+            MavlinkVehicle vehicle = vehiclesBySysId[sysId];
+            if (vehicle == null && (vehicle = onNewVehicle(sysId)) == null)
+                return;
+            
+            // only decode messages that the vehicle outputs consume
+            MAVLinkMessage msg = null;
+            if (vehicle.needsMessage(mavlinkParser.getMsgId()))
+                msg = mavlinkParser.unpack();
+            vehicle.handleMessage(lastMsgTime, msg);
+        }
+        catch (IOException e)
+        {
+            if (started)
+                throw new RuntimeException("Error while parsing MAVLink message", e);
+        }
+    }
+    
+    
+    /*
+     * Creates and registers a vehicle the first time a message is received from it
+     */
+    protected MavlinkVehicle onNewVehicle(int sysId)
+    {
+        // only accept vehicles listed in config if any
+        if (!config.systemIds.isEmpty() || vehicles.size() >= config.maxVehicles)
+            return null;
+        
+        try
+        {
+            MavlinkVehicle vehicle;
+            synchronized (vehicles)
+            {
+                vehicle = addVehicle(sysId);
+            }
+            
+            getLogger().info("New vehicle detected with system ID {}", sysId);
+            getParentHub().getSystemDriverRegistry().register(vehicle);
+            return vehicle;
+        }
+        catch (Exception e)
+        {
+            getLogger().error("Cannot add vehicle with system ID {}", sysId, e);
+            return null;
+        }
+    }
+    
+    
+    protected MavlinkVehicle addVehicle(int sysId) throws SensorException
+    {
+        if (sysId < 0 || sysId > MAX_SYSTEM_ID)
+            throw new SensorException("Invalid MAVLink system ID: " + sysId);
+        
+        var vehicle = new MavlinkVehicle(this, sysId);
+        vehicles.put(vehicle.getUniqueIdentifier(), vehicle);
+        vehiclesBySysId[sysId] = vehicle;
+        return vehicle;
+    }
+
+
+    @Override
+    protected synchronized void doStop() throws SensorHubException
+    {
+        started = false;
+        
+        if (watchDogTimer != null)
+        {
+            watchDogTimer.cancel();
+            watchDogTimer = null;
+        }
+        
+        if (msgIn != null)
+        {
+            try { msgIn.close(); }
+            catch (IOException e) { }
+            msgIn = null;
+        }
+        
+        if (commProvider != null)
+        {
+            commProvider.stop();
+            commProvider = null;
+        }
+    }
+
+
+    @Override
+    public void cleanup() throws SensorHubException
+    {
+
+    }
+    
+    
+    @Override
+    public boolean isConnected()
+    {
+        return connected;
+    }
+
+
+    @Override
+    public Map<String, ? extends MavlinkVehicle> getMembers()
+    {
+        return Collections.unmodifiableMap(vehicles);
+    }
+}
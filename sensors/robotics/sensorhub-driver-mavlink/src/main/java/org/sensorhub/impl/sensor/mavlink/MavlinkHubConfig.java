@@ -0,0 +1,48 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.sensorhub.api.comm.CommProviderConfig;
+import org.sensorhub.api.config.DisplayInfo;
+import org.sensorhub.api.sensor.SensorConfig;
+import org.sensorhub.impl.sensor.mavlink.MavlinkConfig.MsgTypes;
+
+
+public class MavlinkHubConfig extends SensorConfig
+{
+    @DisplayInfo(label="Hub ID", desc="ID of the MAVLink link or ground station (vehicle IDs are derived from it and their system ID)")
+    public String hubID;
+    
+    @DisplayInfo(desc="System IDs of vehicles to expose. Leave empty to accept all vehicles seen on the link")
+    public List<Integer> systemIds = new ArrayList<>();
+    
+    @DisplayInfo(desc="Maximum number of vehicles that can be handled by the hub")
+    public int maxVehicles = 64;
+    
+    @DisplayInfo(desc="MAVLink component ID of the vehicle autopilots. Messages from other components (gimbals, cameras, companion computers) are ignored. Set to 0 to accept messages from all components")
+    public int autopilotComponentId = 1;
+    
+    @DisplayInfo(desc="MAVLink system ID used by the hub to send heartbeats (255 is the usual GCS ID)")
+    public int gcsSystemId = 255;
+    
+    @DisplayInfo(desc="MAVLink messages to expose for each vehicle")
+    public EnumSet<MsgTypes> activeMessages = EnumSet.noneOf(MsgTypes.class);
+    
+    @DisplayInfo(desc="Communication settings to connect to MAVLink link (e.g. UDP port or serial radio)")
+    public CommProviderConfig<?> commSettings;
+}
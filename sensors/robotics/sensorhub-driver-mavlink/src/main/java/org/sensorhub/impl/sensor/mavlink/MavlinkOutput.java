@@ -14,11 +14,15 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.mavlink;
 
+import java.util.Set;
+import java.util.function.BiConsumer;
 import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import net.opengis.swe.v20.DataEncoding;
 import org.sensorhub.api.data.DataEvent;
+import org.sensorhub.api.sensor.SensorException;
 import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.mavlink.MavlinkConfig.MsgTypes;
 import com.MAVLink.Messages.MAVLinkMessage;
 
 
@@ -30,7 +34,7 @@ import com.MAVLink.Messages.MAVLinkMessage;
  * @author Alex Robin
  * @since Dec 10, 2015
  */
-public abstract class MavlinkOutput extends AbstractSensorOutput<MavlinkDriver>
+public abstract class MavlinkOutput extends AbstractSensorOutput<IMavlinkSystem>
 {
     protected DataComponent dataStruct;
     protected DataEncoding dataEncoding;
@@ -38,12 +42,58 @@ public abstract class MavlinkOutput extends AbstractSensorOutput<MavlinkDriver>
     protected long lastMsgTime = Long.MIN_VALUE;
     
 
-    public MavlinkOutput(String name, MavlinkDriver parentSensor)
+    public MavlinkOutput(String name, IMavlinkSystem parentSensor)
     {
         super(name, parentSensor);
     }
     
     
+    /**
+     * Creates and initializes the outputs corresponding to the selected message types
+     * @param parent system that will host the outputs
+     * @param msgTypes selected message types
+     * @param addOutput function used to add each output (and status flag) to the parent
+     * @throws SensorException if an output cannot be initialized
+     */
+    protected static void createOutputs(IMavlinkSystem parent, Set<MsgTypes> msgTypes, BiConsumer<MavlinkOutput, Boolean> addOutput) throws SensorException
+    {
+        if (msgTypes.contains(MsgTypes.GLOBAL_POSITION))
+        {
+            GlobalPositionOutput dataInterface = new GlobalPositionOutput(parent);
+            addOutput.accept(dataInterface, false);
+            dataInterface.init();
+        }
+        
+        if (msgTypes.contains(MsgTypes.ATTITUDE))
+        {
+            AttitudeEulerOutput dataInterface = new AttitudeEulerOutput(parent);
+            addOutput.accept(dataInterface, false);
+            dataInterface.init();
+        }
+        
+        if (msgTypes.contains(MsgTypes.ATTITUDE_QUATERNION))
+        {
+            AttitudeQuatOutput dataInterface = new AttitudeQuatOutput(parent);
+            addOutput.accept(dataInterface, false);
+            dataInterface.init();
+        }
+        
+        if (msgTypes.contains(MsgTypes.GIMBAL_REPORT))
+        {
+            GimbalEulerOutput dataInterface = new GimbalEulerOutput(parent);
+            addOutput.accept(dataInterface, false);
+            dataInterface.init();
+        }
+        
+        if (msgTypes.contains(MsgTypes.BATTERY_STATUS))
+        {
+            BatteryStatusOutput dataInterface = new BatteryStatusOutput(parent);
+            addOutput.accept(dataInterface, true);
+            dataInterface.init();
+        }
+    }
+    
+    
     @Override
     public double getAverageSamplingPeriod()
     {
@@ -92,6 +142,14 @@ public abstract class MavlinkOutput extends AbstractSensorOutput<MavlinkDriver>
     }
     
     
+    /**
+     * Method to be implemented by concrete outputs to declare which MAVLink
+     * messages they consume. Only these messages are dispatched to the output.
+     * @return IDs of MAVLink messages handled by this output
+     */
+    protected abstract int[] getMessageIds();
+    
+    
     /**
      * Method to be implemented by concrete outputs to handle appropriate MAVLink messages
      * @param msgTime system time at which message was received
@@ -0,0 +1,144 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mavlink;
+
+import org.sensorhub.api.sensor.SensorException;
+import org.sensorhub.impl.sensor.AbstractSensorDriver;
+import org.vast.sensorML.SMLHelper;
+import org.vast.swe.SWEConstants;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_system_time;
+import com.MAVLink.common.msg_timesync;
+
+
+/**
+ * <p>
+ * Vehicle discovered on the link of a {@link MavlinkHub}.<br/>
+ * Messages are read and demultiplexed by the hub, so each vehicle only
+ * dispatches the messages with its system ID to its own outputs.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MavlinkVehicle extends AbstractSensorDriver implements IMavlinkSystem
+{
+    final MavlinkHub hub;
+    final int systemId;
+    final MavlinkDispatcher dispatcher = new MavlinkDispatcher();
+    final MavlinkClockSync clockSync = new MavlinkClockSync();
+    volatile long lastMsgTime = 0;
+    volatile boolean connected;
+
+
+    protected MavlinkVehicle(MavlinkHub parent, int systemId) throws SensorException
+    {
+        super(parent, parent.getUniqueIdentifier() + ":" + systemId, "SYS" + systemId);
+        this.hub = parent;
+        this.systemId = systemId;
+
+        this.smlDescription = new SMLHelper().createPhysicalSystem()
+            .id(getShortID())
+            .uniqueID(getUniqueIdentifier())
+            .name("MAVLink Vehicle " + systemId)
+            .description("MAVLink vehicle with system ID " + systemId)
+            .definition(SWEConstants.DEF_SENSOR)
+            .build();
+
+        // create outputs depending on selected messages
+        MavlinkOutput.createOutputs(this, parent.getConfiguration().activeMessages, (output, isStatus) -> {
+            addOutput(output, isStatus);
+            dispatcher.register(output);
+        });
+    }
+
+
+    /**
+     * @param msgId MAVLink message ID
+     * @return true if messages with this ID must be decoded for this vehicle
+     */
+    protected boolean needsMessage(int msgId)
+    {
+        return dispatcher.hasHandlers(msgId) ||
+            msgId == msg_system_time.MAVLINK_MSG_ID_SYSTEM_TIME ||
+            msgId == msg_timesync.MAVLINK_MSG_ID_TIMESYNC;
+    }
+
+
+    /**
+     * Called by the hub for each message received from this vehicle
+     * @param msgTime system time at which message was received
+     * @param msg MAVLink message object, or null if it wasn't decoded
+     */
+    protected void handleMessage(long msgTime, MAVLinkMessage msg)
+    {
+        lastMsgTime = msgTime;
+
+        if (!connected)
+        {
+            connected = true;
+            hub.getLogger().info("{} connected", getName());
+        }
+
+        if (msg instanceof msg_system_time)
+            clockSync.onSystemTime(((msg_system_time)msg).time_unix_usec, ((msg_system_time)msg).time_boot_ms);
+        else if (msg instanceof msg_timesync)
+            clockSync.onTimeSync(msgTime, ((msg_timesync)msg).tc1, ((msg_timesync)msg).ts1);
+        else if (msg != null)
+            dispatcher.dispatch(msgTime, msg);
+    }
+
+
+    /**
+     * Called periodically by the hub watchdog
+     * @param now current system time
+     */
+    protected void checkConnection(long now)
+    {
+        if (connected && now - lastMsgTime > MavlinkDriver.MAX_MSG_PERIOD)
+        {
+            connected = false;
+            hub.getLogger().warn("{} lost (no message in {}ms)", getName(), MavlinkDriver.MAX_MSG_PERIOD);
+        }
+    }
+
+
+    @Override
+    public double getUtcTimeFromBootMillis(long timeFromBootMs)
+    {
+        // use sender time stamp corrected with estimated clock offset
+        clockSync.onBootTime(lastMsgTime, timeFromBootMs);
+        return clockSync.getUtcTime(timeFromBootMs, lastMsgTime);
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return smlDescription.getName();
+    }
+
+
+    @Override
+    public boolean isConnected()
+    {
+        return connected;
+    }
+
+
+    public int getSystemId()
+    {
+        return systemId;
+    }
+}
@@ -0,0 +1,79 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.mavlink;
+
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.mavlink.MavlinkClockSync;
+import static org.junit.Assert.*;
+
+
+public class TestMavlinkClockSync
+{
+    static final long BOOT_UTC_TIME = 1760000000000L;
+    
+    
+    @Test
+    public void testOneWayWithJitter() throws Exception
+    {
+        var clockSync = new MavlinkClockSync();
+        var random = new Random(0);
+        
+        // 20 Hz messages with 5ms latency + up to 100ms of jitter
+        for (long bootTime = 0; bootTime < 30000; bootTime += 50)
+        {
+            long recvTime = BOOT_UTC_TIME + bootTime + 5 + (long)(random.nextDouble()*100);
+            clockSync.onBootTime(recvTime, bootTime);
+        }
+        
+        long bootTime = 30000;
+        double utcTime = clockSync.getUtcTime(bootTime, 0);
+        assertEquals((BOOT_UTC_TIME + bootTime) / 1000., utcTime, 0.015);
+    }
+    
+    
+    @Test
+    public void testTimeSyncWithDrift() throws Exception
+    {
+        var clockSync = new MavlinkClockSync();
+        double drift = 50e-6; // vehicle clock runs 50ppm slow
+        
+        for (long sendTime = BOOT_UTC_TIME; sendTime < BOOT_UTC_TIME + 60000; sendTime += 1000)
+        {
+            long rtt = 40;
+            double vehicleTime = (sendTime + rtt/2 - BOOT_UTC_TIME) * (1 - drift);
+            clockSync.onTimeSync(sendTime + rtt, (long)(vehicleTime * 1e6), sendTime * 1000000L);
+        }
+        
+        long bootTime = 70000;
+        double expectedUtc = (BOOT_UTC_TIME + bootTime / (1 - drift)) / 1000.;
+        assertEquals(expectedUtc, clockSync.getUtcTime(bootTime, 0), 0.002);
+        assertTrue(clockSync.getDrift() > 0);
+    }
+    
+    
+    @Test
+    public void testResetOnReboot() throws Exception
+    {
+        var clockSync = new MavlinkClockSync();
+        clockSync.onSystemTime(BOOT_UTC_TIME * 1000 + 60000000L, 60000);
+        assertEquals((BOOT_UTC_TIME + 60000) / 1000., clockSync.getUtcTime(60000, 0), 1e-3);
+        
+        // vehicle reboots, fall back to receive time until new samples arrive
+        long now = BOOT_UTC_TIME + 120000;
+        clockSync.onSystemTime(0, 100);
+        assertEquals(now / 1000., clockSync.getUtcTime(100, now), 1e-3);
+    }
+}
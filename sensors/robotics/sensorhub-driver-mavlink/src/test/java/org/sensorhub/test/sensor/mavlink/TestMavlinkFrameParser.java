@@ -0,0 +1,201 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.mavlink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.mavlink.MavlinkFrameParser;
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Parser;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_global_position_int;
+import com.MAVLink.common.msg_raw_imu;
+import com.MAVLink.common.msg_sys_status;
+import com.MAVLink.minimal.msg_heartbeat;
+import static org.junit.Assert.*;
+
+
+public class TestMavlinkFrameParser
+{
+    static final int NUM_CYCLES = 2000;
+
+
+    /*
+     * Generates a telemetry stream similar to what SITL sends at high rate,
+     * with both MAVLink v1 and v2 frames and some garbage between frames
+     */
+    protected byte[] generateStream(int numCycles, boolean addGarbage) throws IOException
+    {
+        var os = new ByteArrayOutputStream();
+
+        for (int i = 0; i < numCycles; i++)
+        {
+            var v2 = (i % 2) == 0;
+
+            if (i % 50 == 0)
+            {
+                var hb = new msg_heartbeat();
+                hb.type = 2;
+                hb.autopilot = 3;
+                hb.custom_mode = i;
+                writePacket(os, hb.pack(), i, v2);
+            }
+
+            var att = new msg_attitude();
+            att.time_boot_ms = i * 20L;
+            att.roll = 0.1f * i;
+            att.pitch = -0.2f * i;
+            att.yaw = 0.3f;
+            writePacket(os, att.pack(), i, v2);
+
+            var imu = new msg_raw_imu();
+            imu.time_usec = i * 20000L;
+            imu.xacc = (short)i;
+            imu.zgyro = (short)-i;
+            writePacket(os, imu.pack(), i, v2);
+
+            if (addGarbage && i % 7 == 0)
+                os.write(new byte[] {(byte)0xFE, 0x05, 0x00, (byte)0xFD, 0x12, 0x34});
+
+            var pos = new msg_global_position_int();
+            pos.time_boot_ms = i * 20L;
+            pos.lat = 345000000 + i;
+            pos.lon = -866000000 - i;
+            pos.alt = 0; // truncated in v2
+            pos.hdg = 0;
+            writePacket(os, pos.pack(), i, v2);
+
+            if (i % 10 == 0)
+            {
+                var status = new msg_sys_status();
+                status.voltage_battery = 12600;
+                status.battery_remaining = (byte)90;
+                writePacket(os, status.pack(), i, v2);
+            }
+        }
+
+        return os.toByteArray();
+    }
+
+
+    protected void writePacket(ByteArrayOutputStream os, MAVLinkPacket pkt, int seq, boolean v2) throws IOException
+    {
+        pkt.isMavlink2 = v2;
+        pkt.seq = seq & 0xFF;
+        pkt.sysid = 1;
+        pkt.compid = 1;
+        os.write(pkt.encodePacket());
+    }
+
+
+    protected List<String> parseWithLegacyParser(byte[] stream)
+    {
+        var parser = new Parser();
+        var messages = new ArrayList<String>();
+        for (byte b: stream)
+        {
+            var pkt = parser.mavlink_parse_char(b & 0xFF);
+            if (pkt != null)
+                messages.add(pkt.unpack().toString());
+        }
+        return messages;
+    }
+
+
+    protected List<String> parseWithFrameParser(byte[] stream) throws IOException
+    {
+        var parser = new MavlinkFrameParser(new ByteArrayInputStream(stream));
+        var messages = new ArrayList<String>();
+        while (parser.nextFrame())
+        {
+            MAVLinkMessage msg = parser.unpack();
+            assertNotNull(msg);
+            assertEquals(parser.getMsgId(), msg.msgid);
+            assertEquals(1, msg.sysid);
+            messages.add(msg.toString());
+        }
+        return messages;
+    }
+
+
+    @Test
+    public void testSameOutputAsLegacyParser() throws Exception
+    {
+        var stream = generateStream(NUM_CYCLES, false);
+        var expected = parseWithLegacyParser(stream);
+        var actual = parseWithFrameParser(stream);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+
+
+    @Test
+    public void testResyncAfterGarbage() throws Exception
+    {
+        var stream = generateStream(NUM_CYCLES, true);
+        var expected = parseWithLegacyParser(generateStream(NUM_CYCLES, false));
+        var actual = parseWithFrameParser(stream);
+        assertEquals(expected, actual);
+    }
+
+
+    @Test
+    public void testCorruptedFrameIsSkipped() throws Exception
+    {
+        var stream = generateStream(1, false);
+        stream[12] ^= 0x55; // in payload of first message
+
+        var parser = new MavlinkFrameParser(new ByteArrayInputStream(stream));
+        int count = 0;
+        while (parser.nextFrame())
+            count++;
+
+        assertEquals(parseWithLegacyParser(generateStream(1, false)).size() - 1, count);
+        assertTrue(parser.getCrcErrorCount() > 0);
+    }
+
+
+    @Test
+    public void testLargeStream() throws Exception
+    {
+        // both parsers must decode the same number of messages over many cycles
+        var stream = generateStream(NUM_CYCLES*10, false);
+
+        int legacyCount = 0;
+        var legacyParser = new Parser();
+        for (byte b: stream)
+        {
+            var pkt = legacyParser.mavlink_parse_char(b & 0xFF);
+            if (pkt != null && pkt.unpack() != null)
+                legacyCount++;
+        }
+
+        int newCount = 0;
+        var parser = new MavlinkFrameParser(new ByteArrayInputStream(stream));
+        while (parser.nextFrame())
+        {
+            if (parser.unpack() != null)
+                newCount++;
+        }
+
+        assertTrue(newCount > 0);
+        assertEquals(legacyCount, newCount);
+    }
+}
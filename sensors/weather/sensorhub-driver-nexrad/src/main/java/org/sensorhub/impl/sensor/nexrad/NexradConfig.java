@@ -40,6 +40,8 @@ public class NexradConfig extends SensorConfig
 	public String queueName = "NexradQueue_SensorHub_001";  // default name
 	public long queueIdleTimeMinutes = 240;
 	public int queueFileLimit = 8;  // number of files in the disk queue to accumulate before forcing older files out 
+	public int chunkGapTimeoutSeconds = 30;  // how long to wait for a missing chunk before skipping it
+	public int numDecodeThreads = 2;  // size of the chunk decode pool shared by all sites
 	
 	//  Archive AWS controls
 	public String archiveStartTime;
@@ -213,6 +213,10 @@ public class NexradOutput extends AbstractSensorOutput<NexradSensor>
 
 		sendData = true;
 
+		// realtime chunks are decoded on a shared pool, so no need for a thread per site
+		if (radialProvider.start(this::onRadials))
+			return;
+
 		NexradConfig config = nexradSensor.getConfiguration();
 		for(String site: config.siteIds) {
 			Thread t = new GetRadialsThread(site);
@@ -267,6 +271,17 @@ public class NexradOutput extends AbstractSensorOutput<NexradSensor>
 		}
 	}
 
+	private void onRadials(List<LdmRadial> radials)
+	{
+		if (!sendData)
+			return;
+		try {
+			sendRadials(radials);
+		} catch (IOException e) {
+			logger.error("Could not send radials", e);
+		}
+	}
+
 	private void sendRadials(List<LdmRadial> radials) throws IOException
 	{
 		int i=0;
@@ -369,6 +384,10 @@ public class NexradOutput extends AbstractSensorOutput<NexradSensor>
 
 	protected void stop()
 	{
+		sendData = false;
+		if (radialProvider != null)
+			radialProvider.stop();
+
 		if (timer != null)
 		{
 			timer.cancel();
@@ -2,6 +2,7 @@ package org.sensorhub.impl.sensor.nexrad;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.sensorhub.impl.sensor.nexrad.aws.LdmRadial;
 
@@ -24,4 +25,16 @@ public interface RadialProvider {
 
 	public List<LdmRadial>  getNextRadials(String site) throws IOException;
 
+	/**
+	 * Starts pushing radials to the listener as they are decoded, for providers
+	 * that don't need one thread per site polling getNextRadials(site)
+	 * @return false if the provider has to be polled
+	 */
+	public default boolean start(Consumer<List<LdmRadial>> listener) {
+		return false;
+	}
+
+	public default void stop() {
+	}
+
 }
@@ -0,0 +1,93 @@
+package org.sensorhub.impl.sensor.nexrad.aws.sqs;
+
+/**
+ * <p>Title: ChunkKey.java</p>
+ * <p>Description: Volume, chunk number and type of a realtime chunk, parsed once
+ *    from its S3 key (e.g. KAMX/585/20160727-190302-001-S) when it is queued.</p>
+ *
+ * @author tcook
+ * @date Oct 18, 2026
+ */
+public final class ChunkKey implements Comparable<ChunkKey>
+{
+	public static final char START = 'S';
+	public static final char INTERMEDIATE = 'I';
+	public static final char END = 'E';
+
+	final String path;
+	final int vol;
+	final int chunk;
+	final char type;
+
+	ChunkKey(String path, int vol, int chunk, char type) {
+		this.path = path;
+		this.vol = vol;
+		this.chunk = chunk;
+		this.type = type;
+	}
+
+	public static ChunkKey parse(String path) {
+		try {
+			int slashIdx = path.indexOf('/');
+			int vol = Integer.parseInt(path.substring(slashIdx + 1, path.indexOf('/', slashIdx + 1)));
+			int dashIdx = path.lastIndexOf('-');
+			int chunk = Integer.parseInt(path.substring(dashIdx - 3, dashIdx));
+			char type = path.charAt(path.length() - 1);
+			return new ChunkKey(path, vol, chunk, type);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid chunk path: " + path, e);
+		}
+	}
+
+	/**
+	 * @return true if this chunk directly follows the given one, i.e. the first chunk
+	 *  of the next volume after an end chunk, or the next chunk of the same volume
+	 */
+	public boolean follows(ChunkKey prev) {
+		if(prev.type == END)
+			return vol == prev.vol + 1 && chunk == 1;
+		return vol == prev.vol && chunk == prev.chunk + 1;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getVolume() {
+		return vol;
+	}
+
+	public int getChunk() {
+		return chunk;
+	}
+
+	public char getType() {
+		return type;
+	}
+
+	@Override
+	public int compareTo(ChunkKey o) {
+		int c = Integer.compare(vol, o.vol);
+		if(c != 0)
+			return c;
+		c = Integer.compare(chunk, o.chunk);
+		if(c != 0)
+			return c;
+		return path.compareTo(o.path);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof ChunkKey && path.equals(((ChunkKey)o).path);
+	}
+
+	@Override
+	public int hashCode() {
+		return path.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
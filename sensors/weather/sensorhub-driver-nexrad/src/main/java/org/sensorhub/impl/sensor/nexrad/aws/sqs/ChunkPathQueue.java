@@ -1,17 +1,17 @@
 package org.sensorhub.impl.sensor.nexrad.aws.sqs;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
-import org.sensorhub.impl.sensor.nexrad.RadialProvider;
 import org.sensorhub.impl.sensor.nexrad.aws.AwsNexradUtil;
 import org.sensorhub.impl.sensor.nexrad.aws.LdmLevel2Reader;
 import org.sensorhub.impl.sensor.nexrad.aws.LdmRadial;
@@ -24,133 +24,179 @@ import com.amazonaws.services.s3.model.S3Object;
 
 /**
  * <p>Title: MessageOrderQueue.java</p>
- * <p>Description: </p>
+ * <p>Description: Puts the chunks of one site back in sequence as their paths arrive.
+ *    Chunks are only looked at when a new path is added or when the gap timer set
+ *    for a missing chunk expires, and the ones that are in order are handed one at
+ *    a time to the decode pool shared by all sites.</p>
  *
  * @author T
  * @date Jul 27, 2016
  */
-public class ChunkPathQueue 
+public class ChunkPathQueue
 {
-	// Create priorityQueue for each site
-	//  either this class manages them all, or multiple instances one per site
-
 	Logger logger = LoggerFactory.getLogger(ChunkPathQueue.class);
-	PriorityBlockingQueue<String> queue;
+	final ChunkQueueManager manager;
+	final PriorityQueue<ChunkKey> queue = new PriorityQueue<>();
+	final Deque<ChunkKey> readyChunks = new ArrayDeque<>();
 	AmazonS3Client s3client;
-	Path siteFolder; 
+	Path siteFolder;
 	String site;
-	int vol, chunk;
-	char type;
-	boolean first = true;
-	static final int START_SIZE = 3;  // allow settable
-	static final int SIZE_LIMIT = 8;
+	ChunkKey last;  // last chunk taken from the queue
+	ScheduledFuture<?> gapTimer;
+	long gapTimerId;
+	boolean decoding;
 
-	public ChunkPathQueue(Path rootFolder, String site) throws IOException {
+	public ChunkPathQueue(Path rootFolder, String site, ChunkQueueManager manager) throws IOException {
 		this.siteFolder = Paths.get(rootFolder.toString(), site);
 		this.site = site;
+		this.manager = manager;
 		//  Make sure the target folder exists
 		FileUtils.forceMkdir(this.siteFolder.toFile());
-		queue = new PriorityBlockingQueue<>();
 	}
 
 	public void add(String chunkPath) {
-		queue.add(chunkPath);
+		ChunkKey key;
+		try {
+			key = ChunkKey.parse(chunkPath);
+		} catch (IllegalArgumentException e) {
+			logger.warn(e.getMessage());
+			return;
+		}
+
+		synchronized (this) {
+			if(last == null) {
+				// first chunk only sets where the sequence starts
+				last = key;
+				return;
+			}
+			if(isLate(key)) {
+				logger.debug("Dropping late chunk: {}", key);
+				return;
+			}
+			queue.add(key);
+			advance();
+		}
+	}
+
+	// Chunks that come in after we've moved past them are not added to the queue
+	boolean isLate(ChunkKey key) {
+		return (key.vol == last.vol && key.chunk <= last.chunk) || key.vol == last.vol - 1;
 	}
 
-	void dump(BlockingQueue queue) {
-		String [] sarr = (String[]) queue.toArray(new String [] {});
-		Arrays.sort(sarr);
-		logger.debug("QUEUE: ");
-		for (String st: sarr)
-			logger.debug("\t" + st);
+	// Must be called while holding the lock on this queue
+	void advance() {
+		ChunkKey head;
+		boolean progressed = false;
+		while((head = queue.peek()) != null) {
+			if(head.follows(last)) {
+				logger.debug("Take that: {}" , head);
+			} else if(queue.size() > manager.sizeLimit) {
+				logger.debug("Force take: {}" , head);
+			} else {
+				break;
+			}
+			take(queue.poll());
+			progressed = true;
+		}
 
+		// wait for the missing chunk, but not forever
+		// the gap timeout is counted from the last chunk taken
+		if(queue.isEmpty() || progressed) {
+			cancelGapTimer();
+		}
+		if(!queue.isEmpty() && gapTimer == null && manager.scheduler != null) {
+			final long timerId = ++gapTimerId;
+			gapTimer = manager.scheduler.schedule(() -> onGapTimeout(timerId), manager.gapTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
 	}
 
-	boolean isNext(int v, int c, char t) {
-		boolean isNext;
-		if(type == 'E') {
-			isNext = (v == vol + 1) && (c == 1);
-		} else {
-			isNext = (v == vol) && (c == chunk + 1);
+	void onGapTimeout(long timerId) {
+		synchronized (this) {
+			// ignore timers that were re-armed while this one was firing
+			if(timerId != gapTimerId || gapTimer == null)
+				return;
+			gapTimer = null;
+			ChunkKey head = queue.poll();
+			if(head == null)
+				return;
+			logger.debug("Chunk after {} never came, skipping to {}", last, head);
+			take(head);
+			advance();
 		}
-		if(isNext) {
-			vol = v;
-			chunk = c;
-			type = t;
+	}
+
+	void cancelGapTimer() {
+		if(gapTimer != null) {
+			gapTimer.cancel(false);
+			gapTimer = null;
 		}
-		//System.err.println(isNext + ": " + v +"," + c + "," + t);
-		return isNext;
 	}
 
-	// If a force take, need to ensure that any previous chunks that come in later are not added to the queue
-	private String next() throws InterruptedException {
-		boolean next = false;
-		while(!next) {
-			if(first) {
-				String f = queue.take();
-				String [] sarr = f.split("/");
-				vol = Integer.parseInt(sarr[1]);
-				int dashIdx = f.lastIndexOf('-');
-				assert (dashIdx > 10);
-				String s = f.substring(dashIdx - 3, dashIdx);
-				chunk = Integer.parseInt(s);
-				type = f.charAt(f.length() - 1);
-				first = false;
-				continue;
-			}
+	// Must be called while holding the lock on this queue
+	void take(ChunkKey key) {
+		last = key;
+		readyChunks.add(key);
+		submitNext();
+	}
 
-			String chunkName = queue.peek();
-			if(chunkName == null)
-				continue;
-			String [] sarr = chunkName.split("/");
-			int v = Integer.parseInt(sarr[1]);
-			int dashIdx = chunkName.lastIndexOf('-');
-			assert (dashIdx > 10);
-			String s = chunkName.substring(dashIdx - 3, dashIdx);
-			int c = Integer.parseInt(s);
-			char t = chunkName.charAt(chunkName.length() - 1);
-			if (isNext(v,c,t)) {
-				chunkName = queue.take();
-				logger.debug("Take that: {}" , chunkName);
-				return chunkName;
-			} else if(queue.size() > SIZE_LIMIT) {
-				chunkName = queue.take(); 
-				logger.debug("Force take: {}" , chunkName);
-				chunk = c;
-				vol = v;
-				type = t;
-			}
-			dump(queue);					
-			Thread.sleep(500L);
+	// Only one chunk per site is decoded at a time so radials are sent in order
+	void submitNext() {
+		if(decoding || readyChunks.isEmpty() || manager.decodePool == null)
+			return;
+		try {
+			manager.decodePool.execute(this::decodeNext);
+			decoding = true;
+		} catch (RejectedExecutionException e) {
+			// pool was shut down
 		}
+	}
 
-		return null;
+	/**
+	 * Resumes sequencing once the manager is started, for chunks that came in before
+	 */
+	synchronized void resume() {
+		advance();
+		submitNext();
 	}
 
+	synchronized void stop() {
+		cancelGapTimer();
+		decoding = false;
+	}
 
-	public Path nextFile() throws IOException
-	{
-		assert s3client != null;
-		try
-		{
-//			System.err.println("*** Checking nextFile");
-			String nextFile = next();
-			S3Object chunk = AwsNexradUtil.getChunk(s3client, AwsNexradUtil.BUCKET_NAME, nextFile);
-			nextFile = nextFile.replaceAll("/", "_");
-
-			Path pout = Paths.get(siteFolder.toString(), nextFile);
-			//  If I thread writing of file, I will have to put in a mechanism to notify the listener (NexradOutput)
-			//  when the file writing is complete.  Right now, I don't think it is needed. 
-			AwsNexradUtil.dumpChunkToFile(chunk, pout);
-//			System.err.println("*** Dumped nextFile");
-			return pout;
+	void decodeNext() {
+		ChunkKey key;
+		synchronized (this) {
+			key = readyChunks.poll();
 		}
-		catch (InterruptedException e)
-		{
-			return null;
+
+		try {
+			if(key != null) {
+				Path p = fetchFile(key);
+				logger.debug("Reading File {}" , p);
+				List<LdmRadial> radials = new LdmLevel2Reader().read(p.toFile());
+				if(radials != null)
+					manager.radialListener.accept(radials);
+			}
+		} catch (Exception e) {
+			logger.error("Could not decode chunk {}: {}", key, e.getMessage());
+		} finally {
+			synchronized (this) {
+				decoding = false;
+				submitNext();
+			}
 		}
 	}
 
+	Path fetchFile(ChunkKey key) throws IOException
+	{
+		assert s3client != null;
+		S3Object chunk = AwsNexradUtil.getChunk(s3client, AwsNexradUtil.BUCKET_NAME, key.path);
+		Path pout = Paths.get(siteFolder.toString(), key.path.replace('/', '_'));
+		AwsNexradUtil.dumpChunkToFile(chunk, pout);
+		return pout;
+	}
+
 	public void setS3client(AmazonS3Client s3client) {
 		this.s3client = s3client;
 	}
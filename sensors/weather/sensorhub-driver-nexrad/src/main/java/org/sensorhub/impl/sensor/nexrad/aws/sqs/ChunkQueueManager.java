@@ -5,46 +5,91 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.impl.sensor.nexrad.NexradConfig;
 import org.sensorhub.impl.sensor.nexrad.NexradSensor;
+import org.sensorhub.impl.sensor.nexrad.aws.LdmRadial;
 
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+/**
+ * <p>Title: ChunkQueueManager.java</p>
+ * <p>Description: Holds the chunk queue of each site, along with the single scheduler
+ *    thread running the gap timers of all queues and the decode pool shared by all sites.</p>
+ */
 public class ChunkQueueManager {
 	Map<String, ChunkPathQueue> queueMap;
+	int sizeLimit;
+	long gapTimeoutMillis;
+	int numDecodeThreads;
+	volatile ScheduledExecutorService scheduler;
+	volatile ExecutorService decodePool;
+	volatile Consumer<List<LdmRadial>> radialListener;
 
 	public ChunkQueueManager(NexradSensor sensor) throws SensorHubException {
 		initQueueMap(sensor);
 	}
-	
+
 	public void initQueueMap(NexradSensor sensor) throws SensorHubException {
 		try {
 			queueMap = new HashMap<>();
 			NexradConfig config = sensor.getConfiguration();
-			Path rootPath = Paths.get(config.rootFolder); 
+			Path rootPath = Paths.get(config.rootFolder);
 			if(!Files.isDirectory(rootPath))
 				throw new SensorHubException("Configured rootFolder does not exist or is not a directory" + config.rootFolder);
-			
+			sizeLimit = config.queueFileLimit;
+			gapTimeoutMillis = TimeUnit.SECONDS.toMillis(config.chunkGapTimeoutSeconds);
+			numDecodeThreads = Math.max(1, config.numDecodeThreads);
+
 			for(String site: config.siteIds) {
-				ChunkPathQueue queue = new ChunkPathQueue(Paths.get(config.rootFolder), site);
+				ChunkPathQueue queue = new ChunkPathQueue(Paths.get(config.rootFolder), site, this);
 				queueMap.put(site, queue);
-//				nexradSqsService.setChunkQueue(queue);   
-//				queue.setS3client(sensor.getS3client());  
-
 			}
 		} catch (IOException e) {
 			throw new SensorHubException(e.getMessage(), e);
 		}
 	}
-	
+
+	/**
+	 * Starts decoding chunks as they come in order and passing their radials to the listener
+	 */
+	public synchronized void start(Consumer<List<LdmRadial>> listener) {
+		if(decodePool != null)
+			return;
+		radialListener = listener;
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("NexradChunkScheduler").setDaemon(true).build());
+		decodePool = Executors.newFixedThreadPool(numDecodeThreads,
+				new ThreadFactoryBuilder().setNameFormat("NexradDecode-%d").setDaemon(true).build());
+		for(ChunkPathQueue queue: queueMap.values())
+			queue.resume();
+	}
+
+	public synchronized void stop() {
+		if(decodePool == null)
+			return;
+		for(ChunkPathQueue queue: queueMap.values())
+			queue.stop();
+		scheduler.shutdownNow();
+		decodePool.shutdownNow();
+		scheduler = null;
+		decodePool = null;
+	}
+
 	public void addChunkPath(String site, String path) {
 		ChunkPathQueue queue = getChunkQueue(site);
 		queue.add(path);
 	}
-	
+
 	public ChunkPathQueue getChunkQueue(String site) {
 		return queueMap.get(site);
 	}
@@ -38,6 +38,8 @@ import org.sensorhub.impl.service.consys.resource.RequestContext;
 import org.sensorhub.impl.service.consys.resource.ResourceFormat;
 import org.sensorhub.impl.service.consys.stream.StreamHandler;
 import org.vast.util.Asserts;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 
 /**
@@ -51,9 +53,14 @@ import org.vast.util.Asserts;
  */
 public class ConSysApiMqttConnector implements IMqttHandler
 {
+    static final int MAX_CACHED_TOPICS = 10000;
+    
     ConSysApiServlet servlet;
     String endpoint;
     Map<String, MqttSubscriber> subscribers = new ConcurrentHashMap<>();
+    Cache<String, URI> topicUriCache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_TOPICS)
+        .build();
     
     
     class MqttSubscriber implements StreamHandler
@@ -248,13 +255,22 @@ public class ConSysApiMqttConnector implements IMqttHandler
     
     private URI getResourceUri(String topic) throws InvalidTopicException
     {
+        // URI is cached since clients usually publish many messages to the same topic
+        var uri = topicUriCache.getIfPresent(topic);
+        if (uri != null)
+            return uri;
+        
         try
         {
             // remove the base URL part
-            topic = topic.replaceFirst(endpoint, "");
+            var path = topic.startsWith(endpoint) ?
+                topic.substring(endpoint.length()) :
+                topic.replaceFirst(endpoint, "");
             
             // parse URI (this also URL decodes the query string)
-            return new URI(topic);
+            uri = new URI(path);
+            topicUriCache.put(topic, uri);
+            return uri;
         }
         catch (URISyntaxException e)
         {
@@ -291,5 +307,6 @@ public class ConSysApiMqttConnector implements IMqttHandler
         for (var sub: subscribers.values())
             sub.close();
         subscribers.clear();
+        topicUriCache.invalidateAll();
     }
 }
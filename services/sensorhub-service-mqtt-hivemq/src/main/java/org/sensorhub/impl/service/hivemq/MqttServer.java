@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import org.sensorhub.api.comm.mqtt.IMqttServer;
 import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.impl.module.AbstractModule;
@@ -124,6 +125,16 @@ public class MqttServer extends AbstractModule<MqttServerConfig> implements IMqt
     }
     
     
+    /**
+     * @return The dispatcher processing incoming PUBLISH messages, giving
+     * access to queue metrics, or null if the server is not started
+     */
+    public PublishDispatcher getPublishDispatcher()
+    {
+        return oshExtension != null ? oshExtension.publishDispatcher : null;
+    }
+    
+    
     @Override
     public CompletableFuture<Boolean> publish(String topic, ByteBuffer payload)
     {
@@ -136,4 +147,11 @@ public class MqttServer extends AbstractModule<MqttServerConfig> implements IMqt
     {
         return oshExtension.publish(topic, payload, correlData);
     }
+
+
+    @Override
+    public CompletableFuture<Boolean> publish(String topic, ByteBuffer payload, ByteBuffer correlData, Consumer<ByteBuffer> releaseHandler)
+    {
+        return oshExtension.publish(topic, payload, correlData, releaseHandler);
+    }
 }
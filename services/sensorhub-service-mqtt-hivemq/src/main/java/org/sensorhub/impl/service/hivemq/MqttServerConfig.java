@@ -40,6 +40,18 @@ public class MqttServerConfig extends ServiceConfig
     public boolean enableWebSocketProxy = false;
     
     
+    @DisplayInfo(desc="Number of threads used to process incoming PUBLISH messages. Messages on a given topic are always processed in order by the same thread")
+    public int numPublishLanes = 4;
+    
+    
+    @DisplayInfo(desc="Maximum number of incoming PUBLISH messages waiting to be processed by each thread. Messages received when the queue is full are rejected")
+    public int publishQueueSize = 1000;
+    
+    
+    @DisplayInfo(desc="Maximum time in milliseconds an incoming PUBLISH message can wait to be processed. Messages are rejected right away if the queue of their thread cannot be processed within this delay")
+    public int publishTimeout = 5000;
+    
+    
     @DisplayInfo(label="Require Authentication", desc="Set to require remote users to be authentified before they can use this service")
     public boolean requireAuth = false;
 }
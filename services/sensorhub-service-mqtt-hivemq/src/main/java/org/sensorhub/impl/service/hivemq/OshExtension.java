@@ -24,6 +24,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import org.sensorhub.api.ISensorHub;
 import org.sensorhub.api.comm.mqtt.IMqttServer;
 import org.sensorhub.api.comm.mqtt.MqttException;
@@ -65,6 +66,7 @@ public class OshExtension implements ExtensionMain, EmbeddedExtension, IMqttServ
     MapWithWildcards<IMqttHandler> handlers = new MapWithWildcards<>();
     Map<String, Set<String>> clientTopics = new ConcurrentHashMap<>();
     volatile WebSocketProxyServlet webSocketProxy;
+    volatile PublishDispatcher publishDispatcher;
     Logger log;
     
     
@@ -90,6 +92,10 @@ public class OshExtension implements ExtensionMain, EmbeddedExtension, IMqttServ
             return oshAuthz;
         });
         
+        // create lanes used to process incoming PUBLISH
+        var config = service.getConfiguration();
+        publishDispatcher = new PublishDispatcher(config.numPublishLanes, config.publishQueueSize, config.publishTimeout);
+        
         // set client initializer to handle UNSUBSCRIBE and prevent direct PUBLISH
         var unsubHandler = new OshUnsubscribeHandler(this);
         var publishHandler = new OshPublishHandler(this);
@@ -152,7 +158,6 @@ public class OshExtension implements ExtensionMain, EmbeddedExtension, IMqttServ
         });
         
         // deploy websocket proxy if configured
-        var config = service.getConfiguration();
         if (config.enableWebSocketProxy && !Strings.isNullOrEmpty(config.webSocketProxyEndpoint))
         {
             for (var l: extensionStartInput.getServerInformation().getListener())
@@ -246,6 +251,12 @@ public class OshExtension implements ExtensionMain, EmbeddedExtension, IMqttServ
     @Override
     public void extensionStop(ExtensionStopInput extensionStopInput, ExtensionStopOutput extensionStopOutput)
     {
+        if (publishDispatcher != null)
+        {
+            log.debug("{}", publishDispatcher);
+            publishDispatcher.shutdown();
+        }
+        
         // stop websocket proxy if enabled
         if (webSocketProxy != null)
         {
@@ -286,15 +297,43 @@ public class OshExtension implements ExtensionMain, EmbeddedExtension, IMqttServ
     @Override
     public CompletableFuture<Boolean> publish(String topic, ByteBuffer payload, ByteBuffer correlData)
     {
-        Publish message = Builders.publish()
-            .topic(topic)
-            .qos(Qos.AT_LEAST_ONCE)
-            .payload(payload)
-            .correlationData(correlData)
-            .retain(false)
-            .build();
-        Services.publishService().publish(message);
-        return CompletableFuture.completedFuture(true);
+        return publish(topic, payload, correlData, null);
+    }
+
+
+    @Override
+    public CompletableFuture<Boolean> publish(String topic, ByteBuffer payload, ByteBuffer correlData, Consumer<ByteBuffer> releaseHandler)
+    {
+        try
+        {
+            Publish message = Builders.publish()
+                .topic(topic)
+                .qos(Qos.AT_LEAST_ONCE)
+                .payload(payload)
+                .correlationData(correlData)
+                .retain(false)
+                .build();
+            
+            // only release payload buffer and report completion once
+            // the message has actually been processed by HiveMQ
+            return Services.publishService().publish(message)
+                .handle((v, e) -> {
+                    if (releaseHandler != null)
+                        releaseHandler.accept(payload);
+                    if (e != null)
+                    {
+                        log.debug("Error publishing to topic {}", topic, e);
+                        return false;
+                    }
+                    return true;
+                });
+        }
+        catch (RuntimeException e)
+        {
+            if (releaseHandler != null)
+                releaseHandler.accept(payload);
+            throw e;
+        }
     }
 
 
@@ -16,6 +16,7 @@ package org.sensorhub.impl.service.hivemq;
 
 import java.security.AccessControlException;
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import org.sensorhub.api.comm.mqtt.ImplSpecificException;
 import org.sensorhub.api.comm.mqtt.InvalidPayloadException;
 import org.sensorhub.api.comm.mqtt.InvalidTopicException;
@@ -26,13 +27,17 @@ import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundIntercepto
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
 import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
-import com.hivemq.extension.sdk.api.services.Services;
 
 
 /**
  * <p>
  * Publish handler implemented as an inbound interceptor. No need for a
  * separate authorizer class since we can ACK proper error codes here.
+ * </p><p>
+ * Messages are handled by the {@link PublishDispatcher} so that ordering is
+ * preserved for each topic. Messages still waiting in the dispatcher queue
+ * when the publish timeout expires are dropped without touching the
+ * output, since the MQTT server has already applied its timeout fallback.
  * </p>
  *
  * @author Alex Robin
@@ -41,27 +46,38 @@ import com.hivemq.extension.sdk.api.services.Services;
 public class OshPublishHandler implements PublishInboundInterceptor
 {
     static final String LOG_PUBLISH_MSG = "Received PUBLISH clientId={}, topic={}: ";
-    static final int REQ_TIMEOUT_MS = 5000;
     
     final OshExtension oshExt;
     final Logger log;
+    final long timeout;
     
     
     OshPublishHandler(OshExtension oshExt)
     {
         this.oshExt = Asserts.checkNotNull(oshExt, OshExtension.class);
         this.log = oshExt.log;
+        this.timeout = oshExt.service.getConfiguration().publishTimeout;
     }
     
     
     @Override
     public void onInboundPublish(final PublishInboundInput publishIn, final PublishInboundOutput publishOut)
     {
-        var async = publishOut.async(Duration.ofMillis(REQ_TIMEOUT_MS));
-        Services.extensionExecutorService().submit(() -> {
+        var topic = publishIn.getPublishPacket().getTopic();
+        var async = publishOut.async(Duration.ofMillis(timeout));
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        
+        // messages on the same topic always go to the same lane so they are handled in order
+        var queued = oshExt.publishDispatcher.submit(topic, () -> {
             
-            // get topic name and user ID
-            var topic = publishIn.getPublishPacket().getTopic();
+            // output must not be used anymore once timed out
+            if (System.nanoTime() - deadline >= 0)
+            {
+                log.debug("Dropped PUBLISH on topic {}: Timed out while queued", topic);
+                return;
+            }
+            
+            // get user ID
             var userID = publishIn.getConnectionInformation().getConnectionAttributeStore()
                 .getAsString(OshAuthenticator.MQTT_USER_PROP)
                 .orElse(ISecurityManager.ANONYMOUS_USER);
@@ -126,6 +142,13 @@ public class OshPublishHandler implements PublishInboundInterceptor
                 async.resume();
             }
         });
+        
+        if (!queued)
+        {
+            log.debug("Rejected PUBLISH on topic {}: Too many pending messages", topic);
+            publishOut.preventPublishDelivery(AckReasonCode.QUOTA_EXCEEDED, "Too many pending messages");
+            async.resume();
+        }
     }
 
 }
@@ -0,0 +1,219 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.hivemq;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.vast.util.Asserts;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * <p>
+ * Dispatcher executing inbound PUBLISH messages on a fixed number of lanes.<br/>
+ * Each lane is a single thread with its own bounded queue, and topics are
+ * assigned to lanes by hash, so messages published on the same topic are
+ * always handled in order while different topics are handled in parallel.
+ * </p><p>
+ * Each lane keeps a moving average of the time taken to handle a message,
+ * so messages are rejected on submit when the backlog of their lane is not
+ * expected to be processed before the publish timeout.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class PublishDispatcher
+{
+    final Lane[] lanes;
+    final long maxWaitNanos;
+
+
+    static class Lane
+    {
+        final ThreadPoolExecutor exec;
+        final AtomicLong numRejected = new AtomicLong();
+        volatile int maxQueueSize;
+        volatile long avgTaskNanos; // only written by lane thread
+
+        Lane(int index, int queueSize)
+        {
+            this.exec = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("MqttPublish-" + index).setDaemon(true).build());
+        }
+
+        void run(Runnable task)
+        {
+            long t0 = System.nanoTime();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                long dt = System.nanoTime() - t0;
+                long avg = avgTaskNanos;
+                avgTaskNanos = avg == 0 ? dt : avg + (dt - avg) / 8;
+            }
+        }
+
+        long getExpectedWait()
+        {
+            // queued tasks + the one being executed
+            return (exec.getQueue().size() + 1) * avgTaskNanos;
+        }
+    }
+
+
+    PublishDispatcher(int numLanes, int queueSize, long maxWaitMillis)
+    {
+        Asserts.checkArgument(numLanes > 0, "numLanes must be > 0");
+        Asserts.checkArgument(queueSize > 0, "queueSize must be > 0");
+        Asserts.checkArgument(maxWaitMillis > 0, "maxWaitMillis must be > 0");
+
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.lanes = new Lane[numLanes];
+        for (int i = 0; i < numLanes; i++)
+            lanes[i] = new Lane(i, queueSize);
+    }
+
+
+    /**
+     * Queues a task on the lane assigned to the given topic
+     * @param topic Topic the message was published to
+     * @param task Task handling the message
+     * @return True if the task was queued, false if the lane is full, its
+     * backlog cannot be processed before the timeout, or the dispatcher has
+     * been shut down
+     */
+    public boolean submit(String topic, Runnable task)
+    {
+        var lane = lanes[getLaneIndex(topic)];
+
+        if (lane.getExpectedWait() > maxWaitNanos)
+        {
+            lane.numRejected.incrementAndGet();
+            return false;
+        }
+
+        try
+        {
+            lane.exec.execute(() -> lane.run(task));
+        }
+        catch (RejectedExecutionException e)
+        {
+            lane.numRejected.incrementAndGet();
+            return false;
+        }
+
+        var queueSize = lane.exec.getQueue().size();
+        if (queueSize > lane.maxQueueSize)
+            lane.maxQueueSize = queueSize;
+
+        return true;
+    }
+
+
+    int getLaneIndex(String topic)
+    {
+        return Math.floorMod(topic.hashCode(), lanes.length);
+    }
+
+
+    public void shutdown()
+    {
+        for (var lane: lanes)
+            lane.exec.shutdownNow();
+    }
+
+
+    public int getNumLanes()
+    {
+        return lanes.length;
+    }
+
+
+    /**
+     * @param lane Lane index
+     * @return Number of messages currently waiting in the lane queue
+     */
+    public int getQueueSize(int lane)
+    {
+        return lanes[lane].exec.getQueue().size();
+    }
+
+
+    /**
+     * @param lane Lane index
+     * @return Largest number of messages seen waiting in the lane queue
+     */
+    public int getMaxQueueSize(int lane)
+    {
+        return lanes[lane].maxQueueSize;
+    }
+
+
+    /**
+     * @param lane Lane index
+     * @return Number of messages handled by the lane
+     */
+    public long getCompletedCount(int lane)
+    {
+        return lanes[lane].exec.getCompletedTaskCount();
+    }
+
+
+    /**
+     * @param lane Lane index
+     * @return Average time taken to handle a message, in milliseconds
+     */
+    public double getAverageTaskTime(int lane)
+    {
+        return lanes[lane].avgTaskNanos / 1e6;
+    }
+
+
+    /**
+     * @param lane Lane index
+     * @return Number of messages rejected because the lane queue was full
+     * or could not be processed in time
+     */
+    public long getRejectedCount(int lane)
+    {
+        return lanes[lane].numRejected.get();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        var sb = new StringBuilder("PublishDispatcher [");
+        for (int i = 0; i < lanes.length; i++)
+        {
+            if (i > 0)
+                sb.append(", ");
+            sb.append("lane").append(i)
+              .append(": queue=").append(getQueueSize(i))
+              .append(", maxQueue=").append(getMaxQueueSize(i))
+              .append(", completed=").append(getCompletedCount(i))
+              .append(", avgTime=").append(String.format("%.3fms", getAverageTaskTime(i)))
+              .append(", rejected=").append(getRejectedCount(i));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -16,6 +16,7 @@ package org.sensorhub.impl.service.sta;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import org.geojson.LngLatAlt;
 import org.vast.ogc.gml.IFeature;
 import org.vast.ogc.om.SamplingCurve;
@@ -32,6 +33,7 @@ import de.fraunhofer.iosb.ilt.frostserver.path.EntitySetPathElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.util.UrlHelper;
 import net.opengis.gml.v32.AbstractFeature;
 import net.opengis.gml.v32.AbstractGeometry;
 import net.opengis.gml.v32.LinearRing;
@@ -49,6 +51,10 @@ import net.opengis.gml.v32.impl.GMLFactory;
  */
 public class FrostUtils
 {
+    public static final String SKIPTOKEN_PARAM = "$skiptoken";
+    
+    static final ThreadLocal<String> currentSkipToken = new ThreadLocal<>();
+    
 
     public static final ResourcePath copy(ResourcePath path)
     {
@@ -103,6 +109,94 @@ public class FrostUtils
     }
     
     
+    /**
+     * Same as {@link #handlePaging(EntitySet, ResourcePath, Query, int)} but the next link
+     * carries a $skiptoken identifying the last entity of the page instead of an
+     * incremented $skip value, so the next page can be read without scanning through
+     * all previous ones.
+     * @param entitySet Entity set containing up to limit+1 entities
+     * @param path Path of the collection
+     * @param query Query used to generate the entity set
+     * @param limit Maximum number of entities in the page
+     * @param skipToken Supplier of the token for the last entity of the page,
+     * only called if there is a next page
+     * @return The entity set, truncated to limit entities
+     */
+    public static <T extends Entity<T>> EntitySet<T> handlePaging(EntitySet<T> entitySet, ResourcePath path, Query query, int limit, Supplier<String> skipToken)
+    {
+        if (entitySet.size() > limit)
+        {
+            // generate next link
+            // $skip was already applied before the token position
+            var oldSkip = query.getSkip();
+            if (oldSkip.isPresent())
+                query.setSkip(0);
+            String queryString = query.toString(false);
+            oldSkip.ifPresent(query::setSkip);
+            
+            String nextLink = path.toString() + "?" +
+                (queryString.isEmpty() ? "" : queryString + "&") +
+                SKIPTOKEN_PARAM + "=" + skipToken.get();
+            entitySet.setNextLink(nextLink);
+            
+            // remove last element since we got limit+1 elements
+            var entityList = entitySet.asList();
+            entityList.remove(entityList.size()-1);
+        }
+        
+        return entitySet;
+    }
+    
+    
+    /**
+     * Removes the $skiptoken parameter from the query string since it is not
+     * supported by the FROST query parser. The token value is made available to
+     * entity handlers through {@link #consumeSkipToken()}.
+     * @param queryString The request query string, still URL encoded
+     * @return The query string without the $skiptoken parameter
+     */
+    public static String extractSkipToken(String queryString)
+    {
+        currentSkipToken.remove();
+        if (queryString == null || !queryString.contains("skiptoken="))
+            return queryString;
+        
+        var buf = new StringBuilder(queryString.length());
+        for (var param: queryString.split("&"))
+        {
+            var sep = param.indexOf('=');
+            var name = sep > 0 ? UrlHelper.urlDecode(param.substring(0, sep)) : param;
+            
+            if (SKIPTOKEN_PARAM.equals(name))
+            {
+                currentSkipToken.set(UrlHelper.urlDecode(param.substring(sep+1)));
+            }
+            else
+            {
+                if (buf.length() > 0)
+                    buf.append('&');
+                buf.append(param);
+            }
+        }
+        
+        return buf.toString();
+    }
+    
+    
+    /**
+     * Gets the $skiptoken of the current request, if any. The token is cleared so
+     * it only applies to the first collection read while processing the request,
+     * and not to collections read for $expand options.
+     * @return The token value, or null if none was provided
+     */
+    public static String consumeSkipToken()
+    {
+        var token = currentSkipToken.get();
+        currentSkipToken.remove();
+        return token;
+    }
+    
+    
     public static AbstractFeature toSamplingFeature(org.geojson.GeoJsonObject geojson)
     {
         if (geojson instanceof org.geojson.Feature)
@@ -14,6 +14,7 @@ Copyright (C) 2019 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.service.sta;
 
+import java.util.concurrent.Callable;
 import org.sensorhub.api.database.IObsSystemDatabase;
 
 
@@ -55,6 +56,17 @@ public interface ISTADatabase extends IObsSystemDatabase
     ISTAObsPropStore getObservedPropertyDataStore();
     
     
+    /**
+     * Executes a write that doesn't need to be rolled back, such as adding a
+     * single observation. Unlike {@link #executeTransaction(Callable)}, several
+     * such writes can run at the same time.
+     * @param write Write operation, which must not start a transaction
+     * @return The value returned by the write operation
+     * @throws Exception if the write operation failed
+     */
+    <T> T executeConcurrentWrite(Callable<T> write) throws Exception;
+    
+    
     public void close();
     
 }
@@ -14,18 +14,26 @@ Copyright (C) 2019 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.service.sta;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.joda.time.DateTimeZone;
 import org.sensorhub.api.common.BigId;
 import org.sensorhub.api.data.IDataStreamInfo;
 import org.sensorhub.api.data.IObsData;
 import org.sensorhub.api.data.ObsData;
 import org.sensorhub.api.data.ObsEvent;
+import org.sensorhub.api.datastore.EmptyFilterIntersection;
 import org.sensorhub.api.datastore.obs.IObsStore;
 import org.sensorhub.api.datastore.obs.ObsFilter;
 import org.sensorhub.api.event.IEventPublisher;
@@ -43,10 +51,13 @@ import org.vast.util.Asserts;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.EntityParser;
 import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.FeatureOfInterest;
 import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.builder.ObservationBuilder;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.AbstractDatastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
@@ -56,7 +67,9 @@ import de.fraunhofer.iosb.ilt.frostserver.path.EntityPathElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.util.ArrayValueHandlers;
 import de.fraunhofer.iosb.ilt.frostserver.util.NoSuchEntityException;
+import de.fraunhofer.iosb.ilt.frostserver.util.UrlHelper;
 import net.opengis.swe.v20.DataBlock;
 
 
@@ -78,6 +91,9 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
 {
     static final String NOT_FOUND_MESSAGE = "Cannot find Observation ";
     static final String NOT_WRITABLE_MESSAGE = "Cannot modify read-only Observation ";
+    static final String INVALID_SKIPTOKEN_MESSAGE = "Invalid $skiptoken: ";
+    static final String SKIPTOKEN_TIME_SEP = ".";
+    static final String SKIPTOKEN_ID_SEP = "_";
 
     OSHPersistenceManager pm;
     STASecurity securityHandler;
@@ -87,6 +103,7 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
     boolean truncateIds = false;
     Cache<BigId, DataStreamTransactionHandler> dsHandlerCache;
     Cache<BigId, Boolean> dsResultHasTsCache;
+    Cache<IObsData, Observation> subscriptionObsCache;
     
     
     static class EventPublisherInfo
@@ -115,6 +132,12 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
             .expireAfterAccess(1, TimeUnit.HOURS)
             .build();
         
+        // weak keys so obs are compared by identity and removed once not used anymore
+        this.subscriptionObsCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(10000)
+            .build();
+        
         /*this.dsResultHasTsCache = CacheBuilder.newBuilder()
             .maximumSize(10000)
             .concurrencyLevel(4)
@@ -133,21 +156,17 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
         securityHandler.checkPermission(securityHandler.sta_insert_obs);
         Asserts.checkArgument(obs.getPhenomenonTime() != null, "Missing phenomenonTime");
         
+        var ds = obs.getDatastream() != null ? obs.getDatastream() : obs.getMultiDatastream();
+        
         try
         {
-            return pm.writeDatabase.executeTransaction(() -> {
+            Callable<ResourceId> insert = () -> {
                 
                 // handle associations / deep inserts
-                var ds = obs.getDatastream() != null ? obs.getDatastream() : obs.getMultiDatastream();
                 ResourceId dsId = pm.dataStreamHandler.handleDatastreamAssoc(ds);
                 
                 // get transaction handler for existing datastream
-                var dsHandler = dsHandlerCache.get(dsId, () -> {
-                    return pm.transactionHandler.getDataStreamHandler(dsId);
-                });
-                if (dsHandler == null)
-                    throw new NoSuchEntityException(DatastreamEntityHandler.NOT_FOUND_MESSAGE + dsId);
-                //var oldDsInfo = dsHandler.getDataStreamInfo();
+                var dsHandler = getDataStreamHandler(dsId);
                 
                 // check linked FOI exists
                 ResourceId foiId = null;
@@ -155,10 +174,7 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
                 if (obs.getFeatureOfInterest() != null)
                 {
                     foiId = (ResourceId)obs.getFeatureOfInterest().getId();
-                    var foi = pm.foiHandler.foiWriteStore.getCurrentVersion(foiId);
-                    if (foi == null)
-                        throw new NoSuchEntityException(FoiEntityHandler.NOT_FOUND_MESSAGE + foiId);
-                    foiUri = foi.getUniqueIdentifier();
+                    foiUri = getFoiUri(foiId);
                 }
                 
                 // generate OSH obs
@@ -167,7 +183,14 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
                 // store in DB + send event
                 var newObsId = dsHandler.addObs(obsData);
                 return new ResourceBigId(newObsId);
-            });
+            };
+            
+            // a single obs insert never needs to be rolled back so it can run
+            // concurrently with others, unless the datastream is also created
+            if (ds != null && ds.getName() != null)
+                return pm.writeDatabase.executeTransaction(insert);
+            else
+                return pm.writeDatabase.executeConcurrentWrite(insert);
         }
         catch (IllegalArgumentException | NoSuchEntityException e)
         {
@@ -178,6 +201,167 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
             throw new ServerErrorException("Error creating observation", e);
         }
     }
+    
+    
+    /**
+     * <p>
+     * Insert observations provided using the DataArray encoding defined by the
+     * CreateObservations extension of the STA specification.
+     * </p><p>
+     * The datastream of each DataArray is resolved only once and all observations
+     * are inserted in a single database write. Like with FROST, an invalid
+     * entry doesn't prevent insertion of the others but is reported in the result.
+     * </p>
+     * @param content JSON content of the request
+     * @return List of self links of created observations, or error messages
+     * (prefixed with "error ") for entries that could not be inserted
+     * @throws IOException if the DataArray content cannot be parsed
+     */
+    public List<String> createObservations(String content) throws IOException
+    {
+        checkTransactionsEnabled();
+        securityHandler.checkPermission(securityHandler.sta_insert_obs);
+        
+        var entityParser = new EntityParser(pm.getIdManager().getIdClass());
+        var dataArrays = entityParser.parseObservationDataArray(content);
+        var serviceRootUrl = pm.getCoreSettings().getServiceRootUrl();
+        
+        // check all components are supported before inserting anything
+        var valueHandlers = new ArrayList<List<ArrayValueHandlers.ArrayValueHandler>>();
+        var deepInsert = false;
+        for (var daValue: dataArrays)
+        {
+            var ds = daValue.getDatastream() != null ? daValue.getDatastream() : daValue.getMultiDatastream();
+            deepInsert |= ds != null && ds.getName() != null;
+            
+            var handlers = new ArrayList<ArrayValueHandlers.ArrayValueHandler>();
+            for (var component: daValue.getComponents())
+            {
+                var handler = ArrayValueHandlers.getHandler(component);
+                Asserts.checkArgument(handler != null, "Unsupported DataArray component: " + component);
+                handlers.add(handler);
+            }
+            valueHandlers.add(handlers);
+        }
+        
+        try
+        {
+            Callable<List<String>> insert = () -> {
+                var selfLinks = new ArrayList<String>();
+                var foiUris = new HashMap<ResourceId, String>();
+                
+                for (int k = 0; k < dataArrays.size(); k++)
+                {
+                    var daValue = dataArrays.get(k);
+                    var handlers = valueHandlers.get(k);
+                    
+                    // resolve datastream and transaction handler once for all entries
+                    ResourceId dsId;
+                    DataStreamTransactionHandler dsHandler;
+                    try
+                    {
+                        var ds = daValue.getDatastream() != null ? daValue.getDatastream() : daValue.getMultiDatastream();
+                        dsId = pm.dataStreamHandler.handleDatastreamAssoc(ds);
+                        dsHandler = getDataStreamHandler(dsId);
+                    }
+                    catch (IllegalArgumentException | NoSuchEntityException e)
+                    {
+                        for (int i = 0; i < daValue.getDataArray().size(); i++)
+                            selfLinks.add("error " + e.getMessage());
+                        continue;
+                    }
+                    
+                    for (var entry: daValue.getDataArray())
+                    {
+                        try
+                        {
+                            var obsBuilder = new ObservationBuilder();
+                            for (int i = 0; i < handlers.size(); i++)
+                                handlers.get(i).handle(entry.get(i), obsBuilder);
+                            var obs = obsBuilder.build();
+                            Asserts.checkArgument(obs.getPhenomenonTime() != null, "Missing phenomenonTime");
+                            
+                            // check linked FOI exists
+                            ResourceId foiId = null;
+                            String foiUri = null;
+                            if (obs.getFeatureOfInterest() != null)
+                            {
+                                foiId = (ResourceId)obs.getFeatureOfInterest().getId();
+                                foiUri = foiUris.get(foiId);
+                                if (foiUri == null)
+                                {
+                                    foiUri = getFoiUri(foiId);
+                                    foiUris.put(foiId, foiUri);
+                                }
+                            }
+                            
+                            // store in DB + send event
+                            var obsData = toObsData(obs, dsId, foiId, foiUri);
+                            var newObsId = dsHandler.addObs(obsData);
+                            obs.setId(new ResourceBigId(newObsId));
+                            selfLinks.add(UrlHelper.generateSelfLink(serviceRootUrl, obs));
+                        }
+                        catch (IllegalArgumentException | IndexOutOfBoundsException | ClassCastException | NoSuchEntityException e)
+                        {
+                            selfLinks.add("error " + e.getMessage());
+                        }
+                    }
+                }
+                
+                return selfLinks;
+            };
+            
+            if (deepInsert)
+                return pm.writeDatabase.executeTransaction(insert);
+            else
+                return pm.writeDatabase.executeConcurrentWrite(insert);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new ServerErrorException("Error creating observations", e);
+        }
+    }
+    
+    
+    /*
+     * Get transaction handler for an existing datastream
+     */
+    protected DataStreamTransactionHandler getDataStreamHandler(ResourceId dsId) throws NoSuchEntityException
+    {
+        try
+        {
+            var dsHandler = dsHandlerCache.get(dsId, () -> {
+                var handler = pm.transactionHandler.getDataStreamHandler(dsId);
+                if (handler == null)
+                    throw new NoSuchEntityException(DatastreamEntityHandler.NOT_FOUND_MESSAGE + dsId);
+                return handler;
+            });
+            
+            return dsHandler;
+        }
+        catch (ExecutionException | UncheckedExecutionException e)
+        {
+            if (e.getCause() instanceof NoSuchEntityException)
+                throw (NoSuchEntityException)e.getCause();
+            throw new ServerErrorException("Error loading datastream " + dsId, e.getCause());
+        }
+    }
+    
+    
+    /*
+     * Get UID of linked FOI, checking that it exists
+     */
+    protected String getFoiUri(ResourceId foiId) throws NoSuchEntityException
+    {
+        var foi = pm.foiHandler.foiWriteStore.getCurrentVersion(foiId);
+        if (foi == null)
+            throw new NoSuchEntityException(FoiEntityHandler.NOT_FOUND_MESSAGE + foiId);
+        return foi.getUniqueIdentifier();
+    }
 
 
     @Override
@@ -243,6 +427,57 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
         int skip = q.getSkip(0);
         int limit = Math.min(q.getTopOrDefault(), maxPageSize);
         
+        // observations of a single datastream are sorted by phenomenon time so we can
+        // start the next page right after the last obs of the previous page
+        if (isSortedByTime(path))
+        {
+            var skipToken = FrostUtils.consumeSkipToken();
+            Stream<Entry<BigId, IObsData>> results;
+            
+            if (skipToken != null)
+            {
+                var lastTime = parseSkipTokenTime(skipToken);
+                var lastObsId = parseSkipTokenObsId(skipToken);
+                
+                try
+                {
+                    filter = filter.intersect(new ObsFilter.Builder()
+                        .withPhenomenonTimeDuring(lastTime, Instant.MAX)
+                        .build());
+                }
+                catch (EmptyFilterIntersection e)
+                {
+                    return new EntitySetImpl<>();
+                }
+                
+                // skip obs with same time stamp that were already returned, unless
+                // the last obs was removed, in which case we cannot know which ones
+                var lastObsFound = new boolean[] {!obsReadStore.containsKey(lastObsId)};
+                results = obsReadStore.selectEntries(filter)
+                    .dropWhile(e -> {
+                        if (lastObsFound[0] || e.getValue().getPhenomenonTime().isAfter(lastTime))
+                            return false;
+                        if (lastObsId.equals(e.getKey()))
+                            lastObsFound[0] = true;
+                        return true;
+                    });
+            }
+            else
+                results = obsReadStore.selectEntries(filter);
+            
+            var entries = results
+                .skip(skip)
+                .limit(limit+1) // request limit+1 elements to handle paging
+                .collect(Collectors.toList());
+            
+            var entitySet = entries.stream()
+                .map(e -> toFrostObservation(e.getKey(), e.getValue(), checkResultHasTimeStamp(e.getValue()), q))
+                .collect(Collectors.toCollection(EntitySetImpl::new));
+            
+            return FrostUtils.handlePaging(entitySet, path, q, limit,
+                () -> toSkipToken(entries.get(limit-1).getKey(), entries.get(limit-1).getValue()));
+        }
+        
         // collect result to entity set
         var entitySet = obsReadStore.selectEntries(filter)
             .skip(skip)
@@ -254,6 +489,61 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
     }
     
     
+    /*
+     * Observations are sorted by phenomenon time only within a datastream,
+     * a collection mixing several datastreams can come from different databases
+     */
+    protected boolean isSortedByTime(ResourcePath path)
+    {
+        EntityPathElement idElt = path.getIdentifiedElement();
+        return idElt != null &&
+            (idElt.getEntityType() == EntityType.DATASTREAM ||
+             idElt.getEntityType() == EntityType.MULTIDATASTREAM);
+    }
+    
+    
+    /*
+     * Skip token is made of the phenomenon time and ID of the last obs of the page
+     */
+    protected String toSkipToken(BigId obsId, IObsData obs)
+    {
+        var time = obs.getPhenomenonTime();
+        return time.getEpochSecond() + SKIPTOKEN_TIME_SEP + time.getNano() +
+            SKIPTOKEN_ID_SEP + BigId.toString32(obsId);
+    }
+    
+    
+    protected Instant parseSkipTokenTime(String skipToken)
+    {
+        try
+        {
+            var timeSep = skipToken.indexOf(SKIPTOKEN_TIME_SEP);
+            var idSep = skipToken.indexOf(SKIPTOKEN_ID_SEP, timeSep);
+            return Instant.ofEpochSecond(
+                Long.parseLong(skipToken.substring(0, timeSep)),
+                Long.parseLong(skipToken.substring(timeSep+1, idSep)));
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException(INVALID_SKIPTOKEN_MESSAGE + skipToken);
+        }
+    }
+    
+    
+    protected BigId parseSkipTokenObsId(String skipToken)
+    {
+        try
+        {
+            var idSep = skipToken.indexOf(SKIPTOKEN_ID_SEP);
+            return BigId.fromString32(skipToken.substring(idSep+1));
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException(INVALID_SKIPTOKEN_MESSAGE + skipToken);
+        }
+    }
+    
+    
     @Override
     public void subscribeToCollection(ResourcePath path, Query q, Subscriber<Entity<?>> subscriber)
     {
@@ -269,7 +559,10 @@ public class ObservationEntityHandler implements IResourceHandler<Observation>
             {
                 for (var obs: item.getObservations())
                 {
-                    var staObs = toFrostObservation(BigId.NONE, obs, checkResultHasTimeStamp(obs), q);
+                    // share entity between all subscriptions receiving the same obs
+                    // so that it only needs to be serialized once
+                    var staObs = subscriptionObsCache.asMap().computeIfAbsent(obs,
+                        k -> toFrostObservation(BigId.NONE, obs, checkResultHasTimeStamp(obs), q));
                     subscriber.onNext(staObs);
                 }
             }
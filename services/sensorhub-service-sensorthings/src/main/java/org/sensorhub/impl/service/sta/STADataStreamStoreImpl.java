@@ -55,6 +55,7 @@ class STADataStreamStoreImpl implements ISTADataStreamStore
     private static final String THING_DATASTREAMS_MAP_NAME = "@thing_dstreams";
     private static final String DATASTREAM_THING_MAP_NAME = "@dstream_thing";
     
+    STADatabase database;
     MVStore mvStore;
     IDataStreamStore delegateStore;
     int idScope;
@@ -65,6 +66,7 @@ class STADataStreamStoreImpl implements ISTADataStreamStore
     
     STADataStreamStoreImpl(STADatabase database, IDataStreamStore delegateStore)
     {
+        this.database = database;
         this.mvStore = database.getMVStore();
         this.thingStore = database.getThingStore();
         this.delegateStore = delegateStore;
@@ -91,23 +93,11 @@ class STADataStreamStoreImpl implements ISTADataStreamStore
     @Override
     public DataStreamKey add(long thingID, IDataStreamInfo dsInfo) throws DataStoreException
     {
-        // synchronize on MVStore to avoid autocommit in the middle of things
-        synchronized (mvStore)
-        {
-            long currentVersion = mvStore.getCurrentVersion();
-            
-            try
-            {
-                var dsKey = delegateStore.add(dsInfo);
-                putThingAssoc(thingID, dsKey.getInternalID().getIdAsLong());
-                return dsKey;
-            }
-            catch (Exception e)
-            {
-                mvStore.rollbackTo(currentVersion);
-                throw e;
-            }
-        }
+        return database.executeExclusive(() -> {
+            var dsKey = delegateStore.add(dsInfo);
+            putThingAssoc(thingID, dsKey.getInternalID().getIdAsLong());
+            return dsKey;
+        });
     }
     
 
@@ -121,26 +111,14 @@ class STADataStreamStoreImpl implements ISTADataStreamStore
     @Override 
     public IDataStreamInfo put(long thingID, DataStreamKey key, IDataStreamInfo value)
     {
-        // synchronize on MVStore to avoid autocommit in the middle of things
-        synchronized (mvStore)
-        {
-            long currentVersion = mvStore.getCurrentVersion();
+        return database.executeExclusive(() -> {
+            // we need to create a pure DataStreamInfo before adding to DB
+            IDataStreamInfo pureDsInfo = DataStreamInfo.Builder.from(value).build();
             
-            try
-            {
-                // we need to create a pure DataStreamInfo before adding to DB
-                IDataStreamInfo pureDsInfo = DataStreamInfo.Builder.from(value).build();
-                
-                IDataStreamInfo oldValue = delegateStore.put(key, pureDsInfo);
-                putThingAssoc(thingID, key.getInternalID().getIdAsLong());
-                return oldValue;
-            }
-            catch (Exception e)
-            {
-                mvStore.rollbackTo(currentVersion);
-                throw e;
-            }
-        }
+            IDataStreamInfo oldValue = delegateStore.put(key, pureDsInfo);
+            putThingAssoc(thingID, key.getInternalID().getIdAsLong());
+            return oldValue;
+        });
     }
     
     
@@ -161,23 +139,11 @@ class STADataStreamStoreImpl implements ISTADataStreamStore
 
     public IDataStreamInfo remove(Object key)
     {
-        // synchronize on MVStore to avoid autocommit in the middle of things
-        synchronized (mvStore)
-        {
-            long currentVersion = mvStore.getCurrentVersion();
-            
-            try
-            {
-                IDataStreamInfo oldValue = delegateStore.remove(key);
-                removeThingAssoc((Long)key);
-                return oldValue;
-            }
-            catch (Exception e)
-            {
-                mvStore.rollbackTo(currentVersion);
-                throw e;
-            }
-        }
+        return database.executeExclusive(() -> {
+            IDataStreamInfo oldValue = delegateStore.remove(key);
+            removeThingAssoc((Long)key);
+            return oldValue;
+        });
     }
     
     
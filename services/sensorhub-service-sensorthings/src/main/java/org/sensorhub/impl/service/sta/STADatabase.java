@@ -15,6 +15,7 @@ Copyright (C) 2019 Sensia Software LLC. All Rights Reserved.
 package org.sensorhub.impl.service.sta;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.h2.mvstore.MVStore;
 import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.api.database.IDatabaseRegistry;
@@ -27,6 +28,7 @@ import org.sensorhub.api.datastore.system.ISystemDescStore;
 import org.sensorhub.api.module.ModuleEvent.ModuleState;
 import org.sensorhub.impl.datastore.h2.MVDataStoreInfo;
 import org.sensorhub.impl.datastore.h2.MVObsSystemDatabase;
+import org.vast.util.Asserts;
 
 
 /**
@@ -35,6 +37,11 @@ import org.sensorhub.impl.datastore.h2.MVObsSystemDatabase;
  * Depending on the configuration, this class can either include its own instance
  * of {@link IObsSystemDatabase} or link to one that already exists as a
  * separate module.
+ * </p><p>
+ * Transactions spanning several stores are rolled back by reverting the whole
+ * MVStore to its previous version, so they are executed exclusively. Writes
+ * that only add a single record (e.g. observations) don't need to be rolled back
+ * and can run concurrently with each other, but not during a transaction.
  * </p>
  *
  * @author Alex Robin
@@ -56,6 +63,13 @@ public class STADatabase implements ISTADatabase
     STAObsPropStoreImpl obsPropStore;
     STADataStreamStoreImpl dataStreamStore;
     boolean externalObsDatabaseUsed;
+    final ReentrantReadWriteLock transactionLock = new ReentrantReadWriteLock();
+    
+    
+    interface StoreWrite<T, E extends Exception>
+    {
+        T call() throws E;
+    }
     
     
     STADatabase(STAService service, STADatabaseConfig config)
@@ -152,23 +166,63 @@ public class STADatabase implements ISTADatabase
     
     public <T> T executeTransaction(Callable<T> transaction) throws Exception
     {
-        synchronized (mvStore)
+        return executeExclusive(() -> {
+            if (externalObsDatabaseUsed)
+                return obsDatabase.executeTransaction(transaction);
+            else
+                return transaction.call();
+        });
+    }
+    
+    
+    @Override
+    public <T> T executeConcurrentWrite(Callable<T> write) throws Exception
+    {
+        transactionLock.readLock().lock();
+        try
         {
-            long currentVersion = mvStore.getCurrentVersion();
-            
-            try
-            {
-                if (externalObsDatabaseUsed)
-                    return obsDatabase.executeTransaction(transaction);
-                else
-                    return transaction.call();
-            }
-            catch (Exception e)
+            return write.call();
+        }
+        finally
+        {
+            transactionLock.readLock().unlock();
+        }
+    }
+    
+    
+    /*
+     * Execute writes to several maps that must be rolled back together if
+     * one of them fails. Since rolling back reverts all maps of the MVStore,
+     * this waits for concurrent writes to complete and blocks new ones.
+     */
+    <T, E extends Exception> T executeExclusive(StoreWrite<T, E> write) throws E
+    {
+        // a read lock cannot be upgraded so this would deadlock
+        Asserts.checkState(transactionLock.getReadHoldCount() == 0, "Cannot start a transaction within a concurrent write");
+        
+        transactionLock.writeLock().lock();
+        try
+        {
+            // synchronize on MVStore to avoid autocommit in the middle of things
+            synchronized (mvStore)
             {
-                mvStore.rollbackTo(currentVersion);
-                throw e;
+                long currentVersion = mvStore.getCurrentVersion();
+                
+                try
+                {
+                    return write.call();
+                }
+                catch (Exception e)
+                {
+                    mvStore.rollbackTo(currentVersion);
+                    throw e;
+                }
             }
         }
+        finally
+        {
+            transactionLock.writeLock().unlock();
+        }
     }
     
         
@@ -14,20 +14,27 @@ Copyright (C) 2021 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.service.sta;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.AccessControlException;
+import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import org.sensorhub.api.comm.mqtt.IMqttServer;
 import org.sensorhub.api.comm.mqtt.IMqttServer.IMqttHandler;
 import org.sensorhub.api.comm.mqtt.InvalidPayloadException;
 import org.sensorhub.api.comm.mqtt.InvalidTopicException;
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
@@ -45,6 +52,11 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
  * <p>
  * This class handles communication with the embedded MQTT server and transfers
  * messages to/from the STA service for processing. 
+ * </p><p>
+ * Entities are serialized once per distinct projection ($select/$expand) and the
+ * resulting message is shared by all topics receiving the same entity instance.
+ * Each topic has a bounded queue of messages waiting to be published so that a
+ * slow MQTT server cannot cause unbounded memory growth.
  * </p>
  *
  * @author Alex Robin
@@ -52,6 +64,9 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
  */
 public class STAMqttConnector implements IMqttHandler
 {
+    static final int MAX_PUBLISH_IN_FLIGHT = 16;
+    static final int MAX_CACHED_ENTITIES = 10000;
+    
     STAService service;
     String endpoint;
     CoreSettings coreSettings;
@@ -59,6 +74,9 @@ public class STAMqttConnector implements IMqttHandler
     Service frostService;
     OSHPersistenceManager pm;
     Map<String, MqttSubscriber> subscribers = new ConcurrentHashMap<>();
+    Cache<Entity<?>, ConcurrentMap<String, byte[]>> messageCache;
+    int queueSize;
+    boolean dropOldest;
     
     
     class MqttSubscriber implements Subscriber<Entity<?>>
@@ -69,8 +87,12 @@ public class STAMqttConnector implements IMqttHandler
         ResourcePath path;
         Query query;
         ResultFormatter formatter;
+        String projection;
         AtomicInteger numSubscribers = new AtomicInteger(0);
         AtomicBoolean started = new AtomicBoolean();
+        ArrayDeque<byte[]> pendingMessages = new ArrayDeque<>();
+        int numInFlight;
+        AtomicLong numDropped = new AtomicLong();
         
         MqttSubscriber(String topic, ResourcePath path, Query query, IMqttServer server)
         {
@@ -79,6 +101,7 @@ public class STAMqttConnector implements IMqttHandler
             this.query = query;
             this.server = server;
             this.formatter = coreSettings.getFormatter();
+            this.projection = getProjection(path, query);
         }
         
         @Override
@@ -98,8 +121,78 @@ public class STAMqttConnector implements IMqttHandler
         @Override
         public void onNext(Entity<?> item)
         {
-            var msg = formatter.format(path, query, item, false);
-            server.publish(topic, ByteBuffer.wrap(msg.getBytes()));
+            try
+            {
+                var msg = getMessage(item);
+                
+                boolean publishNow = false;
+                synchronized (this)
+                {
+                    if (numInFlight < MAX_PUBLISH_IN_FLIGHT)
+                    {
+                        numInFlight++;
+                        publishNow = true;
+                    }
+                    else
+                    {
+                        if (pendingMessages.size() >= queueSize)
+                        {
+                            if (dropOldest)
+                                pendingMessages.poll();
+                            else
+                                msg = null;
+                            
+                            if (numDropped.getAndIncrement() % 1000 == 0)
+                                service.getLogger().warn("MQTT topic {} cannot keep up, dropping messages", topic);
+                        }
+                        
+                        if (msg != null)
+                            pendingMessages.offer(msg);
+                    }
+                }
+                
+                if (publishNow)
+                    publish(msg);
+            }
+            finally
+            {
+                // request more as we go since the queue is bounded
+                subscription.request(1);
+            }
+        }
+        
+        protected byte[] getMessage(Entity<?> item)
+        {
+            // format each entity only once per projection
+            var messages = messageCache.asMap().computeIfAbsent(item, k -> new ConcurrentHashMap<>(4));
+            return messages.computeIfAbsent(projection, k -> {
+                // formatter modifies the entity visibility settings
+                synchronized (item)
+                {
+                    return formatter.format(path, query, item, true).getBytes(StandardCharsets.UTF_8);
+                }
+            });
+        }
+        
+        protected void publish(byte[] msg)
+        {
+            server.publish(topic, ByteBuffer.wrap(msg))
+                .whenComplete((ok, err) -> {
+                    if (err != null)
+                        service.getLogger().error("Error publishing to topic {}", topic, err);
+                    
+                    // publish next message in queue
+                    byte[] next;
+                    synchronized (this)
+                    {
+                        next = pendingMessages.poll();
+                        if (next == null)
+                            numInFlight--;
+                    }
+                    
+                    if (next != null)
+                        publish(next);
+                });
         }
 
         @Override
@@ -118,13 +211,18 @@ public class STAMqttConnector implements IMqttHandler
         public void maybeStart()
         {
             if (subscription != null && started.compareAndSet(false, true))
-                subscription.request(Long.MAX_VALUE); // no flow control for now
+                subscription.request(queueSize);
         }
         
         public void close()
         {
             if (subscription != null)
                 subscription.cancel();
+            
+            synchronized (this)
+            {
+                pendingMessages.clear();
+            }
         }
     }
     
@@ -137,11 +235,33 @@ public class STAMqttConnector implements IMqttHandler
         this.topicRegex = Pattern.compile(endpoint + 
             ".*(Things|Sensors|Datastreams|MultiDatastreams|Observations|FeaturesOfInterest)");
         this.frostService = new Service(coreSettings);
+        this.queueSize = Math.max(1, service.getConfiguration().mqttQueueSize);
+        this.dropOldest = service.getConfiguration().mqttDropOldest;
+        
+        // weak keys so entries are removed as soon as entities are not used anymore
+        this.messageCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_CACHED_ENTITIES)
+            .build();
         
         this.pm = (OSHPersistenceManager)PersistenceManagerFactory.getInstance().create();
     }
     
     
+    /*
+     * Generate a key identifying the content of messages generated for the
+     * given path and query, so messages can be shared between topics.
+     * Absolute navigation links are used in messages so they don't depend on
+     * the topic path, like in FROST MQTT extension.
+     */
+    protected String getProjection(ResourcePath path, Query query)
+    {
+        return (path.isRef() ? "$ref;" : "") +
+            "$select=" + query.getSelect() + ";" +
+            "$expand=" + query.getExpand();
+    }
+    
+    
     @Override
     public void onSubscribe(String userID, String topic, IMqttServer server) throws InvalidTopicException
     {
@@ -203,6 +323,13 @@ public class STAMqttConnector implements IMqttHandler
     {
         var collectionUrl = "/" + topic.replaceFirst(endpoint, "");
         
+        // batch topic with observations encoded as DataArray
+        if (STAServlet.CREATE_OBSERVATIONS_PATH.equals(collectionUrl))
+        {
+            createObservations(userID, payload);
+            return;
+        }
+        
         var req = new ServiceRequestBuilder(coreSettings.getFormatter())
             .withRequestType(RequestType.CREATE)
             .withUrlPath(collectionUrl)
@@ -225,6 +352,30 @@ public class STAMqttConnector implements IMqttHandler
     }
     
     
+    protected void createObservations(String userID, ByteBuffer payload) throws InvalidPayloadException
+    {
+        service.getSecurityHandler().setCurrentUser(userID);
+        
+        try
+        {
+            var results = pm.observationHandler.createObservations(Charsets.UTF_8.decode(payload).toString());
+            
+            // there is no response to report individual errors to the client
+            var numErrors = results.stream().filter(s -> s.startsWith("error ")).count();
+            if (numErrors > 0)
+                service.getLogger().warn("{}/{} observations could not be inserted", numErrors, results.size());
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            throw new InvalidPayloadException(e.getMessage());
+        }
+        catch (UnsupportedOperationException | ServerErrorException e)
+        {
+            throw new IllegalStateException("Internal STA error: " + e.getMessage(), e);
+        }
+    }
+    
+    
     private ResourcePath getResourcePath(String topic)
     {
         var queryIdx = topic.indexOf('?');
@@ -241,5 +392,6 @@ public class STAMqttConnector implements IMqttHandler
         for (var sub: subscribers.values())
             sub.close();
         subscribers.clear();
+        messageCache.invalidateAll();
     }
 }
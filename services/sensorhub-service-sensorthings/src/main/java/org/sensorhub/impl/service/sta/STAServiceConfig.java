@@ -74,6 +74,16 @@ public class STAServiceConfig extends HttpServiceConfig
     public boolean enableMqtt = false;
     
     
+    @DisplayInfo(label="MQTT Queue Size", desc="Maximum number of messages waiting to be published on each MQTT topic. "
+        + "Messages are dropped when the queue is full")
+    public int mqttQueueSize = 1024;
+    
+    
+    @DisplayInfo(label="MQTT Drop Oldest", desc="Set to true to drop the oldest queued message when the queue of an MQTT topic is full, "
+        + "or false to drop the new message")
+    public boolean mqttDropOldest = true;
+    
+    
     @DisplayInfo(label="Max Observations Returned", desc="Maximum number of observations returned in a page (max limit)")
     public int maxObsCount = 1000;
     
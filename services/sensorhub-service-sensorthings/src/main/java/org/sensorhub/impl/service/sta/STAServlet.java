@@ -15,11 +15,16 @@ Copyright (C) 2019 Sensia Software LLC. All Rights Reserved.
 package org.sensorhub.impl.service.sta;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessControlException;
+import java.util.stream.Collectors;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import org.sensorhub.api.security.ISecurityManager;
 import de.fraunhofer.iosb.ilt.frostserver.http.common.ServletV1P0;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
 
 
 /**
@@ -33,13 +38,16 @@ import de.fraunhofer.iosb.ilt.frostserver.http.common.ServletV1P0;
 public class STAServlet extends ServletV1P0
 {
     private static final long serialVersionUID = 6257719486841697633L;
+    static final String CREATE_OBSERVATIONS_PATH = "/CreateObservations";
     
     STAService service;
     STASecurity securityHandler;
+    transient volatile OSHPersistenceManager pm;
     
     
     STAServlet(STAService service)
     {
+        this.service = service;
         this.securityHandler = service.getSecurityHandler();
     }
     
@@ -53,7 +61,29 @@ public class STAServlet extends ServletV1P0
             userID = request.getRemoteUser();
         
         securityHandler.setCurrentUser(userID);
-        super.service(request, response);
+        
+        // remove $skiptoken that is not understood by FROST query parser
+        var queryString = request.getQueryString();
+        var filteredQueryString = FrostUtils.extractSkipToken(queryString);
+        if (filteredQueryString != queryString)
+        {
+            request = new HttpServletRequestWrapper(request) {
+                @Override
+                public String getQueryString()
+                {
+                    return filteredQueryString;
+                }
+            };
+        }
+        
+        try
+        {
+            super.service(request, response);
+        }
+        finally
+        {
+            FrostUtils.consumeSkipToken();
+        }
         
         Exception authError = securityHandler.getPermissionError();
         if (authError != null)
@@ -68,5 +98,86 @@ public class STAServlet extends ServletV1P0
                 request.authenticate(response);
         }
     }
+    
+    
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    {
+        if (CREATE_OBSERVATIONS_PATH.equals(request.getPathInfo()))
+            createObservations(request, response);
+        else
+            super.doPost(request, response);
+    }
+    
+    
+    /*
+     * Insert a batch of observations in a single transaction instead of
+     * letting FROST insert them one by one
+     */
+    protected void createObservations(HttpServletRequest request, HttpServletResponse response)
+    {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        
+        try
+        {
+            var content = request.getReader().lines().collect(Collectors.joining("\n"));
+            var pm = getPersistenceManager();
+            var selfLinks = pm.observationHandler.createObservations(content);
+            
+            var coreSettings = pm.getCoreSettings();
+            var json = coreSettings.getFormatter().format(null, null, selfLinks,
+                coreSettings.isUseAbsoluteNavigationLinks());
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            response.setContentType("application/json");
+            response.getWriter().write(json);
+        }
+        catch (AccessControlException e)
+        {
+            // response is generated by service() using permission error
+        }
+        catch (IllegalArgumentException | UnsupportedOperationException | IOException e)
+        {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+        catch (Exception e)
+        {
+            service.getLogger().error("Error inserting observations", e);
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+    
+    
+    protected void sendError(HttpServletResponse response, int code, String msg)
+    {
+        try
+        {
+            response.sendError(code, msg);
+        }
+        catch (IOException e)
+        {
+            service.getLogger().error("Error sending HTTP response", e);
+        }
+    }
+    
+    
+    /*
+     * Persistence manager is created lazily because FROST settings are
+     * not available until the servlet is registered
+     */
+    protected OSHPersistenceManager getPersistenceManager()
+    {
+        var pm = this.pm;
+        if (pm == null)
+        {
+            synchronized (this)
+            {
+                pm = this.pm;
+                if (pm == null)
+                    this.pm = pm = (OSHPersistenceManager)PersistenceManagerFactory.getInstance().create();
+            }
+        }
+        
+        return pm;
+    }
         
 }
@@ -22,6 +22,11 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.jglue.fluentjson.JsonBuilderFactory;
 import org.junit.After;
 import org.junit.Before;
@@ -230,6 +235,134 @@ public class TestSTAService
     }
     
     
+    @Test
+    public void testPageDatastreamObservations() throws Exception
+    {
+        deepInsertThing(1);
+        var dsId = getDataStreamId(0);
+        
+        // add obs, two of them with the same time stamp
+        int numObs = 23;
+        for (int i = 0; i < numObs; i++)
+        {
+            var obs = JsonBuilderFactory.buildObject()
+                .add("phenomenonTime", "2015-04-01T00:" + String.format("%02d", i == 11 ? 10 : i) + ":00Z")
+                .add("result", 100+i)
+                .getJson();
+            sendPostRequest("Datastreams(" + dsId + ")/Observations", obs);
+        }
+        
+        // read all pages following next links
+        var results = new ArrayList<Integer>();
+        var ids = new HashSet<String>();
+        String nextLink = "Datastreams(" + dsId + ")/Observations?$top=4";
+        int numPages = 0;
+        while (nextLink != null)
+        {
+            JsonObject page = sendGetRequest(nextLink).getAsJsonObject();
+            for (var obs: page.getAsJsonArray("value"))
+            {
+                results.add(obs.getAsJsonObject().get("result").getAsInt());
+                assertTrue("Duplicate observation", ids.add(obs.getAsJsonObject().get(ID_PROP).getAsString()));
+            }
+            
+            nextLink = page.has("@iot.nextLink") ? page.get("@iot.nextLink").getAsString() : null;
+            if (nextLink != null)
+                assertTrue(nextLink.contains(FrostUtils.SKIPTOKEN_PARAM + "="));
+            numPages++;
+        }
+        
+        assertEquals(numObs + 2, results.size());
+        assertEquals((numObs + 2 + 3) / 4, numPages);
+        for (int i = 0; i < numObs; i++)
+            assertTrue(results.contains(100+i));
+    }
+    
+    
+    @Test
+    public void testCreateObservations() throws Exception
+    {
+        deepInsertThing(1);
+        var dsId = getDataStreamId(0);
+        
+        // build DataArray request
+        int numObs = 50;
+        var dataArray = new StringBuilder();
+        for (int i = 0; i < numObs; i++)
+        {
+            if (i > 0)
+                dataArray.append(',');
+            dataArray.append(String.format("[\"2015-04-01T00:%02d:00Z\", %d]", i, 100+i));
+        }
+        
+        var json = JsonParser.parseString("[{" +
+            "\"Datastream\": {\"" + ID_PROP + "\": \"" + dsId + "\"}," +
+            "\"components\": [\"phenomenonTime\", \"result\"]," +
+            "\"dataArray@iot.count\": " + numObs + "," +
+            "\"dataArray\": [" + dataArray + "]" +
+            "}]");
+        
+        var response = sendPostRequest("CreateObservations", json);
+        assertEquals(201, response.statusCode());
+        var selfLinks = JsonParser.parseString(response.body()).getAsJsonArray();
+        assertEquals(numObs, selfLinks.size());
+        for (var link: selfLinks)
+            assertTrue(link.getAsString().contains("Observations("));
+        
+        // check all obs were inserted, including the 2 created with the thing
+        assertEquals(numObs + 2, countObservations(dsId));
+    }
+    
+    
+    @Test
+    public void testConcurrentInserts() throws Exception
+    {
+        int numThreads = 4;
+        int numObs = 200;
+        var exec = Executors.newFixedThreadPool(numThreads);
+        
+        try
+        {
+            var futures = new ArrayList<Future<String>>();
+            for (int t = 0; t < numThreads; t++)
+            {
+                final int thingNum = 10 + t;
+                futures.add(exec.submit(() -> {
+                    var thing = deepInsertThing(thingNum);
+                    var thingId = thing.get(ID_PROP).getAsString();
+                    JsonObject col = sendGetRequest("Things(" + thingId + ")/Datastreams").getAsJsonObject();
+                    var dsId = col.getAsJsonArray("value").get(0).getAsJsonObject().get(ID_PROP).getAsString();
+                    
+                    for (int i = 0; i < numObs; i++)
+                    {
+                        var obs = JsonBuilderFactory.buildObject()
+                            .add("phenomenonTime", Instant.parse("2020-01-01T00:00:00Z").plusSeconds(i).toString())
+                            .add("result", i)
+                            .getJson();
+                        sendPostRequest("Datastreams(" + dsId + ")/Observations", obs);
+                    }
+                    
+                    return dsId;
+                }));
+            }
+            
+            var dsIds = new ArrayList<String>();
+            for (var f: futures)
+                dsIds.add(f.get());
+            
+            // check all obs were inserted, including the 2 created with the thing
+            for (var dsId: dsIds)
+                assertEquals(numObs + 2, countObservations(dsId));
+            
+            assertEquals(numThreads*2, sta.writeDatabase.getDataStreamStore().size());
+        }
+        finally
+        {
+            exec.shutdownNow();
+        }
+    }
+    
+    
     protected JsonObject deepInsertThing(int thingNum) throws Exception
     {
         var builder = JsonBuilderFactory.buildObject()
@@ -409,6 +542,22 @@ public class TestSTAService
     }
     
     
+    protected int countObservations(String dsId) throws IOException
+    {
+        // $count is not supported so read all pages
+        int count = 0;
+        String nextLink = "Datastreams(" + dsId + ")/Observations?$top=100";
+        while (nextLink != null)
+        {
+            JsonObject page = sendGetRequest(nextLink).getAsJsonObject();
+            count += page.getAsJsonArray("value").size();
+            nextLink = page.has("@iot.nextLink") ? page.get("@iot.nextLink").getAsString() : null;
+        }
+        
+        return count;
+    }
+    
+    
     protected JsonElement sendGetRequest(String path) throws IOException
     {
         try
@@ -417,7 +566,7 @@ public class TestSTAService
             
             HttpRequest request = HttpRequest.newBuilder()
                 .GET()
-                .uri(URI.create(staRoot + path))
+                .uri(URI.create(path.startsWith("http") ? path : staRoot + path))
                 .build();
                     
             HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());            
@@ -0,0 +1,130 @@
+package org.mp4parser.streaming.input.h264;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Finds NAL units in an Annex B byte stream held in memory.
+ * Start codes are located by testing 8 bytes at a time for zero bytes (SWAR)
+ * and the position and length of each NAL unit payload (without start code)
+ * are stored in reusable arrays, so no allocation is made once the scanner
+ * has grown to the maximum number of NAL units per frame.
+ * This class is not thread-safe.
+ */
+public class AnnexBNalScanner {
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    int[] offsets;
+    int[] lengths;
+    int count;
+
+    public AnnexBNalScanner() {
+        this(16);
+    }
+
+    public AnnexBNalScanner(int initialCapacity) {
+        offsets = new int[initialCapacity];
+        lengths = new int[initialCapacity];
+    }
+
+    /**
+     * Scans the given byte range for NAL units.
+     *
+     * @param data buffer containing one or more Annex B NAL units
+     * @param off  offset of first byte to scan
+     * @param len  number of bytes to scan
+     * @return the number of NAL units found
+     */
+    public int scan(byte[] data, int off, int len) {
+        int end = off + len;
+        count = 0;
+
+        int sc = findStartCode(data, off, end);
+        while (sc >= 0) {
+            int nalStart = sc + 3;
+            int next = findStartCode(data, nalStart, end);
+            int nalEnd = next >= 0 ? next : end;
+
+            // remove leading zero of next 4-byte start code and trailing zero bytes
+            while (nalEnd > nalStart && data[nalEnd - 1] == 0) {
+                nalEnd--;
+            }
+
+            if (nalEnd > nalStart) {
+                add(nalStart, nalEnd - nalStart);
+            }
+            sc = next;
+        }
+
+        return count;
+    }
+
+    /**
+     * Finds the next 3-byte start code prefix (0x000001) in the given range.
+     *
+     * @param data buffer to search
+     * @param from index of first byte to search
+     * @param to   index after the last byte to search
+     * @return the index of the first byte of the start code or -1 if none was found
+     */
+    public static int findStartCode(byte[] data, int from, int to) {
+        int i = from;
+
+        // skip 8 bytes at a time as long as there is no zero byte
+        int wordEnd = to - 8;
+        while (i <= wordEnd) {
+            long v = (long) LONG_VIEW.get(data, i);
+            long zeros = (v - ONES) & ~v & HIGHS;
+            if (zeros != 0) {
+                // check for a start code beginning at each zero byte of the word
+                int p = i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+                int wordLast = i + 7;
+                for (; p <= wordLast; p++) {
+                    if (data[p] == 0 && p + 2 < to && data[p + 1] == 0 && data[p + 2] == 1) {
+                        return p;
+                    }
+                }
+            }
+            i += 8;
+        }
+
+        // check remaining bytes one by one
+        for (; i + 2 < to; i++) {
+            if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void add(int offset, int length) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        count++;
+    }
+
+    public int getNalCount() {
+        return count;
+    }
+
+    public int getNalOffset(int index) {
+        return offsets[index];
+    }
+
+    public int getNalLength(int index) {
+        return lengths[index];
+    }
+
+    public int getNalUnitType(byte[] data, int index) {
+        return data[offsets[index]] & 0x1f;
+    }
+}
@@ -35,9 +35,10 @@ public abstract class H264NalConsumingTrack extends AbstractH264Track {
     LinkedHashMap<Integer, PictureParameterSet> ppsIdToPps = new LinkedHashMap<Integer, PictureParameterSet>();
     BlockingQueue<SeqParameterSet> spsForConfig = new LinkedBlockingDeque<SeqParameterSet>();
 
-    int timescale = 0;
-    int frametick = 0;
-    boolean configured;
+    // MOD AR: protected so subclasses can provide timing when SPS doesn't
+    protected int timescale = 0;
+    protected int frametick = 0;
+    protected boolean configured;
 
     SampleDescriptionBox stsd;
     SeqParameterSet currentSeqParameterSet = null;
@@ -45,6 +46,7 @@ public abstract class H264NalConsumingTrack extends AbstractH264Track {
     List<ByteBuffer> buffered = new ArrayList<ByteBuffer>();
     FirstVclNalDetector fvnd = null;
     H264NalUnitHeader sliceNalUnitHeader;
+    AnnexBNalScanner nalScanner = new AnnexBNalScanner();
 
     public H264NalConsumingTrack() {
     }
@@ -58,6 +60,34 @@ public abstract class H264NalConsumingTrack extends AbstractH264Track {
         return nalUnitHeader;
     }
 
+    /**
+     * MOD AR: consumes all NAL units of an Annex B access unit held in memory.
+     * NAL units are sliced from the array without copying the data.
+     *
+     * @param data buffer containing one or more NAL units with start codes
+     * @param off  offset of the first byte in buffer
+     * @param len  number of bytes to read
+     * @throws IOException if a NAL unit cannot be consumed
+     */
+    protected void consumeAnnexB(byte[] data, int off, int len) throws IOException {
+        int numNals = nalScanner.scan(data, off, len);
+        for (int i = 0; i < numNals; i++) {
+            if (acceptNal(nalScanner.getNalUnitType(data, i))) {
+                consumeNal(ByteBuffer.wrap(data, nalScanner.getNalOffset(i), nalScanner.getNalLength(i)).slice());
+            }
+        }
+    }
+
+    /**
+     * MOD AR: called by {@link #consumeAnnexB(byte[], int, int)} to filter NAL units.
+     *
+     * @param nalUnitType type of NAL unit
+     * @return true if the NAL unit should be consumed
+     */
+    protected boolean acceptNal(int nalUnitType) {
+        return true;
+    }
+
     protected void consumeNal(ByteBuffer nal) throws IOException {
         //LOG.finest("Consume NAL of " + nal.length + " bytes." + Hex.encodeHex(new byte[]{nal[0], nal[1], nal[2], nal[3], nal[4]}));
         H264NalUnitHeader nalUnitHeader = getNalUnitHeader(nal);
@@ -223,7 +253,7 @@ public abstract class H264NalConsumingTrack extends AbstractH264Track {
 
         StreamingSample ss = new StreamingSampleImpl(
                 nals,
-                frametick);
+                getSampleDuration());
         ss.addSampleExtension(createSampleFlagsSampleExtension(nu, sliceHeader));
         ss.addSampleExtension(createPictureOrderCountType0SampleExtension(sliceHeader));
 
@@ -231,6 +261,15 @@ public abstract class H264NalConsumingTrack extends AbstractH264Track {
     }
 
 
+    /**
+     * MOD AR: allows subclasses to provide the actual duration of each sample
+     *
+     * @return duration of the sample being created, in timescale units
+     */
+    protected long getSampleDuration() {
+        return frametick;
+    }
+
     public void setFrametick(int frametick) {
         this.frametick = frametick;
     }
@@ -324,7 +363,11 @@ public abstract class H264NalConsumingTrack extends AbstractH264Track {
             if (sps.vuiParams != null) {
                 _timescale = sps.vuiParams.time_scale >> 1; // Not sure why, but I found this in several places, and it works...
                 _frametick = sps.vuiParams.num_units_in_tick;
-                if (_timescale == 0 || _frametick == 0) {
+                if (!sps.vuiParams.timing_info_present_flag) {
+                    // MOD AR: don't warn, subclasses may provide timing by other means
+                    _timescale = 0;
+                    _frametick = 0;
+                } else if (_timescale == 0 || _frametick == 0) {
                     LOG.warning("vuiParams contain invalid values: time_scale: " + _timescale + " and frame_tick: " + _frametick + ". Setting frame rate to 25fps");
                     _timescale = 0;
                     _frametick = 0;
@@ -15,24 +15,20 @@ Copyright (C) 2012-2016 Sensia Software LLC. All Rights Reserved.
 package org.sensorhub.impl.service.sos.video;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.util.Arrays;
 import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Set;
-import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import org.mp4parser.streaming.StreamingTrack;
-import org.mp4parser.streaming.input.h264.H264NalConsumingTrack;
 import org.mp4parser.streaming.output.mp4.FragmentedMp4Writer;
 import org.sensorhub.api.data.ObsEvent;
 import org.sensorhub.impl.service.sos.AbstractAsyncSerializer;
 import org.sensorhub.impl.service.sos.ISOSAsyncResultSerializer;
 import org.sensorhub.impl.service.sos.SOSServlet;
 import org.sensorhub.impl.service.swe.RecordTemplate;
-import org.vast.data.DataBlockMixed;
+import org.sensorhub.impl.service.sweapi.video.H264ObsTrack;
 import org.vast.ows.sos.GetResultRequest;
 import org.vast.ows.sos.SOSException;
 import com.google.common.collect.Sets;
@@ -45,94 +41,9 @@ public class MP4Serializer extends AbstractAsyncSerializer<GetResultRequest, Obs
     
     int imgComponentIdx = -1;
     FragmentedMp4Writer mp4Muxer;
-    H264DBtrack h264Source;
+    H264ObsTrack h264Source;
     
     
-    class H264DBtrack extends H264NalConsumingTrack
-    {
-        boolean hasTime = false;
-        boolean hasSps = false;
-        boolean hasPps = false;
-        
-        
-        public void sendNextFrame(DataBlock nextFrame, OutputStream os) throws IOException
-        {
-            // write each record in output stream
-            // set creation time as first record time
-            if (!hasTime)
-            {
-                double samplingTime = nextFrame.getDoubleValue(0);
-                ((FragmentedMp4Writer)sampleSink).setCreationTime((long)(samplingTime * 1000.)); 
-                hasTime = true;
-            }
-            
-            // get H264 frame data
-            DataBlock frameBlk = ((DataBlockMixed)nextFrame).getUnderlyingObject()[imgComponentIdx];
-            byte[] frameData = (byte[])frameBlk.getUnderlyingObject();
-            ByteBuffer nals = ByteBuffer.wrap(frameData);
-            
-            // debug
-            //os.write(frameData);
-            //os.flush();
-            
-            // look for next nal unit
-            while (nals.remaining() > 0)
-            {
-                // skip 4 sync bytes
-                // this takes us to beginning of NAL unit content
-                nals.getInt();
-                
-                // read NAL unit type
-                nals.mark();
-                int nalUnitType = (nals.get() & 0x1f);
-                
-                // compute next NAL unit boundaries                        
-                boolean found = false;
-                while (!found && nals.remaining() > 0)
-                {
-                    byte b = nals.get();
-                    int pos = nals.position()-1;
-                    if (b == 1 && nals.get(pos-1) == 0 && nals.get(pos-2) == 0 && nals.get(pos-3) == 0)
-                    {
-                        nals.position(nals.position()-4);
-                        found = true;
-                    }
-                }
-                nals.limit(nals.position());
-                
-                // send to muxer
-                // make sure we send SPS and PPS only once
-                if ((!hasSps && nalUnitType == 7) || (!hasPps && nalUnitType == 8) ||
-                    (hasSps && hasPps && nalUnitType != 7 && nalUnitType != 8)) 
-                {
-                    // slice btw position and limit
-                    // this sends only one NAL unit to muxer
-                    nals.reset();
-                    //nals.position(nals.position()-4);
-                    //nals.mark();
-                    //ch.write(nals);
-                    //nals.reset();
-                    //nals.position(nals.position()+4);
-                    this.consumeNal(nals.slice());
-                    
-                    // to remember we already sent SPS and PPS
-                    if (nalUnitType == 7)
-                        hasSps = true;
-                    else if (nalUnitType == 8)
-                        hasPps = true;
-                }
-                
-                // prepare for slicing next NAL unit
-                nals.position(nals.limit());
-                nals.limit(nals.capacity());
-            }
-            
-            // flush output to make sure encoded frame is sent right away
-            os.flush();
-        }
-    };
-
-
     @Override
     public void init(SOSServlet servlet, AsyncContext asyncCtx, GetResultRequest req, RecordTemplate resultTemplate) throws SOSException, IOException
     {
@@ -156,9 +67,7 @@ public class MP4Serializer extends AbstractAsyncSerializer<GetResultRequest, Obs
         }
         
         // adapt swe common data as H264 streaming track
-        h264Source = new H264DBtrack();
-        h264Source.setTimescale(30); // TODO compute frame rate based on actual stream info
-        h264Source.setFrametick(1);
+        h264Source = new H264ObsTrack(imgComponentIdx);
         
         // start streaming and muxing on the fly
         //os = new FileOutputStream("/home/alex/testsos.mp4");
@@ -178,7 +87,10 @@ public class MP4Serializer extends AbstractAsyncSerializer<GetResultRequest, Obs
     {
         // mux and write each frame to output stream
         for (var obs: item.getObservations())
-            h264Source.sendNextFrame(obs.getResult(), os);
+            h264Source.sendNextFrame(obs);
+        
+        // flush output to make sure encoded frame is sent right away
+        os.flush();
     }
 
 
@@ -0,0 +1,86 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.util.List;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.api.data.IDataStreamInfo;
+import org.sensorhub.api.data.IObsData;
+import org.sensorhub.api.datastore.obs.DataStreamKey;
+import org.sensorhub.impl.service.consys.obs.CustomObsFormat;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.resource.ResourceBinding;
+import net.opengis.swe.v20.BinaryBlock;
+import net.opengis.swe.v20.BinaryEncoding;
+import net.opengis.swe.v20.BinaryMember;
+import net.opengis.swe.v20.DataEncoding;
+
+
+/**
+ * <p>
+ * Custom format providing low-latency CMAF streaming of H264 datastreams.
+ * The schema resource returns an HLS playlist of the live stream and
+ * serves its segments.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class CMAFCustomFormat implements CustomObsFormat
+{
+
+    @Override
+    public boolean isCompatible(IDataStreamInfo dsInfo)
+    {
+        DataEncoding resultEncoding = dsInfo.getRecordEncoding();
+        if (resultEncoding instanceof BinaryEncoding)
+        {
+            List<BinaryMember> mbrList = ((BinaryEncoding)resultEncoding).getMemberList();
+            BinaryBlock videoFrameSpec = null;
+
+            // try to find binary block encoding def in list
+            for (BinaryMember spec: mbrList)
+            {
+                if (spec instanceof BinaryBlock)
+                {
+                    videoFrameSpec = (BinaryBlock)spec;
+                    break;
+                }
+            }
+
+            if (videoFrameSpec != null)
+            {
+                var codec = videoFrameSpec.getCompression();
+                if ("H264".equalsIgnoreCase(codec))
+                    return true;
+            }
+        }
+        
+        return false;
+    }
+
+    @Override
+    public ResourceBinding<DataStreamKey, IDataStreamInfo> getSchemaBinding(RequestContext ctx, IdEncoders idEncoders, IDataStreamInfo dsInfo)
+    {
+        return new CMAFPlaylistBinding(ctx, idEncoders);
+    }
+
+    @Override
+    public ResourceBinding<BigId, IObsData> getObsBinding(RequestContext ctx, IdEncoders idEncoders, IDataStreamInfo dsInfo)
+    {
+        return new CMAFSerializer(ctx, idEncoders, dsInfo);
+    }
+
+}
@@ -0,0 +1,232 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.impl.service.consys.ConSysApiServlet;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.stream.StreamHandler;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * <p>
+ * Internal streaming request used to drive a shared CMAF muxer when HLS
+ * players request the playlist or segments of a datastream that no other
+ * client is currently streaming. No feed is started when regular CMAF or
+ * MP4 clients are already pushing frames to the muxer.<br/>
+ * The feed subscribes to the observations resource of the datastream like
+ * a websocket or MQTT client would, so the frames are pushed to the shared
+ * muxer by a regular {@link CMAFSerializer}. The muxed output is discarded.
+ * </p><p>
+ * The feed is closed by a timer once the last playlist or segment consumer
+ * is gone, i.e. when no request is in progress and none was received for
+ * {@link #IDLE_TIMEOUT} ms, even if the datastream stopped producing data.
+ * Writes then fail so the internal serializer releases the muxer.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class CMAFLiveFeed implements StreamHandler
+{
+    static final long IDLE_TIMEOUT = 10000L;
+    static final long START_TIMEOUT = 10000L;
+    static final long IDLE_CHECK_PERIOD = 2000L;
+    static final ScheduledExecutorService idleTimer = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("CMAFLiveFeedTimer").setDaemon(true).build());
+
+    final H264FragmentMuxer muxer;
+    final OutputStream os;
+    final AtomicBoolean closed = new AtomicBoolean();
+    ScheduledFuture<?> idleCheck;
+    Runnable onStart, onClose;
+
+
+    /**
+     * Acquires the shared muxer of the datastream as a playlist or segment
+     * consumer, and starts a live feed for it if no client is feeding it.
+     * Each call must be matched by a call to {@link #releaseMuxer}.
+     * @param ctx Context of the playlist or segment request
+     * @param idEncoders ID encoders used to build the observations resource URI
+     * @param dsId ID of H264 datastream
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @param chunkDuration see {@link H264FragmentMuxer#acquire(BigId, int, int)}
+     * @return The shared muxer
+     * @throws IOException if the feed cannot be started or no data is received
+     */
+    public static H264FragmentMuxer acquireMuxer(RequestContext ctx, IdEncoders idEncoders, BigId dsId, int imgComponentIdx, int chunkDuration) throws IOException
+    {
+        var muxer = H264FragmentMuxer.acquire(dsId, imgComponentIdx, chunkDuration);
+        muxer.addConsumer();
+
+        try
+        {
+            if (muxer.claimFeed())
+                new CMAFLiveFeed(muxer).start(ctx, idEncoders, dsId, chunkDuration);
+
+            // wait until the first keyframe so clients get a usable playlist
+            // if nothing is received, the feed is left running until it becomes idle
+            // but waiting stops early if the feed is closed
+            if (!muxer.awaitKeyFragment(START_TIMEOUT))
+                throw new IOException("No live data received");
+
+            return muxer;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            releaseMuxer(muxer);
+            throw e;
+        }
+    }
+
+
+    /**
+     * Releases a muxer acquired with {@link #acquireMuxer}
+     * @param muxer The shared muxer
+     */
+    public static void releaseMuxer(H264FragmentMuxer muxer)
+    {
+        muxer.removeConsumer();
+        muxer.release();
+    }
+
+
+    protected CMAFLiveFeed(H264FragmentMuxer muxer)
+    {
+        this.muxer = muxer;
+
+        // output of internal serializer is discarded, but writing to it
+        // fails once players are gone so the serializer releases the muxer
+        this.os = new OutputStream()
+        {
+            @Override
+            public void write(int b) throws IOException
+            {
+                checkActive();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+                checkActive();
+            }
+        };
+    }
+
+
+    protected void start(RequestContext ctx, IdEncoders idEncoders, BigId dsId, int chunkDuration) throws IOException
+    {
+        try
+        {
+            var dsIdStr = idEncoders.getDataStreamIdEncoder().encodeID(dsId);
+            var resourceUri = "/datastreams/" + dsIdStr + "/observations" +
+                "?f=" + URLEncoder.encode(ctx.getFormat().getMimeType(), StandardCharsets.UTF_8);
+            if (chunkDuration > 0)
+                resourceUri += "&" + CMAFSerializer.CHUNK_DURATION_PARAM + "=" + chunkDuration;
+
+            // same as what is done for MQTT subscriptions
+            var servlet = (ConSysApiServlet)ctx.getServlet();
+            servlet.getRootHandler().doGet(new RequestContext(servlet, new URI(resourceUri), this));
+            if (onStart != null)
+                onStart.run();
+
+            // close feed when players are gone, even if no more data is received
+            idleCheck = idleTimer.scheduleWithFixedDelay(this::closeIfIdle,
+                IDLE_CHECK_PERIOD, IDLE_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+        }
+        catch (Exception e)
+        {
+            muxer.feedStopped();
+            throw new IOException("Cannot start live stream", e);
+        }
+    }
+
+
+    protected void closeIfIdle()
+    {
+        if (muxer.isIdle(IDLE_TIMEOUT))
+            close();
+    }
+
+
+    protected void checkActive() throws IOException
+    {
+        if (!closed.get())
+            closeIfIdle();
+
+        if (closed.get())
+            throw new IOException("Live stream stopped");
+    }
+
+
+    @Override
+    public void sendPacket() throws IOException
+    {
+        // nothing to send
+    }
+
+
+    @Override
+    public void sendPacket(long correlId) throws IOException
+    {
+        // nothing to send
+    }
+
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+        return os;
+    }
+
+
+    @Override
+    public void setStartCallback(Runnable onStart)
+    {
+        this.onStart = onStart;
+    }
+
+
+    @Override
+    public void setCloseCallback(Runnable onClose)
+    {
+        this.onClose = onClose;
+    }
+
+
+    @Override
+    public void close()
+    {
+        if (closed.compareAndSet(false, true))
+        {
+            if (idleCheck != null)
+                idleCheck.cancel(false);
+            muxer.feedStopped();
+            if (onClose != null)
+                onClose.run();
+        }
+    }
+}
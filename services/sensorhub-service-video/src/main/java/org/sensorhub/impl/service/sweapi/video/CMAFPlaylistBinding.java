@@ -0,0 +1,274 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.api.data.IDataStreamInfo;
+import org.sensorhub.api.datastore.obs.DataStreamKey;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.resource.ResourceBinding;
+import org.sensorhub.impl.service.consys.resource.ResourceLink;
+import org.sensorhub.impl.service.sweapi.video.H264FragmentMuxer.Fragment;
+
+
+/**
+ * <p>
+ * Generates an HLS media playlist listing the fragments of a live CMAF
+ * stream that are currently cached by the shared muxer.<br/>
+ * In chunked mode, each chunk is listed as a low-latency HLS part and each
+ * group of pictures as a full segment. Otherwise, each fragment is listed
+ * as a segment.
+ * </p><p>
+ * When the 'segment' parameter is set, the requested init segment or cached
+ * fragments are sent instead of the playlist. Segments are served from the
+ * schema resource, like the playlist, so that no observation query is made
+ * for them. If no client is streaming the datastream
+ * with the same chunk duration, a {@link CMAFLiveFeed} is started so the
+ * shared muxer receives live data for as long as players are polling.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class CMAFPlaylistBinding extends ResourceBinding<DataStreamKey, IDataStreamInfo>
+{
+    public static final String HLS_MIME_TYPE = "application/vnd.apple.mpegurl";
+    public static final String SEGMENT_PARAM = "segment";
+    public static final String INIT_SEGMENT = "init";
+    static final double PART_HOLD_BACK_FACTOR = 3.0;
+
+    int chunkDuration;
+    String segment;
+
+
+    public CMAFPlaylistBinding(RequestContext ctx, IdEncoders idEncoders)
+    {
+        super(ctx, idEncoders);
+
+        segment = CMAFSerializer.getParam(ctx, SEGMENT_PARAM);
+        ctx.setResponseHeader("Cache-Control", "no-cache");
+        ctx.setResponseContentType(segment != null ? CMAFSerializer.CMAF_MIME_TYPE : HLS_MIME_TYPE);
+        chunkDuration = CMAFSerializer.getChunkDuration(ctx);
+    }
+
+
+    @Override
+    public IDataStreamInfo deserialize() throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    @Override
+    public void serialize(DataStreamKey key, IDataStreamInfo dsInfo, boolean showLinks) throws IOException
+    {
+        // start live stream if no other client is streaming this datastream
+        var imgComponentIdx = CMAFSerializer.getImageComponentIndex(dsInfo.getRecordStructure());
+        var muxer = CMAFLiveFeed.acquireMuxer(ctx, idEncoders, key.getInternalID(), imgComponentIdx, chunkDuration);
+        try
+        {
+            if (segment != null)
+                writeSegment(muxer, segment, ctx.getOutputStream());
+            else
+                writePlaylist(muxer, getSegmentBaseUrl(), ctx.getOutputStream());
+        }
+        finally
+        {
+            CMAFLiveFeed.releaseMuxer(muxer);
+        }
+    }
+
+
+    protected String getSegmentBaseUrl()
+    {
+        // segments are served by this resource
+        var baseUrl = "?f=" + URLEncoder.encode(ctx.getFormat().getMimeType(), StandardCharsets.UTF_8);
+        if (chunkDuration > 0)
+            baseUrl += "&" + CMAFSerializer.CHUNK_DURATION_PARAM + "=" + chunkDuration;
+        return baseUrl + "&" + SEGMENT_PARAM + "=";
+    }
+
+
+    static void writePlaylist(H264FragmentMuxer muxer, String baseUrl, OutputStream os) throws IOException
+    {
+        var fragments = muxer.getCachedFragments();
+        var segments = muxer.isChunked() ? groupByGop(fragments) : groupByFragment(fragments);
+
+        // compute target durations
+        double maxSegDuration = 0.0, maxPartDuration = 0.0;
+        for (var seg: segments)
+        {
+            maxSegDuration = Math.max(maxSegDuration, getDuration(seg));
+            for (var f: seg)
+                maxPartDuration = Math.max(maxPartDuration, f.getDuration());
+        }
+
+        Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+        writer.write("#EXTM3U\n");
+        writer.write("#EXT-X-VERSION:9\n");
+        writer.write("#EXT-X-TARGETDURATION:" + (int)Math.ceil(Math.max(maxSegDuration, 1.0)) + "\n");
+        if (muxer.isChunked())
+        {
+            // players need the hold back to know how close to live they can play parts
+            writer.write("#EXT-X-SERVER-CONTROL:PART-HOLD-BACK=" + formatDuration(maxPartDuration * PART_HOLD_BACK_FACTOR) + "\n");
+            writer.write("#EXT-X-PART-INF:PART-TARGET=" + formatDuration(maxPartDuration) + "\n");
+        }
+        writer.write("#EXT-X-MEDIA-SEQUENCE:" + getMediaSequence(segments, muxer.isChunked()) + "\n");
+        writer.write("#EXT-X-MAP:URI=\"" + baseUrl + INIT_SEGMENT + "\"\n");
+
+        for (int i = 0; i < segments.size(); i++)
+        {
+            var seg = segments.get(i);
+            var first = seg.get(0);
+            var last = seg.get(seg.size()-1);
+
+            if (muxer.isChunked())
+            {
+                for (var f: seg)
+                {
+                    writer.write("#EXT-X-PART:DURATION=" + formatDuration(f.getDuration()) +
+                        ",URI=\"" + baseUrl + f.getSequenceNumber() + "\"" +
+                        (f.isKeyFrame() ? ",INDEPENDENT=YES" : "") + "\n");
+                }
+
+                // last GOP is still in progress so it is only listed as parts
+                if (i == segments.size()-1)
+                    break;
+            }
+
+            writer.write("#EXTINF:" + formatDuration(getDuration(seg)) + ",\n");
+            if (first == last)
+                writer.write(baseUrl + first.getSequenceNumber() + "\n");
+            else
+                writer.write(baseUrl + first.getSequenceNumber() + "-" + last.getSequenceNumber() + "\n");
+        }
+
+        writer.flush();
+    }
+
+
+    static void writeSegment(H264FragmentMuxer muxer, String segment, OutputStream os) throws IOException
+    {
+        List<Fragment> fragments;
+        if (INIT_SEGMENT.equals(segment))
+        {
+            var initSegment = muxer.getInitSegment();
+            fragments = initSegment != null ? List.of(initSegment) : null;
+        }
+        else
+        {
+            // segment is a single fragment number or a range N-M
+            try
+            {
+                var range = segment.split("-");
+                var first = Long.parseLong(range[0]);
+                var last = range.length > 1 ? Long.parseLong(range[1]) : first;
+                fragments = muxer.getFragments(first, last);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Invalid " + SEGMENT_PARAM + ": " + segment);
+            }
+        }
+
+        if (fragments == null)
+            throw new IOException("Segment " + segment + " is not available anymore");
+
+        for (var f: fragments)
+            f.writeTo(os);
+        os.flush();
+    }
+
+
+    /*
+     * Groups fragments into full GOP segments, skipping the first one
+     * if it doesn't start with a keyframe
+     */
+    static List<List<Fragment>> groupByGop(List<Fragment> fragments)
+    {
+        var segments = new ArrayList<List<Fragment>>();
+        List<Fragment> seg = null;
+
+        for (var f: fragments)
+        {
+            if (f.isKeyFrame())
+            {
+                seg = new ArrayList<>();
+                segments.add(seg);
+            }
+
+            if (seg != null)
+                seg.add(f);
+        }
+
+        return segments;
+    }
+
+
+    static List<List<Fragment>> groupByFragment(List<Fragment> fragments)
+    {
+        var segments = new ArrayList<List<Fragment>>();
+        for (var f: fragments)
+            segments.add(List.of(f));
+        return segments;
+    }
+
+
+    static long getMediaSequence(List<List<Fragment>> segments, boolean chunked)
+    {
+        if (segments.isEmpty())
+            return 0;
+
+        var first = segments.get(0).get(0);
+        return chunked ? first.getGopNumber() : first.getSequenceNumber();
+    }
+
+
+    static double getDuration(List<Fragment> segment)
+    {
+        double duration = 0.0;
+        for (var f: segment)
+            duration += f.getDuration();
+        return duration;
+    }
+
+
+    static String formatDuration(double duration)
+    {
+        return String.format(Locale.US, "%.5f", duration);
+    }
+
+
+    public void startCollection() throws IOException
+    {
+        // nothing to do here
+    }
+
+
+    public void endCollection(Collection<ResourceLink> links) throws IOException
+    {
+        // nothing to do here
+    }
+
+}
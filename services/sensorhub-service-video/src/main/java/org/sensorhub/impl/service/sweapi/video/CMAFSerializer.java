@@ -0,0 +1,188 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import net.opengis.swe.v20.DataComponent;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.api.data.IDataStreamInfo;
+import org.sensorhub.api.data.IObsData;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.resource.ResourceBinding;
+import org.sensorhub.impl.service.consys.resource.ResourceLink;
+import com.google.common.collect.Sets;
+
+
+/**
+ * <p>
+ * Low-latency CMAF serializer for H264 datastreams.<br/>
+ * In streaming mode, fragments are cut every 'chunkDuration' ms (or on each
+ * frame by default) and flushed as soon as they are produced, so that the
+ * servlet container sends them using chunked transfer encoding.<br/>
+ * Segments listed in the HLS playlist are served by {@link CMAFPlaylistBinding}
+ * from the schema resource, so no observation query is made for them.
+ * </p><p>
+ * Only real-time requests share the muxer of the datastream. Historical
+ * requests are muxed separately since they don't start at the same time.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class CMAFSerializer extends ResourceBinding<BigId, IObsData>
+{
+    public static final String CMAF_MIME_TYPE = "video/mp4";
+    public static final String CHUNK_DURATION_PARAM = "chunkDuration";
+    private static final Set<String> IMG_ARRAY_COMPONENT_NAMES = Sets.newHashSet("img", "videoFrame");
+
+    int imgComponentIdx;
+    int chunkDuration;
+    boolean realTime;
+    H264FragmentMuxer mp4Muxer;
+    long lastFragmentSeqNum = -1;
+    boolean initSent;
+
+
+    public CMAFSerializer(RequestContext ctx, IdEncoders idEncoders, IDataStreamInfo dsInfo)
+    {
+        super(ctx, idEncoders);
+
+        ctx.setResponseHeader("Cache-Control", "no-cache");
+        ctx.setResponseContentType(CMAF_MIME_TYPE);
+
+        imgComponentIdx = getImageComponentIndex(dsInfo.getRecordStructure());
+        chunkDuration = getChunkDuration(ctx);
+        realTime = VideoRequestHelper.isRealTime(ctx);
+    }
+
+
+    static int getImageComponentIndex(DataComponent dataStruct)
+    {
+        for (int i = dataStruct.getComponentCount()-1; i >= 0; i--)
+        {
+            if (IMG_ARRAY_COMPONENT_NAMES.contains(dataStruct.getComponent(i).getName()))
+                return i;
+        }
+
+        return 0;
+    }
+
+
+    static String getParam(RequestContext ctx, String name)
+    {
+        var values = ctx.getParameterMap().get(name);
+        return (values != null && values.length > 0) ? values[0] : null;
+    }
+
+
+    static int getChunkDuration(RequestContext ctx)
+    {
+        var val = getParam(ctx, CHUNK_DURATION_PARAM);
+        if (val == null)
+            return 0;
+
+        try
+        {
+            return Math.max(0, Integer.parseInt(val));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid " + CHUNK_DURATION_PARAM + ": " + val);
+        }
+    }
+
+
+    @Override
+    public IObsData deserialize() throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    @Override
+    public void serialize(BigId key, IObsData obs, boolean showLinks) throws IOException
+    {
+        try
+        {
+            // mux each frame only once for all real-time clients of this datastream
+            if (mp4Muxer == null)
+            {
+                mp4Muxer = realTime ?
+                    H264FragmentMuxer.acquireFeed(obs.getDataStreamID(), imgComponentIdx, chunkDuration) :
+                    H264FragmentMuxer.create(imgComponentIdx, chunkDuration);
+            }
+            mp4Muxer.push(obs);
+
+            writeFragments();
+        }
+        catch (IOException e)
+        {
+            // release muxer if client is gone
+            releaseMuxer();
+            throw e;
+        }
+    }
+
+
+    protected void writeFragments() throws IOException
+    {
+        var os = ctx.getOutputStream();
+
+        if (!initSent)
+        {
+            var initSegment = mp4Muxer.getInitSegment();
+            if (initSegment == null)
+                return;
+            initSegment.writeTo(os);
+            initSent = true;
+        }
+
+        // flush each chunk so it is sent right away
+        for (var f: mp4Muxer.getFragmentsAfter(lastFragmentSeqNum))
+        {
+            f.writeTo(os);
+            os.flush();
+            lastFragmentSeqNum = f.getSequenceNumber();
+        }
+    }
+
+
+    protected void releaseMuxer()
+    {
+        if (mp4Muxer != null)
+        {
+            if (realTime)
+                mp4Muxer.releaseFeed();
+            else
+                mp4Muxer.release();
+            mp4Muxer = null;
+        }
+    }
+
+
+    public void startCollection() throws IOException
+    {
+        // nothing to do here
+    }
+
+
+    public void endCollection(Collection<ResourceLink> links) throws IOException
+    {
+        releaseMuxer();
+    }
+
+}
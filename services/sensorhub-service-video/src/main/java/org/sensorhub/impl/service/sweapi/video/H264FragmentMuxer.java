@@ -0,0 +1,632 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.mp4parser.Box;
+import org.mp4parser.boxes.iso14496.part12.MovieFragmentBox;
+import org.mp4parser.boxes.iso14496.part12.SampleFlags;
+import org.mp4parser.boxes.iso14496.part12.TrackRunBox;
+import org.mp4parser.streaming.StreamingSample;
+import org.mp4parser.streaming.StreamingTrack;
+import org.mp4parser.streaming.extensions.SampleFlagsSampleExtension;
+import org.mp4parser.streaming.output.mp4.FragmentedMp4Writer;
+import org.mp4parser.tools.ByteBufferByteChannel;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.data.IObsData;
+
+
+/**
+ * <p>
+ * Fragmented MP4 muxer shared by all clients streaming the same H264
+ * datastream in real-time. Each frame is parsed and muxed only once, and the resulting
+ * init segment (ftyp/moov) and fragments (moof/mdat) are cached as
+ * immutable buffers that every subscribed client writes to its own output.
+ * </p><p>
+ * The muxer is driven by the subscribers themselves: each client acquired
+ * with {@link #acquireFeed} pushes the observations it receives and frames
+ * that were already muxed on behalf of another client are ignored. Clients
+ * joining late receive the cached init segment followed by the fragments
+ * starting at the last keyframe. HLS playlist and segment requests only read
+ * the cache, and a {@link CMAFLiveFeed} is started for them only if no other
+ * client is feeding the muxer.
+ * </p><p>
+ * Historical requests must not use a shared muxer since they don't start
+ * at the same time and their frames would be dropped as being older than
+ * the live ones. They use their own muxer obtained with {@link #create}.
+ * </p><p>
+ * By default, a new fragment is started on each keyframe, or after one
+ * second of media if the GOP is longer than that. In chunked mode
+ * (low-latency CMAF), fragments are cut as soon as the chunk duration is
+ * reached, so they can contain a single frame.
+ * </p><p>
+ * The cache keeps about {@link #CACHE_WINDOW} seconds of media starting at a
+ * keyframe, but is also capped in number of fragments and bytes. When a GOP
+ * is so long that the cap is reached, the oldest GOP is dropped even if it is
+ * the last one, and new clients wait for the next keyframe.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class H264FragmentMuxer
+{
+    public static final int GOP_FRAGMENTS = -1;
+    static final double CACHE_WINDOW = 10.0; // seconds
+    static final int MAX_CACHED_FRAGMENTS = 1000;
+    static final long MAX_CACHED_BYTES = 32L*1024*1024;
+    static final Map<MuxerKey, H264FragmentMuxer> sharedMuxers = new ConcurrentHashMap<>();
+
+    final MuxerKey key;
+    final H264ObsTrack h264Source;
+    final SharedFragmentWriter mp4Muxer;
+    final ArrayDeque<Fragment> fragments = new ArrayDeque<>();
+    Fragment initSegment;
+    Fragment lastKeyFragment;
+    double cachedDuration;
+    long cachedBytes;
+    Instant lastFrameTime;
+    long nextSeqNum = 1;
+    long gopCount;
+    int refCount;
+    int feedCount;
+    int consumerCount;
+    boolean hasLiveFeed;
+    volatile long lastRequestTime;
+
+
+    static class MuxerKey
+    {
+        final BigId dsId;
+        final int chunkDuration;
+
+        MuxerKey(BigId dsId, int chunkDuration)
+        {
+            this.dsId = dsId;
+            this.chunkDuration = chunkDuration;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(dsId, chunkDuration);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof MuxerKey &&
+                Objects.equals(dsId, ((MuxerKey)obj).dsId) &&
+                chunkDuration == ((MuxerKey)obj).chunkDuration;
+        }
+    }
+
+
+    /**
+     * Immutable muxed MP4 segment, shared by all clients
+     */
+    public static class Fragment
+    {
+        final long seqNum;
+        final long gopNum;
+        final boolean isKey;
+        final double duration;
+        final byte[] data;
+
+        Fragment(long seqNum, long gopNum, boolean isKey, double duration, byte[] data)
+        {
+            this.seqNum = seqNum;
+            this.gopNum = gopNum;
+            this.isKey = isKey;
+            this.duration = duration;
+            this.data = data;
+        }
+
+        public long getSequenceNumber()
+        {
+            return seqNum;
+        }
+
+        /**
+         * @return Number of the group of pictures this fragment belongs to.
+         * It is incremented each time a fragment starts with a keyframe.
+         */
+        public long getGopNumber()
+        {
+            return gopNum;
+        }
+
+        public boolean isKeyFrame()
+        {
+            return isKey;
+        }
+
+        /**
+         * @return Duration of media in this fragment, in seconds
+         */
+        public double getDuration()
+        {
+            return duration;
+        }
+
+        public ByteBuffer getBuffer()
+        {
+            return ByteBuffer.wrap(data).asReadOnlyBuffer();
+        }
+
+        public void writeTo(OutputStream os) throws IOException
+        {
+            os.write(data);
+        }
+    }
+
+
+    /*
+     * Writer capturing boxes in memory instead of writing them to a channel,
+     * and starting a new fragment on each keyframe so clients can join there.
+     * Fragments are also cut every second (or every chunk in chunked mode)
+     */
+    class SharedFragmentWriter extends FragmentedMp4Writer
+    {
+        SharedFragmentWriter(StreamingTrack track) throws IOException
+        {
+            super(Arrays.asList(track), null);
+        }
+
+
+        @Override
+        protected boolean isFragmentReady(StreamingTrack streamingTrack, StreamingSample next)
+        {
+            long ts = nextSampleStartTime.get(streamingTrack);
+            long cfst = nextFragmentCreateStartTime.get(streamingTrack);
+            if (ts <= cfst)
+                return false;
+
+            // always start a new fragment on a sync sample
+            SampleFlagsSampleExtension sfExt = next.getSampleExtension(SampleFlagsSampleExtension.class);
+            if (sfExt == null || sfExt.isSyncSample())
+                return true;
+
+            // in chunked mode, also cut fragment when chunk duration is reached
+            if (key.chunkDuration >= 0)
+                return (ts - cfst) * 1000 >= key.chunkDuration * streamingTrack.getTimescale();
+
+            // otherwise cut fragment after one second even if GOP is longer
+            return ts - cfst > streamingTrack.getTimescale();
+        }
+
+
+        @Override
+        protected void writeHeader(Box... boxes) throws IOException
+        {
+            initSegment = new Fragment(0, 0, true, 0.0, toByteArray(boxes));
+        }
+
+
+        @Override
+        protected void writeFragment(Box... boxes) throws IOException
+        {
+            var moof = (MovieFragmentBox)boxes[0];
+            var trun = moof.getTrackRunBoxes().get(0);
+            var isKey = isKeyFragment(trun);
+            if (isKey)
+                gopCount++;
+            addFragment(new Fragment(nextSeqNum++, gopCount,
+                isKey,
+                getDuration(trun),
+                toByteArray(boxes)));
+        }
+
+
+        @Override
+        protected void writeFooter(Box... boxes) throws IOException
+        {
+            // no footer for live streams
+        }
+
+
+        byte[] toByteArray(Box... boxes) throws IOException
+        {
+            long size = 0;
+            for (Box box: boxes)
+                size += box.getSize();
+
+            var buf = ByteBuffer.allocate((int)size);
+            write(new ByteBufferByteChannel(buf), boxes);
+            return buf.array();
+        }
+
+
+        boolean isKeyFragment(TrackRunBox trun)
+        {
+            // check if first sample of fragment is a sync sample
+            if (trun.getEntries().isEmpty())
+                return false;
+            SampleFlags flags = trun.getEntries().get(0).getSampleFlags();
+            return flags == null || !flags.isSampleIsDifferenceSample();
+        }
+
+
+        double getDuration(TrackRunBox trun)
+        {
+            long duration = 0;
+            for (var entry: trun.getEntries())
+                duration += entry.getSampleDuration();
+            return (double)duration / h264Source.getTimescale();
+        }
+    }
+
+
+    /**
+     * Gets the muxer shared by all clients of the given datastream, or
+     * creates it if it doesn't exist yet. Each call must be matched by a
+     * call to {@link #release()}.
+     * @param dsId ID of H264 datastream
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @param chunkDuration max duration of fragments in milliseconds (0 for one
+     * fragment per frame), or {@link #GOP_FRAGMENTS} to cut fragments only on
+     * keyframes or every second
+     * @return The shared muxer instance
+     * @throws IOException if the muxer cannot be created
+     */
+    public static H264FragmentMuxer acquire(BigId dsId, int imgComponentIdx, int chunkDuration) throws IOException
+    {
+        var key = new MuxerKey(dsId, chunkDuration);
+
+        synchronized (sharedMuxers)
+        {
+            var muxer = sharedMuxers.get(key);
+            if (muxer == null)
+            {
+                muxer = new H264FragmentMuxer(key, imgComponentIdx);
+                sharedMuxers.put(key, muxer);
+            }
+
+            muxer.refCount++;
+            return muxer;
+        }
+    }
+
+
+    /**
+     * Gets the shared muxer like {@link #acquire(BigId, int, int)}, for a
+     * client that will push frames to it. Each call must be matched by a
+     * call to {@link #releaseFeed()}.
+     * @param dsId ID of H264 datastream
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @param chunkDuration see {@link #acquire(BigId, int, int)}
+     * @return The shared muxer instance
+     * @throws IOException if the muxer cannot be created
+     */
+    public static H264FragmentMuxer acquireFeed(BigId dsId, int imgComponentIdx, int chunkDuration) throws IOException
+    {
+        var muxer = acquire(dsId, imgComponentIdx, chunkDuration);
+        synchronized (muxer)
+        {
+            muxer.feedCount++;
+        }
+        return muxer;
+    }
+
+
+    /**
+     * Creates a muxer that is not shared with other clients, for requests
+     * that are not real-time
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @param chunkDuration see {@link #acquire(BigId, int, int)}
+     * @return The new muxer instance
+     * @throws IOException if the muxer cannot be created
+     */
+    public static H264FragmentMuxer create(int imgComponentIdx, int chunkDuration) throws IOException
+    {
+        return new H264FragmentMuxer(new MuxerKey(null, chunkDuration), imgComponentIdx);
+    }
+
+
+    /**
+     * Gets an existing muxer without acquiring it
+     * @param dsId ID of H264 datastream
+     * @param chunkDuration see {@link #acquire(BigId, int, int)}
+     * @return The shared muxer instance or null if no client is currently
+     * streaming this datastream
+     */
+    public static H264FragmentMuxer find(BigId dsId, int chunkDuration)
+    {
+        return sharedMuxers.get(new MuxerKey(dsId, chunkDuration));
+    }
+
+
+    protected H264FragmentMuxer(MuxerKey key, int imgComponentIdx) throws IOException
+    {
+        this.key = key;
+
+        // adapt swe common data as H264 streaming track
+        h264Source = new H264ObsTrack(imgComponentIdx);
+        mp4Muxer = new SharedFragmentWriter(h264Source);
+    }
+
+
+    /**
+     * Mux the frame carried by the observation, unless it has already
+     * been pushed by another client
+     * @param obs Observation containing the H264 frame
+     * @throws IOException if the frame cannot be muxed
+     */
+    public synchronized void push(IObsData obs) throws IOException
+    {
+        var frameTime = obs.getPhenomenonTime();
+        if (lastFrameTime != null && !frameTime.isAfter(lastFrameTime))
+            return;
+
+        lastFrameTime = frameTime;
+        h264Source.sendNextFrame(obs);
+    }
+
+
+    protected void addFragment(Fragment f)
+    {
+        fragments.addLast(f);
+        cachedDuration += f.duration;
+        cachedBytes += f.data.length;
+        if (f.isKey)
+            lastKeyFragment = f;
+        notifyAll();
+
+        // drop fragments older than cache window but always keep
+        // the last keyframe fragment so new clients can start there
+        while (!fragments.isEmpty() && fragments.getFirst() != lastKeyFragment &&
+               cachedDuration - fragments.getFirst().duration >= CACHE_WINDOW)
+        {
+            removeFirstFragment();
+        }
+
+        // if the GOP is too long, drop it anyway to bound memory usage
+        while (fragments.size() > MAX_CACHED_FRAGMENTS || cachedBytes > MAX_CACHED_BYTES)
+            removeOldestGop();
+    }
+
+
+    /*
+     * Removes fragments up to the next keyframe fragment, since the ones
+     * following a dropped keyframe cannot be decoded anymore
+     */
+    protected void removeOldestGop()
+    {
+        do
+        {
+            removeFirstFragment();
+        }
+        while (!fragments.isEmpty() && !fragments.getFirst().isKey);
+    }
+
+
+    protected void removeFirstFragment()
+    {
+        var f = fragments.removeFirst();
+        cachedDuration -= f.duration;
+        cachedBytes -= f.data.length;
+        if (f == lastKeyFragment)
+            lastKeyFragment = null;
+    }
+
+
+    /**
+     * @return The init segment (ftyp + moov) or null if not generated yet
+     */
+    public synchronized Fragment getInitSegment()
+    {
+        return initSegment;
+    }
+
+
+    /**
+     * Gets fragments that a client hasn't received yet
+     * @param lastSeqNum Sequence number of the last fragment received by
+     * the client, or a negative value if the client hasn't received any
+     * @return The list of fragments to send to the client. New clients
+     * and clients that fell behind the cache are restarted at the last
+     * keyframe fragment, or get nothing until the next keyframe if it
+     * was dropped from the cache.
+     */
+    public synchronized List<Fragment> getFragmentsAfter(long lastSeqNum)
+    {
+        if (fragments.isEmpty())
+            return Collections.emptyList();
+
+        // restart at last keyframe if client is new or missed fragments
+        if (lastSeqNum < 0 || lastSeqNum < fragments.getFirst().seqNum - 1)
+        {
+            if (lastKeyFragment == null)
+                return Collections.emptyList();
+            lastSeqNum = lastKeyFragment.seqNum - 1;
+        }
+
+        var newFragments = new ArrayList<Fragment>();
+        for (var f: fragments)
+        {
+            if (f.seqNum > lastSeqNum)
+                newFragments.add(f);
+        }
+
+        return newFragments;
+    }
+
+
+    /**
+     * Gets a range of fragments from the cache
+     * @param firstSeqNum Sequence number of first fragment
+     * @param lastSeqNum Sequence number of last fragment (inclusive)
+     * @return The list of fragments or null if some of them are not in cache
+     */
+    public synchronized List<Fragment> getFragments(long firstSeqNum, long lastSeqNum)
+    {
+        var range = new ArrayList<Fragment>();
+        for (var f: fragments)
+        {
+            if (f.seqNum >= firstSeqNum && f.seqNum <= lastSeqNum)
+                range.add(f);
+        }
+
+        if (range.size() != lastSeqNum - firstSeqNum + 1)
+            return null;
+        return range;
+    }
+
+
+    /**
+     * Waits until the init segment and a keyframe fragment are available,
+     * or until all feeds of the muxer are stopped
+     * @param timeout Maximum time to wait, in milliseconds
+     * @return True if fragments are available, false if timeout was reached
+     * or no feed is running anymore
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public synchronized boolean awaitKeyFragment(long timeout) throws InterruptedIOException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        try
+        {
+            long waitTime;
+            while ((initSegment == null || lastKeyFragment == null) && isFed() &&
+                   (waitTime = deadline - System.currentTimeMillis()) > 0)
+                wait(waitTime);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for live stream");
+        }
+
+        return initSegment != null && lastKeyFragment != null;
+    }
+
+
+    /*
+     * True if a client or the internal live feed is pushing frames
+     */
+    boolean isFed()
+    {
+        return feedCount > 0 || hasLiveFeed;
+    }
+
+
+    /**
+     * Records the start of a playlist or segment request, so the live feed
+     * of the muxer is kept running while players are polling it.
+     * Each call must be matched by a call to {@link #removeConsumer()}.
+     */
+    public synchronized void addConsumer()
+    {
+        consumerCount++;
+        lastRequestTime = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Records the end of a playlist or segment request
+     */
+    public synchronized void removeConsumer()
+    {
+        consumerCount--;
+        lastRequestTime = System.currentTimeMillis();
+    }
+
+
+    /**
+     * @return True if no playlist or segment request is in progress and
+     * none was completed during the given delay
+     * @param idleTime Delay in milliseconds
+     */
+    public synchronized boolean isIdle(long idleTime)
+    {
+        return consumerCount <= 0 && System.currentTimeMillis() - lastRequestTime > idleTime;
+    }
+
+
+    /*
+     * Marks the muxer as having an internal live feed
+     * Returns false if the muxer is already fed by a client or a live feed
+     */
+    synchronized boolean claimFeed()
+    {
+        if (isFed())
+            return false;
+        hasLiveFeed = true;
+        return true;
+    }
+
+
+    synchronized void feedStopped()
+    {
+        hasLiveFeed = false;
+        notifyAll();
+    }
+
+
+    /**
+     * @return True if fragments are cut before the end of each GOP
+     */
+    public boolean isChunked()
+    {
+        return key.chunkDuration >= 0;
+    }
+
+
+    /**
+     * @return A snapshot of all fragments currently in cache, oldest first
+     */
+    public synchronized List<Fragment> getCachedFragments()
+    {
+        return new ArrayList<>(fragments);
+    }
+
+
+    /**
+     * Releases a muxer acquired with {@link #acquireFeed}
+     */
+    public void releaseFeed()
+    {
+        synchronized (this)
+        {
+            feedCount--;
+            notifyAll();
+        }
+        release();
+    }
+
+
+    /**
+     * Releases the muxer. A shared muxer is disposed of when the last client is done with it.
+     */
+    public void release()
+    {
+        synchronized (sharedMuxers)
+        {
+            if (--refCount <= 0)
+                sharedMuxers.remove(key, this);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.mp4parser.streaming.input.h264.AnnexBNalScanner;
+import org.mp4parser.streaming.input.h264.H264NalUnitTypes;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.data.IObsData;
+import org.sensorhub.api.datastore.obs.IObsStore;
+import org.sensorhub.api.datastore.obs.ObsFilter;
+import org.vast.data.DataBlockMixed;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+
+/**
+ * <p>
+ * Index of keyframes (IDR) of a stored H264 datastream, mapping the
+ * phenomenon time of each keyframe to the ID of the observation carrying it.
+ * </p><p>
+ * The index is built on demand from the stored datastream: when looking for
+ * the keyframe preceding a seek time, observations are read backward from
+ * that time by time windows of increasing size until a keyframe is found,
+ * so only about one GOP is scanned. Keyframes found this way are kept so
+ * later searches stop as soon as they reach a known keyframe.<br/>
+ * Indexes are kept in memory for the most recently used datastreams only.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class H264KeyframeIndex
+{
+    static final int MAX_INDEXES = 100;
+    static final int MAX_KEYFRAMES = 100000;
+    static final Duration INITIAL_SEARCH_WINDOW = Duration.ofSeconds(2);
+    static final Duration MAX_SEARCH_WINDOW = Duration.ofHours(1);
+    static final Cache<BigId, H264KeyframeIndex> indexes = CacheBuilder.newBuilder()
+        .maximumSize(MAX_INDEXES)
+        .build();
+
+    final BigId dsId;
+    final int imgComponentIdx;
+    final ConcurrentSkipListMap<Instant, BigId> keyframes = new ConcurrentSkipListMap<>();
+
+
+    /**
+     * Gets the keyframe index of a datastream, creating an empty one if needed
+     * @param dsId ID of H264 datastream
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @return The keyframe index
+     */
+    public static H264KeyframeIndex get(BigId dsId, int imgComponentIdx)
+    {
+        return indexes.asMap().computeIfAbsent(dsId, k -> new H264KeyframeIndex(dsId, imgComponentIdx));
+    }
+
+
+    protected H264KeyframeIndex(BigId dsId, int imgComponentIdx)
+    {
+        this.dsId = dsId;
+        this.imgComponentIdx = imgComponentIdx;
+    }
+
+
+    /**
+     * Finds the last keyframe at or before the given time in the stored
+     * datastream, reading only the observations needed to find it
+     * @param obsStore Store containing the datastream observations
+     * @param time Seek time
+     * @return The keyframe time and observation ID, or null if no keyframe
+     * was found within {@link #MAX_SEARCH_WINDOW} of the seek time
+     */
+    public Entry<Instant, BigId> findKeyFrameBefore(IObsStore obsStore, Instant time)
+    {
+        var known = keyframes.floorEntry(time);
+        var scanner = new AnnexBNalScanner();
+        var end = time;
+        var window = INITIAL_SEARCH_WINDOW;
+
+        while (true)
+        {
+            // stop at the last known keyframe since nothing needs to be read before it
+            var begin = time.minus(window);
+            boolean reachedKnown = known != null && !begin.isAfter(known.getKey());
+            if (reachedKnown)
+                begin = known.getKey();
+
+            var found = scanKeyFrames(obsStore, begin, end, scanner);
+            if (found != null)
+                return found;
+
+            if (reachedKnown || (known == null && window.compareTo(MAX_SEARCH_WINDOW) >= 0))
+                return known;
+
+            end = begin;
+            window = window.multipliedBy(2);
+        }
+    }
+
+
+    /*
+     * Reads observations within the time range and records their keyframes
+     * @return The last keyframe in the time range, or null if none
+     */
+    protected Entry<Instant, BigId> scanKeyFrames(IObsStore obsStore, Instant begin, Instant end, AnnexBNalScanner scanner)
+    {
+        var filter = new ObsFilter.Builder()
+            .withDataStreams(dsId)
+            .withPhenomenonTimeDuring(begin, end)
+            .build();
+
+        Entry<Instant, BigId> last = null;
+        try (var entries = obsStore.selectEntries(filter))
+        {
+            var it = entries.iterator();
+            while (it.hasNext())
+            {
+                var e = it.next();
+                var obs = e.getValue();
+                if (addIfKeyFrame(e.getKey(), obs, scanner) &&
+                   (last == null || obs.getPhenomenonTime().isAfter(last.getKey())))
+                    last = new SimpleEntry<>(obs.getPhenomenonTime(), e.getKey());
+            }
+        }
+
+        return last;
+    }
+
+
+    /**
+     * Checks if an observation carries an IDR frame and records it in the index
+     * @param obsId ID of observation
+     * @param obs Observation containing the H264 frame
+     * @param scanner scanner to use to find NAL units
+     * @return true if the frame is a keyframe
+     */
+    public boolean addIfKeyFrame(BigId obsId, IObsData obs, AnnexBNalScanner scanner)
+    {
+        if (!isKeyFrame(obs, imgComponentIdx, scanner))
+            return false;
+
+        keyframes.put(obs.getPhenomenonTime(), obsId);
+        if (keyframes.size() > MAX_KEYFRAMES)
+            keyframes.pollFirstEntry();
+
+        return true;
+    }
+
+
+    public static boolean isKeyFrame(IObsData obs, int imgComponentIdx, AnnexBNalScanner scanner)
+    {
+        var frameBlk = ((DataBlockMixed)obs.getResult()).getUnderlyingObject()[imgComponentIdx];
+        return isKeyFrame((byte[])frameBlk.getUnderlyingObject(), scanner);
+    }
+
+
+    public static boolean isKeyFrame(byte[] frameData, AnnexBNalScanner scanner)
+    {
+        int numNals = scanner.scan(frameData, 0, frameData.length);
+        for (int i = 0; i < numNals; i++)
+        {
+            if (scanner.getNalUnitType(frameData, i) == H264NalUnitTypes.CODED_SLICE_IDR)
+                return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * @param begin Start of time range (inclusive)
+     * @param end End of time range (inclusive)
+     * @return Keyframes already found within the given time range
+     */
+    public NavigableMap<Instant, BigId> getKeyFrames(Instant begin, Instant end)
+    {
+        return keyframes.subMap(begin, true, end, true);
+    }
+}
@@ -0,0 +1,140 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import org.mp4parser.streaming.input.h264.H264NalConsumingTrack;
+import org.mp4parser.streaming.output.mp4.FragmentedMp4Writer;
+import org.sensorhub.api.data.IObsData;
+import org.vast.data.DataBlockMixed;
+import net.opengis.swe.v20.DataBlock;
+
+
+/**
+ * <p>
+ * Adapter exposing H264 frames carried by observations as a streaming
+ * track that can be muxed to MP4.
+ * </p><p>
+ * The timescale and nominal frame duration are read from the SPS VUI timing
+ * info when available, otherwise a 90kHz clock is used. In both cases, the
+ * duration of each sample is computed from the phenomenon times of
+ * successive observations so that variable or unusual frame rates are
+ * reported correctly to players.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class H264ObsTrack extends H264NalConsumingTrack
+{
+    static final int DEFAULT_TIMESCALE = 90000;
+    static final int DEFAULT_FRAME_RATE = 30;
+
+    final int imgComponentIdx;
+    boolean hasTime = false;
+    boolean hasSps = false;
+    boolean hasPps = false;
+    Instant prevFrameTime;
+    Instant frameTime;
+
+
+    public H264ObsTrack(int imgComponentIdx)
+    {
+        this.imgComponentIdx = imgComponentIdx;
+    }
+
+
+    public void sendNextFrame(IObsData obs) throws IOException
+    {
+        // set creation time as first record time
+        if (!hasTime)
+        {
+            ((FragmentedMp4Writer)sampleSink).setCreationTime(obs.getPhenomenonTime().toEpochMilli());
+            hasTime = true;
+        }
+
+        // samples are created when the next frame starts so we need
+        // to keep the time of the previous frame to compute its duration
+        prevFrameTime = frameTime;
+        frameTime = obs.getPhenomenonTime();
+
+        // get H264 frame data
+        DataBlock frameBlk = ((DataBlockMixed)obs.getResult()).getUnderlyingObject()[imgComponentIdx];
+        byte[] frameData = (byte[])frameBlk.getUnderlyingObject();
+
+        // send each NAL unit to muxer
+        consumeAnnexB(frameData, 0, frameData.length);
+    }
+
+
+    @Override
+    protected boolean acceptNal(int nalUnitType)
+    {
+        // make sure we send SPS and PPS only once
+        if (nalUnitType == 7)
+        {
+            if (hasSps)
+                return false;
+            hasSps = true;
+            return true;
+        }
+        else if (nalUnitType == 8)
+        {
+            if (hasPps)
+                return false;
+            hasPps = true;
+            return true;
+        }
+
+        return hasSps && hasPps;
+    }
+
+
+    @Override
+    public synchronized void configure()
+    {
+        super.configure();
+
+        // if SPS has no timing info, use 90kHz clock and default frame rate
+        // actual sample durations are then computed from frame timestamps
+        if (configured && timescale == 0)
+        {
+            timescale = DEFAULT_TIMESCALE;
+            frametick = DEFAULT_TIMESCALE / DEFAULT_FRAME_RATE;
+        }
+    }
+
+
+    @Override
+    protected long getSampleDuration()
+    {
+        long dt = getFrameTimeDelta();
+        return dt > 0 ? dt : frametick;
+    }
+
+
+    /*
+     * Time elapsed between the last two frames, in timescale units
+     */
+    protected long getFrameTimeDelta()
+    {
+        if (prevFrameTime == null || frameTime == null || timescale == 0)
+            return 0;
+
+        long dtNanos = Duration.between(prevFrameTime, frameTime).toNanos();
+        return Math.round(dtNanos * 1e-9 * timescale);
+    }
+}
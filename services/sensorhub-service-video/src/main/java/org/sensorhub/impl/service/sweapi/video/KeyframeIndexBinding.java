@@ -0,0 +1,96 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.api.data.IDataStreamInfo;
+import org.sensorhub.api.datastore.obs.DataStreamKey;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.resource.ResourceBinding;
+import org.sensorhub.impl.service.consys.resource.ResourceLink;
+import com.google.gson.stream.JsonWriter;
+
+
+/**
+ * <p>
+ * Outputs the keyframes indexed so far for an H264 datastream as a JSON
+ * list of phenomenon time / observation ID pairs. The index is filled as
+ * seek requests are made (see {@link H264KeyframeIndex}).
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class KeyframeIndexBinding extends ResourceBinding<DataStreamKey, IDataStreamInfo>
+{
+
+    public KeyframeIndexBinding(RequestContext ctx, IdEncoders idEncoders)
+    {
+        super(ctx, idEncoders);
+
+        ctx.setResponseContentType("application/json");
+    }
+
+
+    @Override
+    public IDataStreamInfo deserialize() throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    @Override
+    public void serialize(DataStreamKey key, IDataStreamInfo dsInfo, boolean showLinks) throws IOException
+    {
+        var imgComponentIdx = CMAFSerializer.getImageComponentIndex(dsInfo.getRecordStructure());
+        var index = H264KeyframeIndex.get(key.getInternalID(), imgComponentIdx);
+        var obsIdEncoder = idEncoders.getObsIdEncoder();
+
+        var writer = new JsonWriter(new OutputStreamWriter(ctx.getOutputStream(), StandardCharsets.UTF_8));
+        writer.beginArray();
+
+        for (var kf: index.getKeyFrames(Instant.MIN, Instant.MAX).entrySet())
+            writeKeyFrame(writer, kf.getKey(), obsIdEncoder.encodeID(kf.getValue()));
+
+        writer.endArray();
+        writer.flush();
+    }
+
+
+    protected void writeKeyFrame(JsonWriter writer, Instant time, String obsId) throws IOException
+    {
+        writer.beginObject();
+        writer.name("time").value(time.toString());
+        writer.name("obsId").value(obsId);
+        writer.endObject();
+    }
+
+
+    public void startCollection() throws IOException
+    {
+        // nothing to do here
+    }
+
+
+    public void endCollection(Collection<ResourceLink> links) throws IOException
+    {
+        // nothing to do here
+    }
+
+}
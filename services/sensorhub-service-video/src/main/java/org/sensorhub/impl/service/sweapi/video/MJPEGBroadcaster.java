@@ -0,0 +1,266 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.data.IObsData;
+import org.vast.data.DataBlockMixed;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * <p>
+ * MJPEG broadcaster shared by all clients of the same datastream.<br/>
+ * Each multipart chunk (MIME header + JPEG frame) is built only once in a
+ * single buffer that is then written to every client with a single write.
+ * </p><p>
+ * Writes are done asynchronously and each client only keeps the latest
+ * frame it hasn't sent yet, so a slow client skips frames instead of
+ * queuing them or blocking the other clients. This is only done for
+ * real-time requests, historical requests must get all frames.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MJPEGBroadcaster
+{
+    static final byte[] MIME_BOUNDARY_JPEG = "--myboundary\r\nContent-Type: image/jpeg\r\nContent-Length: ".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] END_MIME = new byte[] {0xD, 0xA, 0xD, 0xA};
+    static final Map<BigId, MJPEGBroadcaster> broadcasters = new ConcurrentHashMap<>();
+    static final ExecutorService writePool = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("MJPEGWriter-%d").setDaemon(true).build());
+
+    final BigId dsId;
+    final int imgComponentIdx;
+    Instant lastFrameTime;
+    byte[] lastChunk;
+    int refCount;
+
+
+    /**
+     * Output of a single client
+     */
+    public static class Client implements Runnable
+    {
+        final OutputStream os;
+        final AtomicReference<byte[]> nextChunk = new AtomicReference<>();
+        boolean writing;
+        volatile IOException error;
+        final AtomicLong droppedFrames = new AtomicLong();
+
+        public Client(OutputStream os)
+        {
+            this.os = os;
+        }
+
+
+        /**
+         * Schedules the chunk for writing, replacing any chunk not written yet
+         * @param chunk multipart chunk to send
+         * @throws IOException if a previous write failed
+         */
+        public void send(byte[] chunk) throws IOException
+        {
+            if (error != null)
+                throw error;
+
+            // replace pending frame if client is behind
+            if (nextChunk.getAndSet(chunk) != null)
+                droppedFrames.incrementAndGet();
+
+            synchronized (this)
+            {
+                if (!writing)
+                {
+                    writing = true;
+                    writePool.execute(this);
+                }
+            }
+        }
+
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                byte[] chunk;
+                while ((chunk = nextChunk.getAndSet(null)) != null)
+                {
+                    os.write(chunk);
+                    os.flush();
+                }
+            }
+            catch (IOException e)
+            {
+                error = e;
+                nextChunk.set(null);
+            }
+
+            synchronized (this)
+            {
+                // restart if a chunk was added after we exited the loop
+                if (error == null && nextChunk.get() != null)
+                {
+                    writePool.execute(this);
+                }
+                else
+                {
+                    writing = false;
+                    notifyAll();
+                }
+            }
+        }
+
+
+        /**
+         * Waits until all pending chunks have been written
+         * @throws IOException if a write failed
+         */
+        public synchronized void drain() throws IOException
+        {
+            try
+            {
+                while (writing)
+                    wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            if (error != null)
+                throw error;
+        }
+
+
+        /**
+         * @return Number of frames skipped because the client was too slow
+         */
+        public long getDroppedFrames()
+        {
+            return droppedFrames.get();
+        }
+    }
+
+
+    /**
+     * Gets the broadcaster shared by all clients of the given datastream, or
+     * creates it if it doesn't exist yet. Each call must be matched by a
+     * call to {@link #release()}.
+     * @param dsId ID of JPEG datastream
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @return The shared broadcaster instance
+     */
+    public static MJPEGBroadcaster acquire(BigId dsId, int imgComponentIdx)
+    {
+        synchronized (broadcasters)
+        {
+            var broadcaster = broadcasters.get(dsId);
+            if (broadcaster == null)
+            {
+                broadcaster = new MJPEGBroadcaster(dsId, imgComponentIdx);
+                broadcasters.put(dsId, broadcaster);
+            }
+
+            broadcaster.refCount++;
+            return broadcaster;
+        }
+    }
+
+
+    protected MJPEGBroadcaster(BigId dsId, int imgComponentIdx)
+    {
+        this.dsId = dsId;
+        this.imgComponentIdx = imgComponentIdx;
+    }
+
+
+    /**
+     * Gets the multipart chunk for the frame carried by the observation.
+     * The chunk is built only once for all clients.
+     * @param obs Observation containing the JPEG frame
+     * @return The chunk, which must not be modified
+     */
+    public synchronized byte[] getChunk(IObsData obs)
+    {
+        var frameTime = obs.getPhenomenonTime();
+        if (lastFrameTime != null)
+        {
+            if (frameTime.equals(lastFrameTime))
+                return lastChunk;
+
+            // don't cache old frames sent to late clients
+            if (frameTime.isBefore(lastFrameTime))
+                return buildChunk(obs, imgComponentIdx);
+        }
+
+        lastFrameTime = frameTime;
+        lastChunk = buildChunk(obs, imgComponentIdx);
+        return lastChunk;
+    }
+
+
+    /**
+     * Builds the multipart chunk for the frame carried by the observation
+     * @param obs Observation containing the JPEG frame
+     * @param imgComponentIdx index of the video frame component in the record structure
+     * @return The new chunk
+     */
+    public static byte[] buildChunk(IObsData obs, int imgComponentIdx)
+    {
+        // skip time stamp and any other field around image data to provide raw MJPEG
+        // TODO set timestamp in JPEG metadata
+        var rec = obs.getResult();
+        var frameBlk = ((DataBlockMixed)rec).getUnderlyingObject()[imgComponentIdx];
+        var frameData = (byte[])frameBlk.getUnderlyingObject();
+        var frameLength = Integer.toString(frameData.length).getBytes(StandardCharsets.US_ASCII);
+
+        // MIME boundary + JPEG data in a single buffer
+        var chunk = new byte[MIME_BOUNDARY_JPEG.length + frameLength.length + END_MIME.length + frameData.length];
+        int pos = 0;
+        System.arraycopy(MIME_BOUNDARY_JPEG, 0, chunk, pos, MIME_BOUNDARY_JPEG.length);
+        pos += MIME_BOUNDARY_JPEG.length;
+        System.arraycopy(frameLength, 0, chunk, pos, frameLength.length);
+        pos += frameLength.length;
+        System.arraycopy(END_MIME, 0, chunk, pos, END_MIME.length);
+        pos += END_MIME.length;
+        System.arraycopy(frameData, 0, chunk, pos, frameData.length);
+        return chunk;
+    }
+
+
+    /**
+     * Releases the broadcaster. It is disposed of when the last client is done with it.
+     */
+    public void release()
+    {
+        synchronized (broadcasters)
+        {
+            if (--refCount <= 0)
+                broadcasters.remove(dsId);
+        }
+    }
+}
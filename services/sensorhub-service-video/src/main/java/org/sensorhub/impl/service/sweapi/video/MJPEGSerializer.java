@@ -17,7 +17,6 @@ package org.sensorhub.impl.service.sweapi.video;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Set;
-import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import org.sensorhub.api.common.BigId;
 import org.sensorhub.api.common.IdEncoders;
@@ -26,18 +25,21 @@ import org.sensorhub.api.data.IObsData;
 import org.sensorhub.impl.service.consys.resource.RequestContext;
 import org.sensorhub.impl.service.consys.resource.ResourceBinding;
 import org.sensorhub.impl.service.consys.resource.ResourceLink;
-import org.vast.data.DataBlockMixed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import com.google.common.collect.Sets;
 
 
 public class MJPEGSerializer extends ResourceBinding<BigId, IObsData>
 {
     private static final String MIME_TYPE_MULTIPART = "multipart/x-mixed-replace; boundary=--myboundary"; 
-    private static final byte[] MIME_BOUNDARY_JPEG = new String("--myboundary\r\nContent-Type: image/jpeg\r\nContent-Length: ").getBytes();
-    private static final byte[] END_MIME = new byte[] {0xD, 0xA, 0xD, 0xA};
     private static final Set<String> IMG_ARRAY_COMPONENT_NAMES = Sets.newHashSet("img", "videoFrame");
+    private static final Logger log = LoggerFactory.getLogger(MJPEGSerializer.class);
     
     int imgComponentIdx;
+    boolean realTime;
+    MJPEGBroadcaster broadcaster;
+    MJPEGBroadcaster.Client client;
 
 
     public MJPEGSerializer(RequestContext ctx, IdEncoders idEncoders, IDataStreamInfo dsInfo)
@@ -62,6 +64,9 @@ public class MJPEGSerializer extends ResourceBinding<BigId, IObsData>
                 break;
             }
         }
+        
+        // only real-time requests can share chunks and skip frames
+        realTime = VideoRequestHelper.isRealTime(ctx);
     }
     
     
@@ -75,19 +80,33 @@ public class MJPEGSerializer extends ResourceBinding<BigId, IObsData>
     @Override
     public void serialize(BigId key, IObsData obs, boolean showLinks) throws IOException
     {
-        // skip time stamp and any other field around image data to provide raw MJPEG
-        // TODO set timestamp in JPEG metadata
-        var rec = obs.getResult();
-        DataBlock frameBlk = ((DataBlockMixed)rec).getUnderlyingObject()[imgComponentIdx];
-        byte[] frameData = (byte[])frameBlk.getUnderlyingObject();
-        
-        // write MIME boundary
-        ctx.getOutputStream().write(MIME_BOUNDARY_JPEG);
-        ctx.getOutputStream().write(Integer.toString(frameData.length).getBytes());
-        ctx.getOutputStream().write(END_MIME);
+        // write all frames synchronously for historical requests
+        if (!realTime)
+        {
+            var os = ctx.getOutputStream();
+            os.write(MJPEGBroadcaster.buildChunk(obs, imgComponentIdx));
+            os.flush();
+            return;
+        }
         
-        ctx.getOutputStream().write(frameData);
-        ctx.getOutputStream().flush();
+        try
+        {
+            // multipart chunk is built only once for all clients of this datastream
+            if (broadcaster == null)
+            {
+                broadcaster = MJPEGBroadcaster.acquire(obs.getDataStreamID(), imgComponentIdx);
+                client = new MJPEGBroadcaster.Client(ctx.getOutputStream());
+            }
+            
+            // write is asynchronous and only the latest frame is kept if client is slow
+            client.send(broadcaster.getChunk(obs));
+        }
+        catch (IOException e)
+        {
+            // release broadcaster if client is gone
+            release();
+            throw e;
+        }
     }
     
     
@@ -99,7 +118,30 @@ public class MJPEGSerializer extends ResourceBinding<BigId, IObsData>
     
     public void endCollection(Collection<ResourceLink> links) throws IOException
     {
-        // nothing to do here
+        // make sure all frames are written before response is closed
+        try
+        {
+            if (client != null)
+            {
+                client.drain();
+                if (client.getDroppedFrames() > 0)
+                    log.debug("{} frames skipped for slow MJPEG client", client.getDroppedFrames());
+            }
+        }
+        finally
+        {
+            release();
+        }
+    }
+    
+    
+    protected void release()
+    {
+        if (broadcaster != null)
+        {
+            broadcaster.release();
+            broadcaster = null;
+        }
     }
 
 }
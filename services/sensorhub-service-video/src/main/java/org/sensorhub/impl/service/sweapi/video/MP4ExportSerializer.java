@@ -0,0 +1,140 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import net.opengis.swe.v20.DataComponent;
+import org.mp4parser.streaming.StreamingTrack;
+import org.mp4parser.streaming.input.h264.AnnexBNalScanner;
+import org.mp4parser.streaming.output.mp4.FragmentedMp4Writer;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.api.data.IDataStreamInfo;
+import org.sensorhub.api.data.IObsData;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.resource.ResourceBinding;
+import org.sensorhub.impl.service.consys.resource.ResourceLink;
+import com.google.common.collect.Sets;
+
+
+/**
+ * <p>
+ * MP4 serializer used to export archived H264 video for the time period
+ * selected by the observation query.<br/>
+ * Muxing starts on the first keyframe of the period. Seeking to a given
+ * time is done on the schema resource by {@link MP4SeekBinding}, since the
+ * query made by the observation resource cannot be narrowed to start on
+ * the keyframe preceding the seek time.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MP4ExportSerializer extends ResourceBinding<BigId, IObsData>
+{
+    public static final String MP4_MIME_TYPE = "video/mp4";
+    public static final String SEEK_TIME_PARAM = "time";
+    private static final Set<String> IMG_ARRAY_COMPONENT_NAMES = Sets.newHashSet("img", "videoFrame");
+
+    int imgComponentIdx;
+    AnnexBNalScanner nalScanner = new AnnexBNalScanner();
+    H264ObsTrack h264Source;
+    FragmentedMp4Writer mp4Muxer;
+
+
+    public MP4ExportSerializer(RequestContext ctx, IdEncoders idEncoders, IDataStreamInfo dsInfo)
+    {
+        super(ctx, idEncoders);
+
+        if (getSeekTime(ctx) != null)
+            throw new IllegalArgumentException("The " + SEEK_TIME_PARAM + " parameter is only supported on the schema resource");
+
+        ctx.setResponseContentType(MP4_MIME_TYPE);
+
+        // get index of image component
+        DataComponent dataStruct = dsInfo.getRecordStructure();
+        imgComponentIdx = 0;
+        for (int i = dataStruct.getComponentCount()-1; i >= 0; i--)
+        {
+            if (IMG_ARRAY_COMPONENT_NAMES.contains(dataStruct.getComponent(i).getName()))
+            {
+                imgComponentIdx = i;
+                break;
+            }
+        }
+    }
+
+
+    static Instant getSeekTime(RequestContext ctx)
+    {
+        var values = ctx.getParameterMap().get(SEEK_TIME_PARAM);
+        if (values == null || values.length == 0)
+            return null;
+
+        try
+        {
+            return Instant.parse(values[0]);
+        }
+        catch (DateTimeParseException e)
+        {
+            throw new IllegalArgumentException("Invalid " + SEEK_TIME_PARAM + ": " + values[0]);
+        }
+    }
+
+
+    @Override
+    public IObsData deserialize() throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    @Override
+    public void serialize(BigId key, IObsData obs, boolean showLinks) throws IOException
+    {
+        // decoding can only start on a keyframe
+        if (h264Source == null)
+        {
+            if (!H264KeyframeIndex.isKeyFrame(obs, imgComponentIdx, nalScanner))
+                return;
+
+            h264Source = new H264ObsTrack(imgComponentIdx);
+            mp4Muxer = new FragmentedMp4Writer(Arrays.<StreamingTrack>asList(h264Source), Channels.newChannel(ctx.getOutputStream()));
+        }
+
+        h264Source.sendNextFrame(obs);
+    }
+
+
+    public void startCollection() throws IOException
+    {
+        // nothing to do here
+    }
+
+
+    public void endCollection(Collection<ResourceLink> links) throws IOException
+    {
+        // write remaining samples and random access index
+        if (mp4Muxer != null)
+            mp4Muxer.close();
+        ctx.getOutputStream().flush();
+    }
+
+}
@@ -0,0 +1,157 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import org.mp4parser.streaming.StreamingTrack;
+import org.mp4parser.streaming.input.h264.AnnexBNalScanner;
+import org.mp4parser.streaming.output.mp4.FragmentedMp4Writer;
+import org.sensorhub.api.common.IdEncoders;
+import org.sensorhub.api.data.IDataStreamInfo;
+import org.sensorhub.api.datastore.obs.DataStreamKey;
+import org.sensorhub.api.datastore.obs.ObsFilter;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+import org.sensorhub.impl.service.consys.resource.ResourceBinding;
+import org.sensorhub.impl.service.consys.resource.ResourceLink;
+
+
+/**
+ * <p>
+ * Exports archived H264 video as MP4, starting at the last keyframe at or
+ * before the time given by the 'time' parameter.<br/>
+ * The keyframe is found with the {@link H264KeyframeIndex} of the datastream,
+ * and observations are then queried starting at that keyframe, so frames
+ * preceding it are never read. This binding is used on the schema resource,
+ * like CMAF segments, because the time filter of the observation query
+ * cannot be changed once the request has been parsed.
+ * </p><p>
+ * The end of the export is the end of the 'phenomenonTime' parameter if set,
+ * or the end of the datastream otherwise.
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class MP4SeekBinding extends ResourceBinding<DataStreamKey, IDataStreamInfo>
+{
+    public static final String TIME_FILTER_PARAM = "phenomenonTime";
+
+    Instant seekTime;
+    Instant endTime;
+
+
+    public MP4SeekBinding(RequestContext ctx, IdEncoders idEncoders, Instant seekTime)
+    {
+        super(ctx, idEncoders);
+
+        ctx.setResponseContentType(MP4ExportSerializer.MP4_MIME_TYPE);
+        this.seekTime = seekTime;
+        this.endTime = getEndTime(ctx);
+    }
+
+
+    static Instant getEndTime(RequestContext ctx)
+    {
+        var values = ctx.getParameterMap().get(TIME_FILTER_PARAM);
+        if (values == null || values.length == 0)
+            return Instant.MAX;
+
+        var range = values[0].split("/");
+        var end = range[range.length-1].trim();
+        if ("..".equals(end) || "now".equals(end))
+            return Instant.MAX;
+
+        try
+        {
+            return Instant.parse(end);
+        }
+        catch (DateTimeParseException e)
+        {
+            throw new IllegalArgumentException("Invalid " + TIME_FILTER_PARAM + ": " + values[0]);
+        }
+    }
+
+
+    @Override
+    public IDataStreamInfo deserialize() throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+
+    @Override
+    public void serialize(DataStreamKey key, IDataStreamInfo dsInfo, boolean showLinks) throws IOException
+    {
+        var obsStore = VideoRequestHelper.getObsStore(ctx);
+        var imgComponentIdx = CMAFSerializer.getImageComponentIndex(dsInfo.getRecordStructure());
+        var keyframeIndex = H264KeyframeIndex.get(key.getInternalID(), imgComponentIdx);
+
+        // start at the keyframe before seek time, or at the first one after it
+        var keyFrame = keyframeIndex.findKeyFrameBefore(obsStore, seekTime);
+        var startTime = keyFrame != null ? keyFrame.getKey() : seekTime;
+        if (endTime.isBefore(startTime))
+            return;
+
+        var filter = new ObsFilter.Builder()
+            .withDataStreams(key.getInternalID())
+            .withPhenomenonTimeDuring(startTime, endTime)
+            .build();
+
+        var h264Source = new H264ObsTrack(imgComponentIdx);
+        var mp4Muxer = new FragmentedMp4Writer(Arrays.<StreamingTrack>asList(h264Source), Channels.newChannel(ctx.getOutputStream()));
+        var nalScanner = new AnnexBNalScanner();
+        boolean started = keyFrame != null;
+
+        try (var results = obsStore.select(filter))
+        {
+            var it = results.iterator();
+            while (it.hasNext())
+            {
+                var obs = it.next();
+
+                // decoding can only start on a keyframe
+                if (!started)
+                {
+                    if (!H264KeyframeIndex.isKeyFrame(obs, imgComponentIdx, nalScanner))
+                        continue;
+                    started = true;
+                }
+
+                h264Source.sendNextFrame(obs);
+            }
+        }
+
+        // write remaining samples and random access index
+        mp4Muxer.close();
+        ctx.getOutputStream().flush();
+    }
+
+
+    public void startCollection() throws IOException
+    {
+        // nothing to do here
+    }
+
+
+    public void endCollection(Collection<ResourceLink> links) throws IOException
+    {
+        // nothing to do here
+    }
+
+}
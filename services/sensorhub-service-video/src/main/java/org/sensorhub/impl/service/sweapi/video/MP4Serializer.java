@@ -15,24 +15,19 @@ Copyright (C) 2012-2016 Sensia Software LLC. All Rights Reserved.
 package org.sensorhub.impl.service.sweapi.video;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.util.Arrays;
 import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Set;
-import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import org.mp4parser.streaming.StreamingTrack;
-import org.mp4parser.streaming.input.h264.H264NalConsumingTrack;
 import org.mp4parser.streaming.output.mp4.FragmentedMp4Writer;
 import org.sensorhub.api.data.ObsEvent;
 import org.sensorhub.impl.service.sos.AbstractAsyncSerializer;
 import org.sensorhub.impl.service.sos.ISOSAsyncResultSerializer;
 import org.sensorhub.impl.service.sos.SOSServlet;
 import org.sensorhub.impl.service.swe.RecordTemplate;
-import org.vast.data.DataBlockMixed;
 import org.vast.ows.sos.GetResultRequest;
 import org.vast.ows.sos.SOSException;
 import com.google.common.collect.Sets;
@@ -44,95 +39,14 @@ public class MP4Serializer extends AbstractAsyncSerializer<GetResultRequest, Obs
     private static final Set<String> IMG_ARRAY_COMPONENT_NAMES = Sets.newHashSet("img", "videoFrame");
     
     int imgComponentIdx = -1;
-    FragmentedMp4Writer mp4Muxer;
-    H264DBtrack h264Source;
+    boolean realTime;
+    H264FragmentMuxer mp4Muxer;
+    H264ObsTrack h264Source;
+    FragmentedMp4Writer mp4Writer;
+    long lastFragmentSeqNum = -1;
+    boolean initSent;
     
     
-    class H264DBtrack extends H264NalConsumingTrack
-    {
-        boolean hasTime = false;
-        boolean hasSps = false;
-        boolean hasPps = false;
-        
-        
-        public void sendNextFrame(DataBlock nextFrame, OutputStream os) throws IOException
-        {
-            // write each record in output stream
-            // set creation time as first record time
-            if (!hasTime)
-            {
-                double samplingTime = nextFrame.getDoubleValue(0);
-                ((FragmentedMp4Writer)sampleSink).setCreationTime((long)(samplingTime * 1000.)); 
-                hasTime = true;
-            }
-            
-            // get H264 frame data
-            DataBlock frameBlk = ((DataBlockMixed)nextFrame).getUnderlyingObject()[imgComponentIdx];
-            byte[] frameData = (byte[])frameBlk.getUnderlyingObject();
-            ByteBuffer nals = ByteBuffer.wrap(frameData);
-            
-            // debug
-            //os.write(frameData);
-            //os.flush();
-            
-            // look for next nal unit
-            while (nals.remaining() > 0)
-            {
-                // skip 4 sync bytes
-                // this takes us to beginning of NAL unit content
-                nals.getInt();
-                
-                // read NAL unit type
-                nals.mark();
-                int nalUnitType = (nals.get() & 0x1f);
-                
-                // compute next NAL unit boundaries                        
-                boolean found = false;
-                while (!found && nals.remaining() > 0)
-                {
-                    byte b = nals.get();
-                    int pos = nals.position()-1;
-                    if (b == 1 && nals.get(pos-1) == 0 && nals.get(pos-2) == 0 && nals.get(pos-3) == 0)
-                    {
-                        nals.position(nals.position()-4);
-                        found = true;
-                    }
-                }
-                nals.limit(nals.position());
-                
-                // send to muxer
-                // make sure we send SPS and PPS only once
-                if ((!hasSps && nalUnitType == 7) || (!hasPps && nalUnitType == 8) ||
-                    (hasSps && hasPps && nalUnitType != 7 && nalUnitType != 8)) 
-                {
-                    // slice btw position and limit
-                    // this sends only one NAL unit to muxer
-                    nals.reset();
-                    //nals.position(nals.position()-4);
-                    //nals.mark();
-                    //ch.write(nals);
-                    //nals.reset();
-                    //nals.position(nals.position()+4);
-                    this.consumeNal(nals.slice());
-                    
-                    // to remember we already sent SPS and PPS
-                    if (nalUnitType == 7)
-                        hasSps = true;
-                    else if (nalUnitType == 8)
-                        hasPps = true;
-                }
-                
-                // prepare for slicing next NAL unit
-                nals.position(nals.limit());
-                nals.limit(nals.capacity());
-            }
-            
-            // flush output to make sure encoded frame is sent right away
-            os.flush();
-        }
-    };
-
-
     @Override
     public void init(SOSServlet servlet, AsyncContext asyncCtx, GetResultRequest req, RecordTemplate resultTemplate) throws SOSException, IOException
     {
@@ -155,14 +69,16 @@ public class MP4Serializer extends AbstractAsyncSerializer<GetResultRequest, Obs
             }
         }
         
-        // adapt swe common data as H264 streaming track
-        h264Source = new H264DBtrack();
-        h264Source.setTimescale(30); // TODO compute frame rate based on actual stream info
-        h264Source.setFrametick(1);
+        // only real-time streams can share a muxer since historical
+        // requests don't start at the same time
+        var time = req.getTime();
+        realTime = time != null && (time.isNow() || time.beginsNow());
         
-        // start streaming and muxing on the fly
-        //os = new FileOutputStream("/home/alex/testsos.mp4");
-        mp4Muxer = new FragmentedMp4Writer(Arrays.<StreamingTrack>asList(h264Source), Channels.newChannel(os));        
+        if (!realTime)
+        {
+            h264Source = new H264ObsTrack(imgComponentIdx);
+            mp4Writer = new FragmentedMp4Writer(Arrays.<StreamingTrack>asList(h264Source), Channels.newChannel(os));
+        }
     }
 
 
@@ -177,15 +93,66 @@ public class MP4Serializer extends AbstractAsyncSerializer<GetResultRequest, Obs
     protected void writeRecord(ObsEvent item) throws IOException
     {
         // mux and write each frame to output stream
+        if (!realTime)
+        {
+            for (var obs: item.getObservations())
+                h264Source.sendNextFrame(obs);
+            os.flush();
+            return;
+        }
+        
+        // mux each frame only once for all real-time clients of this datastream
+        // and write fragments that were not sent to this client yet
         for (var obs: item.getObservations())
-            h264Source.sendNextFrame(obs.getResult(), os);
+        {
+            if (mp4Muxer == null)
+                mp4Muxer = H264FragmentMuxer.acquireFeed(obs.getDataStreamID(), imgComponentIdx, H264FragmentMuxer.GOP_FRAGMENTS);
+            mp4Muxer.push(obs);
+        }
+        
+        if (mp4Muxer != null)
+            writeFragments();
+    }
+    
+    
+    protected void writeFragments() throws IOException
+    {
+        if (!initSent)
+        {
+            var initSegment = mp4Muxer.getInitSegment();
+            if (initSegment == null)
+                return;
+            initSegment.writeTo(os);
+            initSent = true;
+        }
+        
+        var fragments = mp4Muxer.getFragmentsAfter(lastFragmentSeqNum);
+        for (var f: fragments)
+        {
+            f.writeTo(os);
+            lastFragmentSeqNum = f.getSequenceNumber();
+        }
+        
+        // flush output to make sure encoded frames are sent right away
+        if (!fragments.isEmpty())
+            os.flush();
     }
 
 
     @Override
     protected void close() throws IOException
     {
-        mp4Muxer.close();
+        if (mp4Muxer != null)
+        {
+            mp4Muxer.releaseFeed();
+            mp4Muxer = null;
+        }
+        
+        if (mp4Writer != null)
+        {
+            mp4Writer.close();
+            mp4Writer = null;
+        }
         super.close();
     }
 
@@ -0,0 +1,89 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import org.sensorhub.api.datastore.obs.IObsStore;
+import org.sensorhub.impl.service.consys.ConSysApiSecurity;
+import org.sensorhub.impl.service.consys.RestApiServlet;
+import org.sensorhub.impl.service.consys.resource.RequestContext;
+
+
+/**
+ * <p>
+ * Helper methods shared by the video bindings
+ * </p>
+ *
+ * @since Oct 2026
+ */
+public class VideoRequestHelper
+{
+    static final String[] TIME_PARAMS = {"phenomenonTime", "resultTime"};
+
+
+    private VideoRequestHelper()
+    {
+    }
+
+
+    /**
+     * Checks if a request is for real-time data. Only real-time requests
+     * can share muxers or broadcasters, since historical requests don't
+     * start at the same time.
+     * @param ctx Request context
+     * @return True if the request is a streaming request or if its time
+     * parameter is 'now' or starts at 'now'
+     */
+    public static boolean isRealTime(RequestContext ctx)
+    {
+        if (ctx.isStreamRequest())
+            return true;
+
+        for (var param: TIME_PARAMS)
+        {
+            var values = ctx.getParameterMap().get(param);
+            if (values != null && values.length > 0)
+            {
+                var time = values[0].trim();
+                if ("now".equals(time) || time.startsWith("now/"))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Gets the observation store of the hub, for bindings that need to
+     * read a datastream with a filter different from the one of the request.
+     * The caller must be allowed to read observations.
+     * @param ctx Request context
+     * @return The observation store of the federated database
+     */
+    public static IObsStore getObsStore(RequestContext ctx)
+    {
+        var servlet = (RestApiServlet)ctx.getServlet();
+
+        // check permission since observations are not read through the obs handler
+        var security = servlet.getSecurityHandler();
+        if (security instanceof ConSysApiSecurity)
+            ((ConSysApiSecurity)security).checkPermission(((ConSysApiSecurity)security).obs_permissions.get);
+
+        return servlet.getParentModule().getParentHub()
+            .getDatabaseRegistry()
+            .getFederatedDatabase()
+            .getObservationStore();
+    }
+}
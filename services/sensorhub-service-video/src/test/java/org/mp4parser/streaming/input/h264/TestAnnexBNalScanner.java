@@ -0,0 +1,200 @@
+package org.mp4parser.streaming.input.h264;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class TestAnnexBNalScanner {
+
+    /*
+     * Byte-by-byte reference implementation
+     */
+    static int refFindStartCode(byte[] data, int from, int to) {
+        for (int i = from; i + 2 < to; i++) {
+            if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static List<int[]> refScan(byte[] data, int off, int len) {
+        List<int[]> nals = new ArrayList<>();
+        int end = off + len;
+        int sc = refFindStartCode(data, off, end);
+        while (sc >= 0) {
+            int nalStart = sc + 3;
+            int next = refFindStartCode(data, nalStart, end);
+            int nalEnd = next >= 0 ? next : end;
+            while (nalEnd > nalStart && data[nalEnd - 1] == 0) {
+                nalEnd--;
+            }
+            if (nalEnd > nalStart) {
+                nals.add(new int[] {nalStart, nalEnd - nalStart});
+            }
+            sc = next;
+        }
+        return nals;
+    }
+
+    static void assertSameAsReference(byte[] data, int off, int len) {
+        AnnexBNalScanner scanner = new AnnexBNalScanner(1);
+        int count = scanner.scan(data, off, len);
+        List<int[]> expected = refScan(data, off, len);
+
+        assertEquals("NAL count", expected.size(), count);
+        for (int i = 0; i < count; i++) {
+            assertEquals("NAL " + i + " offset", expected.get(i)[0], scanner.getNalOffset(i));
+            assertEquals("NAL " + i + " length", expected.get(i)[1], scanner.getNalLength(i));
+        }
+
+        // also check every possible search start position
+        for (int from = off; from <= off + len; from++) {
+            assertEquals("start code from " + from,
+                refFindStartCode(data, from, off + len),
+                AnnexBNalScanner.findStartCode(data, from, off + len));
+        }
+    }
+
+    static byte[] bytes(int... values) {
+        byte[] b = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            b[i] = (byte) values[i];
+        }
+        return b;
+    }
+
+    @Test
+    public void testThreeByteStartCodes() {
+        byte[] data = bytes(0, 0, 1, 0x67, 0x42, 0x00, 0x1f, 0, 0, 1, 0x68, 0xce, 0x3c, 0x80, 0, 0, 1, 0x65, 0x88, 0x84);
+        AnnexBNalScanner scanner = new AnnexBNalScanner();
+        assertEquals(3, scanner.scan(data, 0, data.length));
+        assertEquals(7, scanner.getNalUnitType(data, 0));
+        assertEquals(8, scanner.getNalUnitType(data, 1));
+        assertEquals(5, scanner.getNalUnitType(data, 2));
+        assertEquals(3, scanner.getNalOffset(0));
+        assertEquals(4, scanner.getNalLength(0));
+        assertSameAsReference(data, 0, data.length);
+    }
+
+    @Test
+    public void testFourByteStartCodes() {
+        byte[] data = bytes(0, 0, 0, 1, 0x67, 0x42, 0x00, 0x1f, 0, 0, 0, 1, 0x68, 0xce, 0x3c, 0x80, 0, 0, 0, 1, 0x65, 0x88);
+        AnnexBNalScanner scanner = new AnnexBNalScanner();
+        assertEquals(3, scanner.scan(data, 0, data.length));
+        assertEquals(4, scanner.getNalOffset(0));
+        assertEquals(4, scanner.getNalLength(0));
+        assertEquals(12, scanner.getNalOffset(1));
+        assertEquals(4, scanner.getNalLength(1));
+        assertEquals(20, scanner.getNalOffset(2));
+        assertEquals(2, scanner.getNalLength(2));
+        assertSameAsReference(data, 0, data.length);
+    }
+
+    @Test
+    public void testStartCodeAcrossWordBoundary() {
+        // place start codes at every offset around the 8 and 16 byte word boundaries
+        for (int pos = 4; pos < 20; pos++) {
+            for (int scLen = 3; scLen <= 4; scLen++) {
+                byte[] data = new byte[32];
+                Arrays.fill(data, (byte) 0x55);
+                data[0] = 0;
+                data[1] = 0;
+                data[2] = 1;
+                for (int i = 0; i < scLen - 1; i++) {
+                    data[pos + i] = 0;
+                }
+                data[pos + scLen - 1] = 1;
+
+                AnnexBNalScanner scanner = new AnnexBNalScanner();
+                assertEquals("start code at " + pos, 2, scanner.scan(data, 0, data.length));
+                assertEquals(pos + scLen, scanner.getNalOffset(1));
+                assertSameAsReference(data, 0, data.length);
+            }
+        }
+    }
+
+    @Test
+    public void testStartCodeAtBufferStartAndEnd() {
+        // start code at very end of buffer with no payload
+        byte[] data = bytes(0, 0, 1, 0x09, 0x10, 0x20, 0x30, 0x40, 0x50, 0x60, 0, 0, 1);
+        AnnexBNalScanner scanner = new AnnexBNalScanner();
+        assertEquals(1, scanner.scan(data, 0, data.length));
+        assertEquals(3, scanner.getNalOffset(0));
+        assertEquals(7, scanner.getNalLength(0));
+        assertSameAsReference(data, 0, data.length);
+
+        // start code split by the end of the scanned range
+        assertEquals(-1, AnnexBNalScanner.findStartCode(data, 4, data.length - 1));
+        assertSameAsReference(data, 0, data.length - 1);
+
+        // scanning from a non-zero offset
+        assertSameAsReference(data, 1, data.length - 1);
+        assertSameAsReference(data, 3, data.length - 3);
+    }
+
+    @Test
+    public void testTrailingZeroBytes() {
+        byte[] data = bytes(0, 0, 0, 1, 0x65, 0x11, 0x22, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0x00);
+        AnnexBNalScanner scanner = new AnnexBNalScanner();
+        assertEquals(1, scanner.scan(data, 0, data.length));
+        assertEquals(4, scanner.getNalOffset(0));
+        assertEquals(3, scanner.getNalLength(0));
+        assertSameAsReference(data, 0, data.length);
+    }
+
+    @Test
+    public void testEmulationPrevention() {
+        // 0x000003 sequences must not be taken as start codes
+        byte[] data = bytes(0, 0, 0, 1, 0x65, 0, 0, 3, 0, 0, 0, 3, 1, 0, 0, 3, 2, 0x10, 0, 0, 3, 3, 0, 0, 1, 0x41, 0, 0, 3, 0);
+        AnnexBNalScanner scanner = new AnnexBNalScanner();
+        assertEquals(2, scanner.scan(data, 0, data.length));
+        assertEquals(4, scanner.getNalOffset(0));
+        assertEquals(18, scanner.getNalLength(0));
+        assertEquals(25, scanner.getNalOffset(1));
+        assertEquals(4, scanner.getNalLength(1));
+        assertSameAsReference(data, 0, data.length);
+    }
+
+    @Test
+    public void testNoStartCode() {
+        byte[] data = bytes(0x10, 0, 0, 2, 0, 0, 0, 0, 0x20, 0, 0);
+        assertEquals(0, new AnnexBNalScanner().scan(data, 0, data.length));
+        assertEquals(0, new AnnexBNalScanner().scan(new byte[0], 0, 0));
+        assertSameAsReference(data, 0, data.length);
+    }
+
+    @Test
+    public void testRandomStreams() {
+        Random rand = new Random(42);
+        for (int n = 0; n < 500; n++) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            int numNals = 1 + rand.nextInt(10);
+            for (int i = 0; i < numNals; i++) {
+                if (rand.nextBoolean()) {
+                    os.write(0);
+                }
+                os.write(0);
+                os.write(0);
+                os.write(1);
+
+                // payload biased toward 0, 1 and 3 to exercise all code paths
+                int size = rand.nextInt(40);
+                for (int j = 0; j < size; j++) {
+                    int r = rand.nextInt(8);
+                    os.write(r < 3 ? 0 : r == 3 ? 1 : r == 4 ? 3 : rand.nextInt(256));
+                }
+            }
+
+            byte[] data = os.toByteArray();
+            int off = rand.nextInt(Math.min(5, data.length));
+            assertSameAsReference(data, 0, data.length);
+            assertSameAsReference(data, off, data.length - off);
+        }
+    }
+}
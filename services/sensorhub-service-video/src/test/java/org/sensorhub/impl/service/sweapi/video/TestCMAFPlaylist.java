@@ -0,0 +1,181 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.sensorhub.api.common.BigId;
+import org.sensorhub.impl.service.sweapi.video.H264FragmentMuxer.Fragment;
+
+
+public class TestCMAFPlaylist
+{
+    static final String BASE_URL = "?segment=";
+
+
+    protected void addFragment(H264FragmentMuxer muxer, boolean isKey, double duration)
+    {
+        synchronized (muxer)
+        {
+            if (muxer.initSegment == null)
+                muxer.initSegment = new Fragment(0, 0, true, 0.0, new byte[] {0, 0, 0});
+
+            if (isKey)
+                muxer.gopCount++;
+            var seqNum = muxer.nextSeqNum++;
+            var data = new byte[] {(byte)seqNum, (byte)seqNum, (byte)seqNum, (byte)seqNum};
+            muxer.addFragment(new Fragment(seqNum, muxer.gopCount, isKey, duration, data));
+        }
+    }
+
+
+    protected String writePlaylist(H264FragmentMuxer muxer) throws IOException
+    {
+        var os = new ByteArrayOutputStream();
+        CMAFPlaylistBinding.writePlaylist(muxer, BASE_URL, os);
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+
+    protected byte[] writeSegment(H264FragmentMuxer muxer, String segment) throws IOException
+    {
+        var os = new ByteArrayOutputStream();
+        CMAFPlaylistBinding.writeSegment(muxer, segment, os);
+        return os.toByteArray();
+    }
+
+
+    @Test
+    public void testPlaylistWithFullFragments() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, H264FragmentMuxer.GOP_FRAGMENTS);
+        addFragment(muxer, true, 1.0);
+        addFragment(muxer, false, 1.0);
+        addFragment(muxer, true, 0.5);
+
+        assertEquals(
+            "#EXTM3U\n" +
+            "#EXT-X-VERSION:9\n" +
+            "#EXT-X-TARGETDURATION:1\n" +
+            "#EXT-X-MEDIA-SEQUENCE:1\n" +
+            "#EXT-X-MAP:URI=\"?segment=init\"\n" +
+            "#EXTINF:1.00000,\n" +
+            "?segment=1\n" +
+            "#EXTINF:1.00000,\n" +
+            "?segment=2\n" +
+            "#EXTINF:0.50000,\n" +
+            "?segment=3\n",
+            writePlaylist(muxer));
+    }
+
+
+    @Test
+    public void testPlaylistWithChunks() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+        addFragment(muxer, false, 0.5); // skipped since it doesn't start a GOP
+        addFragment(muxer, true, 0.5);
+        addFragment(muxer, false, 0.5);
+        addFragment(muxer, true, 0.25);
+
+        assertEquals(
+            "#EXTM3U\n" +
+            "#EXT-X-VERSION:9\n" +
+            "#EXT-X-TARGETDURATION:1\n" +
+            "#EXT-X-SERVER-CONTROL:PART-HOLD-BACK=1.50000\n" +
+            "#EXT-X-PART-INF:PART-TARGET=0.50000\n" +
+            "#EXT-X-MEDIA-SEQUENCE:1\n" +
+            "#EXT-X-MAP:URI=\"?segment=init\"\n" +
+            "#EXT-X-PART:DURATION=0.50000,URI=\"?segment=2\",INDEPENDENT=YES\n" +
+            "#EXT-X-PART:DURATION=0.50000,URI=\"?segment=3\"\n" +
+            "#EXTINF:1.00000,\n" +
+            "?segment=2-3\n" +
+            "#EXT-X-PART:DURATION=0.25000,URI=\"?segment=4\",INDEPENDENT=YES\n",
+            writePlaylist(muxer));
+    }
+
+
+    @Test
+    public void testSegmentBytesMatchMuxerCache() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+        addFragment(muxer, true, 0.5);
+        addFragment(muxer, false, 0.5);
+        addFragment(muxer, false, 0.5);
+
+        assertArrayEquals(muxer.getInitSegment().data, writeSegment(muxer, CMAFPlaylistBinding.INIT_SEGMENT));
+
+        var cached = muxer.getCachedFragments();
+        assertArrayEquals(cached.get(1).data, writeSegment(muxer, "2"));
+
+        var expected = new ByteArrayOutputStream();
+        for (var f: cached)
+            f.writeTo(expected);
+        assertArrayEquals(expected.toByteArray(), writeSegment(muxer, "1-3"));
+    }
+
+
+    @Test(expected = IOException.class)
+    public void testSegmentNotInCache() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+        addFragment(muxer, true, 0.5);
+        writeSegment(muxer, "1-2");
+    }
+
+
+    @Test
+    public void testLiveFeedOnlyClaimedWhenNotFed() throws Exception
+    {
+        var dsId = BigId.fromLong(1, 10);
+        var client = H264FragmentMuxer.acquireFeed(dsId, 0, 0);
+        var muxer = H264FragmentMuxer.acquire(dsId, 0, 0);
+        assertSame(client, muxer);
+
+        // a client is already pushing frames
+        assertFalse(muxer.claimFeed());
+
+        // last client is gone
+        client.releaseFeed();
+        assertTrue(muxer.claimFeed());
+        assertFalse(muxer.claimFeed());
+
+        muxer.feedStopped();
+        assertTrue(muxer.claimFeed());
+        muxer.feedStopped();
+
+        muxer.release();
+        assertNull(H264FragmentMuxer.find(dsId, 0));
+    }
+
+
+    @Test
+    public void testIdleOnlyWhenNoConsumer() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+
+        muxer.addConsumer();
+        Thread.sleep(20);
+        assertFalse(muxer.isIdle(10));
+
+        muxer.removeConsumer();
+        assertFalse(muxer.isIdle(10));
+        Thread.sleep(20);
+        assertTrue(muxer.isIdle(10));
+    }
+}
@@ -0,0 +1,98 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2026 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.service.sweapi.video;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.sensorhub.impl.service.sweapi.video.H264FragmentMuxer.Fragment;
+
+
+public class TestH264FragmentMuxer
+{
+
+    protected Fragment addFragment(H264FragmentMuxer muxer, boolean isKey, double duration, int size)
+    {
+        synchronized (muxer)
+        {
+            if (isKey)
+                muxer.gopCount++;
+            var f = new Fragment(muxer.nextSeqNum++, muxer.gopCount, isKey, duration, new byte[size]);
+            muxer.addFragment(f);
+            return f;
+        }
+    }
+
+
+    @Test
+    public void testCacheKeepsLastKeyFragment() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+
+        // 30s GOP, all fragments are kept after the keyframe
+        var key = addFragment(muxer, true, 1.0, 100);
+        for (int i = 0; i < 29; i++)
+            addFragment(muxer, false, 1.0, 100);
+        assertEquals(30, muxer.getCachedFragments().size());
+        assertSame(key, muxer.getFragmentsAfter(-1).get(0));
+
+        // older fragments are dropped once next keyframe is received
+        var nextKey = addFragment(muxer, true, 1.0, 100);
+        for (int i = 0; i < 20; i++)
+            addFragment(muxer, false, 1.0, 100);
+        assertSame(nextKey, muxer.getCachedFragments().get(0));
+    }
+
+
+    @Test
+    public void testCacheFragmentCountIsBounded() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+
+        // single GOP longer than the cap
+        addFragment(muxer, true, 0.001, 10);
+        for (int i = 0; i < H264FragmentMuxer.MAX_CACHED_FRAGMENTS + 10; i++)
+            addFragment(muxer, false, 0.001, 10);
+        assertTrue(muxer.getCachedFragments().size() <= H264FragmentMuxer.MAX_CACHED_FRAGMENTS);
+
+        // new clients wait for next keyframe
+        assertTrue(muxer.getFragmentsAfter(-1).isEmpty());
+        var key = addFragment(muxer, true, 0.001, 10);
+        assertSame(key, muxer.getFragmentsAfter(-1).get(0));
+    }
+
+
+    @Test
+    public void testCacheBytesAreBounded() throws Exception
+    {
+        var muxer = H264FragmentMuxer.create(0, 0);
+        int size = 1024*1024;
+        int gopSize = 10;
+
+        int numFragments = (int)(H264FragmentMuxer.MAX_CACHED_BYTES / size) * 2;
+        for (int i = 0; i < numFragments; i++)
+            addFragment(muxer, i % gopSize == 0, 0.001, size);
+
+        var cached = muxer.getCachedFragments();
+        long cachedBytes = 0;
+        for (var f: cached)
+            cachedBytes += f.data.length;
+        assertTrue(cachedBytes <= H264FragmentMuxer.MAX_CACHED_BYTES);
+        assertEquals(muxer.cachedBytes, cachedBytes);
+
+        // whole GOPs were dropped so cache still starts on a keyframe
+        assertTrue(cached.get(0).isKeyFrame());
+        assertFalse(muxer.getFragmentsAfter(-1).isEmpty());
+    }
+}